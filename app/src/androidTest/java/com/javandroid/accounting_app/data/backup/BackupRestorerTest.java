@@ -0,0 +1,133 @@
+package com.javandroid.accounting_app.data.backup;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Restores a synthetic CSV backup and checks rows, relationships and indices.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BackupRestorerTest {
+    private static final String TAG = "BackupRestorerTest";
+    private static final int ORDERS = 20_000;
+    private static final int LINES_PER_ORDER = 5;
+
+    private AppDatabase db;
+    private File backupDir;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        backupDir = new File(context.getCacheDir(), "restore-test");
+        backupDir.mkdirs();
+
+        write("users.csv", "User ID,Username,Password\n1,admin,\"p,w\"\n");
+        write("customers.csv", "Customer ID,Name\n1,\"Ali \"\"A\"\"\"\n");
+        write("products.csv", "Product ID,Name,Barcode,Buy Price,Sell Price,Stock\n1,\"Milk, 1L\",111,1.0,1.5,10.0\n");
+        // Legacy orders.csv without Created At / Paid columns
+        try (Writer w = new FileWriter(new File(backupDir, "orders.csv"))) {
+            w.write("Order ID,Date,Customer ID,User ID,Total\n");
+            for (int o = 1; o <= ORDERS; o++) {
+                w.write(o + ",2024-03-05 14:30:15,1,1,7.5\n");
+            }
+        }
+        try (Writer w = new FileWriter(new File(backupDir, "order_items.csv"))) {
+            w.write("Item ID,Order ID,Product ID,Product Name,Barcode,Quantity,Buy Price,Sell Price\n");
+            long itemId = 1;
+            for (int o = 1; o <= ORDERS; o++) {
+                for (int l = 0; l < LINES_PER_ORDER; l++) {
+                    w.write(itemId++ + "," + o + ",1,\"Milk, 1L\",111,1.0,1.0,1.5\n");
+                }
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        for (File f : backupDir.listFiles()) f.delete();
+        backupDir.delete();
+    }
+
+    @Test
+    public void restore_loadsAllTablesAndRecreatesIndices() throws Exception {
+        long start = System.nanoTime();
+        long rows = new BackupRestorer(db).restore(backupDir, null);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3 + ORDERS + (long) ORDERS * LINES_PER_ORDER, rows);
+        assertEquals("Milk, 1L", db.productDao().getProductByIdSync(1).getName());
+        assertEquals("p,w", db.userDao().getAllUsersSync().get(0).getPassword());
+        assertEquals(LINES_PER_ORDER, db.orderItemDao().getItemsForOrderSync(ORDERS).size());
+        assertTrue(db.orderDao().getOrderByIdSync(1).getCreatedAt() > 0);
+        assertTrue(db.orderDao().getOrderByIdSync(1).isPaid());
+
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' " +
+                "AND name IN ('index_order_items_orderId', 'index_orders_createdAt', 'index_products_barcode')", null)) {
+            cursor.moveToFirst();
+            assertEquals(3, cursor.getInt(0));
+        }
+
+        Log.i(TAG, "Restored " + rows + " rows in " + elapsedMs + " ms");
+    }
+
+    @Test
+    public void restore_badValue_isRejectedBeforeAnythingChanges() throws Exception {
+        assertFailedRestoreLeavesTheDatabase("1,1,1,Milk,111,not a number,1.0,1.5\n");
+    }
+
+    @Test
+    public void restore_rowFailingInTheDatabase_rollsBackEverything() throws Exception {
+        // Parses, but references an order that is not in the backup
+        assertFailedRestoreLeavesTheDatabase("1," + (ORDERS + 1) + ",1,Milk,111,1.0,1.0,1.5\n");
+    }
+
+    private void assertFailedRestoreLeavesTheDatabase(String orderItemRows) throws Exception {
+        long customerId = db.customerDao().insert(new CustomerEntity("Before restore"));
+        write("order_items.csv", "Item ID,Order ID,Product ID,Product Name,Barcode,Quantity,Buy Price,Sell Price\n"
+                + orderItemRows);
+
+        try {
+            new BackupRestorer(db).restore(backupDir, null);
+            fail("Restore of a bad backup succeeded");
+        } catch (Exception expected) {
+            Log.i(TAG, "Rejected: " + expected);
+        }
+
+        assertEquals("Before restore", db.customerDao().getCustomerByIdSync(customerId).getName());
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM sqlite_master WHERE name IN " +
+                "('index_order_items_orderId', 'index_products_barcode', 'order_items_rollup_insert')", null)) {
+            cursor.moveToFirst();
+            assertEquals(3, cursor.getInt(0));
+        }
+    }
+
+    private void write(String name, String content) throws IOException {
+        try (Writer w = new FileWriter(new File(backupDir, name))) {
+            w.write(content);
+        }
+    }
+}
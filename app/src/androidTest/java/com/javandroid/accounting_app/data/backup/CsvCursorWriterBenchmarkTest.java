@@ -0,0 +1,150 @@
+package com.javandroid.accounting_app.data.backup;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.UserEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Streams 1M synthetic order lines to CSV and reports rows/sec and peak heap.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CsvCursorWriterBenchmarkTest {
+    private static final String TAG = "CsvExportBenchmark";
+    private static final int ORDERS = 100_000;
+    private static final int LINES_PER_ORDER = 10; // 1M order lines
+
+    private AppDatabase db;
+    private File outFile;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        outFile = new File(context.getCacheDir(), "order_items_bench.csv");
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        outFile.delete();
+    }
+
+    @Test
+    public void escapesTextFieldsLikeRfc4180() throws Exception {
+        long customerId = db.customerDao().insert(new CustomerEntity("a, \"quoted\" name"));
+        db.customerDao().insert(new CustomerEntity("plain"));
+
+        StringWriter out = new StringWriter();
+        try (Cursor cursor = db.query("SELECT customerId, name FROM customers ORDER BY customerId", null)) {
+            new CsvCursorWriter().write(cursor, out, "Customer ID,Name");
+        }
+
+        assertEquals("Customer ID,Name\n"
+                + customerId + ",\"a, \"\"quoted\"\" name\"\n"
+                + (customerId + 1) + ",plain\n", out.toString());
+    }
+
+    @Test
+    public void benchmarkStreamingExport() throws Exception {
+        seedOrderLines();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baselineHeap = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong peakHeap = new AtomicLong(baselineHeap);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        long start = System.nanoTime();
+        long rows;
+        try (Cursor cursor = db.query(
+                "SELECT itemId, orderId, productId, productName, barcode, quantity, buyPrice, sellPrice " +
+                        "FROM order_items WHERE orderId IS NOT NULL ORDER BY orderId ASC, itemId ASC", null)) {
+            rows = new CsvCursorWriter().write(cursor, outFile,
+                    "Item ID,Order ID,Product ID,Product Name,Barcode,Quantity,Buy Price,Sell Price");
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        running.set(false);
+        sampler.join();
+
+        assertEquals((long) ORDERS * LINES_PER_ORDER, rows);
+        assertEquals(rows + 1, countLines(outFile));
+
+        Log.i(TAG, String.format("Exported %d rows in %d ms (%.0f rows/sec), file %d KB, peak heap +%d KB over baseline",
+                rows, elapsedNanos / 1_000_000, rows / (elapsedNanos / 1e9),
+                outFile.length() / 1024, (peakHeap.get() - baselineHeap) / 1024));
+    }
+
+    private void seedOrderLines() {
+        long customerId = db.customerDao().insert(new CustomerEntity("Bench customer"));
+        long userId = db.userDao().insert(new UserEntity("bench", "bench"));
+
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        SupportSQLiteStatement insertOrder = sql.compileStatement(
+                "INSERT INTO orders (orderId, date, createdAt, total, customerId, userId, isPaid) " +
+                        "VALUES (?, '2024-01-01 10:00:00', 0, 0, ?, ?, 1)");
+        SupportSQLiteStatement insertItem = sql.compileStatement(
+                "INSERT INTO order_items (orderId, productName, barcode, buyPrice, sellPrice, quantity) " +
+                        "VALUES (?, ?, ?, 1.25, 2.5, 3)");
+        sql.beginTransaction();
+        try {
+            for (int o = 1; o <= ORDERS; o++) {
+                insertOrder.bindLong(1, o);
+                insertOrder.bindLong(2, customerId);
+                insertOrder.bindLong(3, userId);
+                insertOrder.executeInsert();
+                for (int l = 0; l < LINES_PER_ORDER; l++) {
+                    insertItem.bindLong(1, o);
+                    insertItem.bindString(2, "Product " + l);
+                    insertItem.bindString(3, "BC" + l);
+                    insertItem.executeInsert();
+                }
+            }
+            sql.setTransactionSuccessful();
+        } finally {
+            sql.endTransaction();
+        }
+    }
+
+    private static long countLines(File file) throws Exception {
+        long lines = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            while (reader.readLine() != null) lines++;
+        }
+        return lines;
+    }
+}
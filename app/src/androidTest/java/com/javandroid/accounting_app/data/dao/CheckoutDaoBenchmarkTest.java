@@ -0,0 +1,105 @@
+package com.javandroid.accounting_app.data.dao;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.data.model.UserEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures checkout commits/sec for small, medium and wholesale carts.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CheckoutDaoBenchmarkTest {
+    private static final String TAG = "CheckoutDaoBenchmark";
+    private static final int PRODUCT_COUNT = 500;
+
+    private AppDatabase db;
+    private long customerId;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        customerId = db.customerDao().insert(new CustomerEntity("Bench customer"));
+        userId = db.userDao().insert(new UserEntity("bench", "bench"));
+        for (int i = 1; i <= PRODUCT_COUNT; i++) {
+            ProductEntity product = new ProductEntity("Product " + i, "BC" + i);
+            product.setProductId(i);
+            product.setStock(1_000_000);
+            product.setBuyPrice(1.0);
+            product.setSellPrice(1.5);
+            db.productDao().insert(product);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void commitOrder_writesOrderItemsAndStockTogether() {
+        List<OrderItemEntity> items = buildItems(3);
+        Map<Long, Double> deltas = new HashMap<>();
+        deltas.put(1L, -2.0);
+
+        long orderId = db.checkoutDao().commitOrder(newOrder(), items, deltas);
+
+        assertEquals(3, db.orderItemDao().getItemsForOrderSync(orderId).size());
+        assertEquals(1_000_000 - 2.0, db.productDao().getProductByIdSync(1).getStock(), 0.001);
+    }
+
+    @Test
+    public void benchmarkCommitsPerSecond() {
+        for (int lines : new int[]{5, 50, 500}) {
+            int commits = lines >= 500 ? 20 : 100;
+            long start = System.nanoTime();
+            for (int i = 0; i < commits; i++) {
+                db.checkoutDao().commitOrder(newOrder(), buildItems(lines), new HashMap<>());
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            double commitsPerSecond = commits / (elapsedNanos / 1_000_000_000.0);
+            Log.i(TAG, lines + "-line cart: " + String.format("%.1f", commitsPerSecond) + " commits/sec");
+        }
+    }
+
+    private OrderEntity newOrder() {
+        return new OrderEntity("2025-01-01 00:00:00", 0, customerId, userId);
+    }
+
+    private List<OrderItemEntity> buildItems(int lines) {
+        List<OrderItemEntity> items = new ArrayList<>(lines);
+        for (int i = 1; i <= lines; i++) {
+            OrderItemEntity item = new OrderItemEntity(0, "BC" + i);
+            item.setProductId((long) i);
+            item.setProductName("Product " + i);
+            item.setBuyPrice(1.0);
+            item.setSellPrice(1.5);
+            item.setQuantity(1);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,107 @@
+package com.javandroid.accounting_app.data.dao;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the drawer's name search (case-insensitive prefix through the name
+ * index) and its recently used list.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CustomerDrawerQueryTest {
+    private static final String TAG = "CustomerDrawerQueryTest";
+    private static final String PREFIX_END = "\uDBFF\uDFFF";
+    private static final int CUSTOMERS = 3_000;
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        db.runInTransaction(() -> {
+            for (int i = 0; i < CUSTOMERS; i++) {
+                db.customerDao().insert(new CustomerEntity("Customer " + i));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private static <T> T await(LiveData<T> liveData) throws InterruptedException {
+        AtomicReference<T> value = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        Observer<T> observer = v -> {
+            value.set(v);
+            latch.countDown();
+        };
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> liveData.observeForever(observer));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> liveData.removeObserver(observer));
+        return value.get();
+    }
+
+    private List<String> search(String prefix) throws InterruptedException {
+        List<String> names = new ArrayList<>();
+        for (CustomerEntity customer : await(db.customerDao().searchByNamePrefix(prefix, prefix + PREFIX_END))) {
+            names.add(customer.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void searchByNamePrefix_ignoresCaseAndKeepsNameOrder() throws InterruptedException {
+        db.customerDao().insert(new CustomerEntity("ali reza"));
+        db.customerDao().insert(new CustomerEntity("Alireza"));
+        db.customerDao().insert(new CustomerEntity("Bob Ali"));
+        db.customerDao().insert(new CustomerEntity("علی رضایی"));
+
+        long start = System.nanoTime();
+        List<String> names = search("ALI");
+        Log.i(TAG, "Prefix search in " + (System.nanoTime() - start) / 1_000 + " us");
+        assertEquals(Arrays.asList("ali reza", "Alireza"), names);
+        assertEquals(Arrays.asList("علی رضایی"), search("علی"));
+        assertEquals(CUSTOMERS + 4, search("").size());
+        assertEquals(111, search("customer 29").size()); // 29, 290-299 and 2900-2999
+    }
+
+    @Test
+    public void recentlyUsed_newestFirst() throws InterruptedException {
+        db.customerDao().markUsed(7, 1_000);
+        db.customerDao().markUsed(3, 3_000);
+        db.customerDao().markUsed(5, 2_000);
+
+        List<Long> ids = new ArrayList<>();
+        for (CustomerEntity customer : await(db.customerDao().getRecentlyUsed(2))) {
+            ids.add(customer.getCustomerId());
+        }
+        assertEquals(Arrays.asList(3L, 5L), ids);
+    }
+}
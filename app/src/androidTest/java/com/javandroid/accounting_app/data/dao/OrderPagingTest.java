@@ -0,0 +1,130 @@
+package com.javandroid.accounting_app.data.dao;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.UserEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pages through the order history with the keyset queries and checks every
+ * row comes back once, in order, including across ties in the sort key,
+ * and that a name search returns only the matching customer's orders.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OrderPagingTest {
+    private static final String TAG = "OrderPagingTest";
+    private static final int ORDERS = 5_000;
+    private static final int PAGE = 37;
+
+    private AppDatabase db;
+    private final List<Long> customerIds = new ArrayList<>();
+    private final List<OrderEntity> all = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        long userId = db.userDao().insert(new UserEntity("cashier", "secret"));
+        for (int c = 0; c < 5; c++) {
+            customerIds.add(db.customerDao().insert(new CustomerEntity("Customer " + c)));
+        }
+        db.runInTransaction(() -> {
+            for (int i = 0; i < ORDERS; i++) {
+                // Few distinct totals and timestamps so most keys are ties
+                OrderEntity order = new OrderEntity("", i % 13, customerIds.get(i % 5), userId);
+                order.setCreatedAt(1_700_000_000_000L + (i % 97) * 60_000L);
+                order.orderId = db.orderDao().insertOrder(order);
+                all.add(order);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private static List<Long> ids(List<OrderEntity> orders) {
+        List<Long> ids = new ArrayList<>();
+        for (OrderEntity order : orders) ids.add(order.getOrderId());
+        return ids;
+    }
+
+    @Test
+    public void byDate_matchesFullSort() {
+        List<OrderEntity> pages = new ArrayList<>();
+        long start = System.nanoTime();
+        List<OrderEntity> page = db.orderDao().getOrdersPageByDateSync(Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE, PAGE);
+        Log.i(TAG, "First page in " + (System.nanoTime() - start) / 1_000 + " us");
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            OrderEntity last = page.get(page.size() - 1);
+            page = db.orderDao().getOrdersPageByDateSync(Long.MIN_VALUE, last.getCreatedAt(), last.getOrderId(), PAGE);
+        }
+        all.sort(Comparator.comparingLong(OrderEntity::getCreatedAt).thenComparingLong(OrderEntity::getOrderId).reversed());
+        assertEquals(ids(all), ids(pages));
+    }
+
+    @Test
+    public void byTotal_matchesFullSort() {
+        List<OrderEntity> pages = new ArrayList<>();
+        List<OrderEntity> page = db.orderDao().getOrdersPageByTotalSync(Double.POSITIVE_INFINITY, Long.MAX_VALUE, PAGE);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            OrderEntity last = page.get(page.size() - 1);
+            page = db.orderDao().getOrdersPageByTotalSync(last.getTotal(), last.getOrderId(), PAGE);
+        }
+        all.sort(Comparator.comparingDouble(OrderEntity::getTotal).thenComparingLong(OrderEntity::getOrderId).reversed());
+        assertEquals(ids(all), ids(pages));
+    }
+
+    @Test
+    public void byCustomer_matchesFullSort() {
+        List<OrderEntity> pages = new ArrayList<>();
+        List<OrderEntity> page = db.orderDao().getOrdersPageByCustomerSync(Long.MAX_VALUE, Long.MAX_VALUE, PAGE);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            OrderEntity last = page.get(page.size() - 1);
+            page = db.orderDao().getOrdersPageByCustomerSync(last.getCustomerId(), last.getOrderId(), PAGE);
+        }
+        all.sort(Comparator.comparingLong(OrderEntity::getCustomerId).thenComparingLong(OrderEntity::getOrderId).reversed());
+        assertEquals(ids(all), ids(pages));
+    }
+
+    @Test
+    public void searchByCustomerName_pagesThroughMatchesOnly() {
+        List<OrderEntity> pages = new ArrayList<>();
+        List<OrderEntity> page = db.orderDao().searchPageByCustomerNameSync("%omer 3%", Long.MIN_VALUE,
+                Long.MAX_VALUE, Long.MAX_VALUE, PAGE);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            OrderEntity last = page.get(page.size() - 1);
+            page = db.orderDao().searchPageByCustomerNameSync("%omer 3%", Long.MIN_VALUE,
+                    last.getCreatedAt(), last.getOrderId(), PAGE);
+        }
+        List<OrderEntity> expected = new ArrayList<>();
+        for (OrderEntity order : all) {
+            if (order.getCustomerId() == customerIds.get(3)) expected.add(order);
+        }
+        expected.sort(Comparator.comparingLong(OrderEntity::getCreatedAt).thenComparingLong(OrderEntity::getOrderId).reversed());
+        assertEquals(ids(expected), ids(pages));
+    }
+}
@@ -0,0 +1,116 @@
+package com.javandroid.accounting_app.data.dao;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.UserEntity;
+import com.javandroid.accounting_app.data.model.UserProfitData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the per-user profit loop with the single GROUP BY query on
+ * 10 users and 500k order lines.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserProfitQueryBenchmarkTest {
+    private static final String TAG = "UserProfitBenchmark";
+    private static final int USERS = 10;
+    private static final int CUSTOMERS = 20;
+    private static final int ORDERS = 50_000;
+    private static final int LINES_PER_ORDER = 10; // 500k order lines
+
+    private AppDatabase db;
+    private final long[] userIds = new long[USERS];
+    private long firstCustomerId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        for (int u = 0; u < USERS; u++) {
+            userIds[u] = db.userDao().insert(new UserEntity("user" + u, "pw"));
+        }
+        long[] customerIds = new long[CUSTOMERS];
+        for (int c = 0; c < CUSTOMERS; c++) {
+            customerIds[c] = db.customerDao().insert(new CustomerEntity("customer" + c));
+        }
+        firstCustomerId = customerIds[0];
+
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        SupportSQLiteStatement insertOrder = sql.compileStatement(
+                "INSERT INTO orders (orderId, date, createdAt, total, customerId, userId, isPaid) " +
+                        "VALUES (?, '', 0, 0, ?, ?, 1)");
+        SupportSQLiteStatement insertItem = sql.compileStatement(
+                "INSERT INTO order_items (orderId, productName, barcode, buyPrice, sellPrice, quantity) " +
+                        "VALUES (?, 'p', 'b', 1.0, ?, ?)");
+        sql.beginTransaction();
+        try {
+            for (int o = 1; o <= ORDERS; o++) {
+                insertOrder.bindLong(1, o);
+                insertOrder.bindLong(2, customerIds[o % CUSTOMERS]);
+                insertOrder.bindLong(3, userIds[o % USERS]);
+                insertOrder.executeInsert();
+                for (int l = 0; l < LINES_PER_ORDER; l++) {
+                    insertItem.bindLong(1, o);
+                    insertItem.bindDouble(2, 1.0 + (l % 5) * 0.25);
+                    insertItem.bindDouble(3, 1 + (l % 3));
+                    insertItem.executeInsert();
+                }
+            }
+            sql.setTransactionSuccessful();
+        } finally {
+            sql.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void groupByMatchesPerUserLoop_andReportsTiming() {
+        long loopStart = System.nanoTime();
+        double[] loopProfits = new double[USERS];
+        for (int u = 0; u < USERS; u++) {
+            loopProfits[u] = db.orderDao().calculateProfitByUserSync(userIds[u]);
+        }
+        long loopMs = (System.nanoTime() - loopStart) / 1_000_000;
+
+        long groupStart = System.nanoTime();
+        List<UserProfitData> rows = db.orderDao().getProfitForAllUsersSync();
+        long groupMs = (System.nanoTime() - groupStart) / 1_000_000;
+
+        long breakdownStart = System.nanoTime();
+        List<UserProfitData> withCustomer = db.orderDao().getProfitForAllUsersWithCustomerSync(firstCustomerId);
+        long breakdownMs = (System.nanoTime() - breakdownStart) / 1_000_000;
+
+        assertEquals(USERS, rows.size());
+        for (int u = 0; u < USERS; u++) {
+            assertEquals(userIds[u], rows.get(u).getUserId());
+            assertEquals(loopProfits[u], rows.get(u).getTotalProfit(), 0.001);
+            assertEquals(loopProfits[u], withCustomer.get(u).getTotalProfit(), 0.001);
+            assertEquals(db.orderDao().calculateProfitByUserAndCustomerSync(userIds[u], firstCustomerId),
+                    withCustomer.get(u).getCustomerSpecificProfit(), 0.001);
+        }
+
+        Log.i(TAG, String.format("%d users x %d lines: per-user loop %d ms, GROUP BY %d ms, with customer breakdown %d ms",
+                USERS, ORDERS * LINES_PER_ORDER, loopMs, groupMs, breakdownMs));
+    }
+}
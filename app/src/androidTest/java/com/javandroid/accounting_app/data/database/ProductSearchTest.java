@@ -0,0 +1,96 @@
+package com.javandroid.accounting_app.data.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.model.ProductEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes products through the DAO and checks the full-text index follows
+ * inserts, replaces, renames and deletes, with prefix matching and ranking.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductSearchTest {
+    private static final String TAG = "ProductSearchTest";
+    private static final int PRODUCTS = 20_000;
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .addCallback(ProductSearch.CALLBACK)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private List<String> search(String text) {
+        List<String> names = new ArrayList<>();
+        for (ProductEntity product : db.productDao().searchSync(ProductSearch.matchExpression(text), text, 20, 0)) {
+            names.add(product.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void index_followsProductWritesAndRanksMatches() {
+        List<ProductEntity> bulk = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            bulk.add(new ProductEntity("Filler item " + i, "9" + i));
+        }
+        db.productDao().insertAll(bulk);
+        db.productDao().insert(new ProductEntity("Coca Cola 330ml", "5449000000996"));
+        db.productDao().insert(new ProductEntity("Cola Zero", "5449000131805"));
+        db.productDao().insert(new ProductEntity("Cola", "111"));
+
+        long start = System.nanoTime();
+        List<String> colas = search("cola");
+        Log.i(TAG, "Searched " + PRODUCTS + " products in " + (System.nanoTime() - start) / 1_000 + " us");
+        assertEquals(3, colas.size());
+        assertEquals("Cola", colas.get(0));        // Name starts with the text, shortest first
+        assertEquals("Coca Cola 330ml", colas.get(2));
+
+        assertEquals("Coca Cola 330ml", search("coc 33").get(0));
+        assertEquals("Cola Zero", search("5449000131805").get(0));
+
+        // Rename through an update, and replace by primary key as the DAO's insert does
+        ProductEntity zero = db.productDao().getProductByBarcodeSync("5449000131805");
+        zero.setName("Cola Light");
+        db.productDao().update(zero);
+        assertTrue(search("zero").isEmpty());
+        assertEquals(1, search("light").size());
+        zero.setName("Cola Lemon");
+        db.productDao().insert(zero);
+        assertTrue(search("light").isEmpty());
+        assertEquals(1, search("lemon").size());
+
+        // Stock changes do not touch the index
+        db.productDao().adjustStock(zero.getProductId(), 5);
+        assertEquals(1, search("lemon").size());
+
+        db.productDao().delete(zero);
+        assertTrue(search("lemon").isEmpty());
+        assertNull(ProductSearch.matchExpression(" \" "));
+    }
+}
@@ -0,0 +1,125 @@
+package com.javandroid.accounting_app.data.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.data.model.UserEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks out, edits and deletes orders, then compares the trigger-maintained
+ * rollups and the profit reports with a rebuild from the raw tables.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SalesRollupsTest {
+    private static final String TAG = "SalesRollupsTest";
+    private static final int ORDERS = 2_000;
+
+    private AppDatabase db;
+    private long userId;
+    private long customerId;
+    private long otherCustomerId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .addCallback(SalesRollups.CALLBACK)
+                .build();
+        userId = db.userDao().insert(new UserEntity("cashier", "secret"));
+        customerId = db.customerDao().insert(new CustomerEntity("Walk-in"));
+        otherCustomerId = db.customerDao().insert(new CustomerEntity("Regular"));
+        for (int p = 1; p <= 5; p++) {
+            db.productDao().insert(new ProductEntity("Product " + p, "BC" + p));
+            productIds.add(db.productDao().getProductByBarcodeSync("BC" + p).getProductId());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private static OrderItemEntity line(Long productId, double quantity) {
+        OrderItemEntity item = new OrderItemEntity(0, "BC" + productId);
+        item.setProductId(productId);
+        item.setProductName("Product " + productId);
+        item.setBuyPrice(1.0);
+        item.setSellPrice(1.5);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private List<String> snapshot() {
+        List<String> rows = new ArrayList<>();
+        SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+        try (android.database.Cursor c = database.query("SELECT day, userId, customerId, productId, " +
+                "ROUND(quantity, 6), ROUND(revenue, 6), ROUND(cost, 6), orderCount FROM daily_product_sales " +
+                "UNION ALL SELECT day, userId, customerId, -1, 0, ROUND(profit, 6), ROUND(total, 6), orderCount FROM daily_order_sales " +
+                "ORDER BY 1, 2, 3, 4")) {
+            while (c.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < c.getColumnCount(); i++) row.append(c.getString(i)).append('|');
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void triggers_matchRebuildAfterEditsAndDeletes() {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            OrderEntity order = new OrderEntity("", 0, i % 3 == 0 ? otherCustomerId : customerId, userId);
+            order.createdAt = 1_700_000_000_000L + (i % 30) * 86_400_000L;
+            List<OrderItemEntity> items = new ArrayList<>();
+            for (int p = 0; p < 5; p++) items.add(line(productIds.get(p), 1 + p));
+            items.get(1).setProductId(null); // Lines of deleted products count under productId 0
+            order.total = 1.5 * 15;
+            orderIds.add(db.checkoutDao().commitOrder(order, items, Collections.emptyMap()));
+        }
+        OrderEntity first = db.orderDao().getOrderByIdSync(orderIds.get(0));
+        assertEquals(15.0, first.getCostTotal(), 1e-6);
+        assertEquals(7.5, first.getProfit(), 1e-6);
+
+        // Move some orders to another customer and day, delete others
+        for (int i = 0; i < ORDERS; i += 7) {
+            OrderEntity order = db.orderDao().getOrderByIdSync(orderIds.get(i));
+            order.customerId = otherCustomerId;
+            order.createdAt += 86_400_000L;
+            db.orderDao().updateOrder(order);
+        }
+        for (int i = 0; i < ORDERS; i += 11) {
+            db.orderDao().deleteOrder(db.orderDao().getOrderByIdSync(orderIds.get(i)));
+        }
+
+        long start = System.nanoTime();
+        double profit = db.orderDao().calculateProfitByUserSync(userId);
+        Log.i(TAG, "Profit from rollups in " + (System.nanoTime() - start) / 1_000 + " us");
+
+        List<String> maintained = snapshot();
+        SalesRollups.rebuild(db.getOpenHelper().getWritableDatabase());
+        assertEquals(snapshot(), maintained);
+        assertEquals(profit, db.orderDao().calculateProfitByUserSync(userId), 1e-6);
+    }
+}
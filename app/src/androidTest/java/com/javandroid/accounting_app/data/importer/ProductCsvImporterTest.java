@@ -0,0 +1,87 @@
+package com.javandroid.accounting_app.data.importer;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Imports a 50k-row supplier price list and checks upsert semantics and the error report.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductCsvImporterTest {
+    private static final String TAG = "ProductCsvImporterTest";
+    private static final int ROWS = 50_000;
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void importProducts_upsertsByBarcodeAndReportsBadRows() throws Exception {
+        ProductEntity existing = new ProductEntity("Old name", "BC1");
+        existing.setStock(7);
+        existing.setImagePath("content://image");
+        db.productDao().insert(existing);
+        long existingId = db.productDao().getProductByBarcodeSync("BC1").getProductId();
+
+        // Price list without a stock column; one row has a bad price
+        StringBuilder csv = new StringBuilder("Barcode,Name,Buy Price,Sell Price\n");
+        for (int i = 1; i <= ROWS; i++) {
+            csv.append("BC").append(i).append(",\"Item ").append(i).append(", 1L\",1.0,")
+                    .append(i == 42 ? "abc" : "1.5").append('\n');
+        }
+
+        ProductCsvImporter.ImportReport report = new ProductCsvImporter(db.productDao(), null, Runnable::run)
+                .importProducts(new StringReader(csv.toString()), null);
+        Log.i(TAG, "Imported " + ROWS + " rows in " + report.getDurationMs() + " ms");
+
+        assertEquals(ROWS, report.getRowsRead());
+        assertEquals(ROWS - 2, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(1, report.getSkipped());
+        assertEquals(43, report.getErrors().get(0).line);
+
+        ProductEntity updated = db.productDao().getProductByBarcodeSync("BC1");
+        assertEquals(existingId, updated.getProductId());
+        assertEquals("Item 1, 1L", updated.getName());
+        assertEquals(7, updated.getStock(), 0);
+        assertEquals("content://image", updated.getImagePath());
+        assertEquals(ROWS - 1, db.productDao().getAllProductsSync().size());
+    }
+
+    @Test
+    public void upsertByBarcode_repeatedBarcodeKeepsTheLastRow() {
+        ProductEntity first = new ProductEntity("First", "BC1");
+        ProductEntity last = new ProductEntity("Last", "BC1");
+
+        assertEquals(0, db.productDao().upsertByBarcode(Arrays.asList(first, last), true));
+
+        assertEquals(1, db.productDao().getAllProductsSync().size());
+        assertEquals("Last", db.productDao().getProductByBarcodeSync("BC1").getName());
+    }
+}
@@ -0,0 +1,128 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes parked carts through the journal, then reopens it as after a process kill.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CartJournalTest {
+    private static final String TAG = "CartJournalTest";
+    private static final int CUSTOMERS = 50;
+    private static final int LINES = 40;
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        file = new File(context.getCacheDir(), "carts-test.journal");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static OrderItemEntity line(long itemId, long productId) {
+        OrderItemEntity item = new OrderItemEntity(itemId, "BC" + productId);
+        item.setProductId(productId);
+        item.setProductName("Product " + productId);
+        item.setBuyPrice(1.0);
+        item.setSellPrice(1.5);
+        item.setQuantity(1);
+        return item;
+    }
+
+    private static void drain() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AppExecutors.getInstance().journal().execute(latch::countDown);
+        latch.await(10, TimeUnit.SECONDS);
+    }
+
+    private Map<Long, List<OrderItemEntity>> reopen() throws InterruptedException {
+        AtomicReference<Map<Long, List<OrderItemEntity>>> restored = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        CartJournal.open(file, (carts, stock) -> {
+            restored.set(carts);
+            latch.countDown();
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return restored.get();
+    }
+
+    @Test
+    public void reopen_restoresEveryCartAfterChanges() throws Exception {
+        // Records written before the replay has run are queued behind it
+        CartJournal journal = CartJournal.open(file, (carts, stock) -> {
+        });
+        long itemId = 1;
+        for (long customer = 1; customer <= CUSTOMERS; customer++) {
+            Cart cart = new Cart(customer, journal);
+            for (int i = 0; i < LINES; i++) {
+                cart.add(line(itemId++, i));
+            }
+            cart.addToProduct(0, 2);                // line 0 now has quantity 3
+            cart.remove(cart.snapshot().get(1).getItemId());
+        }
+        Cart moved = new Cart(0, journal);
+        moved.add(line(itemId++, 7));
+        moved.setKey(CUSTOMERS);                     // replaces the last customer's cart
+        new Cart(1, journal).clear();                // discards customer 1
+        drain();
+
+        // A kill mid-write leaves a torn record at the end
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+        }
+
+        long start = System.nanoTime();
+        Map<Long, List<OrderItemEntity>> restored = reopen();
+        Log.i(TAG, "Reopened " + restored.size() + " carts in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        assertFalse(restored.containsKey(1L));
+        assertEquals(1, restored.get((long) CUSTOMERS).size());
+        List<OrderItemEntity> second = restored.get(2L);
+        assertEquals(LINES - 1, second.size());
+        assertEquals(3, second.get(0).getQuantity(), 0);
+        assertEquals(CUSTOMERS - 1, restored.size());
+    }
+
+    @Test
+    public void lineWithoutBarcode_isJournaled() throws Exception {
+        CartJournal journal = CartJournal.open(file, (carts, stock) -> {
+        });
+        // Lines of products without a barcode
+        OrderItemEntity line = new OrderItemEntity(1, null);
+        line.setQuantity(1);
+        new Cart(5, journal).add(line);
+        drain();
+
+        assertEquals("", reopen().get(5L).get(0).getBarcode());
+    }
+}
@@ -0,0 +1,116 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scans, parks and checks out on several lanes at once while the active lane
+ * keeps switching, then checks that no lane saw another lane's session.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OrderSessionManagerStressTest {
+    private static final String TAG = "OrderSessionStressTest";
+    private static final long[] LANES = {101, 102, 103, 104};
+    private static final int SCANS_PER_LANE = 5_000;
+
+    private static OrderItemEntity line(long itemId, long productId) {
+        OrderItemEntity item = new OrderItemEntity(itemId, "BC" + productId);
+        item.setProductId(productId);
+        item.setProductName("Product " + productId);
+        item.setBuyPrice(1.0);
+        item.setSellPrice(1.5);
+        item.setQuantity(1);
+        return item;
+    }
+
+    @Test
+    public void concurrentLanes_keepTheirOwnSessions() throws Exception {
+        OrderSessionManager manager = OrderSessionManager.getInstance();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(LANES.length + 1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (long lane : LANES) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < SCANS_PER_LANE; i++) {
+                        OrderStateRepository repo = manager.getRepository(lane);
+                        assertEquals(lane, repo.getLaneId());
+                        Cart cart = repo.getCart();
+                        long productId = i % 20;
+                        if (!cart.addToProduct(productId, 1)) {
+                            cart.add(line(repo.generateTempId(), productId));
+                        }
+                        repo.publishCart();
+
+                        long customer = lane * 1_000 + i % 5;
+                        if (i % 10 == 0) {
+                            repo.parkCurrentCart(customer);
+                        } else if (i % 10 == 5) {
+                            repo.unparkCart(customer);
+                        }
+                        if (i % 50 == 49) {
+                            assertNotSame(repo, manager.finishSession(repo));
+                            // A second confirm of the same order must not replace the new session
+                            assertSame(manager.getRepository(lane), manager.finishSession(repo));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    done.countDown();
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < SCANS_PER_LANE; i++) {
+                    long lane = LANES[i % LANES.length];
+                    assertEquals(lane, manager.switchLane(lane).getLaneId());
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            } finally {
+                done.countDown();
+            }
+        }));
+
+        for (Thread thread : threads) thread.start();
+        long begin = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        Log.i(TAG, LANES.length * SCANS_PER_LANE + " scans on " + LANES.length + " lanes in "
+                + (System.nanoTime() - begin) / 1_000_000 + " ms");
+
+        if (!failures.isEmpty()) throw new AssertionError(failures.peek());
+        for (long lane : LANES) {
+            OrderStateRepository repo = manager.getRepository(lane);
+            assertEquals(lane, repo.getLaneId());
+            double expected = 0;
+            for (OrderItemEntity item : repo.getCart().snapshot()) {
+                expected += item.getQuantity() * item.getSellPrice();
+            }
+            assertEquals(expected, repo.getCart().getTotal(), 1e-6);
+        }
+    }
+}
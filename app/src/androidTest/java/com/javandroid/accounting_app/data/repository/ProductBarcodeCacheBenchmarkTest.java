@@ -0,0 +1,71 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures cold (indexed query) vs warm (cached) barcode lookups for
+ * catalogues of 1k, 10k and 100k products.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductBarcodeCacheBenchmarkTest {
+    private static final String TAG = "BarcodeCacheBenchmark";
+    private static final int LOOKUPS = 1000;
+
+    @Test
+    public void benchmarkColdVsWarmLookups() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        for (int size : new int[]{1_000, 10_000, 100_000}) {
+            AppDatabase db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+            try {
+                db.runInTransaction(() -> {
+                    for (int i = 0; i < size; i++) {
+                        db.productDao().insert(new ProductEntity("Product " + i, "BC" + i));
+                    }
+                });
+                ProductBarcodeCache cache = new ProductBarcodeCache(db);
+
+                String[] barcodes = new String[LOOKUPS];
+                Random random = new Random(42);
+                for (int i = 0; i < LOOKUPS; i++) {
+                    barcodes[i] = "BC" + random.nextInt(size);
+                }
+
+                long coldStart = System.nanoTime();
+                for (String barcode : barcodes) {
+                    cache.invalidate();
+                    assertNotNull(cache.get(barcode));
+                }
+                long coldNanos = System.nanoTime() - coldStart;
+
+                for (String barcode : barcodes) {
+                    cache.get(barcode); // populate
+                }
+                long warmStart = System.nanoTime();
+                for (String barcode : barcodes) {
+                    assertNotNull(cache.get(barcode));
+                }
+                long warmNanos = System.nanoTime() - warmStart;
+
+                Log.i(TAG, size + " products: cold " + (coldNanos / LOOKUPS / 1000) + " us/lookup, warm "
+                        + (warmNanos / LOOKUPS / 1000) + " us/lookup");
+            } finally {
+                db.close();
+            }
+        }
+    }
+}
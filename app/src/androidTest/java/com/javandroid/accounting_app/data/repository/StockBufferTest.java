@@ -0,0 +1,170 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scans the same product repeatedly and checks that the stock is checked
+ * against the buffered changes and written in a single flush, that parallel
+ * scans never take a unit twice, and that stock not written yet survives a
+ * restart through the cart journal.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StockBufferTest {
+    private static final int INITIAL_STOCK = 2000;
+    private static final int THREADS = 8;
+    private static final int SCANS_PER_THREAD = 400; // 3200 attempts for 2000 units
+    private static final int RETURNS = 200;
+
+    private AppDatabase db;
+    private StockBuffer buffer;
+    private long productId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        buffer = new StockBuffer(db);
+        ProductEntity product = new ProductEntity("Soda", "BC1");
+        product.setStock(20);
+        db.productDao().insert(product);
+        productId = db.productDao().getProductByBarcodeSync("BC1").getProductId();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void rapidScans_areCheckedAgainstPendingAndFlushedOnce() {
+        for (int i = 0; i < 20; i++) {
+            assertTrue(buffer.tryTake(productId, 1));
+        }
+        assertFalse(buffer.tryTake(productId, 1)); // 20 taken, none left
+        buffer.add(productId, 4);                  // 4 returned to stock
+        assertTrue(buffer.tryTake(productId, 4));
+        assertFalse(buffer.tryTake(productId, 1));
+
+        assertEquals(20, db.productDao().getStockSync(productId), 0);
+        assertEquals(-20, buffer.getPendingDelta(productId), 0);
+
+        buffer.flush();
+        assertEquals(0, db.productDao().getStockSync(productId), 0);
+        assertEquals(0, buffer.getPendingDelta(productId), 0);
+    }
+
+    @Test
+    public void parallelTakes_withFlushesAndReturns_neverLoseOrOversellStock() throws Exception {
+        db.productDao().adjustStock(productId, INITIAL_STOCK - 20);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch takersDone = new CountDownLatch(THREADS);
+        AtomicInteger taken = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < SCANS_PER_THREAD; i++) {
+                        if (buffer.tryTake(productId, 1)) taken.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    takersDone.countDown();
+                }
+            });
+        }
+        // Checkout-style flushes while the scans run
+        pool.execute(() -> {
+            try {
+                start.await();
+                while (takersDone.getCount() > 0) buffer.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // Deleted cart lines returning stock, as the main thread does
+        pool.execute(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < RETURNS; i++) buffer.add(productId, 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        buffer.flush();
+
+        double stock = db.productDao().getStockSync(productId);
+        assertTrue("Taken " + taken.get(), taken.get() >= INITIAL_STOCK);
+        assertEquals(INITIAL_STOCK + RETURNS - taken.get(), stock, 0);
+        assertTrue(stock >= 0);
+        assertEquals(0, buffer.getPendingDelta(productId), 0);
+    }
+
+    @Test
+    public void unwrittenStock_survivesAKillThroughTheJournal() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "stock-test.journal");
+        file.delete();
+        try {
+            buffer.attachJournal(CartJournal.open(file, (carts, stock) -> {
+            }));
+            assertTrue(buffer.tryTake(productId, 5));
+            buffer.flush();                            // 5 written
+            assertTrue(buffer.tryTake(productId, 3));  // 3 only in memory and the journal
+            drainJournal();
+            buffer.attachJournal(null);
+            buffer.discardPending();                   // Nothing more from the killed process
+
+            // The process dies; a new buffer gets the unwritten stock from the reopened journal
+            StockBuffer restarted = new StockBuffer(db);
+            CountDownLatch restored = new CountDownLatch(1);
+            restarted.attachJournal(CartJournal.open(file, (carts, stock) -> {
+                restarted.restoreUnwritten(stock);
+                restored.countDown();
+            }));
+            assertTrue(restored.await(10, TimeUnit.SECONDS));
+            assertEquals(-3, restarted.getPendingDelta(productId), 0);
+
+            restarted.flush();
+            assertEquals(12, db.productDao().getStockSync(productId), 0);
+        } finally {
+            drainJournal();
+            file.delete();
+        }
+    }
+
+    private static void drainJournal() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AppExecutors.getInstance().journal().execute(latch::countDown);
+        latch.await(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,100 @@
+package com.javandroid.accounting_app.print;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * In-process stand-in for a Bluetooth receipt printer. Connecting takes
+ * connectMillis, like RFCOMM discovery and connect, and written bytes drain at
+ * bytesPerSecond. It can refuse its first connects or drop the link after a
+ * number of sends, to exercise reconnects.
+ */
+public class FakeDeviceConnection extends DeviceConnection {
+    private final long connectMillis;
+    private final int bytesPerSecond;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+    private int failConnects;
+    private int dropAfterSends = -1;
+    private int connects;
+    private int sends;
+
+    public FakeDeviceConnection(long connectMillis, int bytesPerSecond) {
+        this.connectMillis = connectMillis;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public synchronized FakeDeviceConnection failFirstConnects(int count) {
+        failConnects = count;
+        return this;
+    }
+
+    public synchronized FakeDeviceConnection dropAfterSends(int count) {
+        dropAfterSends = count;
+        return this;
+    }
+
+    @Override
+    public synchronized DeviceConnection connect() throws EscPosConnectionException {
+        if (isConnected()) return this;
+        sleep(connectMillis);
+        connects++;
+        if (failConnects > 0) {
+            failConnects--;
+            throw new EscPosConnectionException("Printer unreachable");
+        }
+        outputStream = new SlowLink();
+        return this;
+    }
+
+    @Override
+    public synchronized DeviceConnection disconnect() {
+        outputStream = null;
+        return this;
+    }
+
+    @Override
+    public synchronized void send(int addWaitingTime) throws EscPosConnectionException {
+        if (sends == dropAfterSends) {
+            dropAfterSends = -1;
+            outputStream = null;
+            data = new byte[0];
+            throw new EscPosConnectionException("Link lost");
+        }
+        super.send(addWaitingTime);
+        sends++;
+    }
+
+    public synchronized int getConnects() {
+        return connects;
+    }
+
+    public synchronized byte[] getReceived() {
+        return received.toByteArray();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class SlowLink extends OutputStream {
+        @Override
+        public void write(int b) {
+            received.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            sleep(len * 1000L / bytesPerSecond);
+            received.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.javandroid.accounting_app.print;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.data.model.UserEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batch printing from the order history: the right orders are picked by the
+ * joined page query, in createdAt order, and all go over one connection.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OrderReceiptPrinterTest {
+    private static final String TAG = "OrderReceiptPrinterTest";
+    private static final int ORDERS = 240; // Several pages
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private AppDatabase db;
+    private PrinterService service;
+    private FakeDeviceConnection printer;
+    private ReceiptCache cache;
+    private OrderReceiptPrinter receiptPrinter;
+    private long alice;
+    private long bob;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        cache = new ReceiptCache();
+        printer = new FakeDeviceConnection(10, 1_000_000);
+        service = new PrinterService(db.printJobDao(), () -> printer, 50, 400);
+        receiptPrinter = new OrderReceiptPrinter(db.orderDao(), cache, service);
+
+        long user = db.userDao().insert(new UserEntity("cashier", "secret"));
+        alice = db.customerDao().insert(new CustomerEntity("Alice"));
+        bob = db.customerDao().insert(new CustomerEntity("Bob"));
+        db.runInTransaction(() -> {
+            for (int i = 0; i < ORDERS; i++) {
+                // Inserted newest first, so orderId order is not createdAt order
+                OrderEntity order = new OrderEntity("", 2.5 * (i % 3 + 1), i % 2 == 0 ? alice : bob, user);
+                order.createdAt = (ORDERS - i) * DAY;
+                order.setPaid(i % 4 != 0);
+                long orderId = db.orderDao().insertOrder(order);
+                for (int line = 0; line <= i % 3; line++) {
+                    OrderItemEntity item = new OrderItemEntity(0, "000" + line);
+                    item.setOrderId(orderId);
+                    item.setProductName("Item " + line);
+                    item.setQuantity(1);
+                    item.setSellPrice(2.5);
+                    db.orderItemDao().insertOrderItem(item);
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        service.shutdown();
+        db.close();
+    }
+
+    private CountDownLatch awaitPrinted(int jobs, List<Long> printedOrders) {
+        CountDownLatch latch = new CountDownLatch(jobs);
+        service.addListener(new PrinterService.Listener() {
+            @Override
+            public void onJobPrinted(long jobId, long orderId) {
+                printedOrders.add(orderId);
+                latch.countDown();
+            }
+        });
+        return latch;
+    }
+
+    @Test
+    public void printOrders_unpaidOfOneCustomer_oldestFirstOverOneConnection() throws Exception {
+        // Every fourth order is unpaid, and those are all Alice's
+        List<Long> expected = new ArrayList<>();
+        for (OrderEntity order : db.orderDao().getOrdersBetweenSync(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            if (!order.isPaid() && order.getCustomerId() == alice) expected.add(0, order.getOrderId());
+        }
+        assertEquals(ORDERS / 4, expected.size());
+
+        List<Long> printed = new ArrayList<>();
+        CountDownLatch latch = awaitPrinted(expected.size(), printed);
+        long start = System.nanoTime();
+        int queued = receiptPrinter.printOrdersSync(Long.MIN_VALUE, Long.MAX_VALUE, alice, true);
+        long queuedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Log.i(TAG, "Queued " + queued + " receipts in " + queuedMs + " ms");
+
+        assertEquals(expected.size(), queued);
+        assertEquals(expected, printed);
+        assertEquals(1, printer.getConnects());
+        assertEquals(0, receiptPrinter.printOrdersSync(Long.MIN_VALUE, Long.MAX_VALUE, bob, true));
+    }
+
+    @Test
+    public void printOrders_dateRangeAndReprintMatchTheCachedReceipt() throws Exception {
+        // Days 11 to 20 inclusive
+        List<Long> printed = new ArrayList<>();
+        CountDownLatch latch = awaitPrinted(11, printed);
+        assertEquals(10, receiptPrinter.printOrdersSync(11 * DAY, 21 * DAY, 0, false));
+
+        long orderId = db.orderDao().getOrdersBetweenSync(15 * DAY, 15 * DAY + 1).get(0).getOrderId();
+        byte[] cached = cache.get(orderId);
+        assertTrue(cached != null);
+        cache.invalidate(orderId);
+        assertEquals(1, receiptPrinter.reprintSync(orderId));
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+        assertEquals(orderId, (long) printed.get(printed.size() - 1));
+        assertArrayEquals(cached, cache.get(orderId));
+        assertEquals(0, receiptPrinter.reprintSync(Long.MAX_VALUE));
+    }
+}
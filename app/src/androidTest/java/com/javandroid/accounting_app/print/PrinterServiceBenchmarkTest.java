@@ -0,0 +1,142 @@
+package com.javandroid.accounting_app.print;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Prints through PrinterService into a FakeDeviceConnection: compares jobs per
+ * minute against connecting for every receipt, and checks that spooled jobs
+ * survive a restart and print in order once the printer becomes reachable.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PrinterServiceBenchmarkTest {
+    private static final String TAG = "PrinterServiceBenchmark";
+    private static final long CONNECT_MILLIS = 500;
+    private static final int BYTES_PER_SECOND = 20_000;
+    private static final int JOBS = 20;
+
+    private AppDatabase db;
+    private final List<PrinterService> services = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        for (PrinterService service : services) service.shutdown();
+        db.close();
+    }
+
+    private PrinterService newService(PrinterService.ConnectionFactory factory) {
+        PrinterService service = new PrinterService(db.printJobDao(), factory, 50, 400);
+        services.add(service);
+        return service;
+    }
+
+    private static byte[] receipt(int number) {
+        StringBuilder text = new StringBuilder("[C]<b>RECEIPT</b>\n[L]Order :" + number + "\n");
+        for (int line = 0; line < 10; line++) {
+            text.append("[L]Item ").append(line).append("[R]1 $2.50 $2.50\n");
+        }
+        text.append("[R]<b>TOTAL: $25.00</b>\n");
+        return EscPosCapture.render(text.toString());
+    }
+
+    private static CountDownLatch awaitPrinted(PrinterService service, int jobs) {
+        CountDownLatch latch = new CountDownLatch(jobs);
+        service.addListener(new PrinterService.Listener() {
+            @Override
+            public void onJobPrinted(long jobId, long orderId) {
+                latch.countDown();
+            }
+        });
+        return latch;
+    }
+
+    @Test
+    public void benchmarkJobsPerMinute() throws Exception {
+        byte[] payload = receipt(1);
+
+        // Before: a new connection for every receipt
+        long start = System.nanoTime();
+        for (int i = 0; i < JOBS; i++) {
+            FakeDeviceConnection printer = new FakeDeviceConnection(CONNECT_MILLIS, BYTES_PER_SECOND);
+            printer.connect();
+            printer.write(payload);
+            printer.send();
+            printer.disconnect();
+        }
+        double perJobConnect = JOBS * 60_000.0 / ((System.nanoTime() - start) / 1_000_000.0);
+
+        // After: the spooler keeps one connection and sends jobs back to back
+        FakeDeviceConnection printer = new FakeDeviceConnection(CONNECT_MILLIS, BYTES_PER_SECOND);
+        PrinterService service = newService(() -> printer);
+        CountDownLatch printed = awaitPrinted(service, JOBS);
+        start = System.nanoTime();
+        for (int i = 0; i < JOBS; i++) {
+            service.enqueue(i, payload);
+        }
+        assertTrue(printed.await(60, TimeUnit.SECONDS));
+        double spooled = JOBS * 60_000.0 / ((System.nanoTime() - start) / 1_000_000.0);
+
+        Log.i(TAG, String.format("%d-byte receipts: connect per job %.0f jobs/min, spooled %.0f jobs/min",
+                payload.length, perJobConnect, spooled));
+        assertEquals(1, printer.getConnects());
+        assertTrue(spooled > perJobConnect * 2);
+    }
+
+    @Test
+    public void spooledJobs_surviveRestartAndPrintInOrderAfterReconnect() throws Exception {
+        // First run: no printer paired, so the jobs stay in the spool
+        PrinterService offline = newService(() -> null);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 1; i <= 3; i++) {
+            byte[] payload = receipt(i);
+            expected.write(payload);
+            offline.enqueue(i, payload);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (db.printJobDao().countPendingSync() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        offline.shutdown();
+        assertEquals(3, db.printJobDao().countPendingSync());
+
+        // Next run: the printer refuses twice, drops the link once, then prints everything
+        FakeDeviceConnection printer = new FakeDeviceConnection(10, BYTES_PER_SECOND)
+                .failFirstConnects(2)
+                .dropAfterSends(1);
+        PrinterService service = newService(() -> printer);
+        CountDownLatch printed = awaitPrinted(service, 3);
+        service.start();
+        assertTrue(printed.await(30, TimeUnit.SECONDS));
+
+        assertEquals(0, db.printJobDao().countPendingSync());
+        assertEquals(4, printer.getConnects());
+        assertArrayEquals(expected.toByteArray(), printer.getReceived());
+    }
+}
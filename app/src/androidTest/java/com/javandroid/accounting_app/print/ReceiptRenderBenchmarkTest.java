@@ -0,0 +1,95 @@
+package com.javandroid.accounting_app.print;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Render time of the compiled receipt template against the library's markup
+ * path it replaced, for a short and a long receipt.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReceiptRenderBenchmarkTest {
+    private static final String TAG = "ReceiptRenderBenchmark";
+    private static final int WARMUP = 50;
+    private static final int RUNS = 200;
+
+    private static List<OrderItemEntity> items(int count) {
+        List<OrderItemEntity> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            OrderItemEntity item = new OrderItemEntity(i, "barcode" + i);
+            item.setProductName("Product number " + i);
+            item.setQuantity(i % 5 + 1);
+            item.setSellPrice(1.99 + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    // The markup the receipt used to be printed from
+    private static String markup(OrderEntity order, List<OrderItemEntity> items) {
+        StringBuilder text = new StringBuilder();
+        text.append("[C]<b>RECEIPT</b>\n");
+        text.append("[R]01/01 00:00\n");
+        text.append("[L]Cust: Ann\n");
+        text.append("[L]Order :").append(order.getOrderId()).append("\n");
+        text.append("[C]--------------------\n");
+        text.append("[L]ITEM[R]QTY PRICE TOTAL\n");
+        text.append("[C]----------------\n");
+        for (OrderItemEntity item : items) {
+            String name = item.getProductName();
+            if (name.length() > 12) name = name.substring(0, 10) + "..";
+            text.append(String.format(Locale.US, "[L]%s[R]%.0f $%.2f $%.2f\n", name,
+                    item.getQuantity(), item.getSellPrice(), item.getSellPrice() * item.getQuantity()));
+        }
+        text.append("[C]--------------------\n");
+        text.append(String.format(Locale.US, "[R]<b>TOTAL: $%.2f</b>\n", order.getTotal()));
+        text.append("[C]--------------------\n");
+        text.append("[C]Thanks!\n");
+        return text.toString();
+    }
+
+    private static void benchmark(int lines) {
+        List<OrderItemEntity> items = items(lines);
+        OrderEntity order = new OrderEntity("", 0, 1, 1);
+        order.setOrderId(42);
+        ReceiptRenderer renderer = new ReceiptRenderer(EscPosCapture.PRINTER_CHARS_PER_LINE);
+
+        for (int i = 0; i < WARMUP; i++) {
+            renderer.render(order, items, "Ann", 0);
+            EscPosCapture.render(markup(order, items));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) renderer.render(order, items, "Ann", 0);
+        long compiledUs = (System.nanoTime() - start) / RUNS / 1_000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) EscPosCapture.render(markup(order, items));
+        long markupUs = (System.nanoTime() - start) / RUNS / 1_000;
+
+        Log.i(TAG, lines + "-line receipt: compiled template " + compiledUs + " us, markup " + markupUs + " us");
+        assertTrue(compiledUs <= markupUs);
+    }
+
+    @Test
+    public void render_10Lines() {
+        benchmark(10);
+    }
+
+    @Test
+    public void render_300Lines() {
+        benchmark(300);
+    }
+}
@@ -7,6 +7,10 @@ import android.content.SharedPreferences;
 import androidx.work.Configuration;
 
 import com.javandroid.accounting_app.data.backup.BackupScheduler;
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.repository.OrderSessionManager;
+import com.javandroid.accounting_app.data.repository.StockBuffer;
+import com.javandroid.accounting_app.print.PrinterService;
 
 /**
  * Application class for the Accounting App
@@ -31,6 +35,12 @@ public class AccountingApplication extends Application implements Configuration.
                 super.onCreate();
                 Log.d(TAG, "Application initialized");
 
+                // Restore parked carts before any screen asks for the order session
+                OrderSessionManager.init(this);
+
+                // Print receipts still spooled from the last run
+                PrinterService.getInstance(this).start();
+
                 // Load backup settings from preferences
                 SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
                 long backupInterval = prefs.getLong(PREF_BACKUP_INTERVAL, DEFAULT_BACKUP_INTERVAL);
@@ -51,6 +61,15 @@ public class AccountingApplication extends Application implements Configuration.
                                 requiresIdle);
         }
 
+        @Override
+        public void onTrimMemory(int level) {
+                super.onTrimMemory(level);
+                if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                        // The app went to the background; write stock changes still buffered from scanning
+                        StockBuffer.getInstance(AppDatabase.getInstance(this)).flushAsync();
+                }
+        }
+
         /**
          * Update backup settings and reschedule
          */
@@ -1,8 +1,12 @@
 package com.javandroid.accounting_app;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.KeyEvent;
 import android.view.MenuItem;
 import android.view.Menu;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -30,6 +34,9 @@ import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.user.UserViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerOrderStateViewModel;
 
+import java.util.Collections;
+import java.util.List;
+
 public class MainActivity extends AppCompatActivity
         implements NavigationView.OnNavigationItemSelectedListener,
         CustomerDrawerAdapter.OnCustomerClickListener,
@@ -43,6 +50,19 @@ public class MainActivity extends AppCompatActivity
     private CustomerOrderStateViewModel customerOrderStateViewModel;
     private CustomerDrawerAdapter customerAdapter;
     private UserDrawerAdapter userAdapter;
+    private EditText customerSearch;
+    private EditText userSearch;
+    private ScannerKeyHandler scannerKeyHandler;
+
+    /**
+     * Sees hardware key events before the focused view does
+     */
+    public interface ScannerKeyHandler {
+        /**
+         * @return true when the event was taken
+         */
+        boolean onKeyEvent(KeyEvent event);
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,10 +94,10 @@ public class MainActivity extends AppCompatActivity
         navViewLeft.setNavigationItemSelectedListener(this);
         navViewRight.setNavigationItemSelectedListener(this);
 
-        // Add customer RecyclerView to the left drawer
+        // Fill the customer list in the left drawer
         setupCustomerDrawer();
 
-        // Add user RecyclerView to the right drawer
+        // Fill the user list in the right drawer
         setupUserDrawer();
 
         // Configure NavController with Toolbar
@@ -86,39 +106,72 @@ public class MainActivity extends AppCompatActivity
     }
 
     private void setupCustomerDrawer() {
-        // Create header view for the drawer
-        RecyclerView recyclerView = new RecyclerView(this);
+        RecyclerView recyclerView = findViewById(R.id.customer_drawer_list);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setHasFixedSize(true);
         customerAdapter = new CustomerDrawerAdapter(this);
         recyclerView.setAdapter(customerAdapter);
 
-        // Add the RecyclerView to the drawer header
-        navViewLeft.addHeaderView(recyclerView);
-
-        // Observe customer list from ViewModel
-        customerViewModel.getAllCustomers().observe(this, customers -> {
-            if (customers != null) {
-                customerAdapter.setCustomers(customers);
+        customerSearch = findViewById(R.id.customer_drawer_search);
+        customerSearch.addTextChangedListener(new DrawerSearchWatcher() {
+            @Override
+            public void afterTextChanged(Editable s) {
+                customerViewModel.setDrawerQuery(s.toString());
             }
         });
+
+        // Recent customers on top while not searching, then the matches
+        customerViewModel.getRecentCustomers().observe(this, recent -> updateCustomerDrawer());
+        customerViewModel.getDrawerCustomers().observe(this, customers -> updateCustomerDrawer());
+    }
+
+    private void updateCustomerDrawer() {
+        List<CustomerEntity> customers = customerViewModel.getDrawerCustomers().getValue();
+        if (customers == null) return;
+        List<CustomerEntity> recent = customerViewModel.getRecentCustomers().getValue();
+        if (recent == null || customerViewModel.hasDrawerQuery()) {
+            recent = Collections.emptyList();
+        }
+        customerAdapter.submit(recent, customers);
     }
 
     private void setupUserDrawer() {
-        // Create header view for the drawer
-        RecyclerView recyclerView = new RecyclerView(this);
+        RecyclerView recyclerView = findViewById(R.id.user_drawer_list);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setHasFixedSize(true);
         userAdapter = new UserDrawerAdapter(this);
         recyclerView.setAdapter(userAdapter);
 
-        // Add the RecyclerView to the drawer header
-        navViewRight.addHeaderView(recyclerView);
-
-        // Observe user list from ViewModel
-        userViewModel.getAllUsers().observe(this, users -> {
-            if (users != null) {
-                userAdapter.setUsers(users);
+        userSearch = findViewById(R.id.user_drawer_search);
+        userSearch.addTextChangedListener(new DrawerSearchWatcher() {
+            @Override
+            public void afterTextChanged(Editable s) {
+                userViewModel.setDrawerQuery(s.toString());
             }
         });
+
+        userViewModel.getRecentUsers().observe(this, recent -> updateUserDrawer());
+        userViewModel.getDrawerUsers().observe(this, users -> updateUserDrawer());
+    }
+
+    private void updateUserDrawer() {
+        List<UserEntity> users = userViewModel.getDrawerUsers().getValue();
+        if (users == null) return;
+        List<UserEntity> recent = userViewModel.getRecentUsers().getValue();
+        if (recent == null || userViewModel.hasDrawerQuery()) {
+            recent = Collections.emptyList();
+        }
+        userAdapter.submit(recent, users);
+    }
+
+    private abstract static class DrawerSearchWatcher implements TextWatcher {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
     }
 
     @Override
@@ -127,7 +180,9 @@ public class MainActivity extends AppCompatActivity
 
         // Handle Customer drawer menu items
         if (id == R.id.nav_all_customers) {
-            // Show customer list (already shown in drawer)
+            // The list is in the drawer already; clear the search to show everyone
+            customerSearch.setText("");
+            return true;
         } else if (id == R.id.nav_add_customer) {
             // Navigate to add customer screen
             Navigation.findNavController(this, R.id.nav_host_fragment)
@@ -143,7 +198,8 @@ public class MainActivity extends AppCompatActivity
         }
         // Handle User drawer menu items
         else if (id == R.id.nav_all_users) {
-            // Show user list (already shown in drawer)
+            userSearch.setText("");
+            return true;
         } else if (id == R.id.nav_add_user) {
             // Navigate to add user screen
             Navigation.findNavController(this, R.id.nav_host_fragment)
@@ -174,6 +230,8 @@ public class MainActivity extends AppCompatActivity
     public void onCustomerClick(CustomerEntity customer) {
         // Set selected customer in ViewModel to be used in orders
         customerViewModel.setSelectedCustomer(customer);
+        customerViewModel.markUsed(customer);
+        customerSearch.setText("");
 
         // Also update the order's customer ID
         if (customer != null) {
@@ -189,6 +247,8 @@ public class MainActivity extends AppCompatActivity
     public void onUserClick(UserEntity user) {
         // Set selected user in ViewModel to be used in orders
         userViewModel.setCurrentUser(user);
+        userViewModel.markUsed(user);
+        userSearch.setText("");
 
         // Also update the order's user ID
         if (user != null) {
@@ -217,6 +277,21 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
+    // Null to stop handing key events to the previous handler
+    public void setScannerKeyHandler(ScannerKeyHandler handler) {
+        scannerKeyHandler = handler;
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        // The drawers' search fields keep their keys
+        if (scannerKeyHandler != null && !drawerLayout.isDrawerOpen(GravityCompat.START)
+                && !drawerLayout.isDrawerOpen(GravityCompat.END) && scannerKeyHandler.onKeyEvent(event)) {
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
@@ -237,6 +312,9 @@ public class MainActivity extends AppCompatActivity
         } else if (id == R.id.action_backup_data) {
             runManualBackup();
             return true;
+        } else if (id == R.id.action_rebuild_reports) {
+            rebuildReports();
+            return true;
         }
 
         return super.onOptionsItemSelected(item);
@@ -263,6 +341,17 @@ public class MainActivity extends AppCompatActivity
                 });
     }
 
+    /**
+     * Recompute the daily sales rollups that reports read from
+     */
+    private void rebuildReports() {
+        Toast.makeText(this, "Rebuilding reports...", Toast.LENGTH_SHORT).show();
+        new com.javandroid.accounting_app.data.repository.OrderRepository(getApplication()).rebuildSalesRollups(
+                success -> runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                        success ? "Reports rebuilt" : "Rebuilding reports failed. Please check logs.",
+                        Toast.LENGTH_LONG).show()));
+    }
+
     @Override
     public void onBackPressed() {
         if (drawerLayout.isDrawerOpen(GravityCompat.START)) {
@@ -5,12 +5,16 @@ import android.content.SharedPreferences;
 import android.util.Log;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Properties;
 
 /**
  * Utility class to manage backup metadata and statistics
@@ -26,9 +30,21 @@ public class BackupMetadata {
     private static final String KEY_TOTAL_BACKUPS = "total_backups";
     private static final String KEY_SUCCESSFUL_BACKUPS = "successful_backups";
     private static final String KEY_FAILED_BACKUPS = "failed_backups";
+    private static final String KEY_LAST_BACKUP_MODE = "last_backup_mode";
+    private static final String KEY_LAST_BACKUP_DURATION_MS = "last_backup_duration_ms";
+    private static final String KEY_LAST_BACKUP_THROUGHPUT = "last_backup_throughput";
     private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
     private static final String BACKUP_FOLDER_NAME = "accounting_app_backups";
 
+    // Written into every backup folder so each backup says how it was produced
+    public static final String MANIFEST_FILE_NAME = "backup.properties";
+    private static final String MANIFEST_MODE = "mode";
+    private static final String MANIFEST_DURATION_MS = "durationMs";
+    private static final String MANIFEST_SIZE_BYTES = "sizeBytes";
+    private static final String MANIFEST_THROUGHPUT = "bytesPerSecond";
+    private static final String MANIFEST_SCHEMA_VERSION = "schemaVersion";
+    private static final String MANIFEST_SNAPSHOT_METHOD = "snapshotMethod";
+
     /**
      * Record a successful backup operation
      *
@@ -60,6 +76,48 @@ public class BackupMetadata {
         Log.d(TAG, "Recorded successful backup: " + currentDate + ", size: " + formatSize(size));
     }
 
+    /**
+     * Record a successful backup together with how it was produced and how
+     * fast it ran, and write the same facts into the backup folder's manifest
+     *
+     * @param context        Application context
+     * @param backupPath     Path to the backup directory
+     * @param mode           What the backup contains
+     * @param durationMs     Wall time of the backup run
+     * @param schemaVersion  Database version the backup was taken from
+     * @param snapshotMethod How the snapshot was taken, or null if there is none
+     */
+    public static void recordSuccessfulBackup(Context context, String backupPath, BackupMode mode,
+                                              long durationMs, int schemaVersion, String snapshotMethod) {
+        recordSuccessfulBackup(context, backupPath);
+
+        long size = calculateBackupSize(backupPath);
+        long throughput = durationMs > 0 ? size * 1000 / durationMs : 0;
+
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_LAST_BACKUP_MODE, mode.name())
+                .putLong(KEY_LAST_BACKUP_DURATION_MS, durationMs)
+                .putLong(KEY_LAST_BACKUP_THROUGHPUT, throughput)
+                .apply();
+
+        Properties manifest = new Properties();
+        manifest.setProperty(MANIFEST_MODE, mode.name());
+        manifest.setProperty(MANIFEST_DURATION_MS, String.valueOf(durationMs));
+        manifest.setProperty(MANIFEST_SIZE_BYTES, String.valueOf(size));
+        manifest.setProperty(MANIFEST_THROUGHPUT, String.valueOf(throughput));
+        manifest.setProperty(MANIFEST_SCHEMA_VERSION, String.valueOf(schemaVersion));
+        if (snapshotMethod != null) {
+            manifest.setProperty(MANIFEST_SNAPSHOT_METHOD, snapshotMethod);
+        }
+        try (FileOutputStream out = new FileOutputStream(new File(backupPath, MANIFEST_FILE_NAME))) {
+            manifest.store(out, "accounting app backup");
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing backup manifest", e);
+        }
+
+        Log.d(TAG, "Backup mode " + mode + " took " + durationMs + " ms, " + formatSize(throughput) + "/s");
+    }
+
     /**
      * Record a failed backup operation
      *
@@ -173,6 +231,63 @@ public class BackupMetadata {
         return new int[] { total, successful, failed };
     }
 
+    /**
+     * @return Mode of the last successful backup, or null if none was recorded
+     */
+    public static BackupMode getLastBackupMode(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return BackupMode.fromName(prefs.getString(KEY_LAST_BACKUP_MODE, null), null);
+    }
+
+    public static long getLastBackupDurationMs(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_LAST_BACKUP_DURATION_MS, 0);
+    }
+
+    /**
+     * @return Throughput of the last successful backup, e.g. "12.3 MB/s"
+     */
+    public static String getLastBackupThroughputFormatted(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return formatSize(prefs.getLong(KEY_LAST_BACKUP_THROUGHPUT, 0)) + "/s";
+    }
+
+    /**
+     * Read the mode a backup folder was produced with. Folders written before
+     * manifests existed contain only CSV files.
+     *
+     * @param backupDir A folder returned by {@link #listAllBackups(Context)}
+     * @return The recorded mode, or CSV if the folder has no manifest
+     */
+    public static BackupMode readBackupMode(File backupDir) {
+        Properties manifest = readManifest(backupDir);
+        return BackupMode.fromName(manifest.getProperty(MANIFEST_MODE), BackupMode.CSV);
+    }
+
+    /**
+     * @return Database schema version recorded in the manifest, or 0 if unknown
+     */
+    public static int readSchemaVersion(File backupDir) {
+        try {
+            return Integer.parseInt(readManifest(backupDir).getProperty(MANIFEST_SCHEMA_VERSION, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Properties readManifest(File backupDir) {
+        Properties manifest = new Properties();
+        File file = new File(backupDir, MANIFEST_FILE_NAME);
+        if (file.isFile()) {
+            try (FileInputStream in = new FileInputStream(file)) {
+                manifest.load(in);
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading backup manifest " + file, e);
+            }
+        }
+        return manifest;
+    }
+
     /**
      * List all available backup directories
      *
@@ -0,0 +1,30 @@
+package com.javandroid.accounting_app.data.backup;
+
+/**
+ * What a backup run writes into its timestamped folder
+ */
+public enum BackupMode {
+    /** Human-readable CSV dump of every table */
+    CSV,
+    /** Binary, restorable image of the SQLite database */
+    SNAPSHOT,
+    /** Both of the above */
+    CSV_AND_SNAPSHOT;
+
+    public boolean includesCsv() {
+        return this != SNAPSHOT;
+    }
+
+    public boolean includesSnapshot() {
+        return this != CSV;
+    }
+
+    public static BackupMode fromName(String name, BackupMode fallback) {
+        if (name == null) return fallback;
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.javandroid.accounting_app.data.backup;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.repository.StockBuffer;
+
+import java.io.File;
+
+/**
+ * Worker that restores the database from a CSV backup folder.
+ * Progress is published through WorkManager so the UI can observe it.
+ */
+public class BackupRestoreWorker extends Worker {
+    private static final String TAG = "BackupRestoreWorker";
+
+    // Input
+    public static final String KEY_BACKUP_PATH = "backup_path";
+
+    // Progress and output
+    public static final String KEY_TABLE = "table";
+    public static final String KEY_TABLE_INDEX = "table_index";
+    public static final String KEY_TABLE_COUNT = "table_count";
+    public static final String KEY_ROWS = "rows";
+    public static final String KEY_DURATION_MS = "duration_ms";
+    public static final String KEY_ERROR = "error";
+
+    public BackupRestoreWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String path = getInputData().getString(KEY_BACKUP_PATH);
+        if (path == null || !new File(path).isDirectory()) {
+            Log.e(TAG, "Invalid backup folder: " + path);
+            return Result.failure(new Data.Builder().putString(KEY_ERROR, "Backup folder not found").build());
+        }
+
+        long start = System.nanoTime();
+        try {
+            AppDatabase db = AppDatabase.getInstance(getApplicationContext());
+            // Deltas of the stock being replaced must not be flushed onto the restored stock
+            StockBuffer.getInstance(db).discardPending();
+            BackupRestorer restorer = new BackupRestorer(db);
+            long rows = restorer.restore(new File(path), (table, tableIndex, tableCount, rowsRestored) ->
+                    setProgressAsync(new Data.Builder()
+                            .putString(KEY_TABLE, table)
+                            .putInt(KEY_TABLE_INDEX, tableIndex)
+                            .putInt(KEY_TABLE_COUNT, tableCount)
+                            .putLong(KEY_ROWS, rowsRestored)
+                            .build()));
+
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            Log.d(TAG, "Restored " + rows + " rows from " + path + " in " + durationMs + " ms");
+            return Result.success(new Data.Builder()
+                    .putLong(KEY_ROWS, rows)
+                    .putLong(KEY_DURATION_MS, durationMs)
+                    .build());
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring backup from " + path, e);
+            return Result.failure(new Data.Builder().putString(KEY_ERROR, String.valueOf(e.getMessage())).build());
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.javandroid.accounting_app.data.backup;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.database.ProductSearch;
+import com.javandroid.accounting_app.data.database.SalesRollups;
+import com.javandroid.accounting_app.print.ReceiptCache;
+import com.javandroid.accounting_app.util.CsvReader;
+import com.javandroid.accounting_app.util.OrderDates;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds the database from a CSV backup folder written by DatabaseBackupWorker.
+ * Every table is cleared and reloaded in a single transaction, parent tables
+ * first, through a single compiled INSERT per table. Secondary indices are
+ * dropped before the load and recreated once afterwards, which is much cheaper
+ * than maintaining them row by row.
+ * Run it while no sale is in progress: the current contents are replaced.
+ * Discard the pending stock deltas of StockBuffer first, or they are flushed
+ * onto the restored stock.
+ */
+public class BackupRestorer {
+    private static final String TAG = "BackupRestorer";
+    private static final int PROGRESS_EVERY_ROWS = 5_000;
+
+    private static final String[] RESTORE_ORDER = {"users", "customers", "products", "orders", "order_items"};
+
+    public interface ProgressListener {
+        void onProgress(String table, int tableIndex, int tableCount, long rowsRestored);
+    }
+
+    private final AppDatabase database;
+
+    public BackupRestorer(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Every CSV is parsed and checked before anything is changed. The delete,
+     * the reload and the index, trigger and rollup rebuilds then run in one
+     * transaction, so a bad row, an IO error or a killed process leaves the
+     * previous contents, indices and triggers as they were.
+     *
+     * @return total number of rows restored across all tables
+     */
+    public long restore(File backupDir, ProgressListener listener) throws IOException {
+        for (String table : RESTORE_ORDER) {
+            if (!new File(backupDir, table + ".csv").isFile()) {
+                throw new IOException("Backup is missing " + table + ".csv");
+            }
+        }
+        long start = System.nanoTime();
+        for (String table : RESTORE_ORDER) {
+            validateTable(new File(backupDir, table + ".csv"), table);
+        }
+        Log.d(TAG, "Validated backup in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        final long[] total = {0};
+        try {
+            database.runInTransaction(() -> {
+                try {
+                    total[0] = restoreAll(db, backupDir, listener);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // Rolls back the whole restore
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        ReceiptCache.getInstance().clear();
+        return total[0];
+    }
+
+    // Inside the restore transaction
+    private long restoreAll(SupportSQLiteDatabase db, File backupDir, ProgressListener listener)
+            throws IOException {
+        Map<String, String> indexSql = dropSecondaryIndices(db);
+        // Rollups and the search index are rebuilt once at the end instead of by triggers on every row
+        SalesRollups.dropTriggers(db);
+        ProductSearch.dropTriggers(db);
+
+        // Children first, so cascades have nothing left to do
+        for (int i = RESTORE_ORDER.length - 1; i >= 0; i--) {
+            db.execSQL("DELETE FROM " + RESTORE_ORDER[i]);
+        }
+
+        long total = 0;
+        for (int i = 0; i < RESTORE_ORDER.length; i++) {
+            String table = RESTORE_ORDER[i];
+            long start = System.nanoTime();
+            long rows = restoreTable(db, new File(backupDir, table + ".csv"), table, i, listener);
+            total += rows;
+            Log.d(TAG, "Restored " + rows + " rows into " + table + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+
+        long start = System.nanoTime();
+        for (String sql : indexSql.values()) {
+            db.execSQL(sql);
+        }
+        Log.d(TAG, "Recreated " + indexSql.size() + " indices in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        // Backups do not carry the derived cost and profit columns
+        start = System.nanoTime();
+        db.execSQL(SalesRollups.BACKFILL_ORDER_LINE_TOTALS);
+        for (String sql : SalesRollups.REBUILD) {
+            db.execSQL(sql);
+        }
+        SalesRollups.createTriggers(db);
+        Log.d(TAG, "Rebuilt sales rollups in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        start = System.nanoTime();
+        for (String sql : ProductSearch.REBUILD) {
+            db.execSQL(sql);
+        }
+        ProductSearch.createTriggers(db);
+        Log.d(TAG, "Rebuilt product search index in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return total;
+    }
+
+    private static void validateTable(File csv, String table) throws IOException {
+        try (CsvReader reader = new CsvReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8)))) {
+            List<String> header = reader.readRecord();
+            if (header == null) return;
+            TableLoader loader = TableLoader.forTable(table, header);
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                loader.check(record, reader.getLineNumber());
+            }
+        } catch (IOException e) {
+            throw new IOException(table + ".csv: " + e.getMessage(), e);
+        }
+    }
+
+    private long restoreTable(SupportSQLiteDatabase db, File csv, String table, int tableIndex,
+                              ProgressListener listener) throws IOException {
+        try (CsvReader reader = new CsvReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8)))) {
+            List<String> header = reader.readRecord();
+            if (header == null) return 0;
+            TableLoader loader = TableLoader.forTable(table, header);
+
+            long rows = 0;
+            SupportSQLiteStatement insert = db.compileStatement(loader.insertSql);
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                insert.clearBindings();
+                loader.bind(insert, record, reader.getLineNumber());
+                insert.executeInsert();
+                if (++rows % PROGRESS_EVERY_ROWS == 0 && listener != null) {
+                    listener.onProgress(table, tableIndex, RESTORE_ORDER.length, rows);
+                }
+            }
+            if (listener != null) {
+                listener.onProgress(table, tableIndex, RESTORE_ORDER.length, rows);
+            }
+            return rows;
+        }
+    }
+
+    private static Map<String, String> dropSecondaryIndices(SupportSQLiteDatabase db) {
+        Map<String, String> indexSql = new HashMap<>();
+        // sql IS NULL for the automatic indices behind PRIMARY KEY / UNIQUE; those must stay
+        try (Cursor cursor = db.query("SELECT name, sql FROM sqlite_master WHERE type = 'index' " +
+                "AND sql IS NOT NULL AND tbl_name IN ('users', 'customers', 'products', 'orders', 'order_items')")) {
+            while (cursor.moveToNext()) {
+                indexSql.put(cursor.getString(0), cursor.getString(1));
+            }
+        }
+        for (String name : indexSql.keySet()) {
+            db.execSQL("DROP INDEX IF EXISTS `" + name + "`");
+        }
+        return indexSql;
+    }
+
+    /**
+     * Maps one backup CSV onto its table by header name, so older backups
+     * without the newer columns still load.
+     */
+    static class TableLoader {
+        final String insertSql;
+        private final Column[] columns;
+
+        private TableLoader(String table, Column[] columns) {
+            this.columns = columns;
+            StringBuilder names = new StringBuilder();
+            StringBuilder params = new StringBuilder();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    names.append(", ");
+                    params.append(", ");
+                }
+                names.append(columns[i].name);
+                params.append('?');
+            }
+            insertSql = "INSERT OR REPLACE INTO " + table + " (" + names + ") VALUES (" + params + ")";
+        }
+
+        static TableLoader forTable(String table, List<String> header) throws IOException {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.put(header.get(i).trim(), i);
+            }
+            List<Column> columns = new ArrayList<>();
+            switch (table) {
+                case "users":
+                    columns.add(Column.required(positions, "User ID", "userId", Type.LONG));
+                    columns.add(Column.required(positions, "Username", "username", Type.TEXT));
+                    columns.add(Column.required(positions, "Password", "password", Type.TEXT));
+                    break;
+                case "customers":
+                    columns.add(Column.required(positions, "Customer ID", "customerId", Type.LONG));
+                    columns.add(Column.required(positions, "Name", "name", Type.TEXT));
+                    break;
+                case "products":
+                    columns.add(Column.required(positions, "Product ID", "productId", Type.LONG));
+                    columns.add(Column.required(positions, "Name", "name", Type.TEXT));
+                    columns.add(Column.required(positions, "Barcode", "barcode", Type.TEXT));
+                    columns.add(Column.required(positions, "Buy Price", "buyPrice", Type.DOUBLE));
+                    columns.add(Column.required(positions, "Sell Price", "sellPrice", Type.DOUBLE));
+                    columns.add(Column.required(positions, "Stock", "stock", Type.DOUBLE));
+                    columns.add(Column.optional(positions, "Image Path", "imagePath", Type.NULLABLE_TEXT, null));
+                    break;
+                case "orders":
+                    columns.add(Column.required(positions, "Order ID", "orderId", Type.LONG));
+                    columns.add(Column.required(positions, "Date", "date", Type.TEXT));
+                    columns.add(Column.required(positions, "Customer ID", "customerId", Type.LONG));
+                    columns.add(Column.required(positions, "User ID", "userId", Type.LONG));
+                    columns.add(Column.required(positions, "Total", "total", Type.DOUBLE));
+                    // Older backups: createdAt is parsed from Date, orders count as paid
+                    columns.add(Column.createdAt(positions, "Created At", "Date"));
+                    columns.add(Column.optional(positions, "Paid", "isPaid", Type.LONG, "1"));
+                    break;
+                case "order_items":
+                    columns.add(Column.required(positions, "Item ID", "itemId", Type.LONG));
+                    columns.add(Column.required(positions, "Order ID", "orderId", Type.NULLABLE_LONG));
+                    columns.add(Column.required(positions, "Product ID", "productId", Type.NULLABLE_LONG));
+                    columns.add(Column.required(positions, "Product Name", "productName", Type.TEXT));
+                    columns.add(Column.required(positions, "Barcode", "barcode", Type.TEXT));
+                    columns.add(Column.required(positions, "Quantity", "quantity", Type.DOUBLE));
+                    columns.add(Column.required(positions, "Buy Price", "buyPrice", Type.DOUBLE));
+                    columns.add(Column.required(positions, "Sell Price", "sellPrice", Type.DOUBLE));
+                    break;
+                default:
+                    throw new IOException("Unknown table " + table);
+            }
+            return new TableLoader(table, columns.toArray(new Column[0]));
+        }
+
+        void bind(SupportSQLiteStatement statement, List<String> record, long line) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                try {
+                    column.bind(statement, i + 1, record);
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    throw new IOException("Bad value for " + column.name + " on line " + line, e);
+                }
+            }
+        }
+
+        // Parses the record as bind would, without a statement
+        void check(List<String> record, long line) throws IOException {
+            for (Column column : columns) {
+                try {
+                    column.value(record);
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    throw new IOException("Bad value for " + column.name + " on line " + line, e);
+                }
+            }
+        }
+    }
+
+    private enum Type {
+        LONG, NULLABLE_LONG, DOUBLE, TEXT, NULLABLE_TEXT, CREATED_AT
+    }
+
+    private static class Column {
+        final String name;
+        final Type type;
+        final Integer position;     // CSV position, null if the backup lacks this column
+        final Integer datePosition; // CREATED_AT fallback: parse this column instead
+        final String defaultValue;
+
+        private Column(String name, Type type, Integer position, Integer datePosition, String defaultValue) {
+            this.name = name;
+            this.type = type;
+            this.position = position;
+            this.datePosition = datePosition;
+            this.defaultValue = defaultValue;
+        }
+
+        static Column required(Map<String, Integer> positions, String header, String name, Type type)
+                throws IOException {
+            Integer position = positions.get(header);
+            if (position == null) throw new IOException("Backup column missing: " + header);
+            return new Column(name, type, position, null, null);
+        }
+
+        static Column optional(Map<String, Integer> positions, String header, String name, Type type,
+                               String defaultValue) {
+            return new Column(name, type, positions.get(header), null, defaultValue);
+        }
+
+        static Column createdAt(Map<String, Integer> positions, String header, String dateHeader) {
+            return new Column("createdAt", Type.CREATED_AT, positions.get(header), positions.get(dateHeader), null);
+        }
+
+        /**
+         * @return the parsed Long, Double or String, or null for SQL NULL
+         */
+        Object value(List<String> record) {
+            String value = position != null && position < record.size() ? record.get(position) : null;
+            switch (type) {
+                case CREATED_AT:
+                    if (value == null || value.isEmpty()) {
+                        long parsed = datePosition != null ? OrderDates.parse(record.get(datePosition)) : -1;
+                        return Math.max(parsed, 0);
+                    }
+                    return Long.parseLong(value);
+                case NULLABLE_LONG:
+                    return value == null || value.isEmpty() ? null : Long.parseLong(value);
+                case NULLABLE_TEXT:
+                    return value == null || value.isEmpty() ? null : value;
+                default:
+                    if (value == null) value = defaultValue;
+                    if (value == null) throw new IndexOutOfBoundsException("missing field");
+                    if (type == Type.LONG) return Long.parseLong(value);
+                    if (type == Type.DOUBLE) return Double.parseDouble(value);
+                    return value;
+            }
+        }
+
+        void bind(SupportSQLiteStatement statement, int index, List<String> record) {
+            Object value = value(record);
+            if (value == null) statement.bindNull(index);
+            else if (value instanceof Long) statement.bindLong(index, (Long) value);
+            else if (value instanceof Double) statement.bindDouble(index, (Double) value);
+            else statement.bindString(index, (String) value);
+        }
+    }
+}
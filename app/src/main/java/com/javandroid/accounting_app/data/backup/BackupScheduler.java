@@ -8,7 +8,9 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.work.Constraints;
+import androidx.work.Data;
 import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkInfo;
@@ -17,6 +19,10 @@ import androidx.work.ListenableWorker;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.Observer;
 
+import java.io.File;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,6 +33,7 @@ import java.util.concurrent.TimeUnit;
 public class BackupScheduler {
         private static final String TAG = "BackupScheduler";
         private static final String BACKUP_WORK_NAME = "database_daily_backup";
+        private static final String RESTORE_WORK_NAME = "database_restore";
         private static final long DEFAULT_BACKUP_INTERVAL_HOURS = 24;
 
         // Callback interface for backup operations
@@ -114,7 +121,21 @@ public class BackupScheduler {
          *                              completes
          */
         public static void runBackupNow(Context context, boolean requiresBatteryNotLow, BackupCallback callback) {
-                Log.d(TAG, "Running backup immediately");
+                runBackupNow(context, DatabaseBackupWorker.DEFAULT_MODE, requiresBatteryNotLow, callback);
+        }
+
+        /**
+         * Run a backup immediately in the given mode
+         * 
+         * @param context               Application context
+         * @param mode                  CSV dump, SQLite snapshot, or both
+         * @param requiresBatteryNotLow Whether battery should not be low
+         * @param callback              Optional callback to notify when backup
+         *                              completes
+         */
+        public static void runBackupNow(Context context, BackupMode mode, boolean requiresBatteryNotLow,
+                        BackupCallback callback) {
+                Log.d(TAG, "Running backup immediately, mode " + mode);
 
                 Constraints constraints = new Constraints.Builder()
                                 .setRequiresBatteryNotLow(requiresBatteryNotLow)
@@ -123,6 +144,9 @@ public class BackupScheduler {
                 OneTimeWorkRequest backupRequest = new OneTimeWorkRequest.Builder(
                                 DatabaseBackupWorker.class)
                                 .setConstraints(constraints)
+                                .setInputData(new Data.Builder()
+                                                .putString(DatabaseBackupWorker.KEY_BACKUP_MODE, mode.name())
+                                                .build())
                                 .build();
 
                 WorkManager.getInstance(context).enqueue(backupRequest);
@@ -140,6 +164,51 @@ public class BackupScheduler {
                 }
         }
 
+        /**
+         * Restore the database from a CSV backup folder in the background.
+         * Observe the returned id with WorkManager for progress
+         * ({@link BackupRestoreWorker#KEY_TABLE}, {@link BackupRestoreWorker#KEY_ROWS}).
+         * If a restore is already queued or running, this one is dropped and the
+         * id of the running restore is returned instead.
+         * Waits briefly for WorkManager to record the request.
+         * 
+         * @param context   Application context
+         * @param backupDir A folder from {@link BackupMetadata#listAllBackups(Context)}
+         * @return Id of the restore work that will run
+         */
+        public static UUID restoreFromBackup(Context context, File backupDir) {
+                Log.d(TAG, "Restoring from backup " + backupDir);
+
+                OneTimeWorkRequest restoreRequest = new OneTimeWorkRequest.Builder(
+                                BackupRestoreWorker.class)
+                                .setInputData(new Data.Builder()
+                                                .putString(BackupRestoreWorker.KEY_BACKUP_PATH,
+                                                                backupDir.getAbsolutePath())
+                                                .build())
+                                .build();
+
+                // Never run a restore alongside another one
+                WorkManager workManager = WorkManager.getInstance(context);
+                try {
+                        workManager.enqueueUniqueWork(RESTORE_WORK_NAME, ExistingWorkPolicy.KEEP, restoreRequest)
+                                        .getResult().get();
+                        List<WorkInfo> restores = workManager.getWorkInfosForUniqueWork(RESTORE_WORK_NAME).get();
+                        for (WorkInfo restore : restores) {
+                                if (!restore.getState().isFinished()) {
+                                        if (!restore.getId().equals(restoreRequest.getId())) {
+                                                Log.w(TAG, "A restore is already running, not restoring " + backupDir);
+                                        }
+                                        return restore.getId();
+                                }
+                        }
+                } catch (ExecutionException e) {
+                        Log.e(TAG, "Error enqueueing restore from " + backupDir, e);
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+                return restoreRequest.getId();
+        }
+
         /**
          * Check if a scheduled backup is currently active
          * 
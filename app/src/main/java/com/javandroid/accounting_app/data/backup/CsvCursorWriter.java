@@ -0,0 +1,106 @@
+package com.javandroid.accounting_app.data.backup;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams a query cursor straight into a CSV file.
+ * Rows are never materialised as entities: numbers are appended from the
+ * cursor's primitive getters and text is copied into a reused char buffer,
+ * so memory stays flat no matter how many rows the table holds.
+ */
+public class CsvCursorWriter {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CharArrayBuffer textBuffer = new CharArrayBuffer(256);
+    private final StringBuilder numberBuffer = new StringBuilder(32);
+
+    /**
+     * Writes the header line followed by one line per cursor row.
+     * The cursor is read to the end but not closed.
+     *
+     * @return number of data rows written
+     */
+    public long write(Cursor cursor, File file, String header) throws IOException {
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            return write(cursor, out, header);
+        }
+    }
+
+    public long write(Cursor cursor, Writer out, String header) throws IOException {
+        out.write(header);
+        out.write('\n');
+
+        int columns = cursor.getColumnCount();
+        long rows = 0;
+        while (cursor.moveToNext()) {
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) out.write(',');
+                writeField(cursor, i, out);
+            }
+            out.write('\n');
+            rows++;
+        }
+        out.flush();
+        return rows;
+    }
+
+    private void writeField(Cursor cursor, int column, Writer out) throws IOException {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return;
+            case Cursor.FIELD_TYPE_INTEGER:
+                numberBuffer.setLength(0);
+                numberBuffer.append(cursor.getLong(column));
+                out.append(numberBuffer);
+                return;
+            case Cursor.FIELD_TYPE_FLOAT:
+                numberBuffer.setLength(0);
+                numberBuffer.append(cursor.getDouble(column)); // Same text as String.valueOf(double)
+                out.append(numberBuffer);
+                return;
+            default:
+                cursor.copyStringToBuffer(column, textBuffer);
+                writeEscaped(textBuffer.data, textBuffer.sizeCopied, out);
+        }
+    }
+
+    /**
+     * Quotes the value only if it contains a comma, quote or line break,
+     * doubling embedded quotes (RFC 4180)
+     */
+    static void writeEscaped(char[] chars, int length, Writer out) throws IOException {
+        boolean needsQuotes = false;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            out.write(chars, 0, length);
+            return;
+        }
+        out.write('"');
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == '"') {
+                out.write(chars, runStart, i - runStart + 1);
+                out.write('"');
+                runStart = i + 1;
+            }
+        }
+        out.write(chars, runStart, length - runStart);
+        out.write('"');
+    }
+}
@@ -1,6 +1,7 @@
 package com.javandroid.accounting_app.data.backup;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.os.Environment;
 import android.util.Log;
 
@@ -9,29 +10,29 @@ import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.javandroid.accounting_app.data.database.AppDatabase;
-import com.javandroid.accounting_app.data.model.OrderEntity;
-import com.javandroid.accounting_app.data.model.OrderItemEntity;
-import com.javandroid.accounting_app.data.model.ProductEntity;
-import com.javandroid.accounting_app.data.model.CustomerEntity;
-import com.javandroid.accounting_app.data.model.UserEntity;
+import com.javandroid.accounting_app.data.repository.StockBuffer;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 /**
  * Worker class that handles the database backup
  * It exports all data from the database to CSV files in the backups folder
+ * and/or takes a binary SQLite snapshot, depending on {@link BackupMode}
  */
 public class DatabaseBackupWorker extends Worker {
     private static final String TAG = "DatabaseBackupWorker";
     private static final String BACKUP_FOLDER_NAME = "accounting_app_backups";
 
+    // Optional input data: a BackupMode name
+    public static final String KEY_BACKUP_MODE = "backup_mode";
+    static final BackupMode DEFAULT_MODE = BackupMode.CSV_AND_SNAPSHOT;
+
     private AppDatabase database;
+    private final CsvCursorWriter csvWriter = new CsvCursorWriter();
     private File todayBackupDir;
 
     public DatabaseBackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
@@ -44,6 +45,7 @@ public class DatabaseBackupWorker extends Worker {
     public Result doWork() {
         try {
             Log.d(TAG, "Starting database backup");
+            StockBuffer.getInstance(AppDatabase.getInstance(getApplicationContext())).flush();
 
             // Create the backup directory
             File backupDir = createBackupDirectory();
@@ -62,42 +64,33 @@ public class DatabaseBackupWorker extends Worker {
                 return Result.failure();
             }
 
-            // Export each data type
+            BackupMode mode = BackupMode.fromName(getInputData().getString(KEY_BACKUP_MODE), DEFAULT_MODE);
+            long startNanos = System.nanoTime();
             boolean success = true;
-
-            try {
-                success &= exportOrders(todayBackupDir);
-            } catch (Exception e) {
-                Log.e(TAG, "Error exporting orders", e);
-                success = false;
-            }
-
-            try {
-                success &= exportProducts(todayBackupDir);
-            } catch (Exception e) {
-                Log.e(TAG, "Error exporting products", e);
-                success = false;
-            }
-
-            try {
-                success &= exportCustomers(todayBackupDir);
-            } catch (Exception e) {
-                Log.e(TAG, "Error exporting customers", e);
-                success = false;
+            String snapshotMethod = null;
+
+            if (mode.includesSnapshot()) {
+                try {
+                    snapshotMethod = takeSnapshot(todayBackupDir).name();
+                } catch (Exception e) {
+                    Log.e(TAG, "Error taking database snapshot", e);
+                    success = false;
+                }
             }
 
-            try {
-                success &= exportUsers(todayBackupDir);
-            } catch (Exception e) {
-                Log.e(TAG, "Error exporting users", e);
-                success = false;
+            if (mode.includesCsv()) {
+                success &= exportCsv(todayBackupDir);
             }
 
-            Log.d(TAG, "Database backup " + (success ? "completed successfully" : "completed with errors"));
+            long durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+            Log.d(TAG, "Database backup (" + mode + ") " + (success ? "completed successfully" : "completed with errors")
+                    + " in " + durationMs + " ms");
 
             // Record backup metadata
             if (success) {
-                BackupMetadata.recordSuccessfulBackup(getApplicationContext(), todayBackupDir.getAbsolutePath());
+                int schemaVersion = database.getOpenHelper().getReadableDatabase().getVersion();
+                BackupMetadata.recordSuccessfulBackup(getApplicationContext(), todayBackupDir.getAbsolutePath(),
+                        mode, durationMs, schemaVersion, snapshotMethod);
             } else {
                 BackupMetadata.recordFailedBackup(getApplicationContext());
             }
@@ -125,162 +118,96 @@ public class DatabaseBackupWorker extends Worker {
         return backupDir;
     }
 
-    private boolean exportOrders(File backupDir) {
-        try {
-            // Export orders
-            File ordersFile = new File(backupDir, "orders.csv");
-            File orderItemsFile = new File(backupDir, "order_items.csv");
-
-            // Get all orders directly from the database
-            List<OrderEntity> orders = database.orderDao().getAllOrdersSync();
-
-            if (orders == null || orders.isEmpty()) {
-                Log.d(TAG, "No orders to export");
-                return true;
-            }
-
-            // Export orders to CSV
-            try (FileWriter writer = new FileWriter(ordersFile)) {
-                writer.append("Order ID,Date,Customer ID,User ID,Total\n");
-
-                for (OrderEntity order : orders) {
-                    writer.append(String.valueOf(order.getOrderId())).append(",");
-                    writer.append(escapeCsvField(order.getDate())).append(",");
-                    writer.append(String.valueOf(order.getCustomerId())).append(",");
-                    writer.append(String.valueOf(order.getUserId())).append(",");
-                    writer.append(String.valueOf(order.getTotal())).append("\n");
-                }
-                writer.flush();
-            }
+    private SqliteSnapshotter.Method takeSnapshot(File backupDir) throws IOException {
+        File dbFile = getApplicationContext().getDatabasePath(AppDatabase.DATABASE_NAME);
+        File target = new File(backupDir, SqliteSnapshotter.SNAPSHOT_FILE_NAME);
+        long start = System.nanoTime();
+        SqliteSnapshotter.Method method = new SqliteSnapshotter(database, dbFile).snapshot(target);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        Log.d(TAG, "Snapshot via " + method + ": " + target.length() + " bytes in " + elapsedMs + " ms");
+        return method;
+    }
 
-            // For each order, get its items
-            try (FileWriter writer = new FileWriter(orderItemsFile)) {
-                writer.append("Item ID,Order ID,Product ID,Product Name,Barcode,Quantity,Buy Price,Sell Price\n");
-
-                for (OrderEntity order : orders) {
-                    List<OrderItemEntity> items = database.orderItemDao().getItemsForOrderSync(order.getOrderId());
-
-                    if (items == null || items.isEmpty()) {
-                        continue;
-                    }
-
-                    for (OrderItemEntity item : items) {
-                        writer.append(String.valueOf(item.getItemId())).append(",");
-                        writer.append(String.valueOf(item.getOrderId())).append(",");
-                        writer.append(item.getProductId() != null ? String.valueOf(item.getProductId()) : "")
-                                .append(",");
-                        writer.append(escapeCsvField(item.getProductName())).append(",");
-                        writer.append(escapeCsvField(item.getBarcode())).append(",");
-                        writer.append(String.valueOf(item.getQuantity())).append(",");
-                        writer.append(String.valueOf(item.getBuyPrice())).append(",");
-                        writer.append(String.valueOf(item.getSellPrice())).append("\n");
-                    }
-                }
-                writer.flush();
-            }
+    // Export each data type
+    private boolean exportCsv(File backupDir) {
+        boolean success = true;
 
-            Log.d(TAG, "Successfully exported " + orders.size() + " orders");
-            return true;
+        try {
+            success &= exportOrders(backupDir);
         } catch (Exception e) {
             Log.e(TAG, "Error exporting orders", e);
-            return false;
+            success = false;
         }
-    }
 
-    private boolean exportProducts(File backupDir) {
         try {
-            File productsFile = new File(backupDir, "products.csv");
-
-            // Get all products directly from the database
-            List<ProductEntity> products = database.productDao().getAllProductsSync();
-
-            if (products == null || products.isEmpty()) {
-                Log.d(TAG, "No products to export");
-                return true;
-            }
-
-            // Export products to CSV
-            try (FileWriter writer = new FileWriter(productsFile)) {
-                writer.append("Product ID,Name,Barcode,Buy Price,Sell Price,Stock\n");
-
-                for (ProductEntity product : products) {
-                    writer.append(String.valueOf(product.getProductId())).append(",");
-                    writer.append(escapeCsvField(product.getName())).append(",");
-                    writer.append(escapeCsvField(product.getBarcode())).append(",");
-                    writer.append(String.valueOf(product.getBuyPrice())).append(",");
-                    writer.append(String.valueOf(product.getSellPrice())).append(",");
-                    writer.append(String.valueOf(product.getStock())).append("\n");
-                }
-                writer.flush();
-            }
-
-            Log.d(TAG, "Successfully exported " + products.size() + " products");
-            return true;
+            success &= exportProducts(backupDir);
         } catch (Exception e) {
             Log.e(TAG, "Error exporting products", e);
-            return false;
+            success = false;
         }
-    }
 
-    private boolean exportCustomers(File backupDir) {
         try {
-            File customersFile = new File(backupDir, "customers.csv");
-
-            // Get all customers directly from the database
-            List<CustomerEntity> customers = database.customerDao().getAllCustomersSync();
-
-            if (customers == null || customers.isEmpty()) {
-                Log.d(TAG, "No customers to export");
-                return true;
-            }
-
-            // Export customers to CSV
-            try (FileWriter writer = new FileWriter(customersFile)) {
-                writer.append("Customer ID,Name\n");
-
-                for (CustomerEntity customer : customers) {
-                    writer.append(String.valueOf(customer.getCustomerId())).append(",");
-                    writer.append(escapeCsvField(customer.getName())).append("\n");
-                }
-                writer.flush();
-            }
-
-            Log.d(TAG, "Successfully exported " + customers.size() + " customers");
-            return true;
+            success &= exportCustomers(backupDir);
         } catch (Exception e) {
             Log.e(TAG, "Error exporting customers", e);
-            return false;
+            success = false;
         }
-    }
 
-    private boolean exportUsers(File backupDir) {
         try {
-            File usersFile = new File(backupDir, "users.csv");
+            success &= exportUsers(backupDir);
+        } catch (Exception e) {
+            Log.e(TAG, "Error exporting users", e);
+            success = false;
+        }
+        return success;
+    }
 
-            // Get all users directly from the database
-            List<UserEntity> users = database.userDao().getAllUsersSync();
+    private boolean exportOrders(File backupDir) {
+        // Items come from one ordered scan over order_items (index on orderId) instead of a query per order
+        return exportTable(backupDir, "orders.csv",
+                "Order ID,Date,Customer ID,User ID,Total,Created At,Paid",
+                "SELECT orderId, date, customerId, userId, total, createdAt, isPaid FROM orders ORDER BY orderId ASC",
+                "orders")
+                && exportTable(backupDir, "order_items.csv",
+                "Item ID,Order ID,Product ID,Product Name,Barcode,Quantity,Buy Price,Sell Price",
+                "SELECT itemId, orderId, productId, productName, barcode, quantity, buyPrice, sellPrice " +
+                        "FROM order_items WHERE orderId IS NOT NULL ORDER BY orderId ASC, itemId ASC",
+                "order items");
+    }
 
-            if (users == null || users.isEmpty()) {
-                Log.d(TAG, "No users to export");
-                return true;
-            }
+    private boolean exportProducts(File backupDir) {
+        return exportTable(backupDir, "products.csv",
+                "Product ID,Name,Barcode,Buy Price,Sell Price,Stock,Image Path",
+                "SELECT productId, name, barcode, buyPrice, sellPrice, stock, imagePath FROM products ORDER BY productId ASC",
+                "products");
+    }
 
-            // Export users to CSV
-            try (FileWriter writer = new FileWriter(usersFile)) {
-                writer.append("User ID,Username,Password\n");
+    private boolean exportCustomers(File backupDir) {
+        return exportTable(backupDir, "customers.csv",
+                "Customer ID,Name",
+                "SELECT customerId, name FROM customers ORDER BY customerId ASC",
+                "customers");
+    }
 
-                for (UserEntity user : users) {
-                    writer.append(String.valueOf(user.getUserId())).append(",");
-                    writer.append(escapeCsvField(user.getUsername())).append(",");
-                    writer.append(escapeCsvField(user.getPassword())).append("\n");
-                }
-                writer.flush();
-            }
+    private boolean exportUsers(File backupDir) {
+        return exportTable(backupDir, "users.csv",
+                "User ID,Username,Password",
+                "SELECT userId, username, password FROM users ORDER BY userId ASC",
+                "users");
+    }
 
-            Log.d(TAG, "Successfully exported " + users.size() + " users");
+    /**
+     * Streams one query into a CSV file through a cursor, in constant memory
+     */
+    private boolean exportTable(File backupDir, String fileName, String header, String sql, String label) {
+        long start = System.nanoTime();
+        try (Cursor cursor = database.query(sql, null)) {
+            long rows = csvWriter.write(cursor, new File(backupDir, fileName), header);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            Log.d(TAG, "Successfully exported " + rows + " " + label + " in " + elapsedMs + " ms");
             return true;
         } catch (Exception e) {
-            Log.e(TAG, "Error exporting users", e);
+            Log.e(TAG, "Error exporting " + label, e);
             return false;
         }
     }
@@ -318,17 +245,4 @@ public class DatabaseBackupWorker extends Worker {
         }
         fileOrDirectory.delete();
     }
-
-    private String escapeCsvField(String field) {
-        if (field == null) {
-            return "";
-        }
-
-        // If the field contains commas, quotes, or newlines, wrap it in quotes
-        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
-            // Replace any quotes with double quotes (CSV standard for escaping quotes)
-            return "\"" + field.replace("\"", "\"\"") + "\"";
-        }
-        return field;
-    }
-}
\ No newline at end of file
+}
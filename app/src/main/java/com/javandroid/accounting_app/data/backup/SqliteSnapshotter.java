@@ -0,0 +1,108 @@
+package com.javandroid.accounting_app.data.backup;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Takes a consistent binary copy of the live database.
+ * Uses VACUUM INTO where SQLite supports it (3.27+, Android 11+); otherwise
+ * checkpoints the WAL and page-copies the database and WAL files with
+ * FileChannel.transferTo while a transaction holds off writers.
+ */
+public class SqliteSnapshotter {
+    private static final String TAG = "SqliteSnapshotter";
+    public static final String SNAPSHOT_FILE_NAME = "shop-db.sqlite";
+
+    public enum Method {
+        VACUUM_INTO, FILE_COPY
+    }
+
+    private final AppDatabase database;
+    private final File databaseFile;
+
+    public SqliteSnapshotter(AppDatabase database, File databaseFile) {
+        this.database = database;
+        this.databaseFile = databaseFile;
+    }
+
+    /**
+     * Writes the snapshot to target (any existing file is replaced)
+     *
+     * @return the method that was used
+     */
+    public Method snapshot(File target) throws IOException {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        deleteSnapshot(target);
+
+        if (supportsVacuumInto(db)) {
+            // VACUUM INTO reads one consistent snapshot and writes a compacted copy; writers are not blocked
+            db.execSQL("VACUUM INTO '" + target.getAbsolutePath().replace("'", "''") + "'");
+            return Method.VACUUM_INTO;
+        }
+
+        // Move WAL content into the main file first so the copy is mostly one file
+        try (Cursor ignored = db.query("PRAGMA wal_checkpoint(TRUNCATE)")) {
+            ignored.moveToFirst();
+        }
+
+        final File wal = new File(databaseFile.getPath() + "-wal");
+        final File targetWal = new File(target.getPath() + "-wal");
+        final IOException[] failure = new IOException[1];
+        // The write transaction keeps the database + WAL pair stable while it is copied
+        database.runInTransaction(() -> {
+            try {
+                copyFile(databaseFile, target);
+                if (wal.exists() && wal.length() > 0) {
+                    copyFile(wal, targetWal);
+                }
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            deleteSnapshot(target);
+            throw failure[0];
+        }
+        return Method.FILE_COPY;
+    }
+
+    private static boolean supportsVacuumInto(SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query("SELECT sqlite_version()")) {
+            if (!cursor.moveToFirst()) return false;
+            String[] parts = cursor.getString(0).split("\\.");
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major > 3 || (major == 3 && minor >= 27);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not read SQLite version, falling back to file copy", e);
+            return false;
+        }
+    }
+
+    private static void copyFile(File source, File target) throws IOException {
+        try (FileChannel in = new FileInputStream(source).getChannel();
+             FileChannel out = new FileOutputStream(target).getChannel()) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            out.force(false);
+        }
+    }
+
+    private static void deleteSnapshot(File target) {
+        target.delete();
+        new File(target.getPath() + "-wal").delete();
+    }
+}
@@ -0,0 +1,57 @@
+package com.javandroid.accounting_app.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a whole sale (order header, all lines and stock changes) in a single
+ * SQLite transaction, so a checkout is one commit and an order can never be
+ * visible without its items.
+ */
+@Dao
+public interface CheckoutDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long insertOrder(OrderEntity order);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertOrderItems(List<OrderItemEntity> items);
+
+    @Query("UPDATE products SET stock = stock + :delta WHERE productId = :productId")
+    int applyStockDelta(long productId, double delta);
+
+    /**
+     * Commit an order with its items and stock changes atomically.
+     *
+     * @param order       The order header, orderId 0 so Room generates it; its cost and profit are set here
+     * @param items       The lines of the order, itemId 0; orderId is filled in here
+     * @param stockDeltas productId -> change in stock (negative when sold), may be empty
+     * @return The generated order ID
+     */
+    @Transaction
+    default long commitOrder(OrderEntity order, List<OrderItemEntity> items, Map<Long, Double> stockDeltas) {
+        order.setLineTotals(items);
+        long orderId = insertOrder(order);
+        for (OrderItemEntity item : items) {
+            item.setOrderId(orderId);
+        }
+        insertOrderItems(items);
+        if (stockDeltas != null) {
+            for (Map.Entry<Long, Double> entry : stockDeltas.entrySet()) {
+                if (entry.getValue() != 0) {
+                    applyStockDelta(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return orderId;
+    }
+}
@@ -20,6 +20,20 @@ public interface CustomerDao {
     @Query("SELECT * FROM customers ORDER BY customerId ASC")
     List<CustomerEntity> getAllCustomersSync();
 
+    /**
+     * Customers whose name starts with the prefix, case-insensitively, read in
+     * name order from the NOCASE name index. prefixEnd is the prefix followed
+     * by U+10FFFF, so the range holds exactly the names starting with it.
+     */
+    @Query("SELECT * FROM customers WHERE name >= :prefix AND name < :prefixEnd ORDER BY name, customerId")
+    LiveData<List<CustomerEntity>> searchByNamePrefix(String prefix, String prefixEnd);
+
+    @Query("SELECT * FROM customers WHERE lastUsedAt > 0 ORDER BY lastUsedAt DESC LIMIT :limit")
+    LiveData<List<CustomerEntity>> getRecentlyUsed(int limit);
+
+    @Query("UPDATE customers SET lastUsedAt = :time WHERE customerId = :customerId")
+    void markUsed(long customerId, long time);
+
     @Query("SELECT * FROM customers WHERE customerId = :customerId LIMIT 1")
     CustomerEntity getCustomerByIdSync(long customerId);
 
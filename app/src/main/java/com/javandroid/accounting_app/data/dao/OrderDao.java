@@ -3,7 +3,10 @@ package com.javandroid.accounting_app.data.dao;
 import androidx.lifecycle.LiveData;
 import androidx.room.*;
 
+import com.javandroid.accounting_app.data.model.DailyOrderSalesEntity;
 import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.ReceiptLine;
+import com.javandroid.accounting_app.data.model.UserProfitData;
 // OrderItemEntity import is no longer needed here for the moved methods
 
 import java.util.List;
@@ -14,18 +17,100 @@ public interface OrderDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     long insertOrder(OrderEntity order);
 
-    @Query("SELECT * FROM orders ORDER BY date DESC")
-    LiveData<List<OrderEntity>> getAllOrders();
+    // Range queries over the indexed createdAt column; from is inclusive, to is exclusive
+    @Query("SELECT * FROM orders WHERE createdAt >= :from AND createdAt < :to ORDER BY createdAt DESC, orderId DESC")
+    List<OrderEntity> getOrdersBetweenSync(long from, long to);
+
+    // Keyset pages for the order history: each page starts after the last row of the
+    // previous one (after*), so no query reads the rows it skips. Unbounded pages are
+    // index scans on createdAt, total or customerId, with orderId breaking ties.
+    // For the first page by date pass afterCreatedAt = to - 1 and afterId = Long.MAX_VALUE.
+    @Query("SELECT * FROM orders WHERE createdAt >= :from " +
+            "AND createdAt <= :afterCreatedAt AND (createdAt < :afterCreatedAt OR orderId < :afterId) " +
+            "ORDER BY createdAt DESC, orderId DESC LIMIT :limit")
+    List<OrderEntity> getOrdersPageByDateSync(long from, long afterCreatedAt, long afterId, int limit);
+
+    @Query("SELECT * FROM orders WHERE total <= :afterTotal AND (total < :afterTotal OR orderId < :afterId) " +
+            "ORDER BY total DESC, orderId DESC LIMIT :limit")
+    List<OrderEntity> getOrdersPageByTotalSync(double afterTotal, long afterId, int limit);
+
+    @Query("SELECT * FROM orders WHERE customerId <= :afterCustomerId " +
+            "AND (customerId < :afterCustomerId OR orderId < :afterId) " +
+            "ORDER BY customerId DESC, orderId DESC LIMIT :limit")
+    List<OrderEntity> getOrdersPageByCustomerSync(long afterCustomerId, long afterId, int limit);
+
+    // Within a date range these read the range through the createdAt index and sort it
+    @Query("SELECT * FROM orders WHERE createdAt >= :from AND createdAt < :to " +
+            "AND total <= :afterTotal AND (total < :afterTotal OR orderId < :afterId) " +
+            "ORDER BY total DESC, orderId DESC LIMIT :limit")
+    List<OrderEntity> getOrdersPageBetweenByTotalSync(long from, long to, double afterTotal, long afterId, int limit);
+
+    @Query("SELECT * FROM orders WHERE createdAt >= :from AND createdAt < :to " +
+            "AND customerId <= :afterCustomerId AND (customerId < :afterCustomerId OR orderId < :afterId) " +
+            "ORDER BY customerId DESC, orderId DESC LIMIT :limit")
+    List<OrderEntity> getOrdersPageBetweenByCustomerSync(long from, long to, long afterCustomerId, long afterId, int limit);
+
+    // Order search, in keyset pages newest first like getOrdersPageByDateSync. Names
+    // are matched with a LIKE pattern through joins on the small customers/users
+    // tables while orders are read in createdAt index order, so no sort is needed.
+    @Query("SELECT o.* FROM orders o JOIN customers c ON c.customerId = o.customerId " +
+            "WHERE c.name LIKE :pattern ESCAPE '\\' AND o.createdAt >= :from " +
+            "AND o.createdAt <= :afterCreatedAt AND (o.createdAt < :afterCreatedAt OR o.orderId < :afterId) " +
+            "ORDER BY o.createdAt DESC, o.orderId DESC LIMIT :limit")
+    List<OrderEntity> searchPageByCustomerNameSync(String pattern, long from, long afterCreatedAt, long afterId, int limit);
+
+    @Query("SELECT o.* FROM orders o JOIN users u ON u.userId = o.userId " +
+            "WHERE u.username LIKE :pattern ESCAPE '\\' AND o.createdAt >= :from " +
+            "AND o.createdAt <= :afterCreatedAt AND (o.createdAt < :afterCreatedAt OR o.orderId < :afterId) " +
+            "ORDER BY o.createdAt DESC, o.orderId DESC LIMIT :limit")
+    List<OrderEntity> searchPageByUserNameSync(String pattern, long from, long afterCreatedAt, long afterId, int limit);
+
+    // One customer's orders, newest first
+    @Query("SELECT * FROM orders WHERE customerId = :customerId AND orderId < :afterId " +
+            "ORDER BY orderId DESC LIMIT :limit")
+    List<OrderEntity> getOrdersPageOfCustomerSync(long customerId, long afterId, int limit);
 
     @Query("SELECT * FROM orders ORDER BY orderId ASC")
     List<OrderEntity> getAllOrdersSync();
 
+    // Receipts for printing: orders, customer names and items in one joined query.
+    // A page is up to :limit orders of the createdAt range, oldest first, after the
+    // order (afterCreatedAt, afterId); pass 0 for customerId or false for unpaidOnly
+    // to not filter on them. Rows come out grouped by order in item order.
+    @Query("SELECT o.orderId AS orderId, o.createdAt AS createdAt, o.total AS total, " +
+            "c.name AS customerName, i.productName AS productName, " +
+            "i.quantity AS quantity, i.sellPrice AS sellPrice " +
+            "FROM (SELECT orderId FROM orders WHERE createdAt >= :from AND createdAt < :to " +
+            "AND (:customerId = 0 OR customerId = :customerId) AND (NOT :unpaidOnly OR isPaid = 0) " +
+            "AND (createdAt > :afterCreatedAt OR (createdAt = :afterCreatedAt AND orderId > :afterId)) " +
+            "ORDER BY createdAt, orderId LIMIT :limit) page " +
+            "JOIN orders o ON o.orderId = page.orderId " +
+            "JOIN customers c ON c.customerId = o.customerId " +
+            "LEFT JOIN order_items i ON i.orderId = o.orderId " +
+            "ORDER BY o.createdAt, o.orderId, i.itemId")
+    List<ReceiptLine> getReceiptLinesPageSync(long from, long to, long customerId, boolean unpaidOnly,
+                                              long afterCreatedAt, long afterId, int limit);
+
+    @Query("SELECT o.orderId AS orderId, o.createdAt AS createdAt, o.total AS total, " +
+            "c.name AS customerName, i.productName AS productName, " +
+            "i.quantity AS quantity, i.sellPrice AS sellPrice " +
+            "FROM orders o JOIN customers c ON c.customerId = o.customerId " +
+            "LEFT JOIN order_items i ON i.orderId = o.orderId " +
+            "WHERE o.orderId = :orderId ORDER BY i.itemId")
+    List<ReceiptLine> getReceiptLinesOfOrderSync(long orderId);
+
     @Query("SELECT * FROM orders WHERE customerId = :customerId")
     LiveData<List<OrderEntity>> getOrdersByCustomerId(long customerId);
 
     @Query("SELECT * FROM orders WHERE userId = :userId")
     LiveData<List<OrderEntity>> getOrdersByUserId(long userId);
 
+    @Query("SELECT orderId FROM orders WHERE customerId = :customerId")
+    List<Long> getOrderIdsOfCustomerSync(long customerId);
+
+    @Query("SELECT orderId FROM orders WHERE userId = :userId")
+    List<Long> getOrderIdsOfUserSync(long userId);
+
 
     @Query("SELECT * FROM orders WHERE orderId = :orderId LIMIT 1")
     LiveData<OrderEntity> getOrderById(long orderId);
@@ -33,21 +118,42 @@ public interface OrderDao {
     @Query("SELECT * FROM orders WHERE orderId = :orderId LIMIT 1")
     OrderEntity getOrderByIdSync(long orderId);
 
-    @Query("SELECT SUM((oi.sellPrice - oi.buyPrice) * oi.quantity) AS profit " +
-            "FROM order_items oi " + // Still need order_items table for this query
-            "JOIN orders o ON oi.orderId = o.orderId " +
-            "WHERE o.userId = :userId")
+    // Reports read the trigger-maintained daily rollups (one row per day, user and
+    // customer, summing orders.profit) instead of aggregating every order line
+    @Query("SELECT COALESCE(SUM(profit), 0.0) AS profit " +
+            "FROM daily_order_sales WHERE userId = :userId")
     double calculateProfitByUserSync(long userId);
 
-    @Query("SELECT SUM((oi.sellPrice - oi.buyPrice) * oi.quantity) AS profit " +
-            "FROM order_items oi " + // Still need order_items table for this query
-            "JOIN orders o ON oi.orderId = o.orderId " +
-            "WHERE o.userId = :userId AND o.customerId = :customerId")
+    @Query("SELECT COALESCE(SUM(profit), 0.0) AS profit " +
+            "FROM daily_order_sales WHERE userId = :userId AND customerId = :customerId")
     double calculateProfitByUserAndCustomerSync(long userId, long customerId);
 
-    @Query("SELECT SUM(total) FROM orders WHERE customerId = :customerId")
+    // Profit of every user in one aggregation (LEFT JOIN keeps users without sales at 0)
+    @Query("SELECT u.userId AS userId, u.username AS username, " +
+            "COALESCE(SUM(s.profit), 0.0) AS totalProfit, " +
+            "0.0 AS customerSpecificProfit " +
+            "FROM users u " +
+            "LEFT JOIN daily_order_sales s ON s.userId = u.userId " +
+            "GROUP BY u.userId ORDER BY u.userId")
+    List<UserProfitData> getProfitForAllUsersSync();
+
+    // Same as above, with each user's profit from one customer in customerSpecificProfit
+    @Query("SELECT u.userId AS userId, u.username AS username, " +
+            "COALESCE(SUM(s.profit), 0.0) AS totalProfit, " +
+            "COALESCE(SUM(CASE WHEN s.customerId = :customerId " +
+            "THEN s.profit ELSE 0 END), 0.0) AS customerSpecificProfit " +
+            "FROM users u " +
+            "LEFT JOIN daily_order_sales s ON s.userId = u.userId " +
+            "GROUP BY u.userId ORDER BY u.userId")
+    List<UserProfitData> getProfitForAllUsersWithCustomerSync(long customerId);
+
+    @Query("SELECT SUM(total) FROM daily_order_sales WHERE customerId = :customerId")
     LiveData<Double> getTotalBoughtByCustomer(long customerId);
 
+    // Per-day totals for dashboards; days are yyyyMMdd, both inclusive
+    @Query("SELECT * FROM daily_order_sales WHERE day BETWEEN :fromDay AND :toDay ORDER BY day")
+    LiveData<List<DailyOrderSalesEntity>> getDailyOrderSales(long fromDay, long toDay);
+
 
     @Update
     void updateOrder(OrderEntity order);
@@ -58,12 +164,6 @@ public interface OrderDao {
     @Query("DELETE FROM orders")
     void deleteAllOrders();
 
-    @Query("SELECT * FROM orders ORDER BY total DESC")
-    LiveData<List<OrderEntity>> getAllOrdersSortedByTotal();
-
-    @Query("SELECT * FROM orders ORDER BY customerId ASC, orderId DESC")
-    LiveData<List<OrderEntity>> getAllOrdersSortedByCustomer();
-
     @Query("SELECT MAX(orderId) FROM orders")
     long getLastOrderIdSync();
 }
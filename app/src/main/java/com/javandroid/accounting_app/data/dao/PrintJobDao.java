@@ -0,0 +1,35 @@
+package com.javandroid.accounting_app.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.javandroid.accounting_app.data.model.PrintJobEntity;
+
+import java.util.List;
+
+/**
+ * The persisted print spool read by {@link com.javandroid.accounting_app.print.PrinterService}.
+ */
+@Dao
+public interface PrintJobDao {
+
+    @Insert
+    long insert(PrintJobEntity job);
+
+    @Insert
+    void insertAll(List<PrintJobEntity> jobs);
+
+    // Oldest first, so receipts come out in the order they were queued
+    @Query("SELECT * FROM print_jobs ORDER BY jobId ASC LIMIT :limit")
+    List<PrintJobEntity> getPendingSync(int limit);
+
+    @Query("SELECT COUNT(*) FROM print_jobs")
+    int countPendingSync();
+
+    @Query("DELETE FROM print_jobs WHERE jobId = :jobId")
+    void delete(long jobId);
+
+    @Query("UPDATE print_jobs SET attempts = attempts + 1, lastError = :error WHERE jobId = :jobId")
+    void recordFailure(long jobId, String error);
+}
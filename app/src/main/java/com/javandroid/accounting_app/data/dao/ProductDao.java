@@ -3,9 +3,14 @@ package com.javandroid.accounting_app.data.dao;
 import androidx.lifecycle.LiveData;
 import androidx.room.*;
 
+import com.javandroid.accounting_app.data.model.BarcodeShape;
 import com.javandroid.accounting_app.data.model.ProductEntity;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
 public interface ProductDao {
@@ -37,6 +42,75 @@ public interface ProductDao {
     @Update
     void updateAll(List<ProductEntity> products);
 
+    // Atomic stock change: no read-modify-write, so concurrent scans/edits cannot lose updates
+    @Query("UPDATE products SET stock = stock + :delta WHERE productId = :productId")
+    int adjustStock(long productId, double delta);
+
+    @Query("SELECT stock FROM products WHERE productId = :productId")
+    Double getStockSync(long productId); // null if the product does not exist
+
+    // Full-text search over products_fts; match is built by ProductSearch.matchExpression.
+    // Ranked: exact barcode first, then names starting with the typed text, then shorter names
+    @Query("SELECT p.* FROM products p JOIN products_fts f ON p.productId = f.rowid " +
+            "WHERE products_fts MATCH :match " +
+            "ORDER BY (p.barcode = :text) DESC, (p.name LIKE :text || '%') DESC, length(p.name), p.productId " +
+            "LIMIT :limit OFFSET :offset")
+    List<ProductEntity> searchSync(String match, String text, int limit, int offset);
+
+    // The distinct kinds of stocked barcodes, to decode only those symbologies from the camera
+    @Query("SELECT DISTINCT length(barcode) AS length, (barcode NOT GLOB '*[^0-9]*') AS allDigits " +
+            "FROM products WHERE barcode != ''")
+    List<BarcodeShape> getBarcodeShapesSync();
+
+    @Query("SELECT * FROM products WHERE barcode IN (:barcodes)")
+    List<ProductEntity> getProductsByBarcodesSync(List<String> barcodes);
+
+    @Insert
+    void insertAll(List<ProductEntity> products);
+
+    /**
+     * Insert or update a chunk of products keyed by barcode, in one transaction.
+     * Existing rows keep their productId and imagePath; name and prices are
+     * taken from the incoming entity. A barcode repeated within the chunk keeps
+     * its last row. The chunk must stay below SQLite's bind-variable limit.
+     *
+     * @param replaceStock false to keep the stock of existing rows (price-list updates)
+     * @return number of products that already existed and were updated
+     */
+    @Transaction
+    default int upsertByBarcode(List<ProductEntity> products, boolean replaceStock) {
+        Map<String, ProductEntity> unique = new LinkedHashMap<>();
+        for (ProductEntity product : products) {
+            unique.put(product.getBarcode(), product);
+        }
+        Map<String, ProductEntity> existing = new HashMap<>();
+        for (ProductEntity product : getProductsByBarcodesSync(new ArrayList<>(unique.keySet()))) {
+            existing.put(product.getBarcode(), product);
+        }
+
+        List<ProductEntity> toInsert = new ArrayList<>();
+        List<ProductEntity> toUpdate = new ArrayList<>();
+        for (ProductEntity product : unique.values()) {
+            ProductEntity current = existing.get(product.getBarcode());
+            if (current == null) {
+                product.setProductId(0);
+                toInsert.add(product);
+            } else {
+                product.setProductId(current.getProductId());
+                if (product.getImagePath() == null) {
+                    product.setImagePath(current.getImagePath());
+                }
+                if (!replaceStock) {
+                    product.setStock(current.getStock());
+                }
+                toUpdate.add(product);
+            }
+        }
+        insertAll(toInsert);
+        updateAll(toUpdate);
+        return toUpdate.size();
+    }
+
     @Delete
     void delete(ProductEntity product); // Delete
 
@@ -16,6 +16,16 @@ public interface UserDao {
     @Query("SELECT * FROM users ORDER BY userId ASC")
     List<UserEntity> getAllUsersSync();
 
+    // A handful of cashiers, so a LIKE scan is fine here
+    @Query("SELECT * FROM users WHERE username LIKE :pattern ESCAPE '\\' ORDER BY username, userId")
+    LiveData<List<UserEntity>> searchByName(String pattern);
+
+    @Query("SELECT * FROM users WHERE lastUsedAt > 0 ORDER BY lastUsedAt DESC LIMIT :limit")
+    LiveData<List<UserEntity>> getRecentlyUsed(int limit);
+
+    @Query("UPDATE users SET lastUsedAt = :time WHERE userId = :userId")
+    void markUsed(long userId, long time);
+
     @Query("SELECT * FROM users WHERE userId = :userId LIMIT 1")
     UserEntity getUserByIdSync(long userId);
 
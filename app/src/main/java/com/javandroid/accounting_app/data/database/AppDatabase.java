@@ -1,32 +1,48 @@
 package com.javandroid.accounting_app.data.database;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
 
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
+import com.javandroid.accounting_app.data.dao.CheckoutDao;
 import com.javandroid.accounting_app.data.dao.CustomerDao;
 import com.javandroid.accounting_app.data.dao.OrderDao;
 import com.javandroid.accounting_app.data.dao.OrderItemDao;
+import com.javandroid.accounting_app.data.dao.PrintJobDao;
 import com.javandroid.accounting_app.data.dao.ProductDao;
 import com.javandroid.accounting_app.data.dao.UserDao;
 import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.data.model.DailyOrderSalesEntity;
+import com.javandroid.accounting_app.data.model.DailyProductSalesEntity;
 import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.data.model.PrintJobEntity;
 import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.data.model.ProductFtsEntity;
 import com.javandroid.accounting_app.data.model.UserEntity;
+import com.javandroid.accounting_app.util.OrderDates;
 
 @Database(entities = {
         ProductEntity.class,
         OrderEntity.class,
         OrderItemEntity.class,
         UserEntity.class,
-        CustomerEntity.class
-}, version = 7, exportSchema = false)
+        CustomerEntity.class,
+        DailyProductSalesEntity.class,
+        DailyOrderSalesEntity.class,
+        ProductFtsEntity.class,
+        PrintJobEntity.class
+}, version = 15, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
+    private static final String TAG = "AppDatabase";
+    public static final String DATABASE_NAME = "shop-db";
 
     private static volatile AppDatabase instance;
 
@@ -40,6 +56,10 @@ public abstract class AppDatabase extends RoomDatabase {
 
     public abstract OrderItemDao orderItemDao();
 
+    public abstract CheckoutDao checkoutDao();
+
+    public abstract PrintJobDao printJobDao();
+
     public static AppDatabase getInstance(Context context) {
         if (instance == null) {
             synchronized (AppDatabase.class) {
@@ -47,8 +67,13 @@ public abstract class AppDatabase extends RoomDatabase {
                     instance = Room.databaseBuilder(
                                     context.getApplicationContext(),
                                     AppDatabase.class,
-                                    "shop-db")
-                            .addMigrations(MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7)
+                                    DATABASE_NAME)
+                            .addMigrations(MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+                                    MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10,
+                                    MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14,
+                                    MIGRATION_14_15)
+                            .addCallback(SalesRollups.CALLBACK)
+                            .addCallback(ProductSearch.CALLBACK)
                             .build();
                 }
             }
@@ -157,4 +182,149 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Index barcode so scan lookups stop doing a full table scan.
+            // Not UNIQUE: existing installs may already hold duplicate barcodes.
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_products_barcode ON products(barcode)");
+        }
+    };
+
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE orders ADD COLUMN createdAt INTEGER NOT NULL DEFAULT 0");
+
+            // Backfill from the text date. It was written with the device locale, so it
+            // is parsed in Java (digit normalisation, local time zone) rather than strftime().
+            int unparsed = 0;
+            SupportSQLiteStatement update = database.compileStatement(
+                    "UPDATE orders SET createdAt = ? WHERE orderId = ?");
+            try (Cursor cursor = database.query("SELECT orderId, date FROM orders")) {
+                while (cursor.moveToNext()) {
+                    long millis = OrderDates.parse(cursor.getString(1));
+                    if (millis < 0) {
+                        unparsed++;
+                        continue; // Stays 0 and sorts as oldest
+                    }
+                    update.bindLong(1, millis);
+                    update.bindLong(2, cursor.getLong(0));
+                    update.executeUpdateDelete();
+                    update.clearBindings();
+                }
+            }
+            if (unparsed > 0) {
+                Log.w(TAG, "MIGRATION_8_9: " + unparsed + " orders had an unparseable date");
+            }
+
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_orders_createdAt ON orders(createdAt)");
+        }
+    };
+
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Daily sales rollups, kept up to date by triggers (see SalesRollups)
+            database.execSQL("CREATE TABLE IF NOT EXISTS daily_product_sales (" +
+                    "day INTEGER NOT NULL, " +
+                    "userId INTEGER NOT NULL, " +
+                    "customerId INTEGER NOT NULL, " +
+                    "productId INTEGER NOT NULL, " +
+                    "quantity REAL NOT NULL, " +
+                    "revenue REAL NOT NULL, " +
+                    "cost REAL NOT NULL, " +
+                    "orderCount INTEGER NOT NULL, " +
+                    "PRIMARY KEY(day, userId, customerId, productId))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_daily_product_sales_userId ON daily_product_sales(userId)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_daily_product_sales_customerId ON daily_product_sales(customerId)");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS daily_order_sales (" +
+                    "day INTEGER NOT NULL, " +
+                    "userId INTEGER NOT NULL, " +
+                    "customerId INTEGER NOT NULL, " +
+                    "orderCount INTEGER NOT NULL, " +
+                    "total REAL NOT NULL, " +
+                    "PRIMARY KEY(day, userId, customerId))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_daily_order_sales_userId ON daily_order_sales(userId)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_daily_order_sales_customerId ON daily_order_sales(customerId)");
+
+            // Filled and kept up to date from MIGRATION_10_11 on: the current triggers and
+            // rebuild need the profit columns it adds
+        }
+    };
+
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Per-order cost and profit, so profit reports need no join with order_items
+            SalesRollups.dropTriggers(database);
+            database.execSQL("ALTER TABLE orders ADD COLUMN costTotal REAL NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE orders ADD COLUMN profit REAL NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE daily_order_sales ADD COLUMN profit REAL NOT NULL DEFAULT 0");
+            database.execSQL(SalesRollups.BACKFILL_ORDER_LINE_TOTALS);
+
+            // Backfill the rollups; Room already runs migrations in a transaction
+            for (String sql : SalesRollups.REBUILD) {
+                database.execSQL(sql);
+            }
+            SalesRollups.createTriggers(database);
+        }
+    };
+
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Lets the order history page by total without sorting the whole table
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_orders_total ON orders(total)");
+        }
+    };
+
+    public static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Full-text index for product search, filled from the existing products
+            database.execSQL(ProductSearch.CREATE_TABLE);
+            for (String sql : ProductSearch.REBUILD) {
+                database.execSQL(sql);
+            }
+            ProductSearch.createTriggers(database);
+        }
+    };
+
+    public static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Drawer search and recent lists. The customer name index has to be NOCASE
+            // for case-insensitive prefix ranges, and a column's collation can only
+            // change by rebuilding the table (foreign keys are not enforced here yet)
+            database.execSQL("CREATE TABLE IF NOT EXISTS customers_new (" +
+                    "customerId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "name TEXT NOT NULL COLLATE NOCASE, " +
+                    "lastUsedAt INTEGER NOT NULL DEFAULT 0)");
+            database.execSQL("INSERT INTO customers_new (customerId, name) SELECT customerId, name FROM customers");
+            database.execSQL("DROP TABLE customers");
+            database.execSQL("ALTER TABLE customers_new RENAME TO customers");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_customers_name ON customers(name)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_customers_lastUsedAt ON customers(lastUsedAt)");
+
+            database.execSQL("ALTER TABLE users ADD COLUMN lastUsedAt INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_users_lastUsedAt ON users(lastUsedAt)");
+        }
+    };
+
+    public static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Persisted print spool
+            database.execSQL("CREATE TABLE IF NOT EXISTS print_jobs (" +
+                    "jobId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "orderId INTEGER NOT NULL, " +
+                    "payload BLOB NOT NULL, " +
+                    "createdAt INTEGER NOT NULL, " +
+                    "attempts INTEGER NOT NULL, " +
+                    "lastError TEXT)");
+        }
+    };
+
 }
@@ -0,0 +1,92 @@
+package com.javandroid.accounting_app.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * SQL for the products_fts full-text index.
+ * <p>
+ * products_fts keeps its own copy of name and barcode, written by triggers on
+ * products. The update trigger only fires for the indexed columns, so the
+ * stock changes made on every scan do not touch the index. The insert
+ * trigger clears the docid first, because Room inserts products with INSERT
+ * OR REPLACE and the replaced row fires no delete trigger.
+ */
+public final class ProductSearch {
+
+    private ProductSearch() {
+    }
+
+    // Same statement Room generates for ProductFtsEntity, for migrations
+    public static final String CREATE_TABLE =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS `products_fts` USING FTS4(" +
+                    "`name` TEXT NOT NULL, `barcode` TEXT NOT NULL, tokenize=unicode61)";
+
+    private static final String[] CREATE = {
+            "CREATE TRIGGER IF NOT EXISTS products_fts_insert AFTER INSERT ON products BEGIN " +
+                    "DELETE FROM products_fts WHERE rowid = NEW.productId; " +
+                    "INSERT INTO products_fts(rowid, name, barcode) VALUES (NEW.productId, NEW.name, NEW.barcode); " +
+                    "END",
+            "CREATE TRIGGER IF NOT EXISTS products_fts_update AFTER UPDATE OF productId, name, barcode ON products BEGIN " +
+                    "DELETE FROM products_fts WHERE rowid = OLD.productId; " +
+                    "INSERT INTO products_fts(rowid, name, barcode) VALUES (NEW.productId, NEW.name, NEW.barcode); " +
+                    "END",
+            "CREATE TRIGGER IF NOT EXISTS products_fts_delete AFTER DELETE ON products BEGIN " +
+                    "DELETE FROM products_fts WHERE rowid = OLD.productId; " +
+                    "END"
+    };
+
+    private static final String[] DROP = {
+            "DROP TRIGGER IF EXISTS products_fts_insert",
+            "DROP TRIGGER IF EXISTS products_fts_update",
+            "DROP TRIGGER IF EXISTS products_fts_delete"
+    };
+
+    /**
+     * Refill the index from products, e.g. after a migration or a bulk load
+     * with the triggers dropped. Run inside a transaction.
+     */
+    public static final String[] REBUILD = {
+            "DELETE FROM products_fts",
+            "INSERT INTO products_fts(rowid, name, barcode) SELECT productId, name, barcode FROM products"
+    };
+
+    public static void createTriggers(SupportSQLiteDatabase database) {
+        for (String sql : CREATE) {
+            database.execSQL(sql);
+        }
+    }
+
+    public static void dropTriggers(SupportSQLiteDatabase database) {
+        for (String sql : DROP) {
+            database.execSQL(sql);
+        }
+    }
+
+    /**
+     * Turn typed search text into an FTS MATCH expression: every word must
+     * match the start of a word in the name or barcode ("cola 33" finds
+     * "Coca Cola 330ml"). Quotes are dropped so the input cannot change the
+     * query syntax. Returns null when there is nothing to search for.
+     */
+    @Nullable
+    public static String matchExpression(String query) {
+        if (query == null) return null;
+        StringBuilder match = new StringBuilder();
+        for (String word : query.replace("\"", " ").trim().split("\\s+")) {
+            if (word.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append('"').append(word).append("*\"");
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            createTriggers(db);
+        }
+    };
+}
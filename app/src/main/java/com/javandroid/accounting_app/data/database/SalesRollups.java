@@ -0,0 +1,216 @@
+package com.javandroid.accounting_app.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * SQL for the daily sales rollups (daily_product_sales, daily_order_sales).
+ * <p>
+ * Triggers on orders and order_items keep the rollups in step with every
+ * insert, update and delete, inside the same transaction, so reports read
+ * one row per day instead of every order line. Each trigger inserts signed
+ * deltas into a view whose INSTEAD OF trigger adds them to the rollup row,
+ * creating it first and dropping it once no order counts towards it. The
+ * row is created with a guarded plain INSERT rather than INSERT OR IGNORE,
+ * because the conflict policy of the outer statement (e.g. Room's INSERT OR
+ * REPLACE) overrides the one inside a trigger.
+ * <p>
+ * daily_order_sales sums the orders' own total and profit columns, so an
+ * order's profit must be kept in step with its lines (see
+ * {@link #BACKFILL_ORDER_LINE_TOTALS}).
+ * <p>
+ * Days are local dates (yyyyMMdd) in the time zone the row was written in;
+ * {@link #REBUILD} recomputes everything from the raw tables.
+ */
+public final class SalesRollups {
+
+    private SalesRollups() {
+    }
+
+    // Local calendar day of an orders row, as an integer yyyyMMdd
+    private static String day(String order) {
+        return "CAST(strftime('%Y%m%d', " + order + ".createdAt / 1000, 'unixepoch', 'localtime') AS INTEGER)";
+    }
+
+    /**
+     * Recompute orders.costTotal and orders.profit from their lines.
+     */
+    public static final String BACKFILL_ORDER_LINE_TOTALS =
+            "UPDATE orders SET " +
+                    "costTotal = (SELECT COALESCE(SUM(quantity * buyPrice), 0) FROM order_items i " +
+                    "WHERE i.orderId = orders.orderId), " +
+                    "profit = (SELECT COALESCE(SUM((sellPrice - buyPrice) * quantity), 0) FROM order_items i " +
+                    "WHERE i.orderId = orders.orderId)";
+
+    public static final String CLEAR_PRODUCT_SALES = "DELETE FROM daily_product_sales";
+
+    public static final String CLEAR_ORDER_SALES = "DELETE FROM daily_order_sales";
+
+    public static final String REBUILD_PRODUCT_SALES =
+            "INSERT INTO daily_product_sales (day, userId, customerId, productId, quantity, revenue, cost, orderCount) " +
+                    "SELECT CAST(strftime('%Y%m%d', o.createdAt / 1000, 'unixepoch', 'localtime') AS INTEGER) AS d, " +
+                    "o.userId, o.customerId, COALESCE(i.productId, 0) AS p, " +
+                    "SUM(i.quantity), SUM(i.quantity * i.sellPrice), SUM(i.quantity * i.buyPrice), " +
+                    "COUNT(DISTINCT i.orderId) " +
+                    "FROM order_items i JOIN orders o ON o.orderId = i.orderId " +
+                    "GROUP BY d, o.userId, o.customerId, p";
+
+    public static final String REBUILD_ORDER_SALES =
+            "INSERT INTO daily_order_sales (day, userId, customerId, orderCount, total, profit) " +
+                    "SELECT CAST(strftime('%Y%m%d', o.createdAt / 1000, 'unixepoch', 'localtime') AS INTEGER) AS d, " +
+                    "o.userId, o.customerId, COUNT(*), SUM(o.total), SUM(o.profit) " +
+                    "FROM orders o GROUP BY d, o.userId, o.customerId";
+
+    /**
+     * Recompute both rollups from orders and order_items. Run in a transaction.
+     */
+    public static final String[] REBUILD = {
+            CLEAR_PRODUCT_SALES, CLEAR_ORDER_SALES, REBUILD_PRODUCT_SALES, REBUILD_ORDER_SALES
+    };
+
+    // Adds the signed deltas of one line, (NOT) EXISTS counting the order once per product
+    private static String productDelta(String line, String sign) {
+        return "INSERT INTO daily_product_sales_delta " +
+                "SELECT " + day("o") + ", o.userId, o.customerId, COALESCE(" + line + ".productId, 0), " +
+                sign + line + ".quantity, " +
+                sign + line + ".quantity * " + line + ".sellPrice, " +
+                sign + line + ".quantity * " + line + ".buyPrice, " +
+                sign + "(NOT EXISTS (SELECT 1 FROM order_items x WHERE x.orderId = " + line + ".orderId " +
+                "AND COALESCE(x.productId, 0) = COALESCE(" + line + ".productId, 0) AND x.itemId <> " + line + ".itemId)) " +
+                "FROM orders o WHERE o.orderId = " + line + ".orderId;";
+    }
+
+    // Adds or removes all lines of an order, grouped by product
+    private static String orderLinesDelta(String order, String sign) {
+        return "INSERT INTO daily_product_sales_delta " +
+                "SELECT " + day(order) + ", " + order + ".userId, " + order + ".customerId, COALESCE(productId, 0), " +
+                sign + "SUM(quantity), " + sign + "SUM(quantity * sellPrice), " + sign + "SUM(quantity * buyPrice), " +
+                sign + "1 " +
+                "FROM order_items WHERE orderId = " + order + ".orderId GROUP BY COALESCE(productId, 0);";
+    }
+
+    private static String orderDelta(String order, String sign) {
+        return "INSERT INTO daily_order_sales_delta VALUES (" + day(order) + ", " + order + ".userId, " +
+                order + ".customerId, " + sign + "1, " + sign + order + ".total, " + sign + order + ".profit);";
+    }
+
+    private static final String[] CREATE = {
+            // Delta views: inserting into them adds to the rollup row
+            "CREATE VIEW IF NOT EXISTS daily_product_sales_delta AS " +
+                    "SELECT day, userId, customerId, productId, quantity, revenue, cost, orderCount " +
+                    "FROM daily_product_sales WHERE 0",
+            "CREATE TRIGGER IF NOT EXISTS daily_product_sales_apply INSTEAD OF INSERT ON daily_product_sales_delta BEGIN " +
+                    "INSERT INTO daily_product_sales " +
+                    "(day, userId, customerId, productId, quantity, revenue, cost, orderCount) " +
+                    "SELECT NEW.day, NEW.userId, NEW.customerId, NEW.productId, 0, 0, 0, 0 " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM daily_product_sales WHERE day = NEW.day " +
+                    "AND userId = NEW.userId AND customerId = NEW.customerId AND productId = NEW.productId); " +
+                    "UPDATE daily_product_sales SET quantity = quantity + NEW.quantity, " +
+                    "revenue = revenue + NEW.revenue, cost = cost + NEW.cost, orderCount = orderCount + NEW.orderCount " +
+                    "WHERE day = NEW.day AND userId = NEW.userId AND customerId = NEW.customerId " +
+                    "AND productId = NEW.productId; " +
+                    "DELETE FROM daily_product_sales WHERE day = NEW.day AND userId = NEW.userId " +
+                    "AND customerId = NEW.customerId AND productId = NEW.productId AND orderCount <= 0; " +
+                    "END",
+            "CREATE VIEW IF NOT EXISTS daily_order_sales_delta AS " +
+                    "SELECT day, userId, customerId, orderCount, total, profit FROM daily_order_sales WHERE 0",
+            "CREATE TRIGGER IF NOT EXISTS daily_order_sales_apply INSTEAD OF INSERT ON daily_order_sales_delta BEGIN " +
+                    "INSERT INTO daily_order_sales (day, userId, customerId, orderCount, total, profit) " +
+                    "SELECT NEW.day, NEW.userId, NEW.customerId, 0, 0, 0 " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM daily_order_sales WHERE day = NEW.day " +
+                    "AND userId = NEW.userId AND customerId = NEW.customerId); " +
+                    "UPDATE daily_order_sales SET orderCount = orderCount + NEW.orderCount, total = total + NEW.total, " +
+                    "profit = profit + NEW.profit " +
+                    "WHERE day = NEW.day AND userId = NEW.userId AND customerId = NEW.customerId; " +
+                    "DELETE FROM daily_order_sales WHERE day = NEW.day AND userId = NEW.userId " +
+                    "AND customerId = NEW.customerId AND orderCount <= 0; " +
+                    "END",
+
+            // Order lines
+            "CREATE TRIGGER IF NOT EXISTS order_items_rollup_insert AFTER INSERT ON order_items " +
+                    "WHEN NEW.orderId IS NOT NULL BEGIN " + productDelta("NEW", "") + " END",
+            "CREATE TRIGGER IF NOT EXISTS order_items_rollup_delete AFTER DELETE ON order_items " +
+                    "WHEN OLD.orderId IS NOT NULL BEGIN " + productDelta("OLD", "-") + " END",
+            "CREATE TRIGGER IF NOT EXISTS order_items_rollup_update " +
+                    "AFTER UPDATE OF orderId, productId, quantity, sellPrice, buyPrice ON order_items BEGIN " +
+                    productDelta("OLD", "-") + " " + productDelta("NEW", "") + " END",
+
+            // Orders. Lines are deleted before their order so their triggers still find it;
+            // the ON DELETE CASCADE then has nothing left to delete.
+            "CREATE TRIGGER IF NOT EXISTS orders_rollup_insert AFTER INSERT ON orders BEGIN " +
+                    orderDelta("NEW", "") + " END",
+            "CREATE TRIGGER IF NOT EXISTS orders_rollup_delete BEFORE DELETE ON orders BEGIN " +
+                    "DELETE FROM order_items WHERE orderId = OLD.orderId; " + orderDelta("OLD", "-") + " END",
+            // INSERT OR REPLACE of an existing order deletes it without firing delete triggers
+            "CREATE TRIGGER IF NOT EXISTS orders_rollup_replace BEFORE INSERT ON orders " +
+                    "WHEN EXISTS (SELECT 1 FROM orders WHERE orderId = NEW.orderId) BEGIN " +
+                    "DELETE FROM order_items WHERE orderId = NEW.orderId; " +
+                    "INSERT INTO daily_order_sales_delta SELECT " + day("o") + ", o.userId, o.customerId, -1, -o.total, -o.profit " +
+                    "FROM orders o WHERE o.orderId = NEW.orderId; END",
+            "CREATE TRIGGER IF NOT EXISTS orders_rollup_update AFTER UPDATE OF createdAt, userId, customerId, total, profit " +
+                    "ON orders BEGIN " + orderDelta("OLD", "-") + " " + orderDelta("NEW", "") + " END",
+            "CREATE TRIGGER IF NOT EXISTS orders_rollup_move AFTER UPDATE OF createdAt, userId, customerId ON orders " +
+                    "WHEN " + day("OLD") + " <> " + day("NEW") + " OR OLD.userId <> NEW.userId " +
+                    "OR OLD.customerId <> NEW.customerId BEGIN " +
+                    orderLinesDelta("OLD", "-") + " " + orderLinesDelta("NEW", "") + " END"
+    };
+
+    private static final String[] DROP = {
+            "DROP TRIGGER IF EXISTS orders_rollup_move",
+            "DROP TRIGGER IF EXISTS orders_rollup_update",
+            "DROP TRIGGER IF EXISTS orders_rollup_replace",
+            "DROP TRIGGER IF EXISTS orders_rollup_delete",
+            "DROP TRIGGER IF EXISTS orders_rollup_insert",
+            "DROP TRIGGER IF EXISTS order_items_rollup_update",
+            "DROP TRIGGER IF EXISTS order_items_rollup_delete",
+            "DROP TRIGGER IF EXISTS order_items_rollup_insert",
+            "DROP VIEW IF EXISTS daily_order_sales_delta", // Drops its INSTEAD OF trigger too
+            "DROP VIEW IF EXISTS daily_product_sales_delta"
+    };
+
+    /**
+     * Create the delta views and the triggers. Idempotent.
+     */
+    public static void createTriggers(SupportSQLiteDatabase database) {
+        for (String sql : CREATE) {
+            database.execSQL(sql);
+        }
+    }
+
+    /**
+     * Remove the delta views and the triggers, e.g. before changing them or
+     * before a bulk load that is followed by {@link #rebuild}.
+     */
+    public static void dropTriggers(SupportSQLiteDatabase database) {
+        for (String sql : DROP) {
+            database.execSQL(sql);
+        }
+    }
+
+    /**
+     * Recompute both rollups from the raw tables, in one transaction.
+     */
+    public static void rebuild(SupportSQLiteDatabase database) {
+        database.beginTransaction();
+        try {
+            for (String sql : REBUILD) {
+                database.execSQL(sql);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Installs the triggers on a newly created database. Migrated databases
+     * get them from MIGRATION_10_11.
+     */
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            createTriggers(db);
+        }
+    };
+}
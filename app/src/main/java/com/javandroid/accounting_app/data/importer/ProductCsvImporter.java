@@ -0,0 +1,269 @@
+package com.javandroid.accounting_app.data.importer;
+
+import android.util.Log;
+
+import com.javandroid.accounting_app.data.dao.ProductDao;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.data.repository.StockBuffer;
+import com.javandroid.accounting_app.util.CsvReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Imports a product CSV (our own backup format or a supplier price list),
+ * inserting new barcodes and updating existing ones.
+ * The file is streamed record by record and written in chunks, each chunk in
+ * one transaction, so memory stays flat and other writes can commit between
+ * chunks. Bad rows are skipped and reported with their line number.
+ * Each chunk is written on the given writer, so imports queue behind other
+ * writes instead of racing them. Files with a stock column replace the stock,
+ * so buffered stock changes are flushed before each chunk rather than added
+ * on top of the imported values later. Call from a background thread other
+ * than the writer's.
+ */
+public class ProductCsvImporter {
+    private static final String TAG = "ProductCsvImporter";
+    private static final int CHUNK_SIZE = 500; // Well below SQLite's 999 bind-variable limit
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    public interface ProgressListener {
+        void onProgress(long rowsRead);
+    }
+
+    public static class RowError {
+        public final long line;
+        public final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    public static class ImportReport {
+        private long rowsRead;
+        private int inserted;
+        private int updated;
+        private int skipped;
+        private long durationMs;
+        private final List<RowError> errors = new ArrayList<>();
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        /**
+         * @return the first rejected rows, at most MAX_REPORTED_ERRORS of them
+         */
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public String getSummary() {
+            return inserted + " added, " + updated + " updated, " + skipped + " skipped";
+        }
+
+        private void reject(long line, String message) {
+            skipped++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    private final ProductDao productDao;
+    private final StockBuffer stockBuffer; // null when nothing buffers stock
+    private final Executor writer;
+
+    public ProductCsvImporter(ProductDao productDao, StockBuffer stockBuffer, Executor writer) {
+        this.productDao = productDao;
+        this.stockBuffer = stockBuffer;
+        this.writer = writer;
+    }
+
+    /**
+     * @param reader   CSV input; closed when the import finishes
+     * @param listener notified after each committed chunk, may be null
+     */
+    public ImportReport importProducts(Reader reader, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        try (CsvReader csv = new CsvReader(reader)) {
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                Log.w(TAG, "CSV file is empty or header is missing.");
+                return report;
+            }
+            ColumnMap columns = ColumnMap.fromHeader(header);
+
+            // Keyed by barcode: a barcode repeated within a chunk keeps its last row
+            Map<String, ProductEntity> chunk = new LinkedHashMap<>();
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                report.rowsRead++;
+                ProductEntity product = parseRow(record, columns, csv.getLineNumber(), report);
+                if (product == null) continue;
+
+                if (chunk.put(product.getBarcode(), product) != null) {
+                    report.updated++;
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(chunk, columns.hasStock(), report);
+                    if (listener != null) listener.onProgress(report.rowsRead);
+                }
+            }
+            flush(chunk, columns.hasStock(), report);
+            if (listener != null) listener.onProgress(report.rowsRead);
+        }
+
+        report.durationMs = (System.nanoTime() - start) / 1_000_000;
+        Log.d(TAG, "Imported " + report.rowsRead + " rows in " + report.durationMs + " ms: " + report.getSummary());
+        return report;
+    }
+
+    private void flush(Map<String, ProductEntity> chunk, boolean replaceStock, ImportReport report)
+            throws IOException {
+        if (chunk.isEmpty()) return;
+        List<ProductEntity> products = new ArrayList<>(chunk.values());
+        FutureTask<Integer> upsert = new FutureTask<>(() -> {
+            if (replaceStock && stockBuffer != null) stockBuffer.flush();
+            return productDao.upsertByBarcode(products, replaceStock);
+        });
+        writer.execute(upsert);
+        int updated;
+        try {
+            updated = upsert.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        report.updated += updated;
+        report.inserted += chunk.size() - updated;
+        chunk.clear();
+    }
+
+    private static ProductEntity parseRow(List<String> record, ColumnMap columns, long line, ImportReport report) {
+        if (record.size() <= columns.maxPosition) {
+            report.reject(line, "expected " + (columns.maxPosition + 1) + " columns, found " + record.size());
+            return null;
+        }
+        String name = record.get(columns.name).trim();
+        String barcode = record.get(columns.barcode).trim();
+        if (name.isEmpty()) {
+            report.reject(line, "name is empty");
+            return null;
+        }
+        if (barcode.isEmpty()) {
+            report.reject(line, "barcode is empty");
+            return null;
+        }
+
+        ProductEntity product = new ProductEntity(name, barcode);
+        try {
+            product.setBuyPrice(parseNumber(record, columns.buyPrice, "buy price"));
+            product.setSellPrice(parseNumber(record, columns.sellPrice, "sell price"));
+            if (columns.hasStock()) {
+                product.setStock(parseNumber(record, columns.stock, "stock"));
+            }
+        } catch (NumberFormatException e) {
+            report.reject(line, e.getMessage());
+            return null;
+        }
+        return product;
+    }
+
+    private static double parseNumber(List<String> record, int position, String label) {
+        String value = record.get(position).trim();
+        if (value.isEmpty()) return 0;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("invalid " + label + " '" + value + "'");
+        }
+    }
+
+    /**
+     * Finds the columns by header name. Files without a recognisable header
+     * fall back to the original layout: ID, Name, Barcode, Buy Price, Sell Price, Stock.
+     */
+    static class ColumnMap {
+        final int name;
+        final int barcode;
+        final int buyPrice;
+        final int sellPrice;
+        final int stock; // -1 if the file has no stock column
+        final int maxPosition;
+
+        private ColumnMap(int name, int barcode, int buyPrice, int sellPrice, int stock) {
+            this.name = name;
+            this.barcode = barcode;
+            this.buyPrice = buyPrice;
+            this.sellPrice = sellPrice;
+            this.stock = stock;
+            this.maxPosition = Math.max(Math.max(name, barcode), Math.max(Math.max(buyPrice, sellPrice), stock));
+        }
+
+        boolean hasStock() {
+            return stock >= 0;
+        }
+
+        static ColumnMap fromHeader(List<String> header) {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.put(header.get(i).trim().toLowerCase(Locale.US), i);
+            }
+            int name = find(positions, "name", "product name");
+            int barcode = find(positions, "barcode");
+            int buyPrice = find(positions, "buy price", "cost");
+            int sellPrice = find(positions, "sell price", "price");
+            if (name < 0 || barcode < 0 || buyPrice < 0 || sellPrice < 0) {
+                return new ColumnMap(1, 2, 3, 4, 5);
+            }
+            return new ColumnMap(name, barcode, buyPrice, sellPrice, find(positions, "stock", "quantity"));
+        }
+
+        private static int find(Map<String, Integer> positions, String... names) {
+            for (String name : names) {
+                Integer position = positions.get(name);
+                if (position != null) return position;
+            }
+            return -1;
+        }
+    }
+}
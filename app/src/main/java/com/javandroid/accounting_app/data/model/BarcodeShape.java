@@ -0,0 +1,23 @@
+package com.javandroid.accounting_app.data.model;
+
+/**
+ * The length of a stocked barcode and whether it is all digits; enough to tell
+ * which symbology printed it.
+ */
+public class BarcodeShape {
+    private final int length;
+    private final boolean allDigits;
+
+    public BarcodeShape(int length, boolean allDigits) {
+        this.length = length;
+        this.allDigits = allDigits;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isAllDigits() {
+        return allDigits;
+    }
+}
@@ -1,18 +1,29 @@
 package com.javandroid.accounting_app.data.model;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "customers")
+@Entity(tableName = "customers", indices = {
+        @Index("name"),
+        @Index("lastUsedAt")
+})
 public class CustomerEntity {
 
     @PrimaryKey(autoGenerate = true)
     public long customerId;
 
+    // NOCASE so the name index serves case-insensitive prefix searches
     @NonNull
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     public String name;
 
+    // Epoch millis of the last pick from the drawer, 0 if never; orders its recent list
+    @ColumnInfo(defaultValue = "0")
+    public long lastUsedAt;
+
     public CustomerEntity() {
         // Empty constructor needed by Room
     }
@@ -41,4 +52,12 @@ public class CustomerEntity {
     public void setName(@NonNull String name) {
         this.name = name;
     }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public void setLastUsedAt(long lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+    }
 }
@@ -0,0 +1,56 @@
+package com.javandroid.accounting_app.data.model;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Order count, order totals and profit per day, cashier and customer. Maintained by
+ * the triggers in {@link com.javandroid.accounting_app.data.database.SalesRollups};
+ * never written by the app directly.
+ */
+@Entity(tableName = "daily_order_sales",
+        primaryKeys = {"day", "userId", "customerId"},
+        indices = {
+                @Index("userId"),
+                @Index("customerId")
+        })
+public class DailyOrderSalesEntity {
+    // Local date as yyyyMMdd, e.g. 20250131
+    public long day;
+
+    public long userId;
+
+    public long customerId;
+
+    public long orderCount;
+
+    // Sum of orders.total
+    public double total;
+
+    // Sum of orders.profit
+    public double profit;
+
+    public long getDay() {
+        return day;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public double getProfit() {
+        return profit;
+    }
+}
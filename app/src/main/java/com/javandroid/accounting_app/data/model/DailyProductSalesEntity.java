@@ -0,0 +1,72 @@
+package com.javandroid.accounting_app.data.model;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Sales of one product per day, cashier and customer. Maintained by the
+ * triggers in {@link com.javandroid.accounting_app.data.database.SalesRollups};
+ * never written by the app directly.
+ */
+@Entity(tableName = "daily_product_sales",
+        primaryKeys = {"day", "userId", "customerId", "productId"},
+        indices = {
+                @Index("userId"),
+                @Index("customerId")
+        })
+public class DailyProductSalesEntity {
+    // Local date as yyyyMMdd, e.g. 20250131
+    public long day;
+
+    public long userId;
+
+    public long customerId;
+
+    // 0 for lines whose product was deleted
+    public long productId;
+
+    public double quantity;
+
+    public double revenue;
+
+    public double cost;
+
+    // Orders with at least one line of the product
+    public long orderCount;
+
+    public long getDay() {
+        return day;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getProfit() {
+        return revenue - cost;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+}
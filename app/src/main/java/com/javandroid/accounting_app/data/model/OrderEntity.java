@@ -5,12 +5,16 @@ import androidx.room.ForeignKey;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.util.List;
+
 @Entity(tableName = "orders", foreignKeys = {
         @ForeignKey(entity = CustomerEntity.class, parentColumns = "customerId", childColumns = "customerId", onDelete = ForeignKey.CASCADE),
         @ForeignKey(entity = UserEntity.class, parentColumns = "userId", childColumns = "userId", onDelete = ForeignKey.CASCADE)
 }, indices = {
         @Index("customerId"),
-        @Index("userId")
+        @Index("userId"),
+        @Index("createdAt"),
+        @Index("total")
 })
 public class OrderEntity {
     @PrimaryKey(autoGenerate = true)
@@ -18,8 +22,16 @@ public class OrderEntity {
 
     public String date;
 
+    // Epoch millis; indexed so date ranges and date ordering avoid scanning the text column
+    public long createdAt;
+
     public double total;
 
+    // Sums over the order's lines, set at checkout and when the order is edited
+    public double costTotal; // quantity * buyPrice
+
+    public double profit;    // (sellPrice - buyPrice) * quantity
+
     public long customerId;
 
     public long userId;
@@ -32,6 +44,7 @@ public class OrderEntity {
         this.customerId = customerId;
         this.userId = userId;
         this.isPaid = true;
+        this.createdAt = System.currentTimeMillis();
     }
 
     public long getOrderId() {
@@ -50,6 +63,14 @@ public class OrderEntity {
 //        this.date = date;
 //    }
 
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
     public double getTotal() {
         return total;
     }
@@ -58,6 +79,38 @@ public class OrderEntity {
         this.total = total;
     }
 
+    public double getCostTotal() {
+        return costTotal;
+    }
+
+    public void setCostTotal(double costTotal) {
+        this.costTotal = costTotal;
+    }
+
+    public double getProfit() {
+        return profit;
+    }
+
+    public void setProfit(double profit) {
+        this.profit = profit;
+    }
+
+    /**
+     * Set costTotal and profit from the order's lines.
+     */
+    public void setLineTotals(List<OrderItemEntity> items) {
+        double cost = 0.0;
+        double margin = 0.0;
+        if (items != null) {
+            for (OrderItemEntity item : items) {
+                cost += item.getQuantity() * item.getBuyPrice();
+                margin += (item.getSellPrice() - item.getBuyPrice()) * item.getQuantity();
+            }
+        }
+        this.costTotal = cost;
+        this.profit = margin;
+    }
+
     public long getCustomerId() {
         return customerId;
     }
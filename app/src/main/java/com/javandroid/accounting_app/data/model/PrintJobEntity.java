@@ -0,0 +1,60 @@
+package com.javandroid.accounting_app.data.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A receipt waiting to be printed. Jobs stay here until the printer has taken
+ * them, so queued receipts survive app restarts; they print in jobId order.
+ */
+@Entity(tableName = "print_jobs")
+public class PrintJobEntity {
+    @PrimaryKey(autoGenerate = true)
+    public long jobId;
+
+    // 0 for a cart printed before it was saved
+    public long orderId;
+
+    // Rendered ESC/POS bytes, sent to the printer as they are
+    @NonNull
+    public byte[] payload;
+
+    public long createdAt;
+
+    // Failed sends over an open connection; the job is dropped after too many
+    public int attempts;
+
+    public String lastError;
+
+    public PrintJobEntity(long orderId, @NonNull byte[] payload) {
+        this.orderId = orderId;
+        this.payload = payload;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    @NonNull
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -2,9 +2,12 @@ package com.javandroid.accounting_app.data.model;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "products")
+@Entity(tableName = "products", indices = {
+        @Index("barcode")
+})
 public class ProductEntity {
 
     public ProductEntity(@NonNull String name, @NonNull String barcode) {
@@ -0,0 +1,28 @@
+package com.javandroid.accounting_app.data.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * Full-text index over product names and barcodes; rowid is the productId.
+ * Kept in step with products by the triggers in
+ * {@link com.javandroid.accounting_app.data.database.ProductSearch};
+ * never written by the app directly.
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "products_fts")
+public class ProductFtsEntity {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    public long productId;
+
+    @NonNull
+    public String name = "";
+
+    @NonNull
+    public String barcode = "";
+}
@@ -0,0 +1,55 @@
+package com.javandroid.accounting_app.data.model;
+
+/**
+ * One row of the joined receipt query: an order, its customer's name and one
+ * of its items. Rows of the same order are adjacent; an order without items
+ * has one row with a null productName.
+ */
+public class ReceiptLine {
+    private final long orderId;
+    private final long createdAt;
+    private final double total;
+    private final String customerName;
+    private final String productName;
+    private final double quantity;
+    private final double sellPrice;
+
+    public ReceiptLine(long orderId, long createdAt, double total, String customerName,
+                       String productName, double quantity, double sellPrice) {
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+        this.total = total;
+        this.customerName = customerName;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.sellPrice = sellPrice;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public double getSellPrice() {
+        return sellPrice;
+    }
+}
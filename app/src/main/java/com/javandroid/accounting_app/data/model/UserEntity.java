@@ -1,10 +1,12 @@
 package com.javandroid.accounting_app.data.model;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "users")
+@Entity(tableName = "users", indices = {@Index("lastUsedAt")})
 public class UserEntity {
 
     @PrimaryKey(autoGenerate = true)
@@ -16,6 +18,10 @@ public class UserEntity {
     @NonNull
     public String password;
 
+    // Epoch millis of the last pick from the drawer, 0 if never; orders its recent list
+    @ColumnInfo(defaultValue = "0")
+    public long lastUsedAt;
+
     public UserEntity() {
         // Default constructor required by Room
         this.username = "";
@@ -53,5 +59,12 @@ public class UserEntity {
         this.password = password;
     }
 
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public void setLastUsedAt(long lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+    }
 
 }
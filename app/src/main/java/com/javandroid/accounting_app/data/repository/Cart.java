@@ -0,0 +1,270 @@
+package com.javandroid.accounting_app.data.repository;
+
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lines of the order being built, indexed by productId and itemId so a scan
+ * finds its line in O(1). Total and cost are kept incrementally instead of
+ * being summed over every line after each change.
+ * <p>
+ * Lines are copy-on-write: a changed line is replaced by a new entity, so
+ * lists returned by {@link #snapshot()} never change under an observer and
+ * DiffUtil sees the old and new quantities. It also lets a cart be parked
+ * and restored by reference, and its lines be handed to the journal as is.
+ * <p>
+ * With a {@link CartJournal}, every change is recorded under the cart's key:
+ * the customer ID, or before a customer is chosen the negative key of its lane
+ * ({@link OrderStateRepository#unassignedCartKey}).
+ */
+public class Cart {
+    private final List<OrderItemEntity> lines = new ArrayList<>();
+    private final Map<Long, Integer> positionByProductId = new HashMap<>();
+    private final Map<Long, Integer> positionByItemId = new HashMap<>();
+
+    private double total; // sum of quantity * sellPrice
+    private double cost;  // sum of quantity * buyPrice
+
+    private List<OrderItemEntity> snapshot = Collections.emptyList(); // null when stale
+
+    private final CartJournal journal; // null for carts that must not survive a restart
+    private long key;
+
+    public Cart() {
+        this(0, null);
+    }
+
+    public Cart(long key, CartJournal journal) {
+        this.key = key;
+        this.journal = journal;
+    }
+
+    /**
+     * Rebuild a cart replayed from the journal, without journaling it again.
+     */
+    static Cart restored(long key, CartJournal journal, List<OrderItemEntity> lines) {
+        Cart cart = new Cart(key, journal);
+        for (OrderItemEntity line : lines) {
+            cart.append(line);
+        }
+        return cart;
+    }
+
+    /**
+     * Add the lines of a restored cart to this cart, which is already in use,
+     * and journal them under this cart's key. Lines whose itemId this cart has
+     * are dropped.
+     *
+     * @return false if this cart is not journaled and nothing was added
+     */
+    synchronized boolean mergeRestored(Cart restored) {
+        if (journal == null) return false; // Never mix a parked sale into an order being edited
+        for (OrderItemEntity line : restored.snapshot()) {
+            if (!positionByItemId.containsKey(line.getItemId())) add(line);
+        }
+        long restoredKey = restored.getKey();
+        if (restoredKey != key) journal.clear(restoredKey);
+        return true;
+    }
+
+    public synchronized long getKey() {
+        return key;
+    }
+
+    /**
+     * Move this cart to another key (customer), replacing what the journal held for it.
+     */
+    public synchronized void setKey(long newKey) {
+        if (journal != null) journal.rekey(key, newKey);
+        key = newKey;
+    }
+
+    /**
+     * Add quantity to the line of this product, if the cart has one.
+     *
+     * @return false if there is no line for the product yet
+     */
+    public synchronized boolean addToProduct(long productId, double quantity) {
+        Integer position = positionByProductId.get(productId);
+        if (position == null) return false;
+        OrderItemEntity line = lines.get(position);
+        replace(position, line, withQuantity(line, line.getQuantity() + quantity));
+        return true;
+    }
+
+    /**
+     * Append a new line. The line must not be modified by the caller afterwards.
+     */
+    public synchronized void add(OrderItemEntity line) {
+        append(line);
+        if (journal != null) journal.putLine(key, line);
+    }
+
+    private void append(OrderItemEntity line) {
+        int position = lines.size();
+        lines.add(line);
+        index(line, position);
+        total += line.getQuantity() * line.getSellPrice();
+        cost += line.getQuantity() * line.getBuyPrice();
+        snapshot = null;
+    }
+
+    /**
+     * @return false if no line has this itemId
+     */
+    public synchronized boolean setQuantity(long itemId, double quantity) {
+        Integer position = positionByItemId.get(itemId);
+        if (position == null) return false;
+        OrderItemEntity line = lines.get(position);
+        replace(position, line, withQuantity(line, quantity));
+        return true;
+    }
+
+    /**
+     * @return false if no line has this itemId
+     */
+    public synchronized boolean setSellPrice(long itemId, double sellPrice) {
+        Integer position = positionByItemId.get(itemId);
+        if (position == null) return false;
+        OrderItemEntity line = lines.get(position);
+        OrderItemEntity updated = copyOf(line);
+        updated.setSellPrice(sellPrice);
+        replace(position, line, updated);
+        return true;
+    }
+
+    /**
+     * Remove a line, keeping the order of the others. O(n) for the shifted lines;
+     * scans, the hot path, never remove.
+     *
+     * @return false if no line has this itemId
+     */
+    public synchronized boolean remove(long itemId) {
+        Integer position = positionByItemId.get(itemId);
+        if (position == null) return false;
+        OrderItemEntity line = lines.remove((int) position);
+        positionByItemId.remove(itemId);
+        if (line.getProductId() != null && position.equals(positionByProductId.get(line.getProductId()))) {
+            positionByProductId.remove(line.getProductId());
+        }
+        for (int i = position; i < lines.size(); i++) {
+            index(lines.get(i), i);
+        }
+        if (lines.isEmpty()) {
+            total = 0;
+            cost = 0;
+        } else {
+            total -= line.getQuantity() * line.getSellPrice();
+            cost -= line.getQuantity() * line.getBuyPrice();
+        }
+        snapshot = null;
+        if (journal != null) journal.removeLine(key, itemId);
+        return true;
+    }
+
+    /**
+     * Replace the whole cart, e.g. when switching customer or loading an order for editing.
+     */
+    public synchronized void replaceAll(List<OrderItemEntity> items) {
+        lines.clear();
+        positionByProductId.clear();
+        positionByItemId.clear();
+        total = 0;
+        cost = 0;
+        if (journal != null) journal.clear(key);
+        if (items != null) {
+            for (OrderItemEntity item : items) {
+                if (item != null) add(item);
+            }
+        }
+        snapshot = null;
+    }
+
+    public synchronized void clear() {
+        replaceAll(null);
+    }
+
+    /**
+     * Recompute total and cost from scratch, dropping any accumulated rounding drift.
+     */
+    public synchronized void recalculate() {
+        total = 0;
+        cost = 0;
+        for (OrderItemEntity line : lines) {
+            total += line.getQuantity() * line.getSellPrice();
+            cost += line.getQuantity() * line.getBuyPrice();
+        }
+    }
+
+    public synchronized OrderItemEntity getByItemId(long itemId) {
+        Integer position = positionByItemId.get(itemId);
+        return position != null ? lines.get(position) : null;
+    }
+
+    public synchronized int size() {
+        return lines.size();
+    }
+
+    public synchronized double getTotal() {
+        return Math.max(0.0, total);
+    }
+
+    public synchronized double getCost() {
+        return cost;
+    }
+
+    public synchronized double getMargin() {
+        return total - cost;
+    }
+
+    /**
+     * @return an unmodifiable list of the current lines; the same instance until the next change
+     */
+    public synchronized List<OrderItemEntity> snapshot() {
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(lines));
+        }
+        return snapshot;
+    }
+
+    private void replace(int position, OrderItemEntity oldLine, OrderItemEntity newLine) {
+        lines.set(position, newLine);
+        if (journal != null) journal.putLine(key, newLine);
+        total += newLine.getQuantity() * newLine.getSellPrice() - oldLine.getQuantity() * oldLine.getSellPrice();
+        cost += newLine.getQuantity() * newLine.getBuyPrice() - oldLine.getQuantity() * oldLine.getBuyPrice();
+        snapshot = null;
+    }
+
+    private void index(OrderItemEntity line, int position) {
+        positionByItemId.put(line.getItemId(), position);
+        if (line.getProductId() != null) {
+            // The first line of a product takes further scans of it
+            Integer existing = positionByProductId.get(line.getProductId());
+            if (existing == null || existing >= position) {
+                positionByProductId.put(line.getProductId(), position);
+            }
+        }
+    }
+
+    private static OrderItemEntity withQuantity(OrderItemEntity line, double quantity) {
+        OrderItemEntity copy = copyOf(line);
+        copy.setQuantity(quantity);
+        return copy;
+    }
+
+    private static OrderItemEntity copyOf(OrderItemEntity line) {
+        OrderItemEntity copy = new OrderItemEntity(line.getItemId(), line.getBarcode());
+        copy.setOrderId(line.getOrderId());
+        copy.setProductId(line.getProductId());
+        copy.setProductName(line.getProductName());
+        copy.setBuyPrice(line.getBuyPrice());
+        copy.setSellPrice(line.getSellPrice());
+        copy.setQuantity(line.getQuantity());
+        return copy;
+    }
+}
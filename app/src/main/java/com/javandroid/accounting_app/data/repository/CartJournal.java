@@ -0,0 +1,339 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.util.Log;
+
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk journal of cart changes, so parked and in-progress
+ * carts survive a process kill.
+ * <p>
+ * Each record is [length][payload][crc32]; a torn record at the end of the
+ * file is dropped on replay. Records are written and flushed in order on the
+ * journal executor, which also keeps a replayed copy of every cart so the file
+ * can be compacted to one record per line once it grows.
+ * Writes reach the kernel on every record, which survives a process kill; only
+ * compaction is synced to storage.
+ * <p>
+ * The journal also holds the stock StockBuffer took for those carts and has not
+ * written to the database yet, as deltas per product, so a restart does not
+ * lose it while restoring the cart lines.
+ */
+public class CartJournal {
+    private static final String TAG = "CartJournal";
+    private static final int MAGIC = 0x43415254; // "CART"
+    private static final int VERSION = 1;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final int COMPACT_AFTER_RECORDS = 2_000;
+
+    private static final byte OP_PUT_LINE = 1;
+    private static final byte OP_REMOVE_LINE = 2;
+    private static final byte OP_CLEAR = 3;
+    private static final byte OP_REKEY = 4;
+    private static final byte OP_STOCK = 5; // key: productId; adds to the unwritten stock delta
+
+    private final File file;
+    private final Executor executor;
+
+    // Replayed state, owned by the journal executor after open()
+    private final Map<Long, LinkedHashMap<Long, OrderItemEntity>> carts = new HashMap<>();
+    private final Map<Long, Double> unwrittenStock = new HashMap<>();
+    private DataOutputStream out;
+    private int recordsSinceCompaction;
+
+    private CartJournal(File file, Executor executor) {
+        this.file = file;
+        this.executor = executor;
+    }
+
+    /**
+     * Called on the journal executor once the journal is replayed
+     */
+    public interface RestoreListener {
+        /**
+         * @param carts          carts found on open, keyed by customer ID (0 for a cart without a customer)
+         * @param unwrittenStock productId -> stock change taken but not written to the database
+         */
+        void onRestored(Map<Long, List<OrderItemEntity>> carts, Map<Long, Double> unwrittenStock);
+    }
+
+    /**
+     * Open the journal. Replay and compaction run on the journal executor, ahead
+     * of any record written through the returned journal, so app start does not
+     * wait for file IO; the listener then gets the restored carts.
+     */
+    public static CartJournal open(File file, RestoreListener listener) {
+        CartJournal journal = new CartJournal(file, AppExecutors.getInstance().journal());
+        journal.executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                journal.replay();
+                journal.compact();
+            } catch (IOException e) {
+                Log.e(TAG, "Error opening cart journal " + file + ", starting empty", e);
+                journal.carts.clear();
+                journal.unwrittenStock.clear();
+            }
+            Log.d(TAG, "Restored " + journal.carts.size() + " carts in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            listener.onRestored(journal.getRestoredCarts(), new HashMap<>(journal.unwrittenStock));
+        });
+        return journal;
+    }
+
+    private Map<Long, List<OrderItemEntity>> getRestoredCarts() {
+        Map<Long, List<OrderItemEntity>> restored = new HashMap<>();
+        for (Map.Entry<Long, LinkedHashMap<Long, OrderItemEntity>> entry : carts.entrySet()) {
+            restored.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+        }
+        return restored;
+    }
+
+    /**
+     * Record a new or changed line. The line must not be modified afterwards.
+     */
+    public void putLine(long key, OrderItemEntity line) {
+        executor.execute(() -> {
+            cartFor(key).put(line.getItemId(), line);
+            append(OP_PUT_LINE, key, payload -> writeLine(payload, line));
+        });
+    }
+
+    public void removeLine(long key, long itemId) {
+        executor.execute(() -> {
+            LinkedHashMap<Long, OrderItemEntity> cart = carts.get(key);
+            if (cart != null) cart.remove(itemId);
+            append(OP_REMOVE_LINE, key, payload -> payload.writeLong(itemId));
+        });
+    }
+
+    public void clear(long key) {
+        executor.execute(() -> {
+            if (carts.remove(key) == null) return; // Nothing on disk for this key
+            append(OP_CLEAR, key, payload -> {
+            });
+        });
+    }
+
+    /**
+     * Move a cart to another key, replacing whatever the new key held.
+     */
+    public void rekey(long fromKey, long toKey) {
+        if (fromKey == toKey) return;
+        executor.execute(() -> {
+            LinkedHashMap<Long, OrderItemEntity> cart = carts.remove(fromKey);
+            if (cart != null) carts.put(toKey, cart);
+            else carts.remove(toKey);
+            append(OP_REKEY, fromKey, payload -> payload.writeLong(toKey));
+        });
+    }
+
+    /**
+     * Record stock changes taken (negative) or given back but not written to the
+     * database yet; record the negated change once it is written or discarded.
+     */
+    public void addUnwrittenStock(Map<Long, Double> deltas) {
+        if (deltas.isEmpty()) return;
+        Map<Long, Double> copy = new HashMap<>(deltas);
+        executor.execute(() -> {
+            for (Map.Entry<Long, Double> entry : copy.entrySet()) {
+                long productId = entry.getKey();
+                double delta = entry.getValue();
+                mergeUnwrittenStock(productId, delta);
+                append(OP_STOCK, productId, payload -> payload.writeDouble(delta));
+            }
+        });
+    }
+
+    public void addUnwrittenStock(long productId, double delta) {
+        addUnwrittenStock(Collections.singletonMap(productId, delta));
+    }
+
+    private void mergeUnwrittenStock(long productId, double delta) {
+        double sum = unwrittenStock.getOrDefault(productId, 0.0) + delta;
+        // Written deltas cancel what was taken, up to rounding
+        if (Math.abs(sum) < 1e-9) unwrittenStock.remove(productId);
+        else unwrittenStock.put(productId, sum);
+    }
+
+    private LinkedHashMap<Long, OrderItemEntity> cartFor(long key) {
+        LinkedHashMap<Long, OrderItemEntity> cart = carts.get(key);
+        if (cart == null) {
+            cart = new LinkedHashMap<>();
+            carts.put(key, cart);
+        }
+        return cart;
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream payload) throws IOException;
+    }
+
+    private void append(byte op, long key, PayloadWriter writer) {
+        try {
+            if (out == null) {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+            writeRecord(out, op, key, writer);
+            out.flush();
+            if (++recordsSinceCompaction >= COMPACT_AFTER_RECORDS) {
+                compact();
+            }
+        } catch (IOException e) {
+            // The in-memory carts are unaffected; only crash recovery degrades
+            Log.e(TAG, "Error writing cart journal", e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte op, long key, PayloadWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(op);
+        payload.writeLong(key);
+        writer.write(payload);
+        payload.flush();
+
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeLine(DataOutputStream payload, OrderItemEntity line) throws IOException {
+        payload.writeLong(line.getItemId());
+        payload.writeBoolean(line.getProductId() != null);
+        if (line.getProductId() != null) payload.writeLong(line.getProductId());
+        payload.writeUTF(line.getBarcode() != null ? line.getBarcode() : "");
+        payload.writeUTF(line.getProductName() != null ? line.getProductName() : "");
+        payload.writeDouble(line.getBuyPrice());
+        payload.writeDouble(line.getSellPrice());
+        payload.writeDouble(line.getQuantity());
+    }
+
+    private static OrderItemEntity readLine(DataInputStream payload) throws IOException {
+        long itemId = payload.readLong();
+        Long productId = payload.readBoolean() ? payload.readLong() : null;
+        OrderItemEntity line = new OrderItemEntity(itemId, payload.readUTF());
+        line.setProductId(productId);
+        line.setProductName(payload.readUTF());
+        line.setBuyPrice(payload.readDouble());
+        line.setSellPrice(payload.readDouble());
+        line.setQuantity(payload.readDouble());
+        return line;
+    }
+
+    private void replay() throws IOException {
+        if (!file.isFile()) return;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Log.w(TAG, "Unknown cart journal format, ignoring " + file);
+                return;
+            }
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] data;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                    data = new byte[length];
+                    in.readFully(data);
+                    crc.reset();
+                    crc.update(data, 0, length);
+                    if (in.readInt() != (int) crc.getValue()) break;
+                } catch (EOFException e) {
+                    break; // Clean end, or a record torn by a kill mid-write
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(data)));
+                records++;
+            }
+        } catch (EOFException e) {
+            Log.w(TAG, "Cart journal header is truncated, ignoring " + file);
+        }
+        Log.d(TAG, "Replayed " + records + " cart journal records");
+    }
+
+    private void apply(DataInputStream payload) throws IOException {
+        byte op = payload.readByte();
+        long key = payload.readLong();
+        switch (op) {
+            case OP_PUT_LINE:
+                OrderItemEntity line = readLine(payload);
+                cartFor(key).put(line.getItemId(), line);
+                break;
+            case OP_REMOVE_LINE:
+                LinkedHashMap<Long, OrderItemEntity> cart = carts.get(key);
+                if (cart != null) cart.remove(payload.readLong());
+                break;
+            case OP_CLEAR:
+                carts.remove(key);
+                break;
+            case OP_REKEY:
+                long toKey = payload.readLong();
+                LinkedHashMap<Long, OrderItemEntity> moved = carts.remove(key);
+                if (moved != null) carts.put(toKey, moved);
+                else carts.remove(toKey);
+                break;
+            case OP_STOCK:
+                mergeUnwrittenStock(key, payload.readDouble());
+                break;
+            default:
+                throw new IOException("Unknown cart journal op " + op);
+        }
+    }
+
+    /**
+     * Rewrite the journal as one record per current line and unwritten stock
+     * delta, then atomically replace the old file.
+     */
+    private void compact() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream tempOut = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            tempOut.writeInt(MAGIC);
+            tempOut.writeInt(VERSION);
+            for (Map.Entry<Long, LinkedHashMap<Long, OrderItemEntity>> cart : carts.entrySet()) {
+                for (OrderItemEntity line : cart.getValue().values()) {
+                    writeRecord(tempOut, OP_PUT_LINE, cart.getKey(), payload -> writeLine(payload, line));
+                }
+            }
+            for (Map.Entry<Long, Double> stock : unwrittenStock.entrySet()) {
+                double delta = stock.getValue();
+                writeRecord(tempOut, OP_STOCK, stock.getKey(), payload -> payload.writeDouble(delta));
+            }
+            tempOut.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        recordsSinceCompaction = 0;
+    }
+}
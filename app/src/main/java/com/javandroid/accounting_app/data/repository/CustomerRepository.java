@@ -7,44 +7,84 @@ import androidx.lifecycle.LiveData;
 import com.javandroid.accounting_app.data.database.AppDatabase;
 import com.javandroid.accounting_app.data.dao.CustomerDao;
 import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.print.ReceiptCache;
+import com.javandroid.accounting_app.util.AppExecutors;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class CustomerRepository {
+    // Sorts after any character, so prefix + PREFIX_END bounds every name starting with prefix
+    private static final String PREFIX_END = "\uDBFF\uDFFF";
+
     private final CustomerDao customerDao;
-    private final ExecutorService executor;
+    private final Executor executor; // Shared serial DB-write executor
+    private final Executor readExecutor;
     private final AppDatabase db;
 
     public CustomerRepository(Context context) {
         db = AppDatabase.getInstance(context);
         customerDao = db.customerDao();
-        executor = Executors.newSingleThreadExecutor();
+        executor = AppExecutors.getInstance().diskWrite();
+        readExecutor = AppExecutors.getInstance().diskRead();
     }
 
     public LiveData<List<CustomerEntity>> getAllCustomers() {
         return customerDao.getAllCustomers();
     }
 
+    /**
+     * Customers whose name starts with the text, ignoring ASCII case, in name order.
+     * Empty text lists everyone.
+     */
+    public LiveData<List<CustomerEntity>> searchCustomersByName(String text) {
+        String prefix = text.trim();
+        return customerDao.searchByNamePrefix(prefix, prefix + PREFIX_END);
+    }
+
+    public LiveData<List<CustomerEntity>> getRecentCustomers(int limit) {
+        return customerDao.getRecentlyUsed(limit);
+    }
+
+    public void markUsed(long customerId) {
+        long now = System.currentTimeMillis();
+        executor.execute(() -> customerDao.markUsed(customerId, now));
+    }
+
     public void insert(CustomerEntity customer) {
         executor.execute(() -> customerDao.insert(customer));
     }
 
     public void update(CustomerEntity customer) {
-        executor.execute(() -> customerDao.update(customer));
+        executor.execute(() -> {
+            CustomerEntity stored = customerDao.getCustomerByIdSync(customer.getCustomerId());
+            customerDao.update(customer);
+            // Receipts print the customer's name
+            if (stored != null && !Objects.equals(stored.getName(), customer.getName())) {
+                ReceiptCache.getInstance().invalidate(db.orderDao().getOrderIdsOfCustomerSync(customer.getCustomerId()));
+            }
+        });
     }
 
     public void delete(CustomerEntity customer) {
-        executor.execute(() -> customerDao.delete(customer));
+        executor.execute(() -> {
+            // Their orders are deleted by CASCADE
+            List<Long> orderIds = db.orderDao().getOrderIdsOfCustomerSync(customer.getCustomerId());
+            customerDao.delete(customer);
+            ReceiptCache.getInstance().invalidate(orderIds);
+        });
     }
 
     public void deleteAll() {
-        executor.execute(() -> customerDao.deleteAll());
+        executor.execute(() -> {
+            customerDao.deleteAll();
+            ReceiptCache.getInstance().clear();
+        });
     }
 
     public void getCustomerByIdSync(long customerId, OnCustomerResultCallback callback) {
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             CustomerEntity customer = customerDao.getCustomerByIdSync(customerId);
             callback.onResult(customer);
         });
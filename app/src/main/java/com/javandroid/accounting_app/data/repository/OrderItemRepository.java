@@ -8,16 +8,17 @@ import androidx.lifecycle.LiveData;
 import com.javandroid.accounting_app.data.database.AppDatabase;
 import com.javandroid.accounting_app.data.dao.OrderItemDao;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.print.ReceiptCache;
+import com.javandroid.accounting_app.util.AppExecutors;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class OrderItemRepository {
     private static final String TAG = "OrderItemRepository";
 
     private final OrderItemDao orderItemDao;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().diskWrite(); // Shared serial DB-write executor
     private final AppDatabase db; // Keep a reference to AppDatabase if needed for transactions spanning multiple DAOs, though unlikely for this repo
 
     public OrderItemRepository(Context context) {
@@ -48,6 +49,7 @@ public class OrderItemRepository {
             // or the AppDatabase instance can be used here to begin/end transactions if this repo needs to.
             try {
                 orderItemDao.insertOrderItem(orderItem);
+                invalidateReceipt(orderItem);
                 Log.d(TAG, "Order item with ID " + orderItem.getItemId() +
                         " inserted successfully for order " + orderItem.getOrderId());
             } catch (Exception e) {
@@ -74,6 +76,7 @@ public class OrderItemRepository {
         executor.execute(() -> {
             try {
                 orderItemDao.updateOrderItem(orderItem);
+                invalidateReceipt(orderItem);
                 Log.d(TAG, "Order item updated successfully");
             } catch (Exception e) {
                 Log.e(TAG, "Error updating order item: " + e.getMessage(), e);
@@ -87,6 +90,7 @@ public class OrderItemRepository {
         executor.execute(() -> {
             try {
                 orderItemDao.deleteOrderItem(orderItem);
+                invalidateReceipt(orderItem);
                 Log.d(TAG, "Order item deleted successfully");
             } catch (Exception e) {
                 Log.e(TAG, "Error deleting order item: " + e.getMessage(), e);
@@ -99,6 +103,7 @@ public class OrderItemRepository {
         executor.execute(() -> {
             try {
                 orderItemDao.deleteAllOrderItems();
+                ReceiptCache.getInstance().clear();
                 Log.d(TAG, "All order items deleted successfully");
             } catch (Exception e) {
                 Log.e(TAG, "Error deleting all order items: " + e.getMessage(), e);
@@ -114,10 +119,17 @@ public class OrderItemRepository {
                 for (OrderItemEntity item : items) {
                     orderItemDao.deleteOrderItem(item);
                 }
+                ReceiptCache.getInstance().invalidate(orderId);
                 Log.d(TAG, "Deleted " + items.size() + " items for order ID: " + orderId);
             } else {
                 Log.d(TAG, "No items found to delete for order ID: " + orderId);
             }
         });
     }
-}
\ No newline at end of file
+
+    private static void invalidateReceipt(OrderItemEntity orderItem) {
+        if (orderItem.getOrderId() != null) {
+            ReceiptCache.getInstance().invalidate(orderItem.getOrderId());
+        }
+    }
+}
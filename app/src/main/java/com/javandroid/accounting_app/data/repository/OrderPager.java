@@ -0,0 +1,167 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads a sorted order list one page at a time with keyset (seek) pagination:
+ * each page continues after the last loaded row instead of using OFFSET, so a
+ * page costs the same at the top and deep in the history.
+ * The list grows when the view scrolls within the prefetch distance of its end,
+ * and the loaded window is re-read whenever the orders table is written.
+ * State is only touched on the main thread; call close() when done.
+ */
+public class OrderPager {
+    private static final String TAG = "OrderPager";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 15;
+    private static final int BULK_PAGE_SIZE = 500;
+
+    public interface PageQuery {
+        /**
+         * Up to limit rows following after in the sort order, or the first rows
+         * when after is null. Runs on a background thread.
+         */
+        List<OrderEntity> load(@Nullable OrderEntity after, int limit);
+    }
+
+    private final AppDatabase db;
+    private final PageQuery query;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final Executor executor = AppExecutors.getInstance().diskRead();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<List<OrderEntity>> orders = new MutableLiveData<>();
+    private final InvalidationTracker.Observer observer;
+
+    private List<OrderEntity> loaded = Collections.emptyList();
+    private boolean loading;
+    private boolean endReached;
+    // Bumped on refresh and close so results of older loads are dropped
+    private int generation;
+    private volatile boolean closed;
+
+    public OrderPager(AppDatabase db, PageQuery query) {
+        this(db, query, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public OrderPager(AppDatabase db, PageQuery query, int pageSize, int prefetchDistance) {
+        this.db = db;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        observer = new InvalidationTracker.Observer("orders") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                mainHandler.post(OrderPager.this::refresh);
+            }
+        };
+        db.getInvalidationTracker().addObserver(observer);
+        loadMore();
+    }
+
+    public LiveData<List<OrderEntity>> getOrders() {
+        return orders;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * Called as the list scrolls. Loads the next page once the last visible row
+     * is within the prefetch distance of the end; a fast fling that shows many
+     * rows at once widens that distance to two screens.
+     */
+    public void onScrolled(int lastVisiblePosition, int visibleCount, int itemCount) {
+        int distance = Math.max(prefetchDistance, visibleCount * 2);
+        if (lastVisiblePosition >= itemCount - distance) {
+            loadMore();
+        }
+    }
+
+    public void loadMore() {
+        if (closed || loading || endReached) return;
+        loading = true;
+        int startGeneration = generation;
+        OrderEntity after = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+        executor.execute(() -> {
+            if (closed) return; // Replaced by a newer query before it ran
+            long start = System.nanoTime();
+            List<OrderEntity> page = query.load(after, pageSize);
+            Log.d(TAG, "Loaded " + page.size() + " orders in " + (System.nanoTime() - start) / 1_000 + " us");
+            mainHandler.post(() -> {
+                if (startGeneration != generation) return;
+                List<OrderEntity> grown = new ArrayList<>(loaded.size() + page.size());
+                grown.addAll(loaded);
+                grown.addAll(page);
+                publish(grown, page.size() < pageSize);
+            });
+        });
+    }
+
+    /**
+     * Re-reads the rows loaded so far from the top, in one keyset query, so
+     * inserts, edits and deletes show up without losing the scroll depth.
+     */
+    public void refresh() {
+        if (closed) return;
+        int startGeneration = ++generation;
+        int limit = Math.max(loaded.size(), pageSize);
+        loading = true;
+        executor.execute(() -> {
+            if (closed) return;
+            List<OrderEntity> window = query.load(null, limit);
+            mainHandler.post(() -> {
+                if (startGeneration != generation) return;
+                publish(window, window.size() < limit);
+            });
+        });
+    }
+
+    /**
+     * Every row of the query, read page by page on the calling thread, e.g. for
+     * export. Must be called from a background thread.
+     */
+    public List<OrderEntity> loadAllSync() {
+        List<OrderEntity> all = new ArrayList<>();
+        OrderEntity after = null;
+        while (true) {
+            List<OrderEntity> page = query.load(after, BULK_PAGE_SIZE);
+            all.addAll(page);
+            if (page.size() < BULK_PAGE_SIZE) return all;
+            after = page.get(page.size() - 1);
+        }
+    }
+
+    private void publish(List<OrderEntity> list, boolean end) {
+        loaded = Collections.unmodifiableList(list);
+        endReached = end;
+        loading = false;
+        orders.setValue(loaded);
+    }
+
+    public void close() {
+        if (closed) return;
+        closed = true;
+        generation++;
+        db.getInvalidationTracker().removeObserver(observer);
+    }
+}
@@ -4,17 +4,29 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.database.SalesRollups;
 import com.javandroid.accounting_app.data.dao.OrderDao;
 // OrderItemDao is no longer directly used here for item-specific public methods
+import com.javandroid.accounting_app.data.model.DailyOrderSalesEntity;
 import com.javandroid.accounting_app.data.model.OrderEntity;
-// OrderItemEntity is no longer directly manipulated by public methods here
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.data.model.UserProfitData;
 import com.javandroid.accounting_app.data.model.ProductEntity; // Still needed for getProductByBarcode
-
+import com.javandroid.accounting_app.print.ReceiptCache;
+import com.javandroid.accounting_app.util.AppExecutors;
+import com.javandroid.accounting_app.util.OrderDates;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 public class OrderRepository {
     private static final String TAG = "OrderRepository";
@@ -22,7 +34,8 @@ public class OrderRepository {
     private final AppDatabase db; // db might still be needed for transactions or other DAOs
     private final OrderDao orderDao;
     // private final OrderItemDao orderItemDao; // Removed, OrderItemRepository will handle this
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().diskWrite(); // Shared serial DB-write executor
+    private final Executor readExecutor = AppExecutors.getInstance().diskRead();
 
     public OrderRepository(Context context) {
         db = AppDatabase.getInstance(context);
@@ -74,6 +87,44 @@ public class OrderRepository {
         });
     }
 
+    /**
+     * Save an order, all of its items and any stock changes in one transaction.
+     * Stock changes still buffered from scanning are written with it.
+     *
+     * @param order       The order header to insert (orderId 0)
+     * @param items       The items to insert (itemId 0), linked to the new order here
+     * @param stockDeltas productId -> change in stock, may be empty
+     * @param callback    Receives the new order ID, or 0 on failure
+     */
+    public void commitOrder(OrderEntity order, List<OrderItemEntity> items,
+                            Map<Long, Double> stockDeltas, OnOrderIdResultCallback callback) {
+        Log.d(TAG, "Committing order: customer=" + order.getCustomerId()
+                + ", user=" + order.getUserId()
+                + ", total=" + order.getTotal()
+                + ", items=" + items.size());
+
+        if (order.getCustomerId() <= 0 || order.getUserId() <= 0) {
+            Log.e(TAG, "Cannot commit order: invalid customer ID (" + order.getCustomerId() +
+                    ") or user ID (" + order.getUserId() + ")");
+            callback.onResult(0);
+            return;
+        }
+
+        executor.execute(() -> {
+            long orderId = 0;
+            try {
+                orderId = StockBuffer.getInstance(db).commitOrder(db.checkoutDao(), order, items, stockDeltas);
+                // A saved order committed again replaces its lines
+                ReceiptCache.getInstance().invalidate(orderId);
+                Log.d(TAG, "Order " + orderId + " committed with " + items.size() + " items");
+            } catch (Exception e) {
+                Log.e(TAG, "Error committing order: " + e.getMessage(), e);
+            } finally {
+                callback.onResult(orderId);
+            }
+        });
+    }
+
     public void insertOrder(OrderEntity order) {
         Log.d(TAG, "Inserting order: ID=" + order.getOrderId()
                 + ", customer=" + order.getCustomerId()
@@ -82,6 +133,7 @@ public class OrderRepository {
         executor.execute(() -> {
             try {
                 orderDao.insertOrder(order);
+                ReceiptCache.getInstance().invalidate(order.getOrderId()); // REPLACE may overwrite a saved order
                 Log.d(TAG, "Order inserted successfully");
             } catch (Exception e) {
                 Log.e(TAG, "Error inserting order: " + e.getMessage(), e);
@@ -91,11 +143,6 @@ public class OrderRepository {
 
     // insertOrderItem - MOVED to OrderItemRepository
 
-    public LiveData<List<OrderEntity>> getAllOrders() {
-        Log.d(TAG, "Getting all orders (sorted by newest)");
-        return orderDao.getAllOrders();
-    }
-
     public LiveData<List<OrderEntity>> getOrdersByCustomerId(long customerId) {
         Log.d(TAG, "Getting orders for customer: " + customerId);
         return orderDao.getOrdersByCustomerId(customerId);
@@ -123,7 +170,7 @@ public class OrderRepository {
     // This method might be better placed in ProductRepository if not order-context specific
     public void getProductByBarcode(String barcode, OnProductResultCallback callback) {
         Log.d(TAG, "Looking up product by barcode: " + barcode);
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             ProductEntity product = db.productDao().getProductByBarcodeSync(barcode);
             // Logging...
             callback.onResult(product);
@@ -135,6 +182,7 @@ public class OrderRepository {
         executor.execute(() -> {
             try {
                 orderDao.updateOrder(order);
+                ReceiptCache.getInstance().invalidate(order.getOrderId());
                 Log.d(TAG, "Order updated successfully");
             } catch (Exception e) {
                 Log.e(TAG, "Error updating order: " + e.getMessage(), e);
@@ -149,6 +197,7 @@ public class OrderRepository {
         executor.execute(() -> {
             try {
                 orderDao.deleteOrder(order); // ON DELETE CASCADE in OrderItemEntity should handle items
+                ReceiptCache.getInstance().invalidate(order.getOrderId());
                 Log.d(TAG, "Order deleted successfully. Associated items should be handled by CASCADE.");
             } catch (Exception e) {
                 Log.e(TAG, "Error deleting order: " + e.getMessage(), e);
@@ -163,6 +212,7 @@ public class OrderRepository {
         executor.execute(() -> {
             try {
                 orderDao.deleteAllOrders(); // ON DELETE CASCADE should handle all order items.
+                ReceiptCache.getInstance().clear();
                 // If explicit deletion of all items is needed independently, it's in OrderItemRepository.
                 Log.d(TAG, "All orders deleted. Associated items should be handled by CASCADE.");
             } catch (Exception e) {
@@ -176,7 +226,7 @@ public class OrderRepository {
     }
 
     public void getLastOrderId(OnOrderIdResultCallback callback) {
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             try {
                 long lastId = orderDao.getLastOrderIdSync();
                 callback.onResult(lastId);
@@ -199,10 +249,46 @@ public class OrderRepository {
         return orderDao.getTotalBoughtByCustomer(customerId);
     }
 
-    // Profit calculation methods remain as they join `orders` and `order_items`
+    // Per-day order totals, days as yyyyMMdd (both inclusive)
+    public LiveData<List<DailyOrderSalesEntity>> getDailyOrderSales(long fromDay, long toDay) {
+        return orderDao.getDailyOrderSales(fromDay, toDay);
+    }
+
+    /**
+     * Recompute the daily sales rollups from all orders, e.g. after a time zone
+     * change or if they are suspected to be out of step. Runs on the write executor.
+     *
+     * @param callback Receives true on success, on the write executor's thread
+     */
+    public void rebuildSalesRollups(OnRebuildResultCallback callback) {
+        executor.execute(() -> {
+            boolean success = false;
+            long start = System.nanoTime();
+            try {
+                db.runInTransaction(() -> {
+                    SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+                    for (String sql : SalesRollups.REBUILD) {
+                        database.execSQL(sql);
+                    }
+                });
+                success = true;
+                Log.d(TAG, "Rebuilt sales rollups in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            } catch (Exception e) {
+                Log.e(TAG, "Error rebuilding sales rollups: " + e.getMessage(), e);
+            } finally {
+                if (callback != null) callback.onResult(success);
+            }
+        });
+    }
+
+    public interface OnRebuildResultCallback {
+        void onResult(boolean success);
+    }
+
+    // Profit calculations read the daily rollups, not every order line
     public void calculateProfitByUser(long userId, OnProfitResultCallback callback) {
         Log.d(TAG, "Calculating profit for user: " + userId);
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             try {
                 double profit = orderDao.calculateProfitByUserSync(userId);
                 Log.d(TAG, "Calculated profit for user " + userId + ": " + profit);
@@ -216,7 +302,7 @@ public class OrderRepository {
 
     public void calculateProfitByUserAndCustomer(long userId, long customerId, OnProfitResultCallback callback) {
         Log.d(TAG, "Calculating profit for user " + userId + " with customer " + customerId);
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             try {
                 double profit = orderDao.calculateProfitByUserAndCustomerSync(userId, customerId);
                 Log.d(TAG, "Calculated profit for user " + userId + ", customer " + customerId + ": " + profit);
@@ -237,11 +323,135 @@ public class OrderRepository {
         }
     }
 
-    public LiveData<List<OrderEntity>> getAllOrdersSortedByTotal() {
-        return orderDao.getAllOrdersSortedByTotal();
+    // Keyset pagers over the order history; from is inclusive, to is exclusive.
+    // Each pager registers an invalidation observer, so callers must close() it.
+    public OrderPager pageOrdersByDate(long from, long to) {
+        return new OrderPager(db, (after, limit) -> after == null
+                ? orderDao.getOrdersPageByDateSync(from, to - 1, Long.MAX_VALUE, limit)
+                : orderDao.getOrdersPageByDateSync(from, after.getCreatedAt(), after.getOrderId(), limit));
+    }
+
+    public OrderPager pageOrdersByTotal(long from, long to) {
+        boolean unbounded = from == Long.MIN_VALUE && to == Long.MAX_VALUE;
+        return new OrderPager(db, (after, limit) -> {
+            double afterTotal = after == null ? Double.POSITIVE_INFINITY : after.getTotal();
+            long afterId = after == null ? Long.MAX_VALUE : after.getOrderId();
+            return unbounded
+                    ? orderDao.getOrdersPageByTotalSync(afterTotal, afterId, limit)
+                    : orderDao.getOrdersPageBetweenByTotalSync(from, to, afterTotal, afterId, limit);
+        });
+    }
+
+    public OrderPager pageOrdersByCustomer(long from, long to) {
+        boolean unbounded = from == Long.MIN_VALUE && to == Long.MAX_VALUE;
+        return new OrderPager(db, (after, limit) -> {
+            long afterCustomerId = after == null ? Long.MAX_VALUE : after.getCustomerId();
+            long afterId = after == null ? Long.MAX_VALUE : after.getOrderId();
+            return unbounded
+                    ? orderDao.getOrdersPageByCustomerSync(afterCustomerId, afterId, limit)
+                    : orderDao.getOrdersPageBetweenByCustomerSync(from, to, afterCustomerId, afterId, limit);
+        });
+    }
+
+    public OrderPager pageOrdersOfCustomer(long customerId) {
+        return new OrderPager(db, (after, limit) -> orderDao.getOrdersPageOfCustomerSync(customerId,
+                after == null ? Long.MAX_VALUE : after.getOrderId(), limit));
+    }
+
+    // Search pagers, newest first and limited to createdAt >= from (the selected range)
+    public OrderPager searchOrderById(long orderId) {
+        return new OrderPager(db, (after, limit) -> {
+            if (after != null) return Collections.emptyList();
+            OrderEntity order = orderDao.getOrderByIdSync(orderId); // Primary key lookup
+            return order != null ? Collections.singletonList(order) : Collections.emptyList();
+        });
+    }
+
+    public OrderPager searchOrdersByCustomerName(String text, long from) {
+        String pattern = likePattern(text);
+        return new OrderPager(db, (after, limit) -> orderDao.searchPageByCustomerNameSync(pattern, from,
+                after == null ? Long.MAX_VALUE : after.getCreatedAt(),
+                after == null ? Long.MAX_VALUE : after.getOrderId(), limit));
+    }
+
+    public OrderPager searchOrdersByUserName(String text, long from) {
+        String pattern = likePattern(text);
+        return new OrderPager(db, (after, limit) -> orderDao.searchPageByUserNameSync(pattern, from,
+                after == null ? Long.MAX_VALUE : after.getCreatedAt(),
+                after == null ? Long.MAX_VALUE : after.getOrderId(), limit));
+    }
+
+    /**
+     * Orders whose ID equals the text, whose date falls in the period the text
+     * names (see OrderDates.prefixRange), or whose customer or user name contains it.
+     * Each kind of match is its own indexed query (a primary key lookup, a
+     * createdAt range, the name joins), and their pages are merged.
+     */
+    public OrderPager searchOrders(String text, long from) {
+        long orderId = parseOrderId(text);
+        long[] dates = OrderDates.prefixRange(text);
+        String pattern = likePattern(text);
+        return new OrderPager(db, (after, limit) -> {
+            long afterCreatedAt = after == null ? Long.MAX_VALUE : after.getCreatedAt();
+            long afterId = after == null ? Long.MAX_VALUE : after.getOrderId();
+            List<OrderEntity> matches = new ArrayList<>();
+            if (orderId > 0) {
+                OrderEntity order = orderDao.getOrderByIdSync(orderId);
+                if (order != null && order.getCreatedAt() >= from && (order.getCreatedAt() < afterCreatedAt
+                        || (order.getCreatedAt() == afterCreatedAt && order.getOrderId() < afterId))) {
+                    matches.add(order);
+                }
+            }
+            if (dates != null && dates[1] > Math.max(from, dates[0])) {
+                // The page after (afterCreatedAt, afterId), capped at the end of the named period
+                boolean capped = afterCreatedAt >= dates[1];
+                matches.addAll(orderDao.getOrdersPageByDateSync(Math.max(from, dates[0]),
+                        capped ? dates[1] - 1 : afterCreatedAt, capped ? Long.MAX_VALUE : afterId, limit));
+            }
+            matches.addAll(orderDao.searchPageByCustomerNameSync(pattern, from, afterCreatedAt, afterId, limit));
+            matches.addAll(orderDao.searchPageByUserNameSync(pattern, from, afterCreatedAt, afterId, limit));
+            return newestFirst(matches, limit);
+        });
+    }
+
+    // The first limit distinct orders of the merged pages, newest first
+    private static List<OrderEntity> newestFirst(List<OrderEntity> orders, int limit) {
+        orders.sort(Comparator.comparingLong(OrderEntity::getCreatedAt)
+                .thenComparingLong(OrderEntity::getOrderId).reversed());
+        List<OrderEntity> page = new ArrayList<>(Math.min(limit, orders.size()));
+        Set<Long> seen = new HashSet<>();
+        for (OrderEntity order : orders) {
+            if (page.size() == limit) break;
+            if (seen.add(order.getOrderId())) page.add(order);
+        }
+        return page;
+    }
+
+    // -1 (no order) unless the text is a whole number
+    public static long parseOrderId(String text) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Contains-pattern for LIKE ... ESCAPE '\'
+    private static String likePattern(String text) {
+        String escaped = text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    public List<OrderEntity> getOrdersBetweenSync(long from, long to) {
+        return orderDao.getOrdersBetweenSync(from, to);
+    }
+
+    // One GROUP BY over all users instead of a profit query per user
+    public List<UserProfitData> getProfitForAllUsersSync() {
+        return orderDao.getProfitForAllUsersSync();
     }
 
-    public LiveData<List<OrderEntity>> getAllOrdersSortedByCustomer() {
-        return orderDao.getAllOrdersSortedByCustomer();
+    public List<UserProfitData> getProfitForAllUsersWithCustomerSync(long customerId) {
+        return orderDao.getProfitForAllUsersWithCustomerSync(customerId);
     }
-}
\ No newline at end of file
+}
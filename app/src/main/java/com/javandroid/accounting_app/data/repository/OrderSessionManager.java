@@ -1,24 +1,111 @@
 package com.javandroid.accounting_app.data.repository;
 
-import android.app.Application;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Manager class that provides access to OrderStateRepository instances.
  * This class is the central point for getting repositories and ensures
  * that ViewModels can share the same repository instance when needed.
+ * <p>
+ * Every checkout lane (one per cashier, keyed by user ID; lane 0 before a
+ * cashier is chosen) has its own repository. Lanes live in a concurrent map
+ * and are only replaced atomically, so a checkout finishing on a background
+ * thread can never replace the session of another lane. Parked carts are
+ * shared by all lanes and outlive sessions and, once {@link #init(Context)}
+ * has run, process restarts through the cart journal, together with the stock
+ * StockBuffer took for them and had not written yet.
  */
 public class OrderSessionManager {
+    private static final String TAG = "OrderSessionManager";
+    private static final String JOURNAL_FILE_NAME = "parked_carts.journal";
+
     private static OrderSessionManager instance;
 
-    // The current active repository for new orders
-    private OrderStateRepository currentRepository;
+    // One repository per lane; values are only swapped with replace() or compute()
+    private final ConcurrentMap<Long, OrderStateRepository> lanes = new ConcurrentHashMap<>();
+    private volatile long activeLane;
+
+    // The active lane's repository, for ViewModels that bridge its LiveData
+    private final MutableLiveData<OrderStateRepository> activeRepository;
+
+    // Parked carts by customer ID, shared by every lane
+    private final Map<Long, Cart> parkedCarts = new ConcurrentHashMap<>();
+    private final CartJournal journal;
+    private final StockBuffer stockBuffer; // Takes back the stock journaled with the carts; null without a journal
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
      * Private constructor for singleton pattern
+     *
+     * @param journalFile Journal to restore and record carts in, or null to not persist them
+     * @param stockBuffer Buffer whose unwritten stock is journaled with the carts, or null
      */
-    private OrderSessionManager() {
-        // Create an initial repository
-        createNewSession(0);
+    private OrderSessionManager(File journalFile, StockBuffer stockBuffer) {
+        this.stockBuffer = stockBuffer;
+        journal = journalFile != null ? CartJournal.open(journalFile, this::onJournalRestored) : null;
+        if (journal != null && stockBuffer != null) stockBuffer.attachJournal(journal);
+
+        // Create the initial lane
+        activeRepository = new MutableLiveData<>(getRepository(0));
+    }
+
+    /**
+     * Restore parked carts from disk. Call once from Application.onCreate(),
+     * before anything calls {@link #getInstance()}. The journal is read in the
+     * background; restored carts appear in their lanes and among the parked
+     * carts when it finishes.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new OrderSessionManager(new File(app.getFilesDir(), JOURNAL_FILE_NAME),
+                    StockBuffer.getInstance(AppDatabase.getInstance(app)));
+        }
+    }
+
+    // On the journal executor
+    private void onJournalRestored(Map<Long, List<OrderItemEntity>> restored, Map<Long, Double> unwrittenStock) {
+        // Stock taken for the restored carts before the kill
+        if (stockBuffer != null) stockBuffer.restoreUnwritten(unwrittenStock);
+        for (List<OrderItemEntity> lines : restored.values()) {
+            for (OrderItemEntity line : lines) {
+                OrderStateRepository.reserveTempIdsThrough(line.getItemId());
+            }
+        }
+        mainHandler.post(() -> installRestoredCarts(restored));
+    }
+
+    private void installRestoredCarts(Map<Long, List<OrderItemEntity>> restored) {
+        for (Map.Entry<Long, List<OrderItemEntity>> entry : restored.entrySet()) {
+            long key = entry.getKey();
+            Cart cart = Cart.restored(key, journal, entry.getValue());
+            if (key > 0) {
+                if (parkedCarts.putIfAbsent(key, cart) != null) {
+                    Log.w(TAG, "Customer " + key + " parked a cart before the journal was restored");
+                }
+            } else {
+                // Items scanned in a lane before a customer was chosen
+                long lane = OrderStateRepository.laneForUnassignedCartKey(key);
+                OrderStateRepository existing = lanes.putIfAbsent(lane, newRepository(lane, cart));
+                if (existing != null) existing.restoreCart(cart);
+            }
+        }
+        Log.d(TAG, "Restored " + restored.size() + " carts");
     }
 
     /**
@@ -26,27 +113,85 @@ public class OrderSessionManager {
      */
     public static synchronized OrderSessionManager getInstance() {
         if (instance == null) {
-            instance = new OrderSessionManager();
+            instance = new OrderSessionManager(null, null);
         }
         return instance;
     }
 
+    private OrderStateRepository newRepository(long lane, Cart initialCart) {
+        return new OrderStateRepository(lane, parkedCarts, journal, initialCart);
+    }
+
     /**
-     * Get the current active repository
+     * Get the active lane's repository
      */
     public OrderStateRepository getCurrentRepository() {
-        return currentRepository;
+        return getRepository(activeLane);
     }
 
     /**
-     * Create a new session with a new repository
+     * Get a lane's repository, creating an empty session for a new lane.
+     */
+    public OrderStateRepository getRepository(long lane) {
+        return lanes.computeIfAbsent(lane, id -> newRepository(id, null));
+    }
+
+    public long getActiveLane() {
+        return activeLane;
+    }
+
+    /**
+     * The active lane's repository; changes when the lane is switched or its
+     * session is replaced. Observe on the main thread.
+     */
+    public LiveData<OrderStateRepository> getActiveRepository() {
+        return activeRepository;
+    }
+
+    /**
+     * Make a cashier's lane the active one. Other lanes keep their sessions.
+     *
+     * @param userId The cashier's user ID
+     * @return The lane's repository
+     */
+    public OrderStateRepository switchLane(long userId) {
+        activeLane = userId;
+        OrderStateRepository repository = getRepository(userId);
+        publishActive(repository);
+        return repository;
+    }
+
+    /**
+     * Replace a finished session (checked out or cancelled) with a new one in
+     * the same lane. Safe from any thread; does nothing if the session was
+     * already replaced, e.g. by a second confirm of the same order.
+     *
+     * @return The lane's current repository
+     */
+    public OrderStateRepository finishSession(OrderStateRepository finished) {
+        long lane = finished.getLaneId();
+        OrderStateRepository fresh = newRepository(lane, null);
+        if (lanes.replace(lane, finished, fresh)) {
+            finished.discardCurrentCart();
+            if (lane == activeLane) publishActive(fresh);
+            return fresh;
+        }
+        return getRepository(lane);
+    }
+
+    /**
+     * Create a new session with a new repository in the cashier's lane,
+     * discarding its cart; parked carts are kept.
      * 
-     * @param userId The user ID to associate with the new session
+     * @param userId The user ID whose lane gets the new session
      * @return The newly created repository
      */
     public OrderStateRepository createNewSession(long userId) {
-        currentRepository = new OrderStateRepository(userId);
-        return currentRepository;
+        OrderStateRepository fresh = newRepository(userId, null);
+        OrderStateRepository old = lanes.put(userId, fresh);
+        if (old != null) old.discardCurrentCart();
+        if (userId == activeLane) publishActive(fresh);
+        return fresh;
     }
 
     /**
@@ -55,10 +200,14 @@ public class OrderSessionManager {
      * @param userId The user ID to associate with the reset repository
      */
     public void resetCurrentSession(long userId) {
-        if (currentRepository != null) {
-            currentRepository.reset(userId);
+        getCurrentRepository().reset(userId);
+    }
+
+    private void publishActive(OrderStateRepository repository) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            activeRepository.setValue(repository);
         } else {
-            createNewSession(userId);
+            activeRepository.postValue(repository);
         }
     }
-}
\ No newline at end of file
+}
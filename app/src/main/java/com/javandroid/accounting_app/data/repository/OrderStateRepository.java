@@ -7,49 +7,88 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.util.OrderDates;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Repository to manage order state for a single order session
  * Each order session should have its own repository instance to prevent state
  * leakage
+ * <p>
+ * A session belongs to one checkout lane. Its methods may be called from the
+ * main thread and from executor callbacks: cart swaps are synchronized and
+ * the plain fields are volatile.
  */
 public class OrderStateRepository {
     // Shared state that multiple ViewModels need access to
-    private final MutableLiveData<OrderEntity> currentOrder = new MutableLiveData<>();
-    private final MutableLiveData<List<OrderItemEntity>> currentOrderItems = new MutableLiveData<>();
-    private long currentUserId;
-    private long currentCustomerId;
+    private final MutableLiveData<OrderEntity> currentOrder;
+    private final MutableLiveData<List<OrderItemEntity>> currentOrderItems;
+    private volatile Cart cart; // Source of the currentOrderItems snapshots
+    private volatile long currentUserId;
+    private volatile long currentCustomerId;
+    private final long laneId;
 
-    // Store in-progress orders and items for each customer
-    private final Map<Long, OrderEntity> customerOrders = new HashMap<>();
-    private final Map<Long, List<OrderItemEntity>> customerOrderItems = new HashMap<>();
+    // Parked in-progress carts by customer, shared across sessions by OrderSessionManager
+    private final Map<Long, Cart> parkedCarts;
+    private final CartJournal journal; // null when parked carts are not persisted
 
-    // Counter for generating temporary unique IDs
-    private final AtomicLong tempIdCounter = new AtomicLong(Integer.MAX_VALUE / 2);
+    // Counter for generating temporary unique IDs; shared, since parked carts outlive sessions
+    private static final AtomicLong tempIdCounter = new AtomicLong(Integer.MAX_VALUE / 2);
 
     /**
      * Constructor initializes with an empty order
      * 
-     * @param userId The current user ID, if known (0 if not yet set)
+     * @param userId      The lane's user ID, if known (0 if not yet set)
+     * @param parkedCarts Parked carts by customer ID, shared between sessions (thread-safe map)
+     * @param journal     Journal the carts are recorded in, or null
+     * @param initialCart Cart restored from the journal for the new order, or null
      */
-    public OrderStateRepository(long userId) {
+    public OrderStateRepository(long userId, Map<Long, Cart> parkedCarts, CartJournal journal, Cart initialCart) {
+        this.laneId = userId;
+        this.parkedCarts = parkedCarts;
+        this.journal = journal;
+        this.cart = initialCart != null ? initialCart : newUnassignedCart();
+
         // Initialize with an empty order
-        String dateString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
-        OrderEntity emptyOrder = new OrderEntity(dateString, 0.0, 0L, userId);
+        String dateString = OrderDates.format(System.currentTimeMillis());
+        OrderEntity emptyOrder = new OrderEntity(dateString, cart.getTotal(), 0L, userId);
         emptyOrder.setOrderId(0); // Ensure it's a new order
 
         this.currentUserId = userId;
-        currentOrder.setValue(emptyOrder);
-        currentOrderItems.setValue(new ArrayList<>());
+        // Constructor values, so a session can be created off the main thread
+        currentOrder = new MutableLiveData<>(emptyOrder);
+        currentOrderItems = new MutableLiveData<>(cart.snapshot());
+    }
+
+    /**
+     * @param userId The current user ID, if known (0 if not yet set)
+     */
+    public OrderStateRepository(long userId) {
+        this(userId, new ConcurrentHashMap<>(), null, null);
+    }
+
+    public long getLaneId() {
+        return laneId;
+    }
+
+    /**
+     * Journal key of a lane's cart while no customer is chosen. Customer carts
+     * use the (positive) customer ID, so lanes never share a key.
+     */
+    static long unassignedCartKey(long laneId) {
+        return -1 - laneId;
+    }
+
+    static long laneForUnassignedCartKey(long key) {
+        return key == 0 ? 0 : -1 - key; // 0: journals written before lanes existed
+    }
+
+    private Cart newUnassignedCart() {
+        return new Cart(unassignedCartKey(laneId), journal);
     }
 
     /**
@@ -89,19 +128,59 @@ public class OrderStateRepository {
      * Sets the current order items - thread-safe method that handles both main and
      * background threads
      */
-    public void setCurrentOrderItems(List<OrderItemEntity> items) {
-        List<OrderItemEntity> itemsCopy = new ArrayList<>(items);
-        if (isOnMainThread()) {
-            currentOrderItems.setValue(itemsCopy);
-        } else {
-            currentOrderItems.postValue(itemsCopy);
-        }
+    public synchronized void setCurrentOrderItems(List<OrderItemEntity> items) {
+        cart.replaceAll(items);
+        publishItems();
+    }
+
+    /**
+     * Show the items of a saved order for editing. They go into a cart that
+     * is not journaled, so an edit is never restored as a parked sale; the
+     * cart being built is discarded, as setCurrentOrderItems would.
+     */
+    public synchronized void loadSavedOrderItems(List<OrderItemEntity> items) {
+        cart.clear();
+        cart = new Cart();
+        cart.replaceAll(items);
+        publishItems();
     }
 
+    /**
+     * @return the current items; an unmodifiable snapshot of the cart
+     */
     public List<OrderItemEntity> getCurrentOrderItemsValue() {
         return currentOrderItems.getValue();
     }
 
+    /**
+     * The indexed cart behind the current items. After changing it, call
+     * {@link #publishCart()} so observers see the change.
+     */
+    public Cart getCart() {
+        return cart;
+    }
+
+    /**
+     * Publish the cart's lines and copy its running total into the current order.
+     */
+    public synchronized void publishCart() {
+        OrderEntity order = currentOrder.getValue();
+        if (order != null) {
+            order.setTotal(cart.getTotal());
+            setCurrentOrder(order);
+        }
+        publishItems();
+    }
+
+    private void publishItems() {
+        List<OrderItemEntity> snapshot = cart.snapshot();
+        if (isOnMainThread()) {
+            currentOrderItems.setValue(snapshot);
+        } else {
+            currentOrderItems.postValue(snapshot);
+        }
+    }
+
     // User ID methods
     public long getCurrentUserId() {
         return currentUserId;
@@ -130,81 +209,105 @@ public class OrderStateRepository {
         }
     }
 
-    // Customer order state methods
-    public void storeOrderStateForCustomer(long customerId, OrderEntity order, List<OrderItemEntity> items) {
+    // Parked carts: parking and restoring swap Cart references, nothing is cloned
+
+    /**
+     * Park the current cart under a customer and continue with an empty one.
+     */
+    public synchronized void parkCurrentCart(long customerId) {
         if (customerId <= 0) {
-            Log.w("OrderStateRepository", "Cannot store order state for invalid customer ID: " + customerId);
+            Log.w("OrderStateRepository", "Cannot park cart for invalid customer ID: " + customerId);
             return;
         }
+        cart.setKey(customerId);
+        parkedCarts.put(customerId, cart);
+        Log.d("OrderStateRepository", "Parked " + cart.size() + " items for customer " + customerId
+                + " with total: " + cart.getTotal());
+        cart = newUnassignedCart();
+    }
 
-        if (order != null) {
-            OrderEntity clone = cloneOrder(order);
-            customerOrders.put(customerId, clone);
-            Log.d("OrderStateRepository",
-                    "Stored order for customer " + customerId + " with total: " + clone.getTotal());
-        } else {
-            Log.w("OrderStateRepository", "Attempted to store null order for customer " + customerId);
-        }
-
-        if (items != null) {
-            List<OrderItemEntity> itemsCopy = new ArrayList<>();
-            for (OrderItemEntity item : items) {
-                if (item != null) {
-                    OrderItemEntity copy = cloneOrderItem(item);
-                    itemsCopy.add(copy);
-                }
-            }
-            customerOrderItems.put(customerId, itemsCopy);
-            Log.d("OrderStateRepository", "Stored " + itemsCopy.size() + " items for customer " + customerId);
-        } else {
-            // Store empty list rather than null
-            customerOrderItems.put(customerId, new ArrayList<>());
-            Log.w("OrderStateRepository", "Stored empty item list for customer " + customerId);
+    /**
+     * Make the customer's parked cart current, discarding the current one.
+     *
+     * @return false if nothing was parked for the customer
+     */
+    public synchronized boolean unparkCart(long customerId) {
+        Cart parked = customerId > 0 ? parkedCarts.remove(customerId) : null;
+        if (parked == null) {
+            return false;
         }
+        cart.clear();
+        cart = parked;
+        publishCart();
+        Log.d("OrderStateRepository", "Restored " + cart.size() + " parked items for customer " + customerId);
+        return true;
     }
 
-    public OrderEntity getStoredOrderForCustomer(long customerId) {
-        if (customerId <= 0) {
-            Log.w("OrderStateRepository", "Attempted to get order for invalid customer ID: " + customerId);
-            return null;
-        }
-        return customerOrders.get(customerId);
+    /**
+     * Discard the current cart and start an empty one for the customer.
+     */
+    public synchronized void startNewCart(long customerId) {
+        cart.clear();
+        cart = new Cart(customerId, journal);
+        publishCart();
     }
 
-    public List<OrderItemEntity> getStoredOrderItemsForCustomer(long customerId) {
-        if (customerId <= 0) {
-            Log.w("OrderStateRepository", "Attempted to get items for invalid customer ID: " + customerId);
-            return new ArrayList<>(); // Return empty list instead of null
+    /**
+     * Keep the current items but assign them to another customer. A cart
+     * parked for that customer is replaced.
+     */
+    public synchronized void moveCurrentCartTo(long customerId) {
+        Cart replaced = parkedCarts.remove(customerId);
+        if (replaced != null) {
+            Log.d("OrderStateRepository", "Dropping " + replaced.size() + " parked items of customer " + customerId);
         }
+        cart.setKey(customerId);
+    }
 
-        List<OrderItemEntity> items = customerOrderItems.get(customerId);
-        if (items == null) {
-            return new ArrayList<>(); // Return empty list instead of null
-        }
-        return items;
+    /**
+     * Discard the current cart, e.g. after it was checked out.
+     */
+    public synchronized void discardCurrentCart() {
+        cart.clear();
     }
 
     public boolean hasStoredOrderForCustomer(long customerId) {
         if (customerId <= 0) {
             return false;
         }
-        return customerOrders.containsKey(customerId);
+        return parkedCarts.containsKey(customerId);
     }
 
-    public void clearStoredOrderForCustomer(long customerId) {
+    public synchronized void clearStoredOrderForCustomer(long customerId) {
         if (customerId <= 0) {
             Log.w("OrderStateRepository", "Attempted to clear order for invalid customer ID: " + customerId);
             return;
         }
 
-        customerOrders.remove(customerId);
-        customerOrderItems.remove(customerId);
+        Cart parked = parkedCarts.remove(customerId);
+        if (parked != null) parked.clear();
         Log.d("OrderStateRepository", "Cleared stored order for customer " + customerId);
     }
 
     public void clearAllStoredOrders() {
-        customerOrders.clear();
-        customerOrderItems.clear();
+        for (Cart parked : parkedCarts.values()) {
+            parked.clear();
+        }
+        parkedCarts.clear();
+    }
+
+    /**
+     * Take over this lane's cart restored from the journal after the session was
+     * created. It replaces an empty cart; lines scanned before the restore
+     * finished are kept, with the restored ones after them.
+     */
+    synchronized void restoreCart(Cart restored) {
+        if (cart.size() == 0) {
+            cart = restored;
+        } else if (!cart.mergeRestored(restored)) {
+            return;
+        }
+        publishCart();
     }
 
     // Temp ID generation
@@ -212,48 +315,34 @@ public class OrderStateRepository {
         return tempIdCounter.getAndIncrement();
     }
 
+    /**
+     * Make sure new temp IDs do not collide with lines restored from the journal.
+     */
+    static void reserveTempIdsThrough(long usedId) {
+        tempIdCounter.accumulateAndGet(usedId + 1, Math::max);
+    }
+
     /**
      * Reset this repository to a fresh state with the given user ID
      * 
      * @param userId The user ID to associate with the new order
      */
-    public void reset(long userId) {
+    public synchronized void reset(long userId) {
         // Create a new empty order
-        String dateString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        String dateString = OrderDates.format(System.currentTimeMillis());
         OrderEntity emptyOrder = new OrderEntity(dateString, 0.0, 0L, userId);
         emptyOrder.setOrderId(0);
 
         // Clear and reset state
         this.currentUserId = userId;
         this.currentCustomerId = 0;
-        customerOrders.clear();
-        customerOrderItems.clear();
+        // Parked carts are shared with the other lanes and are kept
+        cart.clear();
+        cart = newUnassignedCart();
 
         // Update LiveData values
         setCurrentOrder(emptyOrder);
-        setCurrentOrderItems(new ArrayList<>());
-    }
-
-    // Helper methods
-    private OrderEntity cloneOrder(OrderEntity order) {
-        OrderEntity clone = new OrderEntity(
-                order.getDate(),
-                order.getTotal(),
-                order.getCustomerId(),
-                order.getUserId());
-        clone.setOrderId(order.getOrderId());
-        return clone;
-    }
-
-    private OrderItemEntity cloneOrderItem(OrderItemEntity item) {
-        OrderItemEntity copy = new OrderItemEntity(item.getItemId(), item.getBarcode());
-        copy.setOrderId(item.getOrderId());
-        copy.setProductId(item.getProductId());
-        copy.setProductName(item.getProductName());
-        copy.setBuyPrice(item.getBuyPrice());
-        copy.setSellPrice(item.getSellPrice());
-        copy.setQuantity(item.getQuantity());
-        return copy;
+        publishItems();
     }
 
     /**
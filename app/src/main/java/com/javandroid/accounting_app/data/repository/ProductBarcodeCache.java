@@ -0,0 +1,92 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.ProductEntity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory barcode -> product cache for the scan hot path.
+ * One instance is shared per database, and it is cleared through Room's
+ * InvalidationTracker whenever the products table is written.
+ * Cached entities are shared, so callers must treat them as read-only.
+ */
+public class ProductBarcodeCache {
+    private static final String TAG = "ProductBarcodeCache";
+    private static final int MAX_ENTRIES = 5000;
+
+    private static volatile ProductBarcodeCache instance;
+
+    private final AppDatabase db;
+    private final Map<String, ProductEntity> entries =
+            new LinkedHashMap<String, ProductEntity>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ProductEntity> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    // Bumped on every invalidation so a lookup that raced a write does not re-cache stale data
+    private long generation;
+
+    public static ProductBarcodeCache getInstance(AppDatabase db) {
+        if (instance == null) {
+            synchronized (ProductBarcodeCache.class) {
+                if (instance == null) {
+                    instance = new ProductBarcodeCache(db);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public ProductBarcodeCache(AppDatabase db) {
+        this.db = db;
+        db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("products") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * Look up a product by barcode, hitting the database only on a cache miss.
+     * Must be called from a background thread.
+     */
+    public ProductEntity get(String barcode) {
+        long startGeneration;
+        synchronized (this) {
+            ProductEntity cached = entries.get(barcode);
+            if (cached != null) {
+                return cached;
+            }
+            startGeneration = generation;
+        }
+
+        ProductEntity product = db.productDao().getProductByBarcodeSync(barcode);
+        if (product != null) {
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    entries.put(barcode, product);
+                }
+            }
+        }
+        return product;
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        if (!entries.isEmpty()) {
+            Log.d(TAG, "Products changed, dropping " + entries.size() + " cached barcodes");
+            entries.clear();
+        }
+    }
+}
@@ -1,28 +1,78 @@
 package com.javandroid.accounting_app.data.repository;
 
 import android.content.Context;
+import android.net.Uri;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 
 import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.database.ProductSearch;
 import com.javandroid.accounting_app.data.dao.ProductDao;
+import com.javandroid.accounting_app.data.importer.ProductCsvImporter;
+import com.javandroid.accounting_app.data.model.BarcodeShape;
 import com.javandroid.accounting_app.data.model.ProductEntity;
-
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class ProductRepository {
 
     private final ProductDao productDao;
-    private final ExecutorService executor;
+    private final ProductBarcodeCache barcodeCache;
+    private final StockBuffer stockBuffer;
+    private final Executor executor; // Shared serial DB-write executor
+    private final Context appContext;
     private static final String TAG = "ProductRepository";
 
     public ProductRepository(Context context) {
         AppDatabase db = AppDatabase.getInstance(context);
         productDao = db.productDao();
-        executor = Executors.newSingleThreadExecutor();
+        barcodeCache = ProductBarcodeCache.getInstance(db);
+        stockBuffer = StockBuffer.getInstance(db);
+        executor = AppExecutors.getInstance().diskWrite();
+        appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Callbacks of a CSV import, all delivered on the main thread.
+     */
+    public interface ImportCallback {
+        void onProgress(long rowsRead);
+
+        void onComplete(ProductCsvImporter.ImportReport report);
+
+        void onError(String message);
+    }
+
+    /**
+     * Import products from a CSV document, upserting by barcode.
+     * The file is read on the io executor; each chunk commits in its own
+     * transaction on the shared writer.
+     */
+    public void importFromCsv(Uri uri, ImportCallback callback) {
+        AppExecutors executors = AppExecutors.getInstance();
+        Executor main = executors.mainThread();
+        executors.io().execute(() -> {
+            try {
+                InputStream in = appContext.getContentResolver().openInputStream(uri);
+                if (in == null) throw new FileNotFoundException(uri.toString());
+                ProductCsvImporter.ImportReport report = new ProductCsvImporter(productDao, stockBuffer, executor).importProducts(
+                        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+                        rowsRead -> main.execute(() -> callback.onProgress(rowsRead)));
+                main.execute(() -> callback.onComplete(report));
+            } catch (Exception e) {
+                Log.e(TAG, "Error importing products from " + uri, e);
+                main.execute(() -> callback.onError(e.getMessage()));
+            }
+        });
     }
 
     public void insert(ProductEntity product) {
@@ -35,6 +85,7 @@ public class ProductRepository {
 
     public void update(ProductEntity product) {
         executor.execute(() -> {
+            stockBuffer.flush(); // The edited stock replaces earlier buffered changes, as before
             Log.d(TAG, "Updating single product: " + product.getName() + ", ID=" + product.getProductId());
             productDao.update(product);
         });
@@ -44,6 +95,7 @@ public class ProductRepository {
     public void update(List<ProductEntity> products) {
         executor.execute(() -> {
             Log.d(TAG, "Updating " + products.size() + " products");
+            stockBuffer.flush();
             try {
                 // First, try to update each product individually with more detailed logging
                 for (ProductEntity product : products) {
@@ -73,6 +125,36 @@ public class ProductRepository {
         });
     }
 
+    /**
+     * Take quantity from stock if enough is available. The change is buffered
+     * and written with the next flush of the stock buffer.
+     * Only use this in background threads.
+     *
+     * @return true if the stock was decremented, false if it was insufficient
+     */
+    public boolean tryDecrementStockSync(long productId, double quantity) {
+        boolean taken = stockBuffer.tryTake(productId, quantity);
+        Log.d(TAG, "Decrement stock of product " + productId + " by " + quantity + ": " + (taken ? "ok" : "insufficient"));
+        return taken;
+    }
+
+    /**
+     * Atomically add delta to stock (negative to decrease), without a bounds check.
+     * Only use this in background threads.
+     */
+    public void adjustStockSync(long productId, double delta) {
+        Log.d(TAG, "Adjusting stock of product " + productId + " by " + delta);
+        productDao.adjustStock(productId, delta);
+    }
+
+    /**
+     * Buffer a stock change of the cart being built (negative to decrease).
+     */
+    public void adjustStock(long productId, double delta) {
+        Log.d(TAG, "Buffering stock change of product " + productId + " by " + delta);
+        stockBuffer.add(productId, delta);
+    }
+
     public void delete(ProductEntity product) {
         executor.execute(() -> productDao.delete(product));
     }
@@ -82,13 +164,35 @@ public class ProductRepository {
     }
 
     public ProductEntity getProductByBarcodeSync(String barcode) {
+        // Only use this in background threads; served from the shared barcode cache
+        return barcodeCache.get(barcode);
+    }
+
+    public List<BarcodeShape> getBarcodeShapesSync() {
         // Only use this in background threads
-        return productDao.getProductByBarcodeSync(barcode);
+        return productDao.getBarcodeShapesSync();
     }
 
     public ProductEntity getProductByIdSync(long productId) {
-        // Only use this in background threads
-        return productDao.getProductByIdSync(productId);
+        // Only use this in background threads; includes stock changes not flushed yet
+        ProductEntity product = productDao.getProductByIdSync(productId);
+        if (product != null) {
+            product.setStock(product.getStock() + stockBuffer.getPendingDelta(productId));
+        }
+        return product;
+    }
+
+    /**
+     * One page of full-text search results for the typed text, best matches
+     * first; empty when the text has no searchable words.
+     * Only use this in background threads.
+     */
+    public List<ProductEntity> searchSync(String query, int limit, int offset) {
+        String match = ProductSearch.matchExpression(query);
+        if (match == null) {
+            return Collections.emptyList();
+        }
+        return productDao.searchSync(match, query.trim(), limit, offset);
     }
 
     public LiveData<ProductEntity> getProductByBarcode(String barcode) {
@@ -0,0 +1,227 @@
+package com.javandroid.accounting_app.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.javandroid.accounting_app.data.dao.CheckoutDao;
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Write-behind buffer for the stock changes of the cart being built.
+ * Deltas are summed per productId and written in one transaction after a
+ * short window, at checkout, or when the app goes to the background, instead
+ * of one UPDATE (and one re-query of every products observer) per scan.
+ * <p>
+ * Stock checks and by-ID reads add the pending delta to the stored stock, so
+ * they are correct during the window; LiveData queries catch up on the flush.
+ * One instance is shared per database.
+ * <p>
+ * With a {@link CartJournal} attached, every delta is also journaled, and the
+ * negated delta once it is written or discarded, so stock taken by carts that
+ * survive a process kill is written after the restart instead of being lost.
+ * A kill between a stock commit and its journal record applies those deltas
+ * twice: understated stock, never overstated.
+ * <p>
+ * The pending map has its own short lock, so {@link #add} is safe on the main
+ * thread. Database work (flushes, checkouts and the stored-stock read of
+ * {@link #tryTake}) is serialized on a separate write lock and never holds it.
+ */
+public class StockBuffer {
+    private static final String TAG = "StockBuffer";
+    private static final long FLUSH_DELAY_MS = 2_000;
+
+    private static volatile StockBuffer instance;
+
+    private final AppDatabase db;
+    private final Executor executor = AppExecutors.getInstance().diskWrite();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = () -> executor.execute(this::flush);
+
+    // Held across reads and writes of stored stock, so a check never sees a half-applied flush
+    private final Object writeLock = new Object();
+
+    // productId -> stock change not written yet; guarded by this
+    private final Map<Long, Double> pending = new HashMap<>();
+    private boolean flushScheduled;
+    private CartJournal journal; // guarded by this; null when not persisted
+
+    public static StockBuffer getInstance(AppDatabase db) {
+        if (instance == null) {
+            synchronized (StockBuffer.class) {
+                if (instance == null) {
+                    instance = new StockBuffer(db);
+                }
+            }
+        }
+        return instance;
+    }
+
+    StockBuffer(AppDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Journal deltas from now on. Attach before any stock is taken.
+     */
+    synchronized void attachJournal(CartJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Take back the deltas the journal held unwritten when the process died.
+     * They are already journaled and are written with the next flush.
+     */
+    synchronized void restoreUnwritten(Map<Long, Double> deltas) {
+        if (deltas.isEmpty()) return;
+        for (Map.Entry<Long, Double> entry : deltas.entrySet()) {
+            pending.merge(entry.getKey(), entry.getValue(), Double::sum);
+        }
+        Log.d(TAG, "Restored unwritten stock of " + deltas.size() + " products");
+        scheduleFlush();
+    }
+
+    /**
+     * Take quantity from stock if the stored stock minus what is pending covers it.
+     * Only use this in background threads.
+     *
+     * @return false if the stock is insufficient or the product does not exist
+     */
+    public boolean tryTake(long productId, double quantity) {
+        synchronized (writeLock) {
+            Double stock = db.productDao().getStockSync(productId);
+            synchronized (this) {
+                if (stock == null || stock + getPendingDelta(productId) < quantity) {
+                    return false;
+                }
+                add(productId, -quantity);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Buffer a stock change (negative to decrease), without a bounds check.
+     */
+    public synchronized void add(long productId, double delta) {
+        if (delta == 0) return;
+        pending.merge(productId, delta, Double::sum);
+        if (journal != null) journal.addUnwrittenStock(productId, delta);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushTask, FLUSH_DELAY_MS);
+        }
+    }
+
+    public synchronized double getPendingDelta(long productId) {
+        Double delta = pending.get(productId);
+        return delta != null ? delta : 0;
+    }
+
+    /**
+     * Write all pending deltas in one transaction. Only use this in background threads.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            Map<Long, Double> writing = takeSnapshot();
+            if (writing.isEmpty()) return;
+
+            long start = System.nanoTime();
+            try {
+                db.runInTransaction(() -> {
+                    for (Map.Entry<Long, Double> entry : writing.entrySet()) {
+                        if (entry.getValue() != 0) {
+                            db.productDao().adjustStock(entry.getKey(), entry.getValue());
+                        }
+                    }
+                });
+                Log.d(TAG, "Flushed stock of " + writing.size() + " products in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+                removeWritten(writing);
+            } catch (Exception e) {
+                // Kept for the next flush
+                Log.e(TAG, "Error flushing stock of " + writing.size() + " products", e);
+            }
+        }
+    }
+
+    /**
+     * Drop the pending deltas without writing them, before the stock is replaced by a restore
+     */
+    public void discardPending() {
+        synchronized (writeLock) {
+            Map<Long, Double> discarded = takeSnapshot();
+            Log.d(TAG, "Discarded pending stock of " + discarded.size() + " products");
+            removeWritten(discarded);
+        }
+    }
+
+    // The deltas a write is about to apply; changes buffered meanwhile stay pending
+    private synchronized Map<Long, Double> takeSnapshot() {
+        handler.removeCallbacks(flushTask);
+        flushScheduled = false;
+        return new HashMap<>(pending);
+    }
+
+    // Written or discarded: the journal no longer has to restore these deltas
+    private synchronized void removeWritten(Map<Long, Double> written) {
+        if (written.isEmpty()) return;
+        Map<Long, Double> negated = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : written.entrySet()) {
+            negated.put(entry.getKey(), -entry.getValue());
+            double left = pending.merge(entry.getKey(), -entry.getValue(), Double::sum);
+            if (Math.abs(left) < 1e-9) pending.remove(entry.getKey());
+        }
+        if (journal != null) journal.addUnwrittenStock(negated);
+        if (!pending.isEmpty()) scheduleFlush();
+    }
+
+    public void flushAsync() {
+        executor.execute(this::flush);
+    }
+
+    /**
+     * Commit an order with the pending deltas and its own stock changes in a
+     * single transaction. Only use this in background threads.
+     *
+     * @param stockDeltas productId -> change in stock of this order, may be empty
+     * @return The generated order ID
+     */
+    public long commitOrder(CheckoutDao checkoutDao, OrderEntity order, List<OrderItemEntity> items,
+                            Map<Long, Double> stockDeltas) {
+        synchronized (writeLock) {
+            Map<Long, Double> writing = takeSnapshot();
+            Map<Long, Double> deltas = new HashMap<>(writing);
+            if (stockDeltas != null) {
+                for (Map.Entry<Long, Double> entry : stockDeltas.entrySet()) {
+                    deltas.merge(entry.getKey(), entry.getValue(), Double::sum);
+                }
+            }
+            long orderId;
+            try {
+                orderId = checkoutDao.commitOrder(order, items, deltas);
+            } catch (RuntimeException e) {
+                // Kept for the next flush
+                synchronized (this) {
+                    if (!pending.isEmpty()) scheduleFlush();
+                }
+                throw e;
+            }
+            Log.d(TAG, "Flushed stock of " + writing.size() + " products with order " + orderId);
+            removeWritten(writing);
+            return orderId;
+        }
+    }
+}
@@ -8,25 +8,28 @@ import androidx.lifecycle.MutableLiveData;
 import com.javandroid.accounting_app.data.database.AppDatabase;
 import com.javandroid.accounting_app.data.dao.UserDao;
 import com.javandroid.accounting_app.data.model.UserEntity;
+import com.javandroid.accounting_app.print.ReceiptCache;
+import com.javandroid.accounting_app.util.AppExecutors;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class UserRepository {
 
     private final UserDao userDao;
-    private final ExecutorService executor;
+    private final Executor executor; // Shared serial DB-write executor
+    private final Executor readExecutor;
     private final AppDatabase db;
 
     public UserRepository(Context context) {
         db = AppDatabase.getInstance(context);
         userDao = db.userDao();
-        executor = Executors.newSingleThreadExecutor();
+        executor = AppExecutors.getInstance().diskWrite();
+        readExecutor = AppExecutors.getInstance().diskRead();
     }
 
     public void getUserByCredentials(String username, String password, OnUserResultCallback callback) {
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             UserEntity user = userDao.getUserByCredentials(username, password);
             callback.onResult(user);
         });
@@ -36,6 +39,24 @@ public class UserRepository {
         return userDao.getAllUsers();
     }
 
+    /**
+     * Users whose name starts with the text, ignoring ASCII case, in name order.
+     * Empty text lists everyone.
+     */
+    public LiveData<List<UserEntity>> searchUsersByName(String text) {
+        String escaped = text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return userDao.searchByName(escaped + "%");
+    }
+
+    public LiveData<List<UserEntity>> getRecentUsers(int limit) {
+        return userDao.getRecentlyUsed(limit);
+    }
+
+    public void markUsed(long userId) {
+        long now = System.currentTimeMillis();
+        executor.execute(() -> userDao.markUsed(userId, now));
+    }
+
     public void insert(UserEntity user) {
         executor.execute(() -> userDao.insert(user));
     }
@@ -45,11 +66,19 @@ public class UserRepository {
     }
 
     public void delete(UserEntity user) {
-        executor.execute(() -> userDao.delete(user));
+        executor.execute(() -> {
+            // Their orders are deleted by CASCADE
+            List<Long> orderIds = db.orderDao().getOrderIdsOfUserSync(user.getUserId());
+            userDao.delete(user);
+            ReceiptCache.getInstance().invalidate(orderIds);
+        });
     }
 
     public void deleteAll() {
-        executor.execute(userDao::deleteAll);
+        executor.execute(() -> {
+            userDao.deleteAll();
+            ReceiptCache.getInstance().clear();
+        });
     }
 
     public UserEntity getUserByIdSync(long userId) {
@@ -70,7 +99,7 @@ public class UserRepository {
      */
     public LiveData<UserEntity> authenticateUser(String username, String password) {
         MutableLiveData<UserEntity> result = new MutableLiveData<>();
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             UserEntity user = userDao.getUserByCredentials(username, password);
             result.postValue(user);
         });
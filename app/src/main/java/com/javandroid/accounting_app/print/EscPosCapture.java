@@ -0,0 +1,63 @@
+package com.javandroid.accounting_app.print;
+
+import com.dantsu.escposprinter.EscPosPrinter;
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
+import com.dantsu.escposprinter.exceptions.EscPosParserException;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Turns the library's formatted receipt text ([L]/[C]/[R], &lt;b&gt;) into the
+ * ESC/POS bytes it would send, without a printer. The bytes can be spooled
+ * and later written over any connection.
+ */
+public final class EscPosCapture {
+    public static final int PRINTER_DPI = 203;
+    public static final float PRINTER_WIDTH_MM = 48f;
+    public static final int PRINTER_CHARS_PER_LINE = 32;
+
+    private EscPosCapture() {
+    }
+
+    public static byte[] render(String formattedText) {
+        CaptureConnection capture = new CaptureConnection();
+        try {
+            EscPosPrinter printer = new EscPosPrinter(capture, PRINTER_DPI, PRINTER_WIDTH_MM, PRINTER_CHARS_PER_LINE);
+            printer.printFormattedText(formattedText);
+        } catch (EscPosConnectionException | EscPosParserException | EscPosEncodingException
+                 | EscPosBarcodeException e) {
+            // Nothing can fail on the capture side, so this is bad markup
+            throw new IllegalArgumentException("Cannot render receipt: " + e.getMessage(), e);
+        }
+        return capture.captured.toByteArray();
+    }
+
+    /**
+     * Collects what the library sends. Unlike a real connection it does not
+     * sleep after each send to let the printer's buffer drain.
+     */
+    private static class CaptureConnection extends DeviceConnection {
+        private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+        @Override
+        public DeviceConnection connect() {
+            outputStream = captured;
+            return this;
+        }
+
+        @Override
+        public DeviceConnection disconnect() {
+            outputStream = null;
+            return this;
+        }
+
+        @Override
+        public void send(int addWaitingTime) {
+            captured.write(data, 0, data.length);
+            data = new byte[0];
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.javandroid.accounting_app.print;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.javandroid.accounting_app.data.dao.OrderDao;
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+import com.javandroid.accounting_app.data.model.PrintJobEntity;
+import com.javandroid.accounting_app.data.model.ReceiptLine;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Prints receipts of saved orders: one order again, or every order of a date
+ * range, optionally only one customer's or only the unpaid ones.
+ * Orders are read a page at a time with their customers and items in one joined
+ * query, rendered (or taken from {@link ReceiptCache}) and queued on the
+ * {@link PrinterService} spool, which prints them over its one connection while
+ * the next page loads.
+ */
+public class OrderReceiptPrinter {
+    private static final String TAG = "OrderReceiptPrinter";
+    private static final int PAGE_SIZE = 50;
+
+    private static volatile OrderReceiptPrinter instance;
+
+    /**
+     * Called on the main thread with the number of receipts queued
+     */
+    public interface Callback {
+        void onQueued(int receipts);
+    }
+
+    private final OrderDao orderDao;
+    private final PrinterService printerService;
+    private final ReceiptCache cache;
+    private final Executor executor = AppExecutors.getInstance().diskRead();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static OrderReceiptPrinter getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OrderReceiptPrinter.class) {
+                if (instance == null) {
+                    instance = new OrderReceiptPrinter(AppDatabase.getInstance(context).orderDao(),
+                            ReceiptCache.getInstance(), PrinterService.getInstance(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public OrderReceiptPrinter(OrderDao orderDao, ReceiptCache cache, PrinterService printerService) {
+        this.orderDao = orderDao;
+        this.cache = cache;
+        this.printerService = printerService;
+    }
+
+    public void reprint(long orderId, Callback callback) {
+        executor.execute(() -> {
+            int queued = reprintSync(orderId);
+            mainHandler.post(() -> callback.onQueued(queued));
+        });
+    }
+
+    /**
+     * @param from       inclusive start of the createdAt range, epoch millis
+     * @param to         exclusive end of the range
+     * @param customerId only this customer's orders, or 0 for every customer
+     * @param unpaidOnly skip paid orders
+     */
+    public void printOrders(long from, long to, long customerId, boolean unpaidOnly, Callback callback) {
+        executor.execute(() -> {
+            int queued = printOrdersSync(from, to, customerId, unpaidOnly);
+            mainHandler.post(() -> callback.onQueued(queued));
+        });
+    }
+
+    /**
+     * Queues the order's receipt; returns 0 when the order no longer exists
+     */
+    public int reprintSync(long orderId) {
+        byte[] receipt = cache.get(orderId);
+        if (receipt == null) {
+            long mark = cache.mark();
+            List<ReceiptLine> lines = orderDao.getReceiptLinesOfOrderSync(orderId);
+            if (lines.isEmpty()) return 0;
+            receipt = render(lines, 0, lines.size());
+            cache.put(orderId, receipt, mark);
+        }
+        printerService.enqueue(orderId, receipt);
+        return 1;
+    }
+
+    /**
+     * Queues the receipts of the matching orders, oldest first; returns how many
+     */
+    public int printOrdersSync(long from, long to, long customerId, boolean unpaidOnly) {
+        long start = System.nanoTime();
+        long afterCreatedAt = Long.MIN_VALUE;
+        long afterId = 0;
+        int queued = 0;
+        while (true) {
+            long mark = cache.mark();
+            List<ReceiptLine> lines = orderDao.getReceiptLinesPageSync(from, to, customerId, unpaidOnly,
+                    afterCreatedAt, afterId, PAGE_SIZE);
+            List<PrintJobEntity> jobs = new ArrayList<>();
+            int first = 0;
+            while (first < lines.size()) {
+                long orderId = lines.get(first).getOrderId();
+                int end = first + 1;
+                while (end < lines.size() && lines.get(end).getOrderId() == orderId) end++;
+
+                byte[] receipt = cache.get(orderId);
+                if (receipt == null) {
+                    receipt = render(lines, first, end);
+                    cache.put(orderId, receipt, mark);
+                }
+                jobs.add(new PrintJobEntity(orderId, receipt));
+                first = end;
+            }
+            printerService.enqueueAll(jobs);
+            queued += jobs.size();
+
+            if (jobs.size() < PAGE_SIZE) break;
+            ReceiptLine last = lines.get(lines.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getOrderId();
+        }
+        Log.d(TAG, "Queued " + queued + " receipts in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return queued;
+    }
+
+    // lines[first, end) are the rows of one order
+    private static byte[] render(List<ReceiptLine> lines, int first, int end) {
+        ReceiptLine head = lines.get(first);
+        OrderEntity order = new OrderEntity(null, head.getTotal(), 0, 0);
+        order.setOrderId(head.getOrderId());
+        List<OrderItemEntity> items = new ArrayList<>(end - first);
+        for (int i = first; i < end; i++) {
+            ReceiptLine line = lines.get(i);
+            if (line.getProductName() == null) continue; // An order without items
+            OrderItemEntity item = new OrderItemEntity(0, "");
+            item.setProductName(line.getProductName());
+            item.setQuantity(line.getQuantity());
+            item.setSellPrice(line.getSellPrice());
+            items.add(item);
+        }
+        return ReceiptRenderer.getInstance().render(order, items, head.getCustomerName(), head.getCreatedAt());
+    }
+}
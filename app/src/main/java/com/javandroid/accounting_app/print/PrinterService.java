@@ -0,0 +1,257 @@
+package com.javandroid.accounting_app.print;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.connection.bluetooth.BluetoothPrintersConnections;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+import com.javandroid.accounting_app.data.dao.PrintJobDao;
+import com.javandroid.accounting_app.data.database.AppDatabase;
+import com.javandroid.accounting_app.data.model.PrintJobEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Long-lived receipt printer. Jobs are stored in the print_jobs spool first and
+ * then sent back to back over one held printer connection, so a sale does not
+ * pay Bluetooth discovery and connect on every receipt, and queued receipts are
+ * printed after an app restart.
+ * When the printer cannot be reached, the spool is retried with exponential
+ * backoff. All connection work happens on the service's own thread.
+ */
+public class PrinterService {
+    private static final String TAG = "PrinterService";
+    private static final long INITIAL_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int BATCH_SIZE = 20;
+
+    private static volatile PrinterService instance;
+
+    public enum State {
+        IDLE, CONNECTING, PRINTING, WAITING_TO_RETRY
+    }
+
+    public interface ConnectionFactory {
+        /**
+         * A printer connection, not yet connected, or null when there is none
+         */
+        @Nullable
+        DeviceConnection open();
+    }
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        default void onJobPrinted(long jobId, long orderId) {
+        }
+
+        // The job failed MAX_ATTEMPTS times over an open connection and was dropped
+        default void onJobFailed(long jobId, long orderId, String error) {
+        }
+
+        default void onStateChanged(State state, int pendingJobs) {
+        }
+    }
+
+    private final PrintJobDao dao;
+    private final ConnectionFactory connectionFactory;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Executor writeExecutor = AppExecutors.getInstance().diskWrite();
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable drainTask = this::drain;
+    private final Runnable retryTask;
+
+    // Only touched on the service thread
+    private DeviceConnection connection;
+    private long backoffMs;
+    private boolean retryScheduled;
+
+    public static PrinterService getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PrinterService.class) {
+                if (instance == null) {
+                    instance = new PrinterService(AppDatabase.getInstance(context).printJobDao(),
+                            BluetoothPrintersConnections::selectFirstPaired,
+                            INITIAL_BACKOFF_MS, MAX_BACKOFF_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public PrinterService(PrintJobDao dao, ConnectionFactory connectionFactory,
+                          long initialBackoffMs, long maxBackoffMs) {
+        this.dao = dao;
+        this.connectionFactory = connectionFactory;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.backoffMs = initialBackoffMs;
+        thread = new HandlerThread("printer");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        retryTask = () -> {
+            retryScheduled = false;
+            drain();
+        };
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Prints whatever an earlier run left in the spool
+     */
+    public void start() {
+        requestDrain();
+    }
+
+    /**
+     * Stores the receipt in the spool, then prints it after any earlier jobs
+     */
+    public void enqueue(long orderId, byte[] payload) {
+        writeExecutor.execute(() -> {
+            long jobId = dao.insert(new PrintJobEntity(orderId, payload));
+            Log.d(TAG, "Queued print job " + jobId + " for order " + orderId + " (" + payload.length + " bytes)");
+            requestDrain();
+        });
+    }
+
+    /**
+     * Stores the receipts in the spool in one transaction, then prints them in list order
+     */
+    public void enqueueAll(List<PrintJobEntity> jobs) {
+        if (jobs.isEmpty()) return;
+        writeExecutor.execute(() -> {
+            dao.insertAll(jobs);
+            Log.d(TAG, "Queued " + jobs.size() + " print jobs");
+            requestDrain();
+        });
+    }
+
+    /**
+     * Closes the connection and stops the service thread once queued work is done.
+     * Spooled jobs stay for the next start.
+     */
+    public void shutdown() {
+        handler.removeCallbacks(retryTask);
+        handler.post(this::disconnect);
+        thread.quitSafely();
+    }
+
+    private void requestDrain() {
+        // Several enqueues in a row only need one pass
+        handler.removeCallbacks(drainTask);
+        handler.post(drainTask);
+    }
+
+    private void drain() {
+        if (retryScheduled) return; // The retry drains once the backoff has passed
+        List<PrintJobEntity> jobs;
+        while (!(jobs = dao.getPendingSync(BATCH_SIZE)).isEmpty()) {
+            if (!ensureConnected()) {
+                scheduleRetry();
+                return;
+            }
+            notifyStateChanged(State.PRINTING);
+            for (PrintJobEntity job : jobs) {
+                if (!print(job)) {
+                    scheduleRetry();
+                    return;
+                }
+            }
+        }
+        notifyStateChanged(State.IDLE);
+    }
+
+    private boolean ensureConnected() {
+        if (connection != null && connection.isConnected()) return true;
+        notifyStateChanged(State.CONNECTING);
+        long start = System.nanoTime();
+        try {
+            DeviceConnection opened = connectionFactory.open();
+            if (opened == null) {
+                Log.w(TAG, "No paired printer found");
+                return false;
+            }
+            opened.connect();
+            connection = opened;
+            Log.d(TAG, "Printer connected in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (EscPosConnectionException | RuntimeException e) {
+            // RuntimeException covers a missing Bluetooth permission (SecurityException)
+            Log.e(TAG, "Printer connection failed", e);
+            return false;
+        }
+    }
+
+    private boolean print(PrintJobEntity job) {
+        long start = System.nanoTime();
+        try {
+            connection.write(job.payload);
+            connection.send();
+            dao.delete(job.jobId);
+            backoffMs = initialBackoffMs;
+            Log.d(TAG, "Printed job " + job.jobId + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            mainHandler.post(() -> {
+                for (Listener listener : listeners) listener.onJobPrinted(job.jobId, job.orderId);
+            });
+            return true;
+        } catch (EscPosConnectionException | RuntimeException e) {
+            Log.e(TAG, "Print job " + job.jobId + " failed", e);
+            disconnect();
+            String error = String.valueOf(e.getMessage());
+            if (job.attempts + 1 >= MAX_ATTEMPTS) {
+                dao.delete(job.jobId);
+                mainHandler.post(() -> {
+                    for (Listener listener : listeners) listener.onJobFailed(job.jobId, job.orderId, error);
+                });
+            } else {
+                dao.recordFailure(job.jobId, error);
+            }
+            return false;
+        }
+    }
+
+    private void scheduleRetry() {
+        retryScheduled = true;
+        Log.d(TAG, "Retrying the print spool in " + backoffMs + " ms");
+        handler.postDelayed(retryTask, backoffMs);
+        backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+        notifyStateChanged(State.WAITING_TO_RETRY);
+    }
+
+    private void disconnect() {
+        if (connection != null) {
+            connection.disconnect();
+            connection = null;
+        }
+    }
+
+    private void notifyStateChanged(State state) {
+        if (listeners.isEmpty()) return;
+        int pending = dao.countPendingSync();
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) listener.onStateChanged(state, pending);
+        });
+    }
+}
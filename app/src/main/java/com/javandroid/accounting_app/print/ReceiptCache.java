@@ -0,0 +1,66 @@
+package com.javandroid.accounting_app.print;
+
+import android.util.LruCache;
+
+import java.util.List;
+
+/**
+ * Rendered receipts of saved orders by orderId, so a reprint needs neither a
+ * query nor a render. Only receipts rendered from the stored rows are cached,
+ * never one of a cart, which may hold unsaved edits of the order. Writers
+ * that edit or delete an order, its items or its customer's name invalidate
+ * that order; new orders and other customer writes leave the cache alone.
+ * A render that read the order before an invalidation must not be cached
+ * afterwards: take {@link #mark()} before loading and pass it to {@link #put}.
+ */
+public class ReceiptCache {
+    private static final int MAX_BYTES = 1024 * 1024;
+
+    private static final ReceiptCache INSTANCE = new ReceiptCache();
+
+    private final LruCache<Long, byte[]> receipts = new LruCache<Long, byte[]>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(Long orderId, byte[] receipt) {
+            return receipt.length;
+        }
+    };
+    private long invalidations;
+
+    public static ReceiptCache getInstance() {
+        return INSTANCE;
+    }
+
+    public byte[] get(long orderId) {
+        return receipts.get(orderId);
+    }
+
+    public synchronized long mark() {
+        return invalidations;
+    }
+
+    /**
+     * Caches the receipt unless something was invalidated since mark was taken
+     */
+    public synchronized void put(long orderId, byte[] receipt, long mark) {
+        if (orderId > 0 && mark == invalidations) {
+            receipts.put(orderId, receipt);
+        }
+    }
+
+    public synchronized void invalidate(long orderId) {
+        invalidations++;
+        receipts.remove(orderId);
+    }
+
+    public synchronized void invalidate(List<Long> orderIds) {
+        invalidations++;
+        for (Long orderId : orderIds) {
+            receipts.remove(orderId);
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        receipts.evictAll();
+    }
+}
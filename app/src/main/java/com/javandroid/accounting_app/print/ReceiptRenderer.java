@@ -0,0 +1,238 @@
+package com.javandroid.accounting_app.print;
+
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Renders receipts straight to ESC/POS bytes. The fixed parts of the layout are
+ * compiled once per paper width into byte fragments; rendering copies those and
+ * writes the order's values into a reusable buffer, with no format strings and
+ * no markup for the library to parse. Numbers always use ASCII digits and a
+ * '.' separator, whatever the device locale.
+ * Not thread-safe; use one instance per thread, or {@link #getInstance()}.
+ */
+public final class ReceiptRenderer {
+    private static final byte ESC = 0x1B;
+    private static final byte LF = '\n';
+    private static final byte[] INIT = {ESC, '@'};
+    private static final byte[] CODE_PAGE_1252 = {ESC, 't', 16};
+    private static final byte[] BOLD_ON = {ESC, 'E', 1};
+    private static final byte[] BOLD_OFF = {ESC, 'E', 0};
+    // 20 mm of paper at 203 dpi, as the library feeds after formatted text
+    private static final byte[] FEED = {ESC, 'J', (byte) 160};
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+    private static final int NAME_COLUMNS = 12;
+
+    private static final ThreadLocal<ReceiptRenderer> INSTANCES =
+            ThreadLocal.withInitial(() -> new ReceiptRenderer(EscPosCapture.PRINTER_CHARS_PER_LINE));
+
+    private final int width;
+    private final byte[] head;
+    private final byte[] rule;
+    private final byte[] itemHeader;
+    private final byte[] tail;
+    private final byte[] customerLabel;
+    private final byte[] orderLabel;
+    private final byte[] totalLabel;
+
+    private byte[] buffer = new byte[4096];
+    private int length;
+    private final StringBuilder scratch = new StringBuilder(64);
+    private final Calendar calendar = Calendar.getInstance();
+
+    /**
+     * The renderer for the calling thread, for the default paper width
+     */
+    public static ReceiptRenderer getInstance() {
+        return INSTANCES.get();
+    }
+
+    public ReceiptRenderer(int width) {
+        this.width = width;
+        head = compile(() -> {
+            write(INIT);
+            write(CODE_PAGE_1252);
+            writeCentered("RECEIPT", true);
+        });
+        rule = compile(() -> writeCentered(repeat('-', 20), false));
+        itemHeader = compile(() -> {
+            writeLine("ITEM", "QTY PRICE TOTAL");
+            writeCentered(repeat('-', 16), false);
+        });
+        tail = compile(() -> {
+            write(rule);
+            writeCentered("Thanks!", false);
+            write(FEED);
+        });
+        customerLabel = compile(() -> writeText("Cust: "));
+        orderLabel = compile(() -> writeText("Order :"));
+        totalLabel = compile(() -> writeText("TOTAL: $"));
+    }
+
+    /**
+     * @param customerName printed on the "Cust:" line
+     * @param printedAt    epoch millis shown as the receipt date
+     */
+    public byte[] render(OrderEntity order, List<OrderItemEntity> items, String customerName, long printedAt) {
+        length = 0;
+        write(head);
+
+        scratch.setLength(0);
+        appendDate(scratch, printedAt);
+        writeLine("", scratch);
+
+        write(customerLabel);
+        writeText(customerName);
+        write(LF);
+        write(orderLabel);
+        scratch.setLength(0);
+        scratch.append(order.getOrderId());
+        writeText(scratch);
+        write(LF);
+
+        write(rule);
+        write(itemHeader);
+        for (OrderItemEntity item : items) {
+            String name = item.getProductName();
+            if (name.length() > NAME_COLUMNS) {
+                name = name.substring(0, NAME_COLUMNS - 2) + "..";
+            }
+            double quantity = item.getQuantity();
+            scratch.setLength(0);
+            if (quantity == Math.floor(quantity)) {
+                appendFixed(scratch, quantity, 0);
+            } else {
+                appendFixed(scratch, quantity, 1);
+            }
+            scratch.append(" $");
+            appendFixed(scratch, item.getSellPrice(), 2);
+            scratch.append(" $");
+            appendFixed(scratch, item.getSellPrice() * quantity, 2);
+            writeLine(name, scratch);
+        }
+
+        write(rule);
+        scratch.setLength(0);
+        appendFixed(scratch, order.getTotal(), 2);
+        int used = totalLabel.length + scratch.length();
+        writeSpaces(Math.max(0, width - used));
+        write(BOLD_ON);
+        write(totalLabel);
+        writeText(scratch);
+        write(BOLD_OFF);
+        write(LF);
+
+        write(tail);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Appends value rounded half up to the given decimals, e.g. 12.5 -> "12.50"
+     */
+    static void appendFixed(StringBuilder out, double value, int decimals) {
+        long scale = decimals == 0 ? 1 : decimals == 1 ? 10 : 100;
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) out.append('-');
+        out.append(scaled / scale);
+        if (decimals == 0) return;
+        out.append('.');
+        long fraction = scaled % scale;
+        if (decimals == 2 && fraction < 10) out.append('0');
+        out.append(fraction);
+    }
+
+    // MM/dd HH:mm
+    private void appendDate(StringBuilder out, long millis) {
+        calendar.setTimeInMillis(millis);
+        appendTwoDigits(out, calendar.get(Calendar.MONTH) + 1);
+        out.append('/');
+        appendTwoDigits(out, calendar.get(Calendar.DAY_OF_MONTH));
+        out.append(' ');
+        appendTwoDigits(out, calendar.get(Calendar.HOUR_OF_DAY));
+        out.append(':');
+        appendTwoDigits(out, calendar.get(Calendar.MINUTE));
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private byte[] compile(Runnable layout) {
+        length = 0;
+        layout.run();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * left at the start and right at the end of one line; when both do not
+     * fit, right goes on a line of its own
+     */
+    private void writeLine(CharSequence left, CharSequence right) {
+        int gap = width - left.length() - right.length();
+        writeText(left);
+        if (gap < 1 && left.length() > 0) {
+            write(LF);
+            gap = width - right.length();
+        }
+        writeSpaces(Math.max(0, gap));
+        writeText(right);
+        write(LF);
+    }
+
+    private void writeCentered(String text, boolean bold) {
+        writeSpaces(Math.max(0, (width - text.length()) / 2));
+        if (bold) write(BOLD_ON);
+        writeText(text);
+        if (bold) write(BOLD_OFF);
+        write(LF);
+    }
+
+    private void writeSpaces(int count) {
+        ensureCapacity(count);
+        Arrays.fill(buffer, length, length + count, (byte) ' ');
+        length += count;
+    }
+
+    private void writeText(CharSequence text) {
+        int count = text.length();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else {
+                // Rare: one byte from the printer's code page, '?' when it has no such character
+                byte[] encoded = String.valueOf(c).getBytes(CHARSET);
+                buffer[length++] = encoded.length == 1 ? encoded[0] : (byte) '?';
+            }
+        }
+    }
+
+    private void write(byte b) {
+        ensureCapacity(1);
+        buffer[length++] = b;
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.javandroid.accounting_app.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.javandroid.accounting_app.R;
+import com.javandroid.accounting_app.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drawer list with a "recent" section above the full list. Updates are diffed
+ * on the diff executor, so a new emission only rebinds the rows that changed.
+ */
+public abstract class DrawerListAdapter<T> extends ListAdapter<DrawerListAdapter.Row<T>, RecyclerView.ViewHolder> {
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_ITEM = 1;
+
+    private final String recentTitle;
+    private final String allTitle;
+
+    /**
+     * One list row: a section header, or an item with the id and label it was
+     * built with, so diffing does not need to know T.
+     */
+    public static final class Row<T> {
+        final String header; // null for item rows
+        final T item;
+        final long id;
+        final String label;
+        final boolean recent;
+
+        private Row(String header, T item, long id, String label, boolean recent) {
+            this.header = header;
+            this.item = item;
+            this.id = id;
+            this.label = label;
+            this.recent = recent;
+        }
+    }
+
+    protected DrawerListAdapter(String recentTitle, String allTitle) {
+        super(new AsyncDifferConfig.Builder<>(DrawerListAdapter.<T>diffCallback())
+                .setBackgroundThreadExecutor(AppExecutors.getInstance().diff())
+                .build());
+        this.recentTitle = recentTitle;
+        this.allTitle = allTitle;
+    }
+
+    private static <T> DiffUtil.ItemCallback<Row<T>> diffCallback() {
+        return new DiffUtil.ItemCallback<Row<T>>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull Row<T> oldItem, @NonNull Row<T> newItem) {
+                if (oldItem.header != null || newItem.header != null) {
+                    return oldItem.header != null && oldItem.header.equals(newItem.header);
+                }
+                return oldItem.id == newItem.id && oldItem.recent == newItem.recent;
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull Row<T> oldItem, @NonNull Row<T> newItem) {
+                return oldItem.label.equals(newItem.label);
+            }
+        };
+    }
+
+    protected abstract long idOf(T item);
+
+    protected abstract String labelOf(T item);
+
+    protected abstract void onItemClick(T item);
+
+    /**
+     * Shows the recent items under their own header above all, or just all
+     * when recent is empty (e.g. while searching).
+     */
+    public void submit(List<T> recent, List<T> all) {
+        List<Row<T>> rows = new ArrayList<>(recent.size() + all.size() + 2);
+        if (!recent.isEmpty()) {
+            rows.add(new Row<>(recentTitle, null, 0, recentTitle, true));
+            for (T item : recent) {
+                rows.add(new Row<>(null, item, idOf(item), labelOf(item), true));
+            }
+            rows.add(new Row<>(allTitle, null, 0, allTitle, false));
+        }
+        for (T item : all) {
+            rows.add(new Row<>(null, item, idOf(item), labelOf(item), false));
+        }
+        submitList(rows);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).header != null ? TYPE_HEADER : TYPE_ITEM;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == TYPE_HEADER) {
+            return new TextViewHolder(inflater.inflate(R.layout.item_drawer_header, parent, false));
+        }
+        TextViewHolder holder = new TextViewHolder(inflater.inflate(android.R.layout.simple_list_item_1, parent, false));
+        // One listener per view holder, resolved against the row it shows when clicked
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                onItemClick(getItem(position).item);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        ((TextViewHolder) holder).textView.setText(getItem(position).label);
+    }
+
+    static class TextViewHolder extends RecyclerView.ViewHolder {
+        private final TextView textView;
+
+        TextViewHolder(View itemView) {
+            super(itemView);
+            textView = itemView.findViewById(android.R.id.text1);
+        }
+    }
+}
@@ -1,67 +1,35 @@
 package com.javandroid.accounting_app.ui.adapter.customer;
 
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.TextView;
-
-import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.RecyclerView;
-
 import com.javandroid.accounting_app.data.model.CustomerEntity;
+import com.javandroid.accounting_app.ui.adapter.DrawerListAdapter;
 
-import java.util.ArrayList;
-import java.util.List;
-
-public class CustomerDrawerAdapter extends RecyclerView.Adapter<CustomerDrawerAdapter.CustomerViewHolder> {
+public class CustomerDrawerAdapter extends DrawerListAdapter<CustomerEntity> {
 
-    private List<CustomerEntity> customers = new ArrayList<>();
     private final OnCustomerClickListener listener;
 
     public CustomerDrawerAdapter(OnCustomerClickListener listener) {
+        super("Recent", "All customers");
         this.listener = listener;
     }
 
-    @NonNull
     @Override
-    public CustomerViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View itemView = LayoutInflater.from(parent.getContext())
-                .inflate(android.R.layout.simple_list_item_1, parent, false);
-        return new CustomerViewHolder(itemView);
+    protected long idOf(CustomerEntity customer) {
+        return customer.getCustomerId();
     }
 
     @Override
-    public void onBindViewHolder(@NonNull CustomerViewHolder holder, int position) {
-        CustomerEntity currentCustomer = customers.get(position);
-        holder.textView.setText(currentCustomer.getName());
-
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onCustomerClick(currentCustomer);
-            }
-        });
+    protected String labelOf(CustomerEntity customer) {
+        return customer.getName();
     }
 
     @Override
-    public int getItemCount() {
-        return customers.size();
-    }
-
-    public void setCustomers(List<CustomerEntity> customers) {
-        this.customers = customers;
-        notifyDataSetChanged();
-    }
-
-    static class CustomerViewHolder extends RecyclerView.ViewHolder {
-        private final TextView textView;
-
-        CustomerViewHolder(View itemView) {
-            super(itemView);
-            textView = itemView.findViewById(android.R.id.text1);
+    protected void onItemClick(CustomerEntity customer) {
+        if (listener != null) {
+            listener.onCustomerClick(customer);
         }
     }
 
     public interface OnCustomerClickListener {
         void onCustomerClick(CustomerEntity customer);
     }
-}
\ No newline at end of file
+}
@@ -6,14 +6,15 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.javandroid.accounting_app.R;
 import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.util.AppExecutors;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class SavedOrdersAdapter extends ListAdapter<OrderEntity, SavedOrdersAdapter.OrderViewHolder> {
@@ -22,16 +23,7 @@ public class SavedOrdersAdapter extends ListAdapter<OrderEntity, SavedOrdersAdap
         void onOrderClick(OrderEntity order);
     }
 
-    public enum SearchField {
-        ALL,
-        ID,
-        DATE,
-        CUSTOMER,
-        USER
-    }
-
     private final OnOrderClickListener listener;
-    private List<OrderEntity> originalList;
 
     private static final DiffUtil.ItemCallback<OrderEntity> DIFF_CALLBACK = new DiffUtil.ItemCallback<OrderEntity>() {
         @Override
@@ -48,61 +40,12 @@ public class SavedOrdersAdapter extends ListAdapter<OrderEntity, SavedOrdersAdap
         }
     };
 
+    // Diffs of large pages run on the shared diff thread; results are applied on the main thread
     public SavedOrdersAdapter(OnOrderClickListener listener) {
-        super(DIFF_CALLBACK);
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(AppExecutors.getInstance().diff())
+                .build());
         this.listener = listener;
-        this.originalList = new ArrayList<>();
-    }
-
-    @Override
-    public void submitList(List<OrderEntity> list) {
-        originalList = list != null ? new ArrayList<>(list) : new ArrayList<>();
-        super.submitList(list != null ? new ArrayList<>(list) : null);
-    }
-
-    /**
-     * UPDATED filter method that accepts a search field.
-     *
-     * @param query The text to search for.
-     * @param field The field to search within.
-     */
-    public void filter(String query, SearchField field) {
-        if (query == null || query.isEmpty()) {
-            super.submitList(new ArrayList<>(originalList));
-            return;
-        }
-
-        List<OrderEntity> newFilteredList = new ArrayList<>();
-        String lowerCaseQuery = query.toLowerCase().trim();
-
-        for (OrderEntity order : originalList) {
-            boolean matches = false;
-            switch (field) {
-                case ID:
-                    matches = String.valueOf(order.getOrderId()).contains(lowerCaseQuery);
-                    break;
-                case DATE:
-                    matches = order.getDate().toLowerCase().contains(lowerCaseQuery);
-                    break;
-                case CUSTOMER:
-                    matches = String.valueOf(order.getCustomerId()).contains(lowerCaseQuery);
-                    break;
-                case USER:
-                    matches = String.valueOf(order.getUserId()).contains(lowerCaseQuery);
-                    break;
-                case ALL:
-                default:
-                    matches = String.valueOf(order.getOrderId()).contains(lowerCaseQuery) ||
-                            order.getDate().toLowerCase().contains(lowerCaseQuery) ||
-                            String.valueOf(order.getCustomerId()).contains(lowerCaseQuery) ||
-                            String.valueOf(order.getUserId()).contains(lowerCaseQuery);
-                    break;
-            }
-            if (matches) {
-                newFilteredList.add(order);
-            }
-        }
-        super.submitList(newFilteredList);
     }
 
     /**
@@ -28,6 +28,7 @@ public class UserProfitAdapter extends ListAdapter<UserProfitData, UserProfitAda
         @Override
         public boolean areContentsTheSame(@NonNull UserProfitData oldItem, @NonNull UserProfitData newItem) {
             return oldItem.getTotalProfit() == newItem.getTotalProfit() &&
+                    oldItem.getCustomerSpecificProfit() == newItem.getCustomerSpecificProfit() &&
                     oldItem.getUsername().equals(newItem.getUsername());
         }
     };
@@ -58,7 +59,12 @@ public class UserProfitAdapter extends ListAdapter<UserProfitData, UserProfitAda
 
         public void bind(UserProfitData userProfit) {
             tvUsername.setText(userProfit.getUsername());
-            tvProfit.setText(String.format("₹%.2f", userProfit.getTotalProfit()));
+            if (userProfit.getCustomerSpecificProfit() != 0) {
+                tvProfit.setText(String.format("₹%.2f (₹%.2f)",
+                        userProfit.getTotalProfit(), userProfit.getCustomerSpecificProfit()));
+            } else {
+                tvProfit.setText(String.format("₹%.2f", userProfit.getTotalProfit()));
+            }
         }
     }
 }
\ No newline at end of file
@@ -21,13 +21,14 @@ import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.UserEntity;
 import com.javandroid.accounting_app.data.repository.UserRepository;
 import com.javandroid.accounting_app.ui.adapter.newOrder.OrderListAdapter;
+import com.javandroid.accounting_app.ui.fragment.user.UserProfitFragment;
 import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.order.SavedOrdersViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.order.OrderEditViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerOrderStateViewModel;
+import com.javandroid.accounting_app.util.AppExecutors;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class CustomerDetailFragment extends Fragment implements OrderListAdapter.OrderClickListener {
     private static final String TAG = "CustomerDetailFragment";
@@ -42,7 +43,7 @@ public class CustomerDetailFragment extends Fragment implements OrderListAdapter
     private TextView tvCurrentUserProfit;
     private TextView tvUserTotalProfit;
     private RecyclerView recyclerViewOrders;
-    private ExecutorService executor;
+    private Executor executor;
     private UserRepository userRepository;
     private TextView tvCustomerTotalBought;
 
@@ -53,7 +54,7 @@ public class CustomerDetailFragment extends Fragment implements OrderListAdapter
         savedOrdersViewModel = new ViewModelProvider(requireActivity()).get(SavedOrdersViewModel.class);
         orderEditViewModel = new ViewModelProvider(requireActivity()).get(OrderEditViewModel.class);
         customerOrderStateViewModel = new ViewModelProvider(requireActivity()).get(CustomerOrderStateViewModel.class);
-        executor = Executors.newSingleThreadExecutor();
+        executor = AppExecutors.getInstance().diskRead();
         userRepository = new UserRepository(requireContext());
     }
 
@@ -80,11 +81,29 @@ public class CustomerDetailFragment extends Fragment implements OrderListAdapter
 
         adapter = new OrderListAdapter(this);
         recyclerViewOrders.setAdapter(adapter);
+        recyclerViewOrders.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null || dy <= 0) return;
+                int first = layoutManager.findFirstVisibleItemPosition();
+                int last = layoutManager.findLastVisibleItemPosition();
+                savedOrdersViewModel.onCustomerOrdersScrolled(last, last - first + 1, layoutManager.getItemCount());
+            }
+        });
+
+        // The selected customer's orders, a page at a time
+        savedOrdersViewModel.getCustomerOrders().observe(getViewLifecycleOwner(), orders -> {
+            if (orders != null) {
+                adapter.submitList(orders);
+            }
+        });
 
         // Observe the selected customer and load their orders
         customerViewModel.getSelectedCustomer().observe(getViewLifecycleOwner(), customer -> {
             if (customer != null) {
                 tvCustomerName.setText(customer.getName());
+                tvCurrentUserProfit.setOnClickListener(v -> showUserProfits(customer.getCustomerId()));
 
                 loadCustomerOrders(customer);
                 loadProfitData(customer);
@@ -146,13 +165,16 @@ public class CustomerDetailFragment extends Fragment implements OrderListAdapter
         });
     }
 
+    // Every user's profit from this customer
+    private void showUserProfits(long customerId) {
+        requireActivity().getSupportFragmentManager().beginTransaction()
+                .replace(R.id.nav_host_fragment, UserProfitFragment.newInstance(customerId))
+                .addToBackStack(null)
+                .commit();
+    }
+
     private void loadCustomerOrders(CustomerEntity customer) {
-        savedOrdersViewModel.getOrdersByCustomerId(customer.getCustomerId())
-                .observe(getViewLifecycleOwner(), orders -> {
-                    if (orders != null) {
-                        adapter.submitList(orders);
-                    }
-                });
+        savedOrdersViewModel.showOrdersOfCustomer(customer.getCustomerId());
     }
 
     @Override
@@ -164,12 +186,4 @@ public class CustomerDetailFragment extends Fragment implements OrderListAdapter
         Navigation.findNavController(requireView()).navigate(
                 R.id.action_customerDetailFragment_to_orderEditorFragment);
     }
-
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
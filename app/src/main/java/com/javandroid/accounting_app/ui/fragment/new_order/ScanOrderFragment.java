@@ -13,6 +13,8 @@ import android.widget.Toast; // Added for user feedback
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
@@ -26,9 +28,11 @@ import com.javandroid.accounting_app.data.model.UserEntity;
 import com.javandroid.accounting_app.databinding.FragmentScanOrderBinding;
 // Use ScanOrderAdapter
 import com.javandroid.accounting_app.ui.adapter.newOrder.ScanOrderAdapter;
+import com.javandroid.accounting_app.ui.fragment.new_order.delegate.CameraScanDelegate;
 import com.javandroid.accounting_app.ui.fragment.new_order.delegate.OrderManagementDelegate;
 import com.javandroid.accounting_app.ui.fragment.new_order.delegate.OrderPrintingDelegate;
 import com.javandroid.accounting_app.ui.fragment.new_order.delegate.OrderScanningDelegate;
+import com.javandroid.accounting_app.ui.fragment.new_order.delegate.WedgeScannerInput;
 import com.javandroid.accounting_app.ui.viewmodel.new_order.CurrentOrderViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerOrderStateViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerViewModel;
@@ -57,6 +61,8 @@ public class ScanOrderFragment extends Fragment {
     // private String currentUserId; // currentUser.getUserId() can be used
 
     private OrderScanningDelegate scanningDelegate;
+    private CameraScanDelegate cameraScanDelegate;
+    private WedgeScannerInput wedgeScannerInput;
     private OrderPrintingDelegate printingDelegate;
     private OrderManagementDelegate managementDelegate;
 
@@ -110,6 +116,9 @@ public class ScanOrderFragment extends Fragment {
 
     private void initDelegates() {
         scanningDelegate = new OrderScanningDelegate(this, binding, productScanViewModel, binding.editTextBarcode);
+        cameraScanDelegate = new CameraScanDelegate(this, binding.barcodeScannerView, binding.textViewScanLatency,
+                productScanViewModel);
+        wedgeScannerInput = new WedgeScannerInput(productScanViewModel, currentOrderViewModel);
         printingDelegate = new OrderPrintingDelegate(this, currentOrderViewModel);
         // ManagementDelegate is the listener for the adapter
         managementDelegate = new OrderManagementDelegate(this, currentOrderViewModel,
@@ -129,13 +138,21 @@ public class ScanOrderFragment extends Fragment {
         // Barcode input via binding.editTextBarcode
         updateBarcodeInputState(); // Initial state
 
+        // The camera button shows or hides the continuous scanner; a long press picks a camera
+        // and scans one barcode full screen
         binding.btnAddManual.setOnClickListener(v -> {
             if (selectedCustomer != null && currentUser != null) {
-                if (scanningDelegate != null) scanningDelegate.startBarcodeScanner();
+                if (cameraScanDelegate != null) cameraScanDelegate.toggle();
             } else {
                 Toast.makeText(getContext(), "Please select customer and user first.", Toast.LENGTH_SHORT).show();
             }
         });
+        binding.btnAddManual.setOnLongClickListener(v -> {
+            if (selectedCustomer == null || currentUser == null) return false;
+            if (cameraScanDelegate != null) cameraScanDelegate.stop();
+            if (scanningDelegate != null) scanningDelegate.startBarcodeScanner();
+            return true;
+        });
         binding.btnConfirmOrder.setOnClickListener(v -> {
             if (managementDelegate != null) managementDelegate.confirmOrder();
         });
@@ -207,6 +224,7 @@ public class ScanOrderFragment extends Fragment {
 
     private void setupObservers() {
         if (scanningDelegate != null) scanningDelegate.setupScanObservers();
+        if (cameraScanDelegate != null) cameraScanDelegate.setupLatencyObserver();
         // ManagementDelegate setupOrderObservers might update total display, not adapter directly
         if (managementDelegate != null) managementDelegate.setupOrderObservers();
 
@@ -228,7 +246,8 @@ public class ScanOrderFragment extends Fragment {
             updateUserDisplay(user);
             updateBarcodeInputState();
             if (user != null && customerOrderStateViewModel != null) {
-                customerOrderStateViewModel.setCurrentUserId(user.getUserId());
+                long laneCustomerId = customerOrderStateViewModel.setCurrentUserId(user.getUserId());
+                syncCustomerWithLane(laneCustomerId);
             }
         });
 
@@ -251,6 +270,27 @@ public class ScanOrderFragment extends Fragment {
         // });
     }
 
+    /**
+     * After a lane switch, show the customer of that lane's order instead of the previous lane's.
+     */
+    private void syncCustomerWithLane(long laneCustomerId) {
+        long shownCustomerId = selectedCustomer != null ? selectedCustomer.getCustomerId() : 0;
+        if (laneCustomerId == shownCustomerId) return;
+        if (laneCustomerId <= 0) {
+            // The lane has no customer yet; the cashier picks one
+            customerViewModel.setSelectedCustomer(null);
+            return;
+        }
+        LiveData<CustomerEntity> laneCustomer = customerViewModel.getCustomerById(laneCustomerId);
+        laneCustomer.observe(getViewLifecycleOwner(), new Observer<CustomerEntity>() {
+            @Override
+            public void onChanged(CustomerEntity customer) {
+                laneCustomer.removeObserver(this);
+                if (customer != null) customerViewModel.setSelectedCustomer(customer);
+            }
+        });
+    }
+
     private void updateCustomerDisplay(CustomerEntity customer) {
         binding.textViewCustomerName.setText(customer != null ? customer.getName() : "No customer selected");
     }
@@ -263,6 +303,8 @@ public class ScanOrderFragment extends Fragment {
         boolean enabled = (selectedCustomer != null && currentUser != null);
         binding.editTextBarcode.setEnabled(enabled);
         binding.btnAddManual.setEnabled(enabled); // Camera button
+        if (!enabled && cameraScanDelegate != null) cameraScanDelegate.stop();
+        if (wedgeScannerInput != null) wedgeScannerInput.setEnabled(enabled);
         binding.editTextBarcode.setHint(enabled ? "Scan or type barcode" : "Select customer & user");
     }
 
@@ -271,12 +313,25 @@ public class ScanOrderFragment extends Fragment {
         super.onResume();
         Log.d(TAG, "ScanOrderFragment resumed");
         if (scanningDelegate != null) scanningDelegate.refocusBarcodeInput();
+        if (cameraScanDelegate != null) cameraScanDelegate.onResume();
+        // Hardware scanners are read from key events while this screen is in front
+        if (getActivity() instanceof MainActivity)
+            ((MainActivity) getActivity()).setScannerKeyHandler(wedgeScannerInput);
+    }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        // Releases the camera while another screen or app is in front
+        if (cameraScanDelegate != null) cameraScanDelegate.onPause();
+        if (getActivity() instanceof MainActivity)
+            ((MainActivity) getActivity()).setScannerKeyHandler(null);
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (cameraScanDelegate != null) cameraScanDelegate.stop();
         // Delegates should handle their own cleanup if needed in their onDestroy methods
         binding = null; // Important for fragments with ViewBinding
     }
@@ -284,9 +339,7 @@ public class ScanOrderFragment extends Fragment {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (scanningDelegate != null) scanningDelegate.onDestroy();
         if (printingDelegate != null) printingDelegate.onDestroy();
-        if (managementDelegate != null) managementDelegate.onDestroy();
         Log.d(TAG, "ScanOrderFragment destroyed");
     }
 
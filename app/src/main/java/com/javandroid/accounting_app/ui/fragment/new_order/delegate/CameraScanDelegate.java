@@ -0,0 +1,139 @@
+package com.javandroid.accounting_app.ui.fragment.new_order.delegate;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.android.BeepManager;
+import com.journeyapps.barcodescanner.BarcodeCallback;
+import com.journeyapps.barcodescanner.BarcodeResult;
+import com.journeyapps.barcodescanner.DecoratedBarcodeView;
+import com.journeyapps.barcodescanner.DefaultDecoderFactory;
+import com.javandroid.accounting_app.ui.viewmodel.new_order.ProductScanViewModel;
+import com.javandroid.accounting_app.util.ScanDeduplicator;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Continuous camera scanning inside ScanOrderFragment. The camera stays open
+ * while the panel is shown and every new read goes straight to
+ * ProductScanViewModel, instead of starting a capture activity per barcode.
+ * Only the formats of the stocked barcodes are decoded, and a code that stays
+ * in view is added once.
+ */
+public class CameraScanDelegate {
+    private static final String TAG = "CameraScanDelegate";
+    private static final long DUPLICATE_WINDOW_MS = 1_500;
+
+    private final Fragment fragment;
+    private final DecoratedBarcodeView barcodeView;
+    private final TextView latencyView;
+    private final ProductScanViewModel productScanViewModel;
+    private final ScanDeduplicator deduplicator = new ScanDeduplicator(DUPLICATE_WINDOW_MS);
+    private final BeepManager beepManager;
+    private final ActivityResultLauncher<String> cameraPermissionLauncher;
+
+    private boolean scanning;
+
+    private final BarcodeCallback callback = new BarcodeCallback() {
+        @Override
+        public void barcodeResult(BarcodeResult result) {
+            long readAt = System.nanoTime();
+            String code = result.getText();
+            if (code == null || code.trim().isEmpty()) return;
+            code = code.trim();
+            if (!deduplicator.accept(code, SystemClock.elapsedRealtime())) return;
+            Log.d(TAG, "Read " + result.getBarcodeFormat() + " " + code);
+            beepManager.playBeepSoundAndVibrate();
+            productScanViewModel.addProductByBarcode(code, 1.0, readAt);
+        }
+
+        @Override
+        public void possibleResultPoints(List<ResultPoint> resultPoints) {
+        }
+    };
+
+    public CameraScanDelegate(Fragment fragment, DecoratedBarcodeView barcodeView, TextView latencyView,
+                              ProductScanViewModel productScanViewModel) {
+        this.fragment = fragment;
+        this.barcodeView = barcodeView;
+        this.latencyView = latencyView;
+        this.productScanViewModel = productScanViewModel;
+        beepManager = new BeepManager(fragment.requireActivity());
+        barcodeView.setStatusText("");
+        cameraPermissionLauncher = fragment.registerForActivityResult(
+                new ActivityResultContracts.RequestPermission(), granted -> {
+                    if (granted) {
+                        startCamera();
+                    } else if (fragment.isAdded()) {
+                        Toast.makeText(fragment.requireContext(),
+                                "Camera permission is required for scanning", Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    public boolean isScanning() {
+        return scanning;
+    }
+
+    public void toggle() {
+        if (scanning) {
+            stop();
+        } else if (ContextCompat.checkSelfPermission(fragment.requireContext(), Manifest.permission.CAMERA)
+                == PackageManager.PERMISSION_GRANTED) {
+            startCamera();
+        } else {
+            cameraPermissionLauncher.launch(Manifest.permission.CAMERA);
+        }
+    }
+
+    private void startCamera() {
+        if (scanning || !fragment.isAdded()) return;
+        scanning = true;
+        barcodeView.setVisibility(View.VISIBLE);
+        latencyView.setVisibility(View.VISIBLE);
+        productScanViewModel.loadStockedBarcodeFormats(formats -> {
+            if (!scanning) return;
+            Log.d(TAG, "Decoding " + formats);
+            barcodeView.getBarcodeView().setDecoderFactory(new DefaultDecoderFactory(formats));
+        });
+        barcodeView.decodeContinuous(callback);
+        barcodeView.resume();
+    }
+
+    public void stop() {
+        if (!scanning) return;
+        scanning = false;
+        barcodeView.pause();
+        barcodeView.setVisibility(View.GONE);
+        latencyView.setVisibility(View.GONE);
+        deduplicator.reset();
+    }
+
+    public void setupLatencyObserver() {
+        productScanViewModel.getScanLatency().observe(fragment.getViewLifecycleOwner(), latency -> {
+            if (latency == null) return;
+            latencyView.setText(String.format(Locale.US, "Scan to cart: %d ms (avg %d ms, %d scans)",
+                    latency.getLastMs(), latency.getAverageMs(), latency.getScans()));
+        });
+    }
+
+    public void onResume() {
+        if (scanning) barcodeView.resume();
+    }
+
+    public void onPause() {
+        if (scanning) barcodeView.pause();
+    }
+}
@@ -12,20 +12,19 @@ import com.javandroid.accounting_app.MainActivity;
 import com.javandroid.accounting_app.data.model.CustomerEntity;
 import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
-import com.javandroid.accounting_app.data.model.ProductEntity;
 import com.javandroid.accounting_app.data.model.UserEntity;
 // The delegate no longer needs a direct adapter reference if listener handles all ops
 // import com.javandroid.accounting_app.ui.adapter.order_editor.OrderEditorAdapter; // Or ScanOrderAdapter
 import com.javandroid.accounting_app.ui.viewmodel.new_order.CurrentOrderViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerOrderStateViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.product.ProductViewModel;
+import com.javandroid.accounting_app.util.AppExecutors;
 import com.google.android.material.button.MaterialButton;
 
 
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 // Implement the common interface
 public class OrderManagementDelegate implements OrderItemInteractionListener {
@@ -35,7 +34,7 @@ public class OrderManagementDelegate implements OrderItemInteractionListener {
     private final CurrentOrderViewModel currentOrderViewModel;
     private final CustomerOrderStateViewModel customerOrderStateViewModel;
     private final ProductViewModel productViewModel;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().diskWrite();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private CustomerEntity selectedCustomer;
@@ -194,57 +193,37 @@ public class OrderManagementDelegate implements OrderItemInteractionListener {
         }
 
         executor.execute(() -> {
-            ProductEntity product = productViewModel.getProductByIdSync(item.getProductId());
-            if (product == null) {
-                Log.e(TAG, "Product not found for stock adjustment: ID " + item.getProductId());
-                mainHandler.post(() -> {
-                    Toast.makeText(fragment.requireContext(), "Product details not found for inventory check.", Toast.LENGTH_SHORT).show();
-                    // Still update quantity in order if product not found for stock, as it might be a non-stocked item
-                    currentOrderViewModel.updateQuantity(item, newQuantity);
-                });
-                return;
-            }
-
+            long productId = item.getProductId();
             boolean stockSufficientOrNotApplicable = true;
             if (quantityDifference > 0) { // Increasing quantity in order, need to decrease stock
-                if (product.getStock() < quantityDifference) {
-                    stockSufficientOrNotApplicable = false;
+                // Checks and takes the stock atomically (buffered, see StockBuffer)
+                stockSufficientOrNotApplicable = productViewModel.tryDecrementStockSync(productId, quantityDifference);
+                if (!stockSufficientOrNotApplicable) {
                     mainHandler.post(() -> Toast.makeText(fragment.requireContext(),
-                            "Not enough stock for " + product.getName() + ". Available: " + product.getStock(),
+                            "Not enough stock for " + item.getProductName(),
                             Toast.LENGTH_LONG).show());
                 }
+            } else if (quantityDifference < 0) { // Decreasing quantity, return the difference to stock
+                productViewModel.adjustProductStockSync(productId, -quantityDifference);
             }
 
             if (stockSufficientOrNotApplicable) {
-                // Adjust stock: subtract difference if positive, add if negative
-                double originalStock = product.getStock();
-                product.setStock(originalStock - quantityDifference);
-                productViewModel.update(product); // Update product stock in DB
-
-                Log.d(TAG, "Stock updated for " + product.getName() + ": from " + originalStock + " to " + product.getStock());
+                Log.d(TAG, "Stock adjusted for " + item.getProductName() + " by " + (-quantityDifference));
                 mainHandler.post(() -> currentOrderViewModel.updateQuantity(item, newQuantity));
             } else {
                 // If stock was insufficient, the toast is already shown.
                 // The UI (adapter) should ideally reflect this by not changing or reverting the quantity.
-                // This requires the fragment to observe an event or for the adapter to handle it.
-                // For now, the updateQuantity call won't happen.
-                Log.w(TAG, "Stock insufficient, quantity change for item " + item.getProductName() + " not fully applied to order.");
-                // To revert the visual change in adapter if it was optimistic:
-                // mainHandler.post(() -> adapter.notifyItemChanged(position_of_item));
-                // This is tricky without direct adapter access here. LiveData should refresh it.
+                // LiveData should refresh it.
+                Log.w(TAG, "Stock insufficient, quantity change for item " + item.getProductName() + " not applied to order.");
             }
         });
     }
 
     @Override
     public void onPriceChanged(OrderItemEntity item, double newPrice) {
-        // ScanOrder context might not allow price changes, or it might.
-        // If it does, update CurrentOrderViewModel.
-        // currentOrderViewModel.updatePrice(item, newPrice); // Hypothetical method
-        Log.d(TAG, "Price change for " + item.getProductName() + " to " + newPrice + " (not implemented in CurrentOrderVM)");
-        // For now, just ensure total is recalculated if price is considered part of item
-        item.setSellPrice(newPrice); // Local update to the item passed in
-        currentOrderViewModel.updateOrderTotal(); // Recalculates based on all items
+        Log.d(TAG, "Price change for " + item.getProductName() + " to " + newPrice);
+        // Replaces the cart line and adjusts the running total
+        currentOrderViewModel.updatePrice(item, newPrice);
     }
 
     @Override
@@ -254,24 +233,8 @@ public class OrderManagementDelegate implements OrderItemInteractionListener {
 
         // Return quantity to stock
         if (item.getProductId() != null && item.getProductId() > 0 && item.getQuantity() > 0) {
-            executor.execute(() -> {
-                ProductEntity product = productViewModel.getProductByIdSync(item.getProductId());
-                if (product != null) {
-                    double originalStock = product.getStock();
-                    product.setStock(originalStock + item.getQuantity());
-                    productViewModel.update(product);
-                    Log.d(TAG, "Stock restored for " + product.getName() + " by " + item.getQuantity() +
-                            ": from " + originalStock + " to " + product.getStock());
-                } else {
-                    Log.e(TAG, "Product not found for stock restoration on delete: ID " + item.getProductId());
-                }
-            });
-        }
-    }
-
-    public void onDestroy() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
+            productViewModel.adjustProductStock(item.getProductId(), item.getQuantity());
+            Log.d(TAG, "Stock restored for " + item.getProductName() + " by " + item.getQuantity());
         }
     }
 }
\ No newline at end of file
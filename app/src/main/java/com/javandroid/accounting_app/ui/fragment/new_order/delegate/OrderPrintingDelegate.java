@@ -5,6 +5,7 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -13,21 +14,17 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
-import com.dantsu.escposprinter.EscPosPrinter;
-import com.dantsu.escposprinter.connection.bluetooth.BluetoothConnection;
-import com.dantsu.escposprinter.connection.bluetooth.BluetoothPrintersConnections;
 import com.javandroid.accounting_app.data.model.CustomerEntity;
 import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
 import com.javandroid.accounting_app.data.model.UserEntity;
+import com.javandroid.accounting_app.print.PrinterService;
+import com.javandroid.accounting_app.print.ReceiptRenderer;
 import com.javandroid.accounting_app.ui.viewmodel.new_order.CurrentOrderViewModel;
+import com.javandroid.accounting_app.util.AppExecutors;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
  * Delegate class to handle order printing operations
@@ -38,8 +35,27 @@ public class OrderPrintingDelegate {
 
     private final Fragment fragment;
     private final CurrentOrderViewModel currentOrderViewModel;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().io(); // Receipt rendering
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PrinterService printerService;
+    private final PrinterService.Listener printerListener = new PrinterService.Listener() {
+        @Override
+        public void onJobPrinted(long jobId, long orderId) {
+            toast("Receipt printed successfully", Toast.LENGTH_SHORT);
+        }
+
+        @Override
+        public void onJobFailed(long jobId, long orderId, String error) {
+            toast("Error printing receipt: " + error, Toast.LENGTH_LONG);
+        }
+
+        @Override
+        public void onStateChanged(PrinterService.State state, int pendingJobs) {
+            if (state == PrinterService.State.WAITING_TO_RETRY) {
+                toast("Printer not available. " + pendingJobs + " receipt(s) queued, retrying...", Toast.LENGTH_SHORT);
+            }
+        }
+    };
 
     private ActivityResultLauncher<String[]> requestBluetoothPermissionLauncher;
     private CustomerEntity selectedCustomer;
@@ -57,9 +73,17 @@ public class OrderPrintingDelegate {
     public OrderPrintingDelegate(Fragment fragment, CurrentOrderViewModel currentOrderViewModel) {
         this.fragment = fragment;
         this.currentOrderViewModel = currentOrderViewModel;
+        this.printerService = PrinterService.getInstance(fragment.requireContext());
+        printerService.addListener(printerListener);
         setupPermissionLauncher();
     }
 
+    private void toast(String message, int duration) {
+        if (fragment.isAdded()) {
+            Toast.makeText(fragment.requireContext(), message, duration).show();
+        }
+    }
+
     /**
      * Set up the permission launcher for Bluetooth permissions
      */
@@ -199,78 +223,18 @@ public class OrderPrintingDelegate {
             return;
         }
 
+        String customerName = selectedCustomer.getName();
         executor.execute(() -> {
             try {
-                BluetoothConnection printerConnection = BluetoothPrintersConnections.selectFirstPaired();
-                if (printerConnection == null) {
-                    mainHandler.post(() -> Toast.makeText(fragment.requireContext(),
-                            "No printer found. Please connect a printer first.",
-                            Toast.LENGTH_LONG).show());
-                    return;
-                }
-
-                // Create receipt with optimal width and minimal feeds
-                EscPosPrinter printer = new EscPosPrinter(printerConnection, 203, 48f, 32);
-
-                // Format the date compactly
-                String dateTime = new SimpleDateFormat("MM/dd HH:mm", Locale.getDefault()).format(new Date());
-
-                // Build receipt with improved structure
-                StringBuilder receiptText = new StringBuilder();
-
-                // Header section
-                receiptText.append("[C]<b>RECEIPT</b>\n");
-                receiptText.append("[R]").append(dateTime).append("\n");
-                receiptText.append("[L]Cust: ").append(selectedCustomer.getName()).append("\n");
-
-                // Always show the order ID - will be 0 if it's a draft
-                receiptText.append("[L]Order :").append(currentOrder.getOrderId()).append("\n");
-
-                receiptText.append("[C]--------------------\n");
-
-                // Column headers
-                receiptText.append("[L]ITEM[R]QTY PRICE TOTAL\n");
-                receiptText.append("[C]----------------\n");
-
-                // Items section - each on a single line
-                for (OrderItemEntity item : items) {
-                    double total = item.getSellPrice() * item.getQuantity();
-
-                    // Truncate name if necessary for alignment
-                    String productName = item.getProductName();
-                    if (productName.length() > 12) {
-                        productName = productName.substring(0, 10) + "..";
-                    }
-
-                    // Format item line with aligned values - check if quantity is whole number
-                    String quantityFormat = (item.getQuantity() == Math.floor(item.getQuantity()))
-                            ? "%.0f $%.2f $%.2f\n"
-                            : "%.1f $%.2f $%.2f\n";
-
-                    receiptText.append("[L]").append(productName)
-                            .append("[R]").append(String.format(quantityFormat,
-                                    item.getQuantity(),
-                                    item.getSellPrice(),
-                                    total));
-                }
-
-                // Total section
-                receiptText.append("[C]--------------------\n");
-                receiptText.append("[R]<b>TOTAL: $").append(String.format("%.2f</b>\n", currentOrder.getTotal()));
-                receiptText.append("[C]Thanks!");
-
-                // Print all text at once
-                printer.printFormattedText(receiptText.toString());
-
-                mainHandler.post(() -> Toast.makeText(fragment.requireContext(),
-                        "Receipt printed successfully",
-                        Toast.LENGTH_SHORT).show());
-
+                // Saved orders print their own date, a draft the time of printing
+                long printedAt = currentOrder.getOrderId() > 0 ? currentOrder.getCreatedAt() : System.currentTimeMillis();
+                // Not cached: the cart may hold unsaved edits of a saved order
+                byte[] receipt = ReceiptRenderer.getInstance().render(currentOrder, items, customerName, printedAt);
+                // The printer service keeps the connection open and prints queued receipts in order
+                printerService.enqueue(currentOrder.getOrderId(), receipt);
             } catch (Exception e) {
-                e.printStackTrace();
-                mainHandler.post(() -> Toast.makeText(fragment.requireContext(),
-                        "Error printing receipt: " + e.getMessage(),
-                        Toast.LENGTH_LONG).show());
+                Log.e(TAG, "Error rendering receipt", e);
+                mainHandler.post(() -> toast("Error printing receipt: " + e.getMessage(), Toast.LENGTH_LONG));
             }
         });
     }
@@ -279,8 +243,6 @@ public class OrderPrintingDelegate {
      * Clean up resources when the delegate is no longer needed
      */
     public void onDestroy() {
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
+        printerService.removeListener(printerListener);
     }
 }
\ No newline at end of file
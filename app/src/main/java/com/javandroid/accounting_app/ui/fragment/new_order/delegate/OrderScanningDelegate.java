@@ -21,8 +21,6 @@ import com.javandroid.accounting_app.R;
 import com.javandroid.accounting_app.databinding.FragmentScanOrderBinding;
 import com.javandroid.accounting_app.ui.viewmodel.new_order.ProductScanViewModel;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Delegate class to handle barcode scanning and product operations
@@ -35,7 +33,6 @@ public class OrderScanningDelegate {
     private final FragmentScanOrderBinding binding;
     private final ProductScanViewModel productScanViewModel;
     private final TextInputEditText barcodeInput;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private ActivityResultLauncher<Intent> barcodeLauncher;
@@ -220,13 +217,4 @@ public class OrderScanningDelegate {
             binding.editTextBarcode.setSelection(binding.editTextBarcode.getText().length());
         }, 150);
     }
-
-    /**
-     * Clean up resources when the delegate is no longer needed
-     */
-    public void onDestroy() {
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.javandroid.accounting_app.ui.fragment.new_order.delegate;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.view.InputDevice;
+import android.view.KeyCharacterMap;
+import android.view.KeyEvent;
+
+import com.javandroid.accounting_app.MainActivity;
+import com.javandroid.accounting_app.ui.viewmodel.new_order.CurrentOrderViewModel;
+import com.javandroid.accounting_app.ui.viewmodel.new_order.ProductScanViewModel;
+import com.javandroid.accounting_app.util.WedgeScanAssembler;
+
+/**
+ * Reads USB and Bluetooth keyboard-wedge scanners from the activity's key events
+ * instead of through the barcode EditText, so scans do not depend on focus, text
+ * watchers or a refocus delay. Keys of physical devices are assembled into
+ * codes by their timing and handed to the scan queue of {@link ProductScanViewModel}.
+ * Only devices that have typed a scanner-speed burst are taken over; until then,
+ * and for hardware keyboards, keys go to the focused view and are only watched.
+ * The soft keyboard does not send key events and still types into the EditText.
+ */
+public class WedgeScannerInput implements MainActivity.ScannerKeyHandler {
+    private static final String TAG = "WedgeScannerInput";
+
+    private final ProductScanViewModel productScanViewModel;
+    private final CurrentOrderViewModel currentOrderViewModel;
+    private final WedgeScanAssembler assembler = new WedgeScanAssembler();
+    // Watches the keys of a device not known to be a scanner yet
+    private final WedgeScanAssembler probe = new WedgeScanAssembler();
+    private int probedDeviceId = -1;
+    // Input device ids that typed a scanner-speed burst, kept across scan screens; main thread only
+    private static final SparseBooleanArray scannerDevices = new SparseBooleanArray();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flush = this::flushIfIdle;
+    // Keys whose ACTION_DOWN was taken, so their ACTION_UP is taken too
+    private final SparseBooleanArray claimedKeys = new SparseBooleanArray();
+    private boolean enabled;
+
+    public WedgeScannerInput(ProductScanViewModel productScanViewModel,
+                             CurrentOrderViewModel currentOrderViewModel) {
+        this.productScanViewModel = productScanViewModel;
+        this.currentOrderViewModel = currentOrderViewModel;
+    }
+
+    /**
+     * Scans are only taken while a customer and a user are selected
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) return;
+        this.enabled = enabled;
+        if (!enabled) {
+            mainHandler.removeCallbacks(flush);
+            assembler.reset();
+            probe.reset();
+            claimedKeys.clear();
+        }
+    }
+
+    @Override
+    public boolean onKeyEvent(KeyEvent event) {
+        int keyCode = event.getKeyCode();
+        if (event.getAction() == KeyEvent.ACTION_UP) {
+            boolean claimed = claimedKeys.get(keyCode);
+            claimedKeys.delete(keyCode);
+            return claimed;
+        }
+        if (!enabled || event.getAction() != KeyEvent.ACTION_DOWN) return false;
+        // A held key repeats; scanners never do
+        if (event.getRepeatCount() > 0) return claimedKeys.get(keyCode);
+        InputDevice device = event.getDevice();
+        if (device == null || device.isVirtual()) return false;
+        if (!scannerDevices.get(device.getId())) {
+            watch(event, device);
+            return false;
+        }
+
+        long eventTime = event.getEventTime();
+        String code;
+        if (isTerminator(keyCode)) {
+            code = assembler.onTerminator(eventTime);
+            // A lone Enter or Tab is left to the focused view
+            if (code == null) return false;
+            mainHandler.removeCallbacks(flush);
+        } else {
+            int unicode = typedCharacter(event);
+            if (unicode == 0) return false;
+            code = assembler.onCharacter((char) unicode, eventTime);
+            // Event times are on the uptime clock, as postAtTime expects
+            mainHandler.removeCallbacks(flush);
+            mainHandler.postAtTime(flush, eventTime + WedgeScanAssembler.END_OF_SCAN_GAP_MS);
+        }
+        claimedKeys.put(keyCode, true);
+        if (code != null) submit(code);
+        return true;
+    }
+
+    // Learns whether an unclaimed device is a scanner from the timing of what it types
+    private void watch(KeyEvent event, InputDevice device) {
+        if (device.getId() != probedDeviceId) {
+            probe.reset();
+            probedDeviceId = device.getId();
+        }
+        String code;
+        if (isTerminator(event.getKeyCode())) {
+            code = probe.onTerminator(event.getEventTime());
+        } else {
+            int unicode = typedCharacter(event);
+            if (unicode == 0) return;
+            code = probe.onCharacter((char) unicode, event.getEventTime());
+        }
+        if (code != null && probe.lastWasBurst()) {
+            // This code went to the focused view; the device's next scans are read here
+            Log.d(TAG, "Input device " + device.getName() + " types like a scanner");
+            scannerDevices.put(device.getId(), true);
+            probe.reset();
+        }
+    }
+
+    private static boolean isTerminator(int keyCode) {
+        return keyCode == KeyEvent.KEYCODE_ENTER || keyCode == KeyEvent.KEYCODE_NUMPAD_ENTER
+                || keyCode == KeyEvent.KEYCODE_TAB;
+    }
+
+    // The character the key types, or 0 for none
+    private static int typedCharacter(KeyEvent event) {
+        int unicode = event.getUnicodeChar(event.getMetaState());
+        // Shift and other modifiers are not characters; their state is read from the meta state
+        if ((unicode & KeyCharacterMap.COMBINING_ACCENT) != 0 || Character.isISOControl(unicode)) {
+            return 0;
+        }
+        return unicode;
+    }
+
+    private void flushIfIdle() {
+        String code = assembler.flushIfIdle(SystemClock.uptimeMillis());
+        if (code != null) submit(code);
+    }
+
+    private void submit(String barcode) {
+        Log.d(TAG, "Scanned " + barcode);
+        currentOrderViewModel.initializeNewOrderId();
+        productScanViewModel.addProductByBarcode(barcode, 1.0, System.nanoTime());
+    }
+}
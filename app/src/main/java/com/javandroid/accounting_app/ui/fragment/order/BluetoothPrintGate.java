@@ -0,0 +1,47 @@
+package com.javandroid.accounting_app.ui.fragment.order;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+
+/**
+ * Runs a print action once the app may connect to the Bluetooth printer,
+ * asking for the permission first on Android 12+. Create it in onCreate.
+ */
+class BluetoothPrintGate {
+    private final Fragment fragment;
+    private final ActivityResultLauncher<String> permissionLauncher;
+    private Runnable pendingPrint;
+
+    BluetoothPrintGate(Fragment fragment) {
+        this.fragment = fragment;
+        permissionLauncher = fragment.registerForActivityResult(
+                new ActivityResultContracts.RequestPermission(), granted -> {
+                    Runnable print = pendingPrint;
+                    pendingPrint = null;
+                    if (granted && print != null) {
+                        print.run();
+                    } else if (!granted && fragment.isAdded()) {
+                        Toast.makeText(fragment.requireContext(),
+                                "Bluetooth permissions are required for printing", Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    void run(Runnable print) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                && ContextCompat.checkSelfPermission(fragment.requireContext(),
+                Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
+            pendingPrint = print;
+            permissionLauncher.launch(Manifest.permission.BLUETOOTH_CONNECT);
+        } else {
+            print.run();
+        }
+    }
+}
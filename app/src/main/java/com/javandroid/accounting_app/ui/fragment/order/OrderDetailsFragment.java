@@ -53,7 +53,9 @@ public class OrderDetailsFragment extends Fragment implements OrderItemInteracti
     private TextView tvOrderTotalValue;
     private Button btnToggleEditSave;
     private Button btnCancelOrDelete;
+    private Button btnPrintReceipt;
     private TextView tvPaymentStatus;
+    private BluetoothPrintGate printGate;
 
     private long orderIdArgs;
     private boolean isInEditMode = false;
@@ -71,6 +73,7 @@ public class OrderDetailsFragment extends Fragment implements OrderItemInteracti
         orderEditingManager = new OrderEditingManager();
 
         mainThreadHandler = new Handler(Looper.getMainLooper());
+        printGate = new BluetoothPrintGate(this);
     }
 
     @Nullable
@@ -100,6 +103,7 @@ public class OrderDetailsFragment extends Fragment implements OrderItemInteracti
         btnToggleEditSave = view.findViewById(R.id.btn_save); // XML ID for "Edit Order" / "Save Changes"
         btnCancelOrDelete = view.findViewById(R.id.btn_cancel); // XML ID for "Delete Order" / "Cancel Edit"
         tvPaymentStatus = view.findViewById(R.id.tv_payment_status);
+        btnPrintReceipt = view.findViewById(R.id.btn_print_receipt);
     }
 
 
@@ -133,6 +137,17 @@ public class OrderDetailsFragment extends Fragment implements OrderItemInteracti
                 confirmDeleteOrder();
             }
         });
+
+        // Prints the saved order; unsaved edits are not on the receipt, so printing waits for them
+        btnPrintReceipt.setOnClickListener(v -> printGate.run(this::reprintOrder));
+    }
+
+    private void reprintOrder() {
+        savedOrdersViewModel.reprintOrder(orderIdArgs, queued -> {
+            if (!isAdded()) return;
+            Toast.makeText(requireContext(), queued > 0 ? "Receipt sent to the printer." : "Order not found.",
+                    Toast.LENGTH_SHORT).show();
+        });
     }
 
     private void loadOrderDataAndObserve() {
@@ -228,6 +243,7 @@ public class OrderDetailsFragment extends Fragment implements OrderItemInteracti
     private void updateUIForMode() {
         if (btnToggleEditSave == null || btnCancelOrDelete == null)
             return; // Views might be destroyed
+        btnPrintReceipt.setEnabled(!isInEditMode);
 
         if (isInEditMode) {
             btnToggleEditSave.setText("Save Changes");
@@ -344,6 +360,7 @@ public class OrderDetailsFragment extends Fragment implements OrderItemInteracti
         tvOrderTotalValue = null;
         btnToggleEditSave = null;
         btnCancelOrDelete = null;
+        btnPrintReceipt = null;
         adapter = null; // Release adapter reference
         Log.d(TAG, "OrderDetailsFragment view destroyed for order ID: " + orderIdArgs);
     }
@@ -20,6 +20,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 // androidx.core.app.ActivityCompat; // Not directly used, Fragment's requestPermissions is used
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
@@ -30,11 +31,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.chip.ChipGroup;
 import com.javandroid.accounting_app.R;
+import com.javandroid.accounting_app.data.model.CustomerEntity;
 import com.javandroid.accounting_app.data.model.OrderEntity;
 // OrderItemEntity and OrderEditorAdapter are not directly used by this fragment anymore
 // import com.javandroid.accounting_app.data.model.OrderItemEntity;
 // import com.javandroid.accounting_app.ui.adapter.order_editor.OrderEditorAdapter;
 import com.javandroid.accounting_app.ui.adapter.order.SavedOrdersAdapter;
+import com.javandroid.accounting_app.ui.viewmodel.customer.CustomerViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.order.SavedOrdersViewModel;
 import com.javandroid.accounting_app.ui.viewmodel.order.OrderEditViewModel; // For observing potential delete events
 
@@ -56,18 +59,22 @@ public class OrderEditorFragment extends Fragment {
     private static final int PERMISSION_REQUEST_WRITE_EXTERNAL_STORAGE = 1001;
 
     private SavedOrdersViewModel savedOrdersViewModel;
+    private CustomerViewModel customerViewModel; // The customer selected in the drawer
+    private BluetoothPrintGate printGate;
     //    private OrderEditViewModel orderEditViewModel; // To observe events like order deletion
     private SavedOrdersAdapter savedOrdersAdapter;
     private RecyclerView recyclerViewOrders;
     private TextView emptyStateTextView;
     private EditText etSearchOrders;
     private Button btnExportCsv;
+    private Button btnPrintOrders;
     //    private Button btnRefreshList;
     private ChipGroup chipGroupSort;
+    private ChipGroup chipGroupRange;
 
     private ChipGroup chipGroupSearchField;
 
-    private SavedOrdersAdapter.SearchField currentSearchField = SavedOrdersAdapter.SearchField.ALL;
+    private SavedOrdersViewModel.SearchField currentSearchField = SavedOrdersViewModel.SearchField.ALL;
 
     private Handler mainThreadHandler;
 
@@ -75,6 +82,8 @@ public class OrderEditorFragment extends Fragment {
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         savedOrdersViewModel = new ViewModelProvider(requireActivity()).get(SavedOrdersViewModel.class);
+        customerViewModel = new ViewModelProvider(requireActivity()).get(CustomerViewModel.class);
+        printGate = new BluetoothPrintGate(this);
 //        orderEditViewModel = new ViewModelProvider(requireActivity()).get(OrderEditViewModel.class); // For observing events
         mainThreadHandler = new Handler(Looper.getMainLooper());
     }
@@ -101,7 +110,9 @@ public class OrderEditorFragment extends Fragment {
         emptyStateTextView = view.findViewById(R.id.empty_state_text);
         etSearchOrders = view.findViewById(R.id.et_search);
         btnExportCsv = view.findViewById(R.id.btn_export_csv);
+        btnPrintOrders = view.findViewById(R.id.btn_print_orders);
         chipGroupSort = view.findViewById(R.id.chip_group_sort);
+        chipGroupRange = view.findViewById(R.id.chip_group_range);
         chipGroupSearchField = view.findViewById(R.id.chip_group_search_field);
 //        btnRefreshList = view.findViewById(R.id.btn_save_changes); // Layout ID is btn_save_changes
 //        btnRefreshList.setText("Refresh List"); // Update button text
@@ -120,6 +131,18 @@ public class OrderEditorFragment extends Fragment {
             }
         });
         recyclerViewOrders.setAdapter(savedOrdersAdapter);
+
+        // Orders are loaded a page at a time; ask for the next one before the end comes into view
+        recyclerViewOrders.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null || dy <= 0) return;
+                int first = layoutManager.findFirstVisibleItemPosition();
+                int last = layoutManager.findLastVisibleItemPosition();
+                savedOrdersViewModel.onOrdersScrolled(last, last - first + 1, layoutManager.getItemCount());
+            }
+        });
     }
 
     private void setupListeners() {
@@ -129,6 +152,8 @@ public class OrderEditorFragment extends Fragment {
             }
         });
 
+        btnPrintOrders.setOnClickListener(v -> showPrintOrdersDialog());
+
 //        btnRefreshList.setOnClickListener(v -> refreshOrderList());
 
         // Set listener for the chip group to handle sorting
@@ -151,20 +176,18 @@ public class OrderEditorFragment extends Fragment {
         });
         chipGroupSearchField.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.chip_search_id) {
-                currentSearchField = SavedOrdersAdapter.SearchField.ID;
+                currentSearchField = SavedOrdersViewModel.SearchField.ID;
             } else if (checkedId == R.id.chip_search_date) {
-                currentSearchField = SavedOrdersAdapter.SearchField.DATE;
+                currentSearchField = SavedOrdersViewModel.SearchField.DATE;
             } else if (checkedId == R.id.chip_search_customer) {
-                currentSearchField = SavedOrdersAdapter.SearchField.CUSTOMER;
+                currentSearchField = SavedOrdersViewModel.SearchField.CUSTOMER;
             } else if (checkedId == R.id.chip_search_user) {
-                currentSearchField = SavedOrdersAdapter.SearchField.USER;
+                currentSearchField = SavedOrdersViewModel.SearchField.USER;
             } else {
-                currentSearchField = SavedOrdersAdapter.SearchField.ALL;
+                currentSearchField = SavedOrdersViewModel.SearchField.ALL;
             }
             // Trigger a new filter operation with the current text
-            String query = etSearchOrders.getText().toString();
-            savedOrdersAdapter.filter(query, currentSearchField);
-            updateEmptyState(savedOrdersAdapter.getItemCount() == 0, query);
+            filterOrders(etSearchOrders.getText().toString());
         });
 
         // Set listener for the sort chip group
@@ -178,6 +201,19 @@ public class OrderEditorFragment extends Fragment {
             }
         });
 
+        // Date range is filtered in SQL on the indexed createdAt column
+        chipGroupRange.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.chip_range_today) {
+                savedOrdersViewModel.changeDateRange(SavedOrdersViewModel.DateRange.TODAY);
+            } else if (checkedId == R.id.chip_range_week) {
+                savedOrdersViewModel.changeDateRange(SavedOrdersViewModel.DateRange.THIS_WEEK);
+            } else if (checkedId == R.id.chip_range_month) {
+                savedOrdersViewModel.changeDateRange(SavedOrdersViewModel.DateRange.THIS_MONTH);
+            } else {
+                savedOrdersViewModel.changeDateRange(SavedOrdersViewModel.DateRange.ALL);
+            }
+        });
+
         etSearchOrders.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
@@ -189,10 +225,7 @@ public class OrderEditorFragment extends Fragment {
 
             @Override
             public void afterTextChanged(Editable s) {
-                String query = s.toString();
-                // Pass the currentSearchField to the adapter
-                savedOrdersAdapter.filter(query, currentSearchField);
-                updateEmptyState(savedOrdersAdapter.getItemCount() == 0, query);
+                filterOrders(s.toString());
             }
         });
     }
@@ -203,16 +236,19 @@ public class OrderEditorFragment extends Fragment {
             if (orders != null) {
                 Log.d(TAG, "Observed " + orders.size() + " orders from ViewModel.");
 
-                // The list is already sorted by the ViewModel.
-                // We just need to update the adapter's master list and then apply the current filter.
+                // Sorted, and filtered by the current search, in SQL by the ViewModel
                 String currentQuery = etSearchOrders.getText().toString();
                 savedOrdersAdapter.submitList(orders);
-                savedOrdersAdapter.filter(currentQuery, currentSearchField);
-                updateEmptyState(savedOrdersAdapter.getItemCount() == 0, currentQuery);
+                updateEmptyState(orders.isEmpty(), currentQuery);
             }
         });
     }
 
+    // Runs the search in SQL once typing pauses; results arrive through getSortedOrders()
+    private void filterOrders(String query) {
+        savedOrdersViewModel.setSearch(query, currentSearchField);
+    }
+
     private void updateEmptyState(boolean isEmpty, String query) {
         if (isEmpty) {
             emptyStateTextView.setVisibility(View.VISIBLE);
@@ -226,6 +262,45 @@ public class OrderEditorFragment extends Fragment {
         }
     }
 
+    // Batch printing of the selected date range, optionally only unpaid orders and
+    // only the drawer's customer; the search box does not apply
+    private void showPrintOrdersDialog() {
+        CustomerEntity customer = customerViewModel.getSelectedCustomer().getValue();
+        String[] options = customer != null
+                ? new String[]{"Unpaid orders only", "Only orders of " + customer.getName()}
+                : new String[]{"Unpaid orders only"};
+        boolean[] checked = new boolean[options.length];
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Print receipts: " + rangeLabel(savedOrdersViewModel.getDateRange()))
+                .setMultiChoiceItems(options, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Print", (dialog, which) -> {
+                    boolean unpaidOnly = checked[0];
+                    long customerId = customer != null && checked[1] ? customer.getCustomerId() : 0;
+                    printGate.run(() -> savedOrdersViewModel.printOrdersInRange(customerId, unpaidOnly, queued -> {
+                        if (!isAdded()) return;
+                        Toast.makeText(requireContext(), queued == 0 ? "No orders to print."
+                                : queued + " receipt(s) sent to the printer.", Toast.LENGTH_SHORT).show();
+                    }));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private static String rangeLabel(SavedOrdersViewModel.DateRange range) {
+        switch (range) {
+            case TODAY:
+                return "today";
+            case THIS_WEEK:
+                return "this week";
+            case THIS_MONTH:
+                return "this month";
+            case ALL:
+            default:
+                return "all dates";
+        }
+    }
+
     private boolean checkStoragePermissions() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
             // No explicit permission needed for app-specific directory or MediaStore on Q+
@@ -263,7 +338,13 @@ public class OrderEditorFragment extends Fragment {
     }
 
     private void exportOrdersToCSV() {
-        List<OrderEntity> ordersToExport = savedOrdersAdapter.getCurrentList(); // Get currently displayed/filtered list
+        // The list only holds the pages scrolled so far, so export reads every matching order
+        savedOrdersViewModel.loadOrdersForExport(orders -> {
+            if (isAdded()) writeOrdersCsv(orders);
+        });
+    }
+
+    private void writeOrdersCsv(List<OrderEntity> ordersToExport) {
         if (ordersToExport == null || ordersToExport.isEmpty()) {
             Toast.makeText(getContext(), "No orders to export.", Toast.LENGTH_SHORT).show();
             return;
@@ -2,17 +2,13 @@ package com.javandroid.accounting_app.ui.fragment.product;
 
 import android.Manifest;
 import android.app.AlertDialog;
-import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
-import android.os.Handler;
-import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -34,15 +30,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.javandroid.accounting_app.R;
+import com.javandroid.accounting_app.data.importer.ProductCsvImporter;
 import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.data.repository.ProductRepository;
 import com.javandroid.accounting_app.ui.adapter.product.ProductEditorAdapter;
 import com.javandroid.accounting_app.ui.viewmodel.product.ProductViewModel;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -54,7 +48,6 @@ public class ProductEditorFragment extends Fragment implements ProductEditorAdap
     private EditText etSearch;
     private com.google.android.material.chip.Chip chipSortByStock;
     private List<ProductEntity> masterProductList = new ArrayList<>();
-    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
     private ActivityResultLauncher<Uri> takePictureLauncher;
     private ActivityResultLauncher<String> requestPermissionLauncher;
@@ -75,19 +68,7 @@ public class ProductEditorFragment extends Fragment implements ProductEditorAdap
                     if (result.getResultCode() == getActivity().RESULT_OK && result.getData() != null) {
                         Uri uri = result.getData().getData();
                         if (uri != null) {
-                            new Thread(() -> {
-                                List<ProductEntity> csvProducts = loadProductsFromUri(requireContext(), uri);
-                                getActivity().runOnUiThread(() -> {
-                                    if (csvProducts != null && !csvProducts.isEmpty()) {
-                                        for (ProductEntity p : csvProducts) {
-                                            productViewModel.insertProduct(p);
-                                        }
-                                        Toast.makeText(getContext(), csvProducts.size() + " products processed!", Toast.LENGTH_SHORT).show();
-                                    } else {
-                                        Toast.makeText(getContext(), "No products found or error in CSV.", Toast.LENGTH_SHORT).show();
-                                    }
-                                });
-                            }).start();
+                            importProducts(uri);
                         }
                     }
                 });
@@ -143,7 +124,31 @@ public class ProductEditorFragment extends Fragment implements ProductEditorAdap
             if (products != null) {
                 masterProductList.clear();
                 masterProductList.addAll(products);
-                filterList(etSearch.getText().toString());
+                String query = etSearch.getText().toString();
+                if (query.trim().isEmpty()) {
+                    adapter.submitList(new ArrayList<>(masterProductList));
+                } else {
+                    // Re-runs an active search over the loaded pages, so edits show up in its results
+                    productViewModel.refreshSearch(query);
+                }
+            }
+        });
+
+        productViewModel.getSearchResults().observe(getViewLifecycleOwner(), results -> {
+            if (results != null) {
+                adapter.submitList(results);
+            }
+        });
+
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null || dy <= 0) return;
+                // Search results come a page at a time
+                if (layoutManager.findLastVisibleItemPosition() >= layoutManager.getItemCount() - 10) {
+                    productViewModel.loadMoreSearchResults();
+                }
             }
         });
 
@@ -230,63 +235,57 @@ public class ProductEditorFragment extends Fragment implements ProductEditorAdap
         takePictureLauncher.launch(tempImageUri);
     }
 
+    // Searching runs as a full-text query off the main thread; results arrive through getSearchResults()
     private void filterList(String query) {
-        List<ProductEntity> filteredList = new ArrayList<>();
-        String lowerCaseQuery = query.toLowerCase().trim();
-
-        if (lowerCaseQuery.isEmpty()) {
-            filteredList.addAll(masterProductList);
+        if (query.trim().isEmpty()) {
+            productViewModel.search(null);
+            adapter.submitList(new ArrayList<>(masterProductList));
         } else {
-            for (ProductEntity product : masterProductList) {
-                if (product.getName().toLowerCase().contains(lowerCaseQuery) ||
-                        product.getBarcode().toLowerCase().contains(lowerCaseQuery)) {
-                    filteredList.add(product);
-                }
-            }
+            productViewModel.search(query);
         }
-        adapter.submitList(filteredList);
     }
 
-    private List<ProductEntity> loadProductsFromUri(Context context, Uri uri) {
-        List<ProductEntity> productList = new ArrayList<>();
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream != null ? inputStream : new InputStream() {
-                 @Override
-                 public int read() throws IOException {
-                     return -1;
-                 }
-             }))) {
-
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
-                Log.w(TAG, "CSV file is empty or header is missing.");
-                return productList;
+    private void importProducts(Uri uri) {
+        AlertDialog progressDialog = new AlertDialog.Builder(requireContext())
+                .setTitle("Importing Products")
+                .setMessage("Reading CSV file...")
+                .setCancelable(false)
+                .show();
+
+        productViewModel.importProductsFromCsv(uri, new ProductRepository.ImportCallback() {
+            @Override
+            public void onProgress(long rowsRead) {
+                if (isAdded()) progressDialog.setMessage(rowsRead + " rows processed...");
             }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] tokens = line.split(",");
-                if (tokens.length >= 5) {
-                    try {
-                        String name = tokens[1].trim();
-                        String barcode = tokens[2].trim();
-                        double buyPrice = Double.parseDouble(tokens[3].trim());
-                        double sellPrice = Double.parseDouble(tokens[4].trim());
-                        double stock = Double.parseDouble(tokens[5].trim());
-                        ProductEntity product = new ProductEntity(name, barcode);
-                        product.setBuyPrice(buyPrice);
-                        product.setSellPrice(sellPrice);
-                        product.setStock(stock);
-                        productList.add(product);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Skipping line: " + line, e);
-                    }
+            @Override
+            public void onComplete(ProductCsvImporter.ImportReport report) {
+                progressDialog.dismiss();
+                if (!isAdded()) return;
+                if (report.getErrors().isEmpty()) {
+                    Toast.makeText(getContext(), report.getSummary(), Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                StringBuilder message = new StringBuilder(report.getSummary()).append("\n");
+                for (ProductCsvImporter.RowError error : report.getErrors()) {
+                    message.append('\n').append(error);
                 }
+                if (report.getSkipped() > report.getErrors().size()) {
+                    message.append("\n...");
+                }
+                new AlertDialog.Builder(requireContext())
+                        .setTitle("Import Finished")
+                        .setMessage(message)
+                        .setPositiveButton("OK", null)
+                        .show();
             }
-        } catch (IOException e) {
-            Log.e(TAG, "Error reading CSV file", e);
-            mainThreadHandler.post(() -> Toast.makeText(getContext(), "Error reading CSV file: " + e.getMessage(), Toast.LENGTH_LONG).show());
-        }
-        return productList;
+
+            @Override
+            public void onError(String message) {
+                progressDialog.dismiss();
+                if (!isAdded()) return;
+                Toast.makeText(getContext(), "Error reading CSV file: " + message, Toast.LENGTH_LONG).show();
+            }
+        });
     }
-}
\ No newline at end of file
+}
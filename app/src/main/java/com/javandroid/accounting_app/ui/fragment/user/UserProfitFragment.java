@@ -18,12 +18,22 @@ import com.javandroid.accounting_app.ui.adapter.user.UserProfitAdapter;
 import com.javandroid.accounting_app.ui.viewmodel.user.UserProfitViewModel;
 
 public class UserProfitFragment extends Fragment {
+    // Optional: when set, rows also show each user's profit from this customer
+    public static final String ARG_CUSTOMER_ID = "customerId";
 
     private UserProfitViewModel userProfitViewModel;
     private UserProfitAdapter adapter;
     private RecyclerView recyclerView;
     private TextView tvTotalProfit;
 
+    public static UserProfitFragment newInstance(long customerId) {
+        UserProfitFragment fragment = new UserProfitFragment();
+        Bundle args = new Bundle();
+        args.putLong(ARG_CUSTOMER_ID, customerId);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -59,7 +69,12 @@ public class UserProfitFragment extends Fragment {
             tvTotalProfit.setText(getString(R.string.total_profit_format, totalProfit));
         });
 
-        // Load profit data
-        userProfitViewModel.loadAllUserProfits();
+        // Load profit data (a single GROUP BY query)
+        long customerId = getArguments() != null ? getArguments().getLong(ARG_CUSTOMER_ID, 0) : 0;
+        if (customerId > 0) {
+            userProfitViewModel.loadUserProfitsForCustomer(customerId);
+        } else {
+            userProfitViewModel.loadAllUserProfits();
+        }
     }
 }
\ No newline at end of file
@@ -69,7 +69,7 @@ public class CustomerOrderStateViewModel extends AndroidViewModel {
         }
 
         try {
-            // 1. Save the state for the outgoing customer, if applicable.
+            // 1. Park the cart of the outgoing customer, if applicable.
             handleStateForPreviousCustomer(repo, order, customerId, preserveCurrentItems);
 
             // 2. Set the new customer ID on the order.
@@ -88,12 +88,12 @@ public class CustomerOrderStateViewModel extends AndroidViewModel {
     }
 
     /**
-     * Saves the current order state for the previous customer before switching.
+     * Parks the previous customer's cart before switching.
      */
     private void handleStateForPreviousCustomer(OrderStateRepository repo, OrderEntity order, long newCustomerId, boolean preserveCurrentItems) {
         if (!preserveCurrentItems && order.getCustomerId() > 0 && order.getCustomerId() != newCustomerId) {
-            Log.d(TAG, "Saving state for previous customer: " + order.getCustomerId());
-            saveCurrentOrderStateForCustomer(order.getCustomerId());
+            Log.d(TAG, "Parking cart of previous customer: " + order.getCustomerId());
+            repo.parkCurrentCart(order.getCustomerId());
         }
     }
 
@@ -103,40 +103,21 @@ public class CustomerOrderStateViewModel extends AndroidViewModel {
     private void loadStateForNewCustomer(OrderStateRepository repo, OrderEntity order, long customerId, boolean preserveCurrentItems) {
         if (preserveCurrentItems) {
             Log.d(TAG, "Preserving current items and total for customer: " + customerId);
-            return; // Do nothing, keep current items.
-        }
-
-        if (repo.hasStoredOrderForCustomer(customerId)) {
-            restoreCachedOrder(repo, order, customerId);
-        } else {
-            startNewOrder(repo, order);
+            repo.moveCurrentCartTo(customerId); // Same cart, now recorded under this customer
+            return;
         }
-    }
-
-    /**
-     * Restores a previously cached order and its items for the given customer.
-     */
-    private void restoreCachedOrder(OrderStateRepository repo, OrderEntity order, long customerId) {
-        OrderEntity savedOrder = repo.getStoredOrderForCustomer(customerId);
-        List<OrderItemEntity> savedItems = repo.getStoredOrderItemsForCustomer(customerId);
-
-        Log.d(TAG, "Restoring cached order for customer: " + customerId);
 
-        if (savedOrder != null) {
-            order.setTotal(savedOrder.getTotal());
-            repo.setCurrentOrder(order);
+        if (!repo.unparkCart(customerId)) {
+            startNewOrder(repo, customerId);
         }
-        repo.setCurrentOrderItems(savedItems != null ? savedItems : new ArrayList<>());
     }
 
     /**
      * Resets the order state for a new customer visit.
      */
-    private void startNewOrder(OrderStateRepository repo, OrderEntity order) {
-        Log.d(TAG, "First visit for customer: " + order.getCustomerId() + ", starting with empty order");
-        order.setTotal(0.0);
-        repo.setCurrentOrder(order);
-        repo.setCurrentOrderItems(new ArrayList<>());
+    private void startNewOrder(OrderStateRepository repo, long customerId) {
+        Log.d(TAG, "First visit for customer: " + customerId + ", starting with empty order");
+        repo.startNewCart(customerId);
     }
 
     /**
@@ -188,22 +169,15 @@ public class CustomerOrderStateViewModel extends AndroidViewModel {
     }
 
     /**
-     * Saves the current order state to the repository's cache for a specific customer.
-     */
-    private void saveCurrentOrderStateForCustomer(long customerId) {
-        OrderStateRepository repo = getStateRepository();
-        OrderEntity currentOrderValue = repo.getCurrentOrderValue();
-        List<OrderItemEntity> currentItemsValue = repo.getCurrentOrderItemsValue();
-
-        Log.d(TAG, "Caching order state for customer: " + customerId);
-        repo.storeOrderStateForCustomer(customerId, currentOrderValue, currentItemsValue);
-    }
-
-    /**
-     * Set the current user ID in the repository.
+     * Switch to the user's checkout lane and set the user on its order.
+     *
+     * @return The customer ID of the lane's order, 0 if none is chosen yet
      */
-    public void setCurrentUserId(long userId) {
-        getStateRepository().setCurrentUserId(userId);
+    public long setCurrentUserId(long userId) {
+        OrderStateRepository repo = sessionManager.switchLane(userId);
+        repo.setCurrentUserId(userId);
+        OrderEntity order = repo.getCurrentOrderValue();
+        return order != null ? order.getCustomerId() : 0;
     }
 
     /**
@@ -7,32 +7,68 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import com.javandroid.accounting_app.data.model.CustomerEntity;
 import com.javandroid.accounting_app.data.repository.CustomerRepository;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class CustomerViewModel extends AndroidViewModel {
     private static final String TAG = "CustomerViewModel";
+    public static final int RECENT_LIMIT = 5;
 
     private final CustomerRepository customerRepository;
     private final MutableLiveData<CustomerEntity> selectedCustomer = new MutableLiveData<>();
     private final LiveData<List<CustomerEntity>> allCustomers;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final MutableLiveData<String> drawerQuery = new MutableLiveData<>("");
+    private final LiveData<List<CustomerEntity>> drawerCustomers;
+    private final LiveData<List<CustomerEntity>> recentCustomers;
 
     public CustomerViewModel(@NonNull Application application) {
         super(application);
         customerRepository = new CustomerRepository(application);
         allCustomers = customerRepository.getAllCustomers();
+        drawerCustomers = Transformations.switchMap(drawerQuery, customerRepository::searchCustomersByName);
+        recentCustomers = customerRepository.getRecentCustomers(RECENT_LIMIT);
     }
 
     public LiveData<List<CustomerEntity>> getAllCustomers() {
         return allCustomers;
     }
 
+    /**
+     * Customers matching the drawer's search box, in name order
+     */
+    public LiveData<List<CustomerEntity>> getDrawerCustomers() {
+        return drawerCustomers;
+    }
+
+    public LiveData<List<CustomerEntity>> getRecentCustomers() {
+        return recentCustomers;
+    }
+
+    public void setDrawerQuery(String query) {
+        String trimmed = query == null ? "" : query.trim();
+        if (!trimmed.equals(drawerQuery.getValue())) {
+            drawerQuery.setValue(trimmed);
+        }
+    }
+
+    public boolean hasDrawerQuery() {
+        String query = drawerQuery.getValue();
+        return query != null && !query.isEmpty();
+    }
+
+    /**
+     * Moves the customer to the top of the drawer's recent list
+     */
+    public void markUsed(CustomerEntity customer) {
+        if (customer != null) {
+            customerRepository.markUsed(customer.getCustomerId());
+        }
+    }
+
     public void setSelectedCustomer(CustomerEntity customer) {
         if (customer != null) {
             Log.d(TAG, "Setting selected customer: " + customer.getName() + " (ID: " + customer.getCustomerId() + ")");
@@ -53,9 +89,7 @@ public class CustomerViewModel extends AndroidViewModel {
         }
 
         Log.d(TAG, "Inserting customer: " + customer.getName());
-        executor.execute(() -> {
-            customerRepository.insert(customer);
-        });
+        customerRepository.insert(customer);
     }
 
     public void update(CustomerEntity customer) {
@@ -65,9 +99,7 @@ public class CustomerViewModel extends AndroidViewModel {
         }
 
         Log.d(TAG, "Updating customer: " + customer.getName() + " (ID: " + customer.getCustomerId() + ")");
-        executor.execute(() -> {
-            customerRepository.update(customer);
-        });
+        customerRepository.update(customer);
     }
 
     public void delete(CustomerEntity customer) {
@@ -77,16 +109,12 @@ public class CustomerViewModel extends AndroidViewModel {
         }
 
         Log.d(TAG, "Deleting customer: " + customer.getName() + " (ID: " + customer.getCustomerId() + ")");
-        executor.execute(() -> {
-            customerRepository.delete(customer);
-        });
+        customerRepository.delete(customer);
     }
 
     public void deleteAll() {
         Log.d(TAG, "Deleting all customers");
-        executor.execute(() -> {
-            customerRepository.deleteAll();
-        });
+        customerRepository.deleteAll();
     }
 
     public LiveData<CustomerEntity> getCustomerById(long customerId) {
@@ -104,12 +132,4 @@ public class CustomerViewModel extends AndroidViewModel {
             return null;
         }
     }
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
-    }
 }
@@ -15,18 +15,16 @@ import androidx.lifecycle.Observer; // Required for internal LiveData observatio
 import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
 import com.javandroid.accounting_app.data.model.ProductEntity;
+import com.javandroid.accounting_app.data.repository.Cart;
 import com.javandroid.accounting_app.data.repository.OrderItemRepository;
 import com.javandroid.accounting_app.data.repository.OrderRepository;
 import com.javandroid.accounting_app.data.repository.OrderStateRepository;
 import com.javandroid.accounting_app.data.repository.OrderSessionManager;
+import com.javandroid.accounting_app.util.OrderDates;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class CurrentOrderViewModel extends AndroidViewModel {
     private static final String TAG = "CurrentOrderViewModel";
@@ -34,7 +32,6 @@ public class CurrentOrderViewModel extends AndroidViewModel {
     private final OrderRepository orderRepository;
     public final OrderItemRepository orderItemRepository;
     private final OrderSessionManager sessionManager;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // Stable LiveData instances for Fragment observation
@@ -57,14 +54,17 @@ public class CurrentOrderViewModel extends AndroidViewModel {
     private Observer<List<OrderItemEntity>> sessionItemsObserver;
     private LiveData<List<OrderItemEntity>> currentSessionItemsLiveDataInternal;
 
+    // Re-bridges whenever the active lane changes or its session is replaced
+    private final Observer<OrderStateRepository> activeRepositoryObserver = this::observeSessionData;
+
 
     public CurrentOrderViewModel(@NonNull Application application) {
         super(application);
         orderRepository = new OrderRepository(application);
         orderItemRepository = new OrderItemRepository(application);
         sessionManager = OrderSessionManager.getInstance();
-        // Initial setup of observers for the current session's data
-        observeCurrentSessionData();
+        // Initial setup of observers for the current session's data, and after every lane or session change
+        sessionManager.getActiveRepository().observeForever(activeRepositoryObserver);
     }
 
     public void updateOrder(OrderEntity order) {
@@ -79,12 +79,12 @@ public class CurrentOrderViewModel extends AndroidViewModel {
     }
 
     /**
-     * Sets up observers to bridge LiveData from the current OrderStateRepository
+     * Sets up observers to bridge LiveData from the active OrderStateRepository
      * to the stable LiveData instances exposed to the Fragment.
-     * This should be called initially and after every session reset.
+     * Called with every value of OrderSessionManager.getActiveRepository().
      */
-    private void observeCurrentSessionData() {
-        OrderStateRepository currentRepo = getCurrentStateRepository();
+    private void observeSessionData(OrderStateRepository currentRepo) {
+        if (currentRepo == null) return;
 
         // Stop observing previous session's LiveData if any
         if (sessionOrderObserver != null && currentSessionOrderLiveDataInternal != null) {
@@ -114,102 +114,66 @@ public class CurrentOrderViewModel extends AndroidViewModel {
 
 
     public void addProduct(ProductEntity product, double quantity) {
-        OrderStateRepository currentRepo = getCurrentStateRepository();
+        addProduct(getCurrentStateRepository(), product, quantity);
+    }
+
+    /**
+     * Add to a specific lane's session, e.g. the one active when a scan started.
+     */
+    public void addProduct(OrderStateRepository currentRepo, ProductEntity product, double quantity) {
         OrderEntity order = currentRepo.getCurrentOrderValue(); // Get current order state
-        List<OrderItemEntity> items = currentRepo.getCurrentOrderItemsValue();
 
         if (order == null) {
             Log.e(TAG, "Cannot add product, current order is null in repository.");
             // This case should ideally be prevented by OrderStateRepository always having an order.
-            // If it happens, re-initialize or log error.
-            // For now, let's ensure order is not null by re-fetching (though less ideal)
             // OrderStateRepository constructor ensures it's not null.
             return;
         }
 
-
-        if (items == null) items = new ArrayList<>();
-        List<OrderItemEntity> newItems = new ArrayList<>(items);
-
-        boolean productExists = false;
-        for (OrderItemEntity item : newItems) {
-            if (item.getProductId() != null && item.getProductId().equals(product.getProductId())) {
-                double newQuantity = item.getQuantity() + quantity;
-                item.setQuantity(newQuantity);
-                productExists = true;
-                break;
-            }
-        }
-
-        if (!productExists) {
+        // O(1): the cart indexes its lines by productId and keeps the total incrementally
+        Cart cart = currentRepo.getCart();
+        if (!cart.addToProduct(product.getProductId(), quantity)) {
             // For new items to be inserted into DB, itemId should be 0 for Room to auto-generate.
             // The tempId from OrderStateRepository is for in-session UI tracking (e.g., DiffUtil uniqueness if needed there).
-            // Here, we create the OrderItemEntity that will go into the list observed by the UI.
             long tempDisplayId = currentRepo.generateTempId(); // For UI list stability before saving
 
             OrderItemEntity orderItem = new OrderItemEntity(tempDisplayId, product.getBarcode());
-            // When saving, this tempDisplayId will be converted to 0 if it's negative (or handled appropriately)
-            // so DB generates a real ID.
+            // When saving, copyItemsForInsert resets the ID to 0 so the DB generates a real one.
 
             orderItem.setProductId(product.getProductId());
             orderItem.setProductName(product.getName());
             orderItem.setBuyPrice(product.getBuyPrice());
             orderItem.setSellPrice(product.getSellPrice());
             orderItem.setQuantity(quantity);
-            newItems.add(orderItem);
+            cart.add(orderItem);
         }
 
-        // Update total in the current order object from the repository
-        double newTotal = calculateTotalFromItems(newItems);
-        order.setTotal(newTotal);
-
-        // Post updates back to the OrderStateRepository's LiveData
-        currentRepo.setCurrentOrder(order); // This updates the order object (including total)
-        currentRepo.setCurrentOrderItems(newItems); // This updates the items list
+        // Publishes the new items snapshot and the running total
+        currentRepo.publishCart();
     }
 
     public void removeItem(OrderItemEntity itemToRemove) {
         OrderStateRepository currentRepo = getCurrentStateRepository();
-        OrderEntity order = currentRepo.getCurrentOrderValue();
-        List<OrderItemEntity> items = currentRepo.getCurrentOrderItemsValue();
-
-        if (order == null || items == null) return;
-
-        List<OrderItemEntity> newItems = new ArrayList<>(items);
-        boolean removed = newItems.removeIf(item -> item.getItemId() == itemToRemove.getItemId());
-
-        if (removed) {
-            double newTotal = calculateTotalFromItems(newItems);
-            order.setTotal(newTotal);
-            currentRepo.setCurrentOrder(order);
-            currentRepo.setCurrentOrderItems(newItems);
+        if (currentRepo.getCart().remove(itemToRemove.getItemId())) {
+            currentRepo.publishCart();
         }
     }
 
     public void updateQuantity(OrderItemEntity itemToUpdate, double newQuantity) {
         OrderStateRepository currentRepo = getCurrentStateRepository();
-        OrderEntity order = currentRepo.getCurrentOrderValue();
-        List<OrderItemEntity> items = currentRepo.getCurrentOrderItemsValue();
-
-        if (order == null || items == null) return;
-
-        List<OrderItemEntity> newItems = new ArrayList<>(items); // Work with a copy
-        boolean itemFound = false;
-        for (OrderItemEntity orderItem : newItems) {
-            if (orderItem.getItemId() == itemToUpdate.getItemId()) {
-                orderItem.setQuantity(newQuantity);
-                itemFound = true;
-                break;
-            }
+        if (currentRepo.getCart().setQuantity(itemToUpdate.getItemId(), newQuantity)) {
+            currentRepo.publishCart();
+        } else {
+            Log.w(TAG, "Tried to update quantity for non-existent item: " + itemToUpdate.getProductName());
         }
+    }
 
-        if (itemFound) {
-            double newTotal = calculateTotalFromItems(newItems);
-            order.setTotal(newTotal);
-            currentRepo.setCurrentOrder(order);
-            currentRepo.setCurrentOrderItems(newItems);
+    public void updatePrice(OrderItemEntity itemToUpdate, double newPrice) {
+        OrderStateRepository currentRepo = getCurrentStateRepository();
+        if (currentRepo.getCart().setSellPrice(itemToUpdate.getItemId(), newPrice)) {
+            currentRepo.publishCart();
         } else {
-            Log.w(TAG, "Tried to update quantity for non-existent item: " + itemToUpdate.getProductName());
+            Log.w(TAG, "Tried to update price for non-existent item: " + itemToUpdate.getProductName());
         }
     }
 
@@ -269,44 +233,31 @@ public class CurrentOrderViewModel extends AndroidViewModel {
         }
 
         // Create a fresh OrderEntity for insertion to avoid side effects with LiveData object
+        final long now = System.currentTimeMillis();
         OrderEntity orderToInsert = new OrderEntity(
-                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()),
+                OrderDates.format(now),
                 calculatedTotal,
                 customerId,
                 userId
         ); // orderId will be 0, DAO will generate
+        orderToInsert.setCreatedAt(now);
         orderToInsert.setPaid(isPaid);
 
-        final List<OrderItemEntity> finalItemsToSaveInDb = new ArrayList<>();
-        for (OrderItemEntity sessionItem : currentItemsData) {
-            // Create fresh DB-bound items. Set itemId to 0 for Room to auto-generate.
-            OrderItemEntity dbItem = new OrderItemEntity(0, sessionItem.getBarcode());
-            dbItem.setProductId(sessionItem.getProductId());
-            dbItem.setProductName(sessionItem.getProductName());
-            dbItem.setBuyPrice(sessionItem.getBuyPrice());
-            dbItem.setSellPrice(sessionItem.getSellPrice());
-            dbItem.setQuantity(sessionItem.getQuantity());
-            // orderId will be set after orderToInsert is saved
-            finalItemsToSaveInDb.add(dbItem);
-        }
+        final List<OrderItemEntity> finalItemsToSaveInDb = copyItemsForInsert(currentItemsData);
 
-        orderRepository.insertOrderAndGetId(orderToInsert, orderId -> {
+        // Stock was already deducted while scanning, so no stock deltas are passed here.
+        orderRepository.commitOrder(orderToInsert, finalItemsToSaveInDb, Collections.emptyMap(), orderId -> {
             if (orderId > 0) {
-                Log.d(TAG, "Order saved with DB ID: " + orderId + ". Saving items.");
-                for (OrderItemEntity dbItemToSave : finalItemsToSaveInDb) {
-                    dbItemToSave.setOrderId(orderId); // Link item to the new order ID
-                    orderItemRepository.insertOrderItem(dbItemToSave);
-                }
-                Log.d(TAG, "All " + finalItemsToSaveInDb.size() + " items saved for order #" + orderId);
+                Log.d(TAG, "Order #" + orderId + " committed with " + finalItemsToSaveInDb.size() + " items");
                 mainHandler.post(() -> Toast.makeText(getApplication(), "Order #" + orderId + " saved successfully.", Toast.LENGTH_SHORT).show());
 
                 mainHandler.post(() -> {
-                    Log.d(TAG, "Order confirmed. Creating new order session for user: " + userId);
-                    sessionManager.createNewSession(userId);
-                    observeCurrentSessionData(); // Crucial: Re-bridge LiveData to the new session
+                    Log.d(TAG, "Order confirmed. Creating new order session in lane " + currentRepo.getLaneId());
+                    // Replaces only this lane's session; the LiveData bridge follows it
+                    sessionManager.finishSession(currentRepo);
                 });
             } else {
-                Log.e(TAG, "Failed to insert order into database, returned ID was " + orderId);
+                Log.e(TAG, "Failed to commit order into database, returned ID was " + orderId);
                 mainHandler.post(() -> Toast.makeText(getApplication(), "Error saving order.", Toast.LENGTH_SHORT).show());
             }
         });
@@ -340,46 +291,33 @@ public class CurrentOrderViewModel extends AndroidViewModel {
             return;
         }
 
+        final long now = System.currentTimeMillis();
         OrderEntity orderToInsert = new OrderEntity(
-                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()),
+                OrderDates.format(now),
                 calculatedTotal, customerId, userId
         );
+        orderToInsert.setCreatedAt(now);
         orderToInsert.setPaid(isPaid);
 
-        final List<OrderItemEntity> finalItemsToSaveInDb = new ArrayList<>();
-        for (OrderItemEntity sessionItem : currentItemsData) {
-            OrderItemEntity dbItem = new OrderItemEntity(0, sessionItem.getBarcode()); // itemId = 0 for insert
-            dbItem.setProductId(sessionItem.getProductId());
-            dbItem.setProductName(sessionItem.getProductName());
-            dbItem.setBuyPrice(sessionItem.getBuyPrice());
-            dbItem.setSellPrice(sessionItem.getSellPrice());
-            dbItem.setQuantity(sessionItem.getQuantity());
-            finalItemsToSaveInDb.add(dbItem);
-        }
+        final List<OrderItemEntity> finalItemsToSaveInDb = copyItemsForInsert(currentItemsData);
 
-        orderRepository.insertOrderAndGetId(orderToInsert, orderId -> {
+        orderRepository.commitOrder(orderToInsert, finalItemsToSaveInDb, Collections.emptyMap(), orderId -> {
             if (orderId > 0) {
-                Log.d(TAG, "Order (then callback) saved with ID: " + orderId);
+                Log.d(TAG, "Order (then callback) committed with ID: " + orderId);
                 // Update the order object in the *current session* with the new ID for printing
                 // This is okay because this session is about to be replaced.
                 currentOrderData.setOrderId(orderId);
                 currentOrderData.setTotal(calculatedTotal); // Ensure it has the final total for printing
                 currentRepo.setCurrentOrder(currentOrderData); // Update for potential immediate use by callback
 
-                for (OrderItemEntity dbItem : finalItemsToSaveInDb) {
-                    dbItem.setOrderId(orderId);
-                    orderItemRepository.insertOrderItem(dbItem);
-                }
-
                 if (callback != null) {
                     Log.d(TAG, "Executing post-confirmation callback.");
                     mainHandler.post(callback); // Ensure callback runs on main thread
                 }
 
                 mainHandler.post(() -> {
-                    Log.d(TAG, "Order confirmed (then callback). Creating new session for user: " + userId);
-                    sessionManager.createNewSession(userId);
-                    observeCurrentSessionData(); // Re-bridge LiveData
+                    Log.d(TAG, "Order confirmed (then callback). Creating new session in lane " + currentRepo.getLaneId());
+                    sessionManager.finishSession(currentRepo);
                 });
             } else {
                 Log.e(TAG, "Failed to insert order (then callback), returned ID: " + orderId);
@@ -390,14 +328,32 @@ public class CurrentOrderViewModel extends AndroidViewModel {
     }
 
 
+    /**
+     * Create fresh DB-bound copies of the session items with itemId 0, so Room
+     * generates real IDs. The orderId is set by the checkout transaction.
+     */
+    private List<OrderItemEntity> copyItemsForInsert(List<OrderItemEntity> sessionItems) {
+        List<OrderItemEntity> dbItems = new ArrayList<>(sessionItems.size());
+        for (OrderItemEntity sessionItem : sessionItems) {
+            OrderItemEntity dbItem = new OrderItemEntity(0, sessionItem.getBarcode());
+            dbItem.setProductId(sessionItem.getProductId());
+            dbItem.setProductName(sessionItem.getProductName());
+            dbItem.setBuyPrice(sessionItem.getBuyPrice());
+            dbItem.setSellPrice(sessionItem.getSellPrice());
+            dbItem.setQuantity(sessionItem.getQuantity());
+            dbItems.add(dbItem);
+        }
+        return dbItems;
+    }
+
     public void updateOrderTotal() { // This can be called if external logic changes items directly
         OrderStateRepository currentRepo = getCurrentStateRepository();
         OrderEntity order = currentRepo.getCurrentOrderValue();
-        List<OrderItemEntity> items = currentRepo.getCurrentOrderItemsValue();
         if (order != null) {
-            double newTotal = calculateTotalFromItems(items);
-            if (Math.abs(order.getTotal() - newTotal) > 0.001) {
-                order.setTotal(newTotal);
+            Cart cart = currentRepo.getCart();
+            cart.recalculate();
+            if (Math.abs(order.getTotal() - cart.getTotal()) > 0.001) {
+                order.setTotal(cart.getTotal());
                 currentRepo.setCurrentOrder(order); // This will trigger LiveData update
             }
         }
@@ -414,13 +370,13 @@ public class CurrentOrderViewModel extends AndroidViewModel {
         if (currentOrder != null) userId = currentOrder.getUserId();
 
         Log.d(TAG, "Resetting current order session. Creating new session for user ID: " + userId);
-        sessionManager.createNewSession(userId);
-        observeCurrentSessionData(); // Re-bridge LiveData to the new session
+        sessionManager.finishSession(currentRepo);
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
+        sessionManager.getActiveRepository().removeObserver(activeRepositoryObserver);
         // Remove observers from the session's LiveData
         if (sessionOrderObserver != null && currentSessionOrderLiveDataInternal != null) {
             currentSessionOrderLiveDataInternal.removeObserver(sessionOrderObserver);
@@ -429,9 +385,6 @@ public class CurrentOrderViewModel extends AndroidViewModel {
             currentSessionItemsLiveDataInternal.removeObserver(sessionItemsObserver);
         }
 
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
-        }
         mainHandler.removeCallbacksAndMessages(null);
         Log.d(TAG, "CurrentOrderViewModel cleared.");
     }
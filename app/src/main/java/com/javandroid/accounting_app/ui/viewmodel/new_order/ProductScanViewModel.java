@@ -10,13 +10,19 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.google.zxing.BarcodeFormat;
 import com.javandroid.accounting_app.data.model.ProductEntity;
 import com.javandroid.accounting_app.data.repository.OrderStateRepository;
 import com.javandroid.accounting_app.data.repository.OrderSessionManager;
 import com.javandroid.accounting_app.data.repository.ProductRepository;
+import com.javandroid.accounting_app.util.AppExecutors;
+import com.javandroid.accounting_app.util.ScanQueue;
+import com.javandroid.accounting_app.util.StockedBarcodeFormats;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * ViewModel responsible for handling barcode scanning and product operations
@@ -24,10 +30,16 @@ import java.util.concurrent.Executors;
 public class ProductScanViewModel extends AndroidViewModel {
     private static final String TAG = "ProductScanViewModel";
 
+    // Room for a few seconds of back-to-back scans while lookups catch up
+    private static final int SCAN_QUEUE_CAPACITY = 256;
+
     private final ProductRepository productRepository;
-    private final OrderStateRepository stateRepository;
     private final CurrentOrderViewModel currentOrderViewModel;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler;
+    // Camera and wedge scans, drained on the serial DB-write executor: they are looked
+    // up and take stock in the order they arrive
+    private final ScanQueue<Scan> scanQueue = new ScanQueue<>(SCAN_QUEUE_CAPACITY,
+            AppExecutors.getInstance().diskWrite(), this::processScans);
 
     // Event to signal when product is not found
     private final MutableLiveData<String> productNotFoundEvent = new MutableLiveData<>();
@@ -38,6 +50,11 @@ public class ProductScanViewModel extends AndroidViewModel {
     // Event for product operation results
     private final MutableLiveData<ProductOperationMessage> productOperationMessage = new MutableLiveData<>();
 
+    // Time from a camera or wedge read to the product being in the cart
+    private final MutableLiveData<ScanLatency> scanLatency = new MutableLiveData<>();
+    private long latencyCount;
+    private long latencyTotalNanos;
+
     // Event types for product operations
     public enum ProductOperationResult {
         ADDED_SUCCESSFULLY,
@@ -71,10 +88,49 @@ public class ProductScanViewModel extends AndroidViewModel {
         }
     }
 
+    public static class ScanLatency {
+        private final long lastMs;
+        private final long averageMs;
+        private final long scans;
+
+        public ScanLatency(long lastMs, long averageMs, long scans) {
+            this.lastMs = lastMs;
+            this.averageMs = averageMs;
+            this.scans = scans;
+        }
+
+        public long getLastMs() {
+            return lastMs;
+        }
+
+        public long getAverageMs() {
+            return averageMs;
+        }
+
+        public long getScans() {
+            return scans;
+        }
+    }
+
+    private static class Scan {
+        final String barcode;
+        final double quantity;
+        final OrderStateRepository lane;
+        final long scannedAtNanos;
+        ProductEntity product; // Set once found with stock
+
+        Scan(String barcode, double quantity, OrderStateRepository lane, long scannedAtNanos) {
+            this.barcode = barcode;
+            this.quantity = quantity;
+            this.lane = lane;
+            this.scannedAtNanos = scannedAtNanos;
+        }
+    }
+
     public ProductScanViewModel(@NonNull Application application) {
         super(application);
+        mainHandler = new Handler(application.getMainLooper());
         productRepository = new ProductRepository(application);
-        stateRepository = OrderSessionManager.getInstance().getCurrentRepository();
         currentOrderViewModel = new ViewModelProvider.AndroidViewModelFactory(application)
                 .create(CurrentOrderViewModel.class);
     }
@@ -83,87 +139,124 @@ public class ProductScanViewModel extends AndroidViewModel {
      * Add a product to the order by its barcode
      */
     public void addProductByBarcode(String barcode, double quantity) {
+        addProductByBarcode(barcode, quantity, 0);
+    }
+
+    /**
+     * @param scannedAtNanos System.nanoTime() of the read, to measure scan-to-cart
+     *                       latency, or 0 to not measure it
+     */
+    public void addProductByBarcode(String barcode, double quantity, long scannedAtNanos) {
         if (barcode == null || barcode.isEmpty()) {
             return;
         }
 
-        executor.execute(() -> {
-            try {
-                // Get product by barcode
-                ProductEntity product = productRepository.getProductByBarcodeSync(barcode);
-
-                if (product != null) {
-                    // Check if there's enough stock
-                    if (product.getStock() >= quantity) {
-                        // First decrease the product stock
-                        Log.d(TAG, "Deducting stock for product " + product.getName() +
-                                " (ID: " + product.getProductId() + "): " +
-                                product.getStock() + " -> " + (product.getStock() - quantity));
-
-                        // Store original stock for tracking
-                        final double originalStock = product.getStock();
-
-                        // Update the product stock in the database
-                        product.setStock(product.getStock() - quantity);
-                        try {
-                            productRepository.update(product);
-
-                            // Product found with stock, add to order on main thread
-                            new Handler(getApplication().getMainLooper()).post(() -> {
-                                currentOrderViewModel.addProduct(product, quantity);
-
-                                Log.d(TAG, "Stock successfully reduced for product " +
-                                        product.getName() + " (ID: " + product.getProductId() +
-                                        "): " + originalStock + " -> " + product.getStock() +
-                                        " (reduced by " + quantity + ")");
-
-                                // Notify UI of success
-                                productOperationMessage.setValue(
-                                        new ProductOperationMessage(
-                                                ProductOperationResult.ADDED_SUCCESSFULLY,
-                                                "Product added: " + product.getName(),
-                                                product));
-                            });
-                        } catch (Exception e) {
-                            Log.e(TAG, "Failed to update product stock: " + e.getMessage(), e);
-
-                            // Notify UI of error
-                            productOperationMessage.postValue(
-                                    new ProductOperationMessage(
-                                            ProductOperationResult.ERROR,
-                                            "Error updating inventory: " + e.getMessage(),
-                                            product));
-                        }
-                    } else {
-                        // Not enough stock
-                        Log.w(TAG, "Insufficient stock for product " + product.getName() +
-                                " (ID: " + product.getProductId() + "): requested=" +
-                                quantity + ", available=" + product.getStock());
-
-                        productOperationMessage.postValue(
-                                new ProductOperationMessage(
-                                        ProductOperationResult.OUT_OF_STOCK,
-                                        "Product out of stock: " + product.getName(),
-                                        product));
-                    }
-                } else {
-                    // Product not found, trigger event for UI to handle
-                    productNotFoundEvent.postValue(barcode);
-                    productOperationMessage.postValue(
-                            new ProductOperationMessage(
-                                    ProductOperationResult.NOT_FOUND,
-                                    "Product not found for barcode: " + barcode,
-                                    null));
+        // The lane the scan was made in, even if the active lane changes before it is added
+        final OrderStateRepository lane = OrderSessionManager.getInstance().getCurrentRepository();
+
+        if (!scanQueue.offer(new Scan(barcode, quantity, lane, scannedAtNanos))) {
+            Log.e(TAG, "Scan queue full, dropped barcode: " + barcode);
+            productOperationMessage.postValue(
+                    new ProductOperationMessage(
+                            ProductOperationResult.ERROR,
+                            "Scanning too fast, scan again: " + barcode,
+                            null));
+        }
+    }
+
+    // On the executor, with every scan that was waiting, in arrival order
+    private void processScans(List<Scan> scans) {
+        List<Scan> added = new ArrayList<>(scans.size());
+        for (Scan scan : scans) {
+            if (processScan(scan)) added.add(scan);
+        }
+        if (added.isEmpty()) return;
+
+        // Products found with stock, add them to the order in one main-thread pass
+        mainHandler.post(() -> {
+            for (Scan scan : added) {
+                currentOrderViewModel.addProduct(scan.lane, scan.product, scan.quantity);
+                if (scan.scannedAtNanos != 0) recordLatency(System.nanoTime() - scan.scannedAtNanos);
+
+                // Notify UI of success
+                productOperationMessage.setValue(
+                        new ProductOperationMessage(
+                                ProductOperationResult.ADDED_SUCCESSFULLY,
+                                "Product added: " + scan.product.getName(),
+                                scan.product));
+            }
+        });
+    }
+
+    /**
+     * @return true when the product was found and its stock taken
+     */
+    private boolean processScan(Scan scan) {
+        String barcode = scan.barcode;
+        double quantity = scan.quantity;
+        try {
+            // Get product by barcode
+            ProductEntity product = productRepository.getProductByBarcodeSync(barcode);
+
+            if (product != null) {
+                // Check and take the stock atomically; the write is buffered and coalesced with other scans
+                if (productRepository.tryDecrementStockSync(product.getProductId(), quantity)) {
+                    Log.d(TAG, "Stock reduced by " + quantity + " for product " + product.getName() +
+                            " (ID: " + product.getProductId() + ")");
+                    scan.product = product;
+                    return true;
                 }
-            } catch (Exception e) {
-                // Handle errors
-                Log.e(TAG, "Error processing barcode: " + barcode, e);
+                // Not enough stock
+                Log.w(TAG, "Insufficient stock for product " + product.getName() +
+                        " (ID: " + product.getProductId() + "): requested=" + quantity);
+
+                productOperationMessage.postValue(
+                        new ProductOperationMessage(
+                                ProductOperationResult.OUT_OF_STOCK,
+                                "Product out of stock: " + product.getName(),
+                                product));
+            } else {
+                // Product not found, trigger event for UI to handle
+                productNotFoundEvent.postValue(barcode);
                 productOperationMessage.postValue(
                         new ProductOperationMessage(
-                                ProductOperationResult.ERROR,
-                                "Error processing barcode: " + e.getMessage(),
+                                ProductOperationResult.NOT_FOUND,
+                                "Product not found for barcode: " + barcode,
                                 null));
             }
+        } catch (Exception e) {
+            // Handle errors
+            Log.e(TAG, "Error processing barcode: " + barcode, e);
+            productOperationMessage.postValue(
+                    new ProductOperationMessage(
+                            ProductOperationResult.ERROR,
+                            "Error processing barcode: " + e.getMessage(),
+                            null));
+        }
+        return false;
+    }
+
+    // Main thread only
+    private void recordLatency(long nanos) {
+        latencyCount++;
+        latencyTotalNanos += nanos;
+        long lastMs = nanos / 1_000_000;
+        Log.d(TAG, "Scan to cart in " + lastMs + " ms");
+        scanLatency.setValue(new ScanLatency(lastMs, latencyTotalNanos / latencyCount / 1_000_000, latencyCount));
+    }
+
+    public LiveData<ScanLatency> getScanLatency() {
+        return scanLatency;
+    }
+
+    /**
+     * The barcode formats of the products in stock, for the camera's decoders.
+     * The callback runs on the main thread.
+     */
+    public void loadStockedBarcodeFormats(Consumer<Set<BarcodeFormat>> callback) {
+        AppExecutors.getInstance().diskRead().execute(() -> {
+            Set<BarcodeFormat> formats = StockedBarcodeFormats.forShapes(productRepository.getBarcodeShapesSync());
+            mainHandler.post(() -> callback.accept(formats));
         });
     }
 
@@ -207,13 +300,4 @@ public class ProductScanViewModel extends AndroidViewModel {
     public LiveData<ProductOperationMessage> getProductOperationMessage() {
         return productOperationMessage;
     }
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        // Shut down the executor when ViewModel is cleared
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
@@ -12,20 +12,19 @@ import androidx.lifecycle.LiveData;
 
 import com.javandroid.accounting_app.data.model.OrderEntity;
 import com.javandroid.accounting_app.data.model.OrderItemEntity;
-import com.javandroid.accounting_app.data.model.ProductEntity; // Needed for stock adjustment
 import com.javandroid.accounting_app.data.repository.OrderItemRepository;
 import com.javandroid.accounting_app.data.repository.OrderRepository;
 import com.javandroid.accounting_app.data.repository.ProductRepository; // To adjust stock
 import com.javandroid.accounting_app.data.repository.OrderSessionManager;
 import com.javandroid.accounting_app.data.repository.OrderStateRepository;
+import com.javandroid.accounting_app.util.AppExecutors;
 
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class OrderEditViewModel extends AndroidViewModel {
     private static final String TAG = "OrderEditViewModel";
@@ -34,7 +33,7 @@ public class OrderEditViewModel extends AndroidViewModel {
     public final OrderItemRepository orderItemRepository; // Made public final in previous updates
     private final ProductRepository productRepository;   // For stock updates
     private final OrderSessionManager sessionManager;    // For shared state logic if any remains
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().diskWrite();
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
     public OrderEditViewModel(@NonNull Application application) {
@@ -54,7 +53,7 @@ public class OrderEditViewModel extends AndroidViewModel {
         OrderStateRepository currentSharedRepo = getStateRepository();
         if (order == null) {
             currentSharedRepo.setCurrentOrder(null);
-            currentSharedRepo.setCurrentOrderItems(new ArrayList<>());
+            currentSharedRepo.loadSavedOrderItems(new ArrayList<>());
             return;
         }
 
@@ -67,15 +66,15 @@ public class OrderEditViewModel extends AndroidViewModel {
                 public void onChanged(List<OrderItemEntity> orderItems) {
                     if (orderItems != null) {
                         Log.d(TAG, "Loaded " + orderItems.size() + " items for order ID=" + order.getOrderId() + " into shared state");
-                        currentSharedRepo.setCurrentOrderItems(orderItems);
+                        currentSharedRepo.loadSavedOrderItems(orderItems);
                     } else {
-                        currentSharedRepo.setCurrentOrderItems(new ArrayList<>());
+                        currentSharedRepo.loadSavedOrderItems(new ArrayList<>());
                     }
                     itemsLiveData.removeObserver(this);
                 }
             });
         } else {
-            currentSharedRepo.setCurrentOrderItems(new ArrayList<>());
+            currentSharedRepo.loadSavedOrderItems(new ArrayList<>());
         }
     }
 
@@ -99,6 +98,7 @@ public class OrderEditViewModel extends AndroidViewModel {
         executor.execute(() -> {
             try {
                 // --- 1. Update the Order Header ---
+                editedOrder.setLineTotals(currentItemsInEdit); // Keep cost and profit in step with the items
                 orderRepository.updateOrder(editedOrder);
                 Log.d(TAG, "Order header updated for ID: " + editedOrder.getOrderId());
 
@@ -156,16 +156,11 @@ public class OrderEditViewModel extends AndroidViewModel {
                 // --- 4. Apply Stock Adjustments ---
                 for (Map.Entry<Long, Double> entry : productStockAdjustments.entrySet()) {
                     Long productId = entry.getKey();
-                    Double netStockChange = entry.getValue(); // Positive means stock increases (items returned > items taken)
+                    double netStockChange = entry.getValue(); // Positive means stock increases (items returned > items taken)
                     // Negative means stock decreases (items taken > items returned)
-                    ProductEntity product = productRepository.getProductByIdSync(productId); // Fetch current product
-                    if (product != null) {
-                        Log.d(TAG, "Stock for " + product.getName() + " (ID:" + productId + "): current=" + product.getStock() + ", net change required=" + (-netStockChange));
-                        product.setStock(product.getStock() - netStockChange); // If netStockChange is +ve (returned), stock increases. If -ve (taken), stock decreases.
-                        productRepository.update(product);
-                        Log.d(TAG, "Product ID " + productId + " stock updated to: " + product.getStock());
-                    } else {
-                        Log.w(TAG, "Product ID " + productId + " not found for stock adjustment.");
+                    if (netStockChange != 0) {
+                        // Applied as stock = stock + delta in SQL, so concurrent scans are not overwritten
+                        productRepository.adjustStockSync(productId, netStockChange);
                     }
                 }
                 Log.d(TAG, "Product stock adjustments applied for order ID: " + editedOrder.getOrderId());
@@ -189,14 +184,6 @@ public class OrderEditViewModel extends AndroidViewModel {
         OrderEntity currentOrderValue = currentSharedRepo.getCurrentOrderValue();
         long userIdForNewSession = (currentOrderValue != null) ? currentOrderValue.getUserId() : 0;
         Log.d(TAG, "Canceling edits in shared state. Resetting shared session for user ID: " + userIdForNewSession);
-        sessionManager.createNewSession(userIdForNewSession);
-    }
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
+        sessionManager.finishSession(currentSharedRepo);
     }
 }
\ No newline at end of file
@@ -236,6 +236,7 @@ public class OrderEditingManager { // Can extend ViewModel if desired
         if (original == null) return null;
         OrderEntity copy = new OrderEntity(original.getDate(), original.getTotal(), original.getCustomerId(), original.getUserId());
         copy.setOrderId(original.getOrderId());
+        copy.setCreatedAt(original.getCreatedAt()); // Editing must not move the order in time
         return copy;
     }
 
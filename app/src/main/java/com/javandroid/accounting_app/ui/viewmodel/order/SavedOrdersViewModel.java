@@ -8,27 +8,34 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData; // Added for profit LiveData
 import androidx.lifecycle.Transformations;
 
 import com.javandroid.accounting_app.data.model.OrderEntity;
 // import com.javandroid.accounting_app.data.model.OrderItemEntity; // Not directly used here
+import com.javandroid.accounting_app.data.repository.OrderPager;
 import com.javandroid.accounting_app.data.repository.OrderRepository;
+import com.javandroid.accounting_app.print.OrderReceiptPrinter;
+import com.javandroid.accounting_app.util.AppExecutors;
+import com.javandroid.accounting_app.util.OrderDates;
 // import com.javandroid.accounting_app.data.repository.OrderStateRepository; // Not used by this VM
 // import com.javandroid.accounting_app.data.repository.OrderSessionManager; // Not used by this VM
 
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class SavedOrdersViewModel extends AndroidViewModel {
     private static final String TAG = "SavedOrdersViewModel";
 
     private final OrderRepository orderRepository;
+    private final OrderReceiptPrinter receiptPrinter;
     // private final OrderItemRepository orderItemRepository; // Not directly exposed
     // private final OrderSessionManager sessionManager; // Not used
     // private OrderStateRepository stateRepository; // Not used
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().diskWrite();
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
 
@@ -36,7 +43,18 @@ public class SavedOrdersViewModel extends AndroidViewModel {
     private final MutableLiveData<Double> userCustomerProfitLiveData = new MutableLiveData<>();
 
     private final MutableLiveData<SortType> sortOrder = new MutableLiveData<>(SortType.BY_DATE);
+    private final MutableLiveData<DateRange> dateRange = new MutableLiveData<>(DateRange.ALL);
+    private final MediatorLiveData<Boolean> queryChanged = new MediatorLiveData<>();
+    // Search text is applied after a pause in typing; null shows the sorted history
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private final MutableLiveData<Search> appliedSearch = new MutableLiveData<>(null);
+    private Runnable pendingSearch;
     private final LiveData<List<OrderEntity>> sortedOrders;
+    private OrderPager historyPager;
+
+    private final MutableLiveData<Long> ordersCustomerId = new MutableLiveData<>();
+    private final LiveData<List<OrderEntity>> customerOrders;
+    private OrderPager customerPager;
 
     //    public SavedOrdersViewModel(@NonNull Application application) {
 //        super(application);
@@ -49,24 +67,107 @@ public class SavedOrdersViewModel extends AndroidViewModel {
         BY_DATE, BY_TOTAL, BY_CUSTOMER
     }
 
+    public enum DateRange {
+        ALL, TODAY, THIS_WEEK, THIS_MONTH
+    }
+
+    public enum SearchField {
+        ALL, ID, DATE, CUSTOMER, USER
+    }
+
+    private static final class Search {
+        final String text;
+        final SearchField field;
+
+        Search(String text, SearchField field) {
+            this.text = text;
+            this.field = field;
+        }
+    }
+
 
     public SavedOrdersViewModel(@NonNull Application application) {
         super(application);
         orderRepository = new OrderRepository(application);
+        receiptPrinter = OrderReceiptPrinter.getInstance(application);
+
+        // Re-query whenever either the sort or the date range changes
+        queryChanged.addSource(sortOrder, s -> queryChanged.setValue(true));
+        queryChanged.addSource(dateRange, r -> queryChanged.setValue(true));
+        queryChanged.addSource(appliedSearch, q -> queryChanged.setValue(true));
 
-        sortedOrders = Transformations.switchMap(sortOrder, sort -> {
+        // Each query gets its own keyset pager; the previous one stops observing the table
+        sortedOrders = Transformations.switchMap(queryChanged, changed -> {
+            SortType sort = sortOrder.getValue() != null ? sortOrder.getValue() : SortType.BY_DATE;
+            DateRange range = dateRange.getValue() != null ? dateRange.getValue() : DateRange.ALL;
+            Search search = appliedSearch.getValue();
+
+            // The range is resolved when the query is (re)built, so reselecting TODAY after midnight moves it
+            long now = System.currentTimeMillis();
+            long from = rangeStart(range, now);
+            long to = Long.MAX_VALUE;
+            if (historyPager != null) historyPager.close();
+            if (search != null) {
+                historyPager = searchPager(search, from);
+                return historyPager.getOrders();
+            }
             switch (sort) {
                 case BY_TOTAL:
-                    return orderRepository.getAllOrdersSortedByTotal();
+                    historyPager = orderRepository.pageOrdersByTotal(from, to);
+                    break;
                 case BY_CUSTOMER:
-                    return orderRepository.getAllOrdersSortedByCustomer();
+                    historyPager = orderRepository.pageOrdersByCustomer(from, to);
+                    break;
                 case BY_DATE:
                 default:
-                    return orderRepository.getAllOrders(); // Default is by date (newest first)
+                    historyPager = orderRepository.pageOrdersByDate(from, to); // Newest first
+                    break;
             }
+            return historyPager.getOrders();
+        });
+
+        customerOrders = Transformations.switchMap(ordersCustomerId, customerId -> {
+            if (customerPager != null) customerPager.close();
+            customerPager = orderRepository.pageOrdersOfCustomer(customerId);
+            return customerPager.getOrders();
         });
     }
 
+    private static long rangeStart(DateRange range, long now) {
+        switch (range) {
+            case TODAY:
+                return OrderDates.startOfDay(now);
+            case THIS_WEEK:
+                return OrderDates.startOfWeek(now);
+            case THIS_MONTH:
+                return OrderDates.startOfMonth(now);
+            case ALL:
+            default:
+                return Long.MIN_VALUE;
+        }
+    }
+
+    // Search results are newest first regardless of the sort chips
+    private OrderPager searchPager(Search search, long from) {
+        switch (search.field) {
+            case ID:
+                return orderRepository.searchOrderById(OrderRepository.parseOrderId(search.text));
+            case DATE:
+                long[] dates = OrderDates.prefixRange(search.text);
+                if (dates == null) {
+                    return orderRepository.searchOrderById(-1); // Not a date: nothing matches
+                }
+                return orderRepository.pageOrdersByDate(Math.max(from, dates[0]), dates[1]);
+            case CUSTOMER:
+                return orderRepository.searchOrdersByCustomerName(search.text, from);
+            case USER:
+                return orderRepository.searchOrdersByUserName(search.text, from);
+            case ALL:
+            default:
+                return orderRepository.searchOrders(search.text, from);
+        }
+    }
+
     // This method replaces the old getAllOrders() for the fragment to observe
     public LiveData<List<OrderEntity>> getSortedOrders() {
         return sortedOrders;
@@ -77,12 +178,86 @@ public class SavedOrdersViewModel extends AndroidViewModel {
         sortOrder.setValue(newSortType);
     }
 
-    public LiveData<List<OrderEntity>> getAllOrders() {
-        return orderRepository.getAllOrders();
+    // Called by the fragment's day/week/month selector
+    public void changeDateRange(DateRange newRange) {
+        dateRange.setValue(newRange);
+    }
+
+    // Called from the history list's scroll listener to load the next page ahead of the user
+    public void onOrdersScrolled(int lastVisiblePosition, int visibleCount, int itemCount) {
+        if (historyPager != null) historyPager.onScrolled(lastVisiblePosition, visibleCount, itemCount);
+    }
+
+    /**
+     * Search the order history in SQL. Called on every text change; the query
+     * runs once typing pauses, and the pager of the previous query is closed
+     * so its pending loads are dropped. Empty text goes back to the sorted list at once.
+     */
+    public void setSearch(String text, SearchField field) {
+        if (pendingSearch != null) {
+            mainThreadHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        Search search = text == null || text.trim().isEmpty() ? null : new Search(text.trim(), field);
+        if (search == null) {
+            if (appliedSearch.getValue() != null) appliedSearch.setValue(null);
+            return;
+        }
+        pendingSearch = () -> {
+            pendingSearch = null;
+            appliedSearch.setValue(search);
+        };
+        mainThreadHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Every order of the current list (sort, range and search), for export.
+     * The callback runs on the main thread.
+     */
+    public void loadOrdersForExport(Consumer<List<OrderEntity>> callback) {
+        OrderPager pager = historyPager;
+        if (pager == null) {
+            callback.accept(Collections.emptyList());
+            return;
+        }
+        AppExecutors.getInstance().diskRead().execute(() -> {
+            List<OrderEntity> orders = pager.loadAllSync();
+            mainThreadHandler.post(() -> callback.accept(orders));
+        });
+    }
+
+    public void reprintOrder(long orderId, OrderReceiptPrinter.Callback callback) {
+        receiptPrinter.reprint(orderId, callback);
     }
 
-    public LiveData<List<OrderEntity>> getOrdersByCustomerId(long customerId) {
-        return orderRepository.getOrdersByCustomerId(customerId);
+    /**
+     * Prints the receipts of every order in the selected date range, oldest first
+     *
+     * @param customerId only this customer's orders, or 0 for all
+     */
+    public void printOrdersInRange(long customerId, boolean unpaidOnly, OrderReceiptPrinter.Callback callback) {
+        long from = rangeStart(getDateRange(), System.currentTimeMillis());
+        receiptPrinter.printOrders(from, Long.MAX_VALUE, customerId, unpaidOnly, callback);
+    }
+
+    public DateRange getDateRange() {
+        return dateRange.getValue() != null ? dateRange.getValue() : DateRange.ALL;
+    }
+
+    // Pages through one customer's orders, newest first
+    public LiveData<List<OrderEntity>> getCustomerOrders() {
+        return customerOrders;
+    }
+
+    public void showOrdersOfCustomer(long customerId) {
+        Long current = ordersCustomerId.getValue();
+        if (current == null || current != customerId) {
+            ordersCustomerId.setValue(customerId);
+        }
+    }
+
+    public void onCustomerOrdersScrolled(int lastVisiblePosition, int visibleCount, int itemCount) {
+        if (customerPager != null) customerPager.onScrolled(lastVisiblePosition, visibleCount, itemCount);
     }
 
     public LiveData<OrderEntity> getOrderById(long orderId) {
@@ -146,9 +321,9 @@ public class SavedOrdersViewModel extends AndroidViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
+        if (pendingSearch != null) mainThreadHandler.removeCallbacks(pendingSearch);
+        if (historyPager != null) historyPager.close();
+        if (customerPager != null) customerPager.close();
     }
 
     public LiveData<Double> getTotalBoughtByCustomer(long customerId) {
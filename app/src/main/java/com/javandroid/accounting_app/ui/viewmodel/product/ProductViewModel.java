@@ -1,6 +1,7 @@
 package com.javandroid.accounting_app.ui.viewmodel.product;
 
 import android.app.Application;
+import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -11,10 +12,11 @@ import androidx.lifecycle.Transformations;
 
 import com.javandroid.accounting_app.data.model.ProductEntity;
 import com.javandroid.accounting_app.data.repository.ProductRepository;
+import com.javandroid.accounting_app.util.AppExecutors;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService; // Added for direct execution if needed
-import java.util.concurrent.Executors;   // Added
+import java.util.concurrent.Executor;
 
 public class ProductViewModel extends AndroidViewModel {
 
@@ -24,10 +26,19 @@ public class ProductViewModel extends AndroidViewModel {
 
     private final MutableLiveData<SortType> sortOrder = new MutableLiveData<>(SortType.DEFAULT);
 
-    private final ExecutorService executor; // For background tasks if needed directly by VM
-
     private final LiveData<List<ProductEntity>> products;
 
+    // Full-text search results; null while no search text is entered
+    private static final int SEARCH_PAGE_SIZE = 50;
+    private final MutableLiveData<List<ProductEntity>> searchResults = new MutableLiveData<>();
+    private final Executor searchExecutor = AppExecutors.getInstance().diskRead();
+    private final Executor mainExecutor = AppExecutors.getInstance().mainThread();
+    // Bumped on the main thread by every new or refreshed search, so stale queries are skipped or their results dropped
+    private volatile int searchGeneration;
+    private String searchQuery;
+    private boolean searchEndReached;
+    private boolean loadingMore; // A next page is on its way
+
     public enum SortType {
         DEFAULT,
         BY_STOCK
@@ -37,7 +48,6 @@ public class ProductViewModel extends AndroidViewModel {
         super(application);
         productRepository = new ProductRepository(application);
         allProducts = productRepository.getAllProducts();
-        executor = Executors.newSingleThreadExecutor(); // Initialize executor
         products = Transformations.switchMap(sortOrder, sort -> {
             if (sort == SortType.BY_STOCK) {
                 return productRepository.getAllProductsSortedByStock();
@@ -63,6 +73,70 @@ public class ProductViewModel extends AndroidViewModel {
         return allProducts;
     }
 
+    public LiveData<List<ProductEntity>> getSearchResults() {
+        return searchResults;
+    }
+
+    /**
+     * Search products by name and barcode off the main thread, publishing the
+     * first page of results. Call from the main thread on every keystroke; a
+     * query still waiting for a thread is skipped once newer text arrives.
+     */
+    public void search(String query) {
+        int generation = ++searchGeneration;
+        searchQuery = query;
+        searchEndReached = false;
+        loadingMore = false;
+        if (query == null || query.trim().isEmpty()) {
+            searchResults.setValue(null);
+            return;
+        }
+        loadSearchPage(generation, query, SEARCH_PAGE_SIZE, 0, null);
+    }
+
+    /**
+     * Re-run the search over as many results as are loaded, e.g. after the
+     * products changed, without dropping the pages scrolled to. Other text
+     * starts a new search.
+     */
+    public void refreshSearch(String query) {
+        List<ProductEntity> current = searchResults.getValue();
+        if (current == null || !query.equals(searchQuery)) {
+            search(query);
+            return;
+        }
+        int generation = ++searchGeneration;
+        loadingMore = false;
+        loadSearchPage(generation, searchQuery, Math.max(current.size(), SEARCH_PAGE_SIZE), 0, null);
+    }
+
+    // Appends the next page of the current search, e.g. when its list is scrolled to the end
+    public void loadMoreSearchResults() {
+        List<ProductEntity> current = searchResults.getValue();
+        if (current == null || searchEndReached || loadingMore) return;
+        loadingMore = true;
+        loadSearchPage(searchGeneration, searchQuery, SEARCH_PAGE_SIZE, current.size(), current);
+    }
+
+    private void loadSearchPage(int generation, String query, int limit, int offset, List<ProductEntity> loaded) {
+        searchExecutor.execute(() -> {
+            if (generation != searchGeneration) return;
+            List<ProductEntity> page = productRepository.searchSync(query, limit, offset);
+            mainExecutor.execute(() -> {
+                if (generation != searchGeneration) return;
+                List<ProductEntity> results = page;
+                if (loaded != null) {
+                    results = new ArrayList<>(loaded.size() + page.size());
+                    results.addAll(loaded);
+                    results.addAll(page);
+                    loadingMore = false;
+                }
+                searchEndReached = page.size() < limit;
+                searchResults.setValue(results);
+            });
+        });
+    }
+
     public void addProductToOrder(ProductEntity product) {
         Log.d("ProductViewModel", "Product added to order: " + product.getName());
     }
@@ -71,6 +145,11 @@ public class ProductViewModel extends AndroidViewModel {
         productRepository.insert(product);
     }
 
+    // Bulk CSV import, upserting by barcode; callbacks arrive on the main thread
+    public void importProductsFromCsv(Uri uri, ProductRepository.ImportCallback callback) {
+        productRepository.importFromCsv(uri, callback);
+    }
+
     public LiveData<ProductEntity> getProductByBarcode(String barcode) {
         return productRepository.getProductByBarcode(barcode);
     }
@@ -111,28 +190,19 @@ public class ProductViewModel extends AndroidViewModel {
         return selectedProduct;
     }
 
-    // If you need to explicitly adjust stock and want a dedicated method:
-    // This requires ProductRepository to also have a synchronous update method or handle it internally.
+    // Buffers a stock change of the cart (quantityChange is a delta, negative to decrease)
     public void adjustProductStock(long productId, double quantityChange) {
-        executor.execute(() -> {
-            ProductEntity product = productRepository.getProductByIdSync(productId);
-            if (product != null) {
-                Log.d("ProductViewModel", "Adjusting stock for " + product.getName() +
-                        ". Current: " + product.getStock() + ", Change: " + quantityChange);
-                product.setStock(product.getStock() + quantityChange); // quantityChange is delta (negative to decrease)
-                productRepository.update(product);
-            } else {
-                Log.e("ProductViewModel", "Product not found for stock adjustment: ID " + productId);
-            }
-        });
+        Log.d("ProductViewModel", "Adjusting stock for product " + productId + ", Change: " + quantityChange);
+        productRepository.adjustStock(productId, quantityChange);
     }
 
+    // Synchronous, for background threads: takes stock only if enough is available
+    public boolean tryDecrementStockSync(long productId, double quantity) {
+        return productRepository.tryDecrementStockSync(productId, quantity);
+    }
 
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
-        }
+    // Stock delta of the cart without a bounds check, buffered like the scans that took it
+    public void adjustProductStockSync(long productId, double quantityChange) {
+        productRepository.adjustStock(productId, quantityChange);
     }
 }
\ No newline at end of file
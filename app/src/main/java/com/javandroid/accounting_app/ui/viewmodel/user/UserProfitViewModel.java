@@ -12,11 +12,11 @@ import com.javandroid.accounting_app.data.model.UserEntity;
 import com.javandroid.accounting_app.data.model.UserProfitData;
 import com.javandroid.accounting_app.data.repository.OrderRepository;
 import com.javandroid.accounting_app.data.repository.UserRepository;
+import com.javandroid.accounting_app.util.AppExecutors;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class UserProfitViewModel extends AndroidViewModel {
     private static final String TAG = "UserProfitViewModel";
@@ -25,7 +25,7 @@ public class UserProfitViewModel extends AndroidViewModel {
     private final OrderRepository orderRepository;
     private final MutableLiveData<List<UserProfitData>> userProfitList = new MutableLiveData<>();
     private final MutableLiveData<Double> totalProfitAcrossAllUsers = new MutableLiveData<>(0.0);
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor executor = AppExecutors.getInstance().diskRead();
 
     public UserProfitViewModel(@NonNull Application application) {
         super(application);
@@ -36,41 +36,40 @@ public class UserProfitViewModel extends AndroidViewModel {
     public void loadAllUserProfits() {
         executor.execute(() -> {
             try {
-                List<UserEntity> users = userRepository.getAllUsersSync();
-                List<UserProfitData> profitDataList = new ArrayList<>();
-                double totalProfit = 0.0;
-
-                if (users != null) {
-                    for (UserEntity user : users) {
-                        // Calculate profit for this user
-                        double userProfit = orderRepository.calculateProfitByUserSync(user.getUserId());
-
-                        // Create UserProfitData object
-                        UserProfitData profitData = new UserProfitData(
-                                user.getUserId(),
-                                user.getUsername(),
-                                userProfit,
-                                0.0 // No customer-specific profit by default
-                        );
-
-                        profitDataList.add(profitData);
-                        totalProfit += userProfit;
-                    }
-
-                    // Post values to LiveData
-                    userProfitList.postValue(profitDataList);
-                    totalProfitAcrossAllUsers.postValue(totalProfit);
-
-                    Log.d(TAG, "Loaded profit data for " + users.size() + " users. Total profit: " + totalProfit);
-                } else {
-                    Log.e(TAG, "Failed to load users for profit calculation");
-                }
+                long start = System.nanoTime();
+                List<UserProfitData> profitDataList = orderRepository.getProfitForAllUsersSync();
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                publish(profitDataList);
+                Log.d(TAG, "Loaded profit data for " + profitDataList.size() + " users in " + elapsedMs + " ms");
             } catch (Exception e) {
                 Log.e(TAG, "Error loading user profits: " + e.getMessage(), e);
             }
         });
     }
 
+    /**
+     * Loads every user's profit together with the part earned from one customer
+     */
+    public void loadUserProfitsForCustomer(long customerId) {
+        executor.execute(() -> {
+            try {
+                publish(orderRepository.getProfitForAllUsersWithCustomerSync(customerId));
+                Log.d(TAG, "Loaded profit data with breakdown for customer " + customerId);
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading user profits for customer " + customerId + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private void publish(List<UserProfitData> profitDataList) {
+        double totalProfit = 0.0;
+        for (UserProfitData data : profitDataList) {
+            totalProfit += data.getTotalProfit();
+        }
+        userProfitList.postValue(profitDataList);
+        totalProfitAcrossAllUsers.postValue(totalProfit);
+    }
+
     public LiveData<List<UserProfitData>> getUserProfitList() {
         return userProfitList;
     }
@@ -115,12 +114,4 @@ public class UserProfitViewModel extends AndroidViewModel {
             }
         });
     }
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
@@ -7,28 +7,32 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import com.javandroid.accounting_app.data.model.UserEntity;
 import com.javandroid.accounting_app.data.repository.UserRepository;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * ViewModel responsible for managing user data
  */
 public class UserViewModel extends AndroidViewModel {
     private static final String TAG = "UserViewModel";
+    public static final int RECENT_LIMIT = 3;
 
     private final UserRepository userRepository;
     private final MutableLiveData<UserEntity> selectedUser = new MutableLiveData<>();
     private final MutableLiveData<UserEntity> currentUser = new MutableLiveData<>();
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final MutableLiveData<String> drawerQuery = new MutableLiveData<>("");
+    private final LiveData<List<UserEntity>> drawerUsers;
+    private final LiveData<List<UserEntity>> recentUsers;
 
     public UserViewModel(@NonNull Application application) {
         super(application);
         userRepository = new UserRepository(application);
+        drawerUsers = Transformations.switchMap(drawerQuery, userRepository::searchUsersByName);
+        recentUsers = userRepository.getRecentUsers(RECENT_LIMIT);
     }
 
     /**
@@ -38,6 +42,38 @@ public class UserViewModel extends AndroidViewModel {
         return userRepository.getAllUsers();
     }
 
+    /**
+     * Users matching the drawer's search box, in name order
+     */
+    public LiveData<List<UserEntity>> getDrawerUsers() {
+        return drawerUsers;
+    }
+
+    public LiveData<List<UserEntity>> getRecentUsers() {
+        return recentUsers;
+    }
+
+    public void setDrawerQuery(String query) {
+        String trimmed = query == null ? "" : query.trim();
+        if (!trimmed.equals(drawerQuery.getValue())) {
+            drawerQuery.setValue(trimmed);
+        }
+    }
+
+    public boolean hasDrawerQuery() {
+        String query = drawerQuery.getValue();
+        return query != null && !query.isEmpty();
+    }
+
+    /**
+     * Moves the user to the top of the drawer's recent list
+     */
+    public void markUsed(UserEntity user) {
+        if (user != null) {
+            userRepository.markUsed(user.getUserId());
+        }
+    }
+
     /**
      * Get user by ID
      */
@@ -95,9 +131,7 @@ public class UserViewModel extends AndroidViewModel {
         }
 
         Log.d(TAG, "Inserting user: " + user.getUsername());
-        executor.execute(() -> {
-            userRepository.insert(user);
-        });
+        userRepository.insert(user);
     }
 
     /**
@@ -110,9 +144,7 @@ public class UserViewModel extends AndroidViewModel {
         }
 
         Log.d(TAG, "Updating user: " + user.getUsername() + " (ID: " + user.getUserId() + ")");
-        executor.execute(() -> {
-            userRepository.update(user);
-        });
+        userRepository.update(user);
     }
 
     /**
@@ -125,9 +157,7 @@ public class UserViewModel extends AndroidViewModel {
         }
 
         Log.d(TAG, "Deleting user: " + user.getUsername() + " (ID: " + user.getUserId() + ")");
-        executor.execute(() -> {
-            userRepository.delete(user);
-        });
+        userRepository.delete(user);
     }
 
     /**
@@ -141,13 +171,4 @@ public class UserViewModel extends AndroidViewModel {
             return null;
         }
     }
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        // Shut down the executor when ViewModel is cleared
-        if (!executor.isShutdown()) {
-            executor.shutdown();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.javandroid.accounting_app.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide executors shared by repositories, ViewModels and delegates.
+ * <ul>
+ * <li>diskWrite: one thread, so every database write is applied in submission order</li>
+ * <li>diskRead: small bounded pool for queries that return through callbacks</li>
+ * <li>io: one thread for slow non-database work such as printing and file import</li>
+ * <li>journal: one thread for small ordered appends (cart journal), never blocked by io</li>
+ * <li>diff: one thread for RecyclerView list diffs, so they never wait behind queries</li>
+ * <li>mainThread: posts to the UI thread</li>
+ * </ul>
+ */
+public class AppExecutors {
+    private static final String TAG = "AppExecutors";
+    private static final int READ_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static volatile AppExecutors instance;
+
+    private final InstrumentedExecutor diskWrite;
+    private final InstrumentedExecutor diskRead;
+    private final InstrumentedExecutor io;
+    private final InstrumentedExecutor journal;
+    private final InstrumentedExecutor diff;
+    private final Executor mainThread;
+
+    private AppExecutors() {
+        diskWrite = new InstrumentedExecutor("db-write", 1);
+        diskRead = new InstrumentedExecutor("db-read", READ_THREADS);
+        io = new InstrumentedExecutor("io", 1);
+        journal = new InstrumentedExecutor("journal", 1);
+        diff = new InstrumentedExecutor("diff", 1);
+        mainThread = new MainThreadExecutor();
+    }
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public InstrumentedExecutor diskWrite() {
+        return diskWrite;
+    }
+
+    public InstrumentedExecutor diskRead() {
+        return diskRead;
+    }
+
+    public InstrumentedExecutor io() {
+        return io;
+    }
+
+    public InstrumentedExecutor journal() {
+        return journal;
+    }
+
+    public InstrumentedExecutor diff() {
+        return diff;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Log queue depth, wait and run times of all background executors
+     */
+    public void logStats() {
+        Log.i(TAG, diskWrite.getStats().toString());
+        Log.i(TAG, diskRead.getStats().toString());
+        Log.i(TAG, io.getStats().toString());
+        Log.i(TAG, journal.getStats().toString());
+        Log.i(TAG, diff.getStats().toString());
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mainHandler.post(command);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.javandroid.accounting_app.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader.
+ * Handles quoted fields with embedded commas, doubled quotes and line breaks,
+ * CRLF or LF line endings, a leading UTF-8 BOM, and skips blank lines.
+ * Only one record is held in memory at a time.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int pushback = -2; // -2 means empty
+
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private long nextLine = 1;
+    private long recordLine;
+    private boolean started;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next record.
+     * The returned list is reused by the next call; copy it to keep it.
+     *
+     * @return the record's fields, or null at end of input
+     */
+    public List<String> readRecord() throws IOException {
+        while (true) {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') c = read();
+            }
+            if (c == -1) return null;
+
+            fields.clear();
+            field.setLength(0);
+            recordLine = nextLine;
+            parseRecord(c);
+
+            // A blank line parses as one empty, unquoted field
+            if (fields.size() == 1 && fields.get(0).isEmpty()) continue;
+            return fields;
+        }
+    }
+
+    /**
+     * @return 1-based line number on which the last returned record started
+     */
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    private void parseRecord(int c) throws IOException {
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    // Unterminated quote at end of input: keep what was read
+                    fields.add(field.toString());
+                    return;
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') nextLine++;
+                    field.append((char) c);
+                }
+            } else {
+                if (c == -1) {
+                    fields.add(field.toString());
+                    return;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') unread(next);
+                    }
+                    nextLine++;
+                    fields.add(field.toString());
+                    return;
+                } else if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != -2) {
+            int c = pushback;
+            pushback = -2;
+            return c;
+        }
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(int c) {
+        pushback = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.javandroid.accounting_app.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size executor that records queue depth, task wait time and task run
+ * time, so contention on the shared background threads can be observed.
+ */
+public class InstrumentedExecutor implements Executor {
+    private final String name;
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public InstrumentedExecutor(String name, int threads) {
+        this.name = name;
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory(name));
+        // Idle threads of a read pool may die off; the serial writer (1 thread) behaves the same way
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        final long enqueuedAt = System.nanoTime();
+        pool.execute(() -> {
+            long startedAt = System.nanoTime();
+            try {
+                command.run();
+            } finally {
+                long finishedAt = System.nanoTime();
+                record(startedAt - enqueuedAt, finishedAt - startedAt);
+            }
+        });
+    }
+
+    private void record(long waitNanos, long runNanos) {
+        completedTasks.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        totalRunNanos.addAndGet(runNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        maxRunNanos.accumulateAndGet(runNanos, Math::max);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of tasks waiting for a thread right now
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public Stats getStats() {
+        return new Stats(name, getQueueDepth(), pool.getActiveCount(), completedTasks.get(),
+                totalWaitNanos.get(), totalRunNanos.get(), maxWaitNanos.get(), maxRunNanos.get());
+    }
+
+    /**
+     * Immutable snapshot of executor metrics
+     */
+    public static class Stats {
+        public final String name;
+        public final int queueDepth;
+        public final int activeThreads;
+        public final long completedTasks;
+        public final long totalWaitNanos;
+        public final long totalRunNanos;
+        public final long maxWaitNanos;
+        public final long maxRunNanos;
+
+        Stats(String name, int queueDepth, int activeThreads, long completedTasks,
+              long totalWaitNanos, long totalRunNanos, long maxWaitNanos, long maxRunNanos) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.activeThreads = activeThreads;
+            this.completedTasks = completedTasks;
+            this.totalWaitNanos = totalWaitNanos;
+            this.totalRunNanos = totalRunNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.maxRunNanos = maxRunNanos;
+        }
+
+        public double getAverageWaitMillis() {
+            return completedTasks == 0 ? 0 : totalWaitNanos / 1_000_000.0 / completedTasks;
+        }
+
+        public double getAverageRunMillis() {
+            return completedTasks == 0 ? 0 : totalRunNanos / 1_000_000.0 / completedTasks;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "%s: queued=%d active=%d done=%d avgWait=%.2fms maxWait=%.2fms avgRun=%.2fms maxRun=%.2fms",
+                    name, queueDepth, activeThreads, completedTasks,
+                    getAverageWaitMillis(), maxWaitNanos / 1_000_000.0,
+                    getAverageRunMillis(), maxRunNanos / 1_000_000.0);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.javandroid.accounting_app.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conversions between the display date string stored in orders.date and the
+ * epoch-millis orders.createdAt column, plus day/week/month range bounds.
+ */
+public final class OrderDates {
+    public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    // Leading part of PATTERN as typed in a search box, e.g. "2024-03" or "2024-03-05 14"
+    private static final Pattern DATE_PREFIX =
+            Pattern.compile("(\\d{4})(?:-(\\d{1,2})(?:-(\\d{1,2})(?: (\\d{1,2}))?)?)?-?");
+
+    private OrderDates() {
+    }
+
+    /**
+     * Formats with Locale.US so the stored string always uses ASCII digits
+     */
+    public static String format(long millis) {
+        return new SimpleDateFormat(PATTERN, Locale.US).format(new Date(millis));
+    }
+
+    /**
+     * Parses an orders.date value written by any earlier version of the app.
+     * Older rows were formatted with the device locale and may contain
+     * Persian or Arabic-Indic digits.
+     *
+     * @return epoch millis, or -1 if the string cannot be parsed
+     */
+    public static long parse(String date) {
+        if (date == null) return -1;
+        String normalized = toAsciiDigits(date.trim());
+        try {
+            Date parsed = new SimpleDateFormat(PATTERN, Locale.US).parse(normalized);
+            return parsed != null ? parsed.getTime() : -1;
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    static String toAsciiDigits(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '۰' && c <= '۹') {        // Extended Arabic-Indic (Persian)
+                sb.append((char) ('0' + (c - '۰')));
+            } else if (c >= '٠' && c <= '٩') { // Arabic-Indic
+                sb.append((char) ('0' + (c - '٠')));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static long startOfDay(long millis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    public static long startOfWeek(long millis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(startOfDay(millis));
+        cal.set(Calendar.DAY_OF_WEEK, cal.getFirstDayOfWeek());
+        if (cal.getTimeInMillis() > millis) {
+            cal.add(Calendar.WEEK_OF_YEAR, -1);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    public static long startOfMonth(long millis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(startOfDay(millis));
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * The createdAt range covered by a typed date prefix in the stored format:
+     * "2024" is the whole year, "2024-03" the month, "2024-03-05" the day and
+     * "2024-03-05 14" the hour. Persian and Arabic-Indic digits are accepted.
+     *
+     * @return {from, to} with to exclusive, or null if the text is not such a prefix
+     */
+    public static long[] prefixRange(String text) {
+        if (text == null) return null;
+        Matcher m = DATE_PREFIX.matcher(toAsciiDigits(text.trim()));
+        if (!m.matches()) return null;
+
+        Calendar cal = Calendar.getInstance();
+        cal.setLenient(false);
+        cal.clear();
+        int unit = Calendar.YEAR;
+        cal.set(Calendar.YEAR, Integer.parseInt(m.group(1)));
+        if (m.group(2) != null) {
+            cal.set(Calendar.MONTH, Integer.parseInt(m.group(2)) - 1);
+            unit = Calendar.MONTH;
+        }
+        if (m.group(3) != null) {
+            cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(3)));
+            unit = Calendar.DAY_OF_MONTH;
+        }
+        if (m.group(4) != null) {
+            cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(m.group(4)));
+            unit = Calendar.HOUR_OF_DAY;
+        }
+        try {
+            long from = cal.getTimeInMillis();
+            cal.add(unit, 1);
+            return new long[]{from, cal.getTimeInMillis()};
+        } catch (IllegalArgumentException e) {
+            return null; // e.g. month 13
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.javandroid.accounting_app.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drops repeated reads of a barcode that stays in front of the camera. A code
+ * is accepted again only once it has not been read for the whole window, so
+ * the same item scanned twice has to leave the frame in between.
+ * Not thread-safe.
+ */
+public class ScanDeduplicator {
+    private static final int MAX_TRACKED = 16;
+
+    private final long windowMs;
+    // Code -> when it was last read, least recently read first
+    private final LinkedHashMap<String, Long> lastSeen = new LinkedHashMap<>(MAX_TRACKED, 0.75f, true);
+
+    public ScanDeduplicator(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * @return false when the code was already read within the window
+     */
+    public boolean accept(String code, long nowMs) {
+        Long previous = lastSeen.put(code, nowMs);
+        prune(nowMs);
+        return previous == null || nowMs - previous >= windowMs;
+    }
+
+    public void reset() {
+        lastSeen.clear();
+    }
+
+    private void prune(long nowMs) {
+        Iterator<Map.Entry<String, Long>> entries = lastSeen.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            if (nowMs - entry.getValue() < windowMs && lastSeen.size() <= MAX_TRACKED) break;
+            entries.remove();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.javandroid.accounting_app.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off of scans from the input thread to one consumer on an
+ * executor. Scans are passed on in arrival order, every waiting scan in one
+ * batch, so a burst costs one executor task instead of one per scan and the
+ * input thread never blocks.
+ */
+public class ScanQueue<T> {
+    private final ArrayBlockingQueue<T> queue;
+    private final Executor executor;
+    private final Consumer<List<T>> consumer;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    public ScanQueue(int capacity, Executor executor, Consumer<List<T>> consumer) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.executor = executor;
+        this.consumer = consumer;
+    }
+
+    /**
+     * @return false when the queue is full and the scan was not taken
+     */
+    public boolean offer(T scan) {
+        if (!queue.offer(scan)) return false;
+        scheduleDrain();
+        return true;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(drainTask);
+        }
+    }
+
+    private void drain() {
+        try {
+            List<T> batch = new ArrayList<>();
+            while (queue.drainTo(batch) > 0) {
+                consumer.accept(batch);
+                batch = new ArrayList<>();
+            }
+        } finally {
+            draining.set(false);
+            // A scan offered after the last drainTo found the drain still running
+            if (!queue.isEmpty()) scheduleDrain();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.javandroid.accounting_app.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.javandroid.accounting_app.data.model.BarcodeShape;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks the camera decoders for the barcodes in stock. Each extra format costs
+ * decode time on every frame and adds false reads, so only the symbologies
+ * that can have printed a stocked barcode are tried.
+ */
+public final class StockedBarcodeFormats {
+    // Used while nothing is stocked: the usual retail symbologies
+    public static final Set<BarcodeFormat> RETAIL = EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.CODE_128);
+
+    private StockedBarcodeFormats() {
+    }
+
+    public static Set<BarcodeFormat> forShapes(List<BarcodeShape> shapes) {
+        if (shapes.isEmpty()) return EnumSet.copyOf(RETAIL);
+        Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        for (BarcodeShape shape : shapes) {
+            if (!shape.isAllDigits()) {
+                formats.add(BarcodeFormat.CODE_128);
+                formats.add(BarcodeFormat.CODE_39);
+                continue;
+            }
+            switch (shape.getLength()) {
+                case 13:
+                    formats.add(BarcodeFormat.EAN_13);
+                    break;
+                case 12:
+                    formats.add(BarcodeFormat.UPC_A);
+                    break;
+                case 8:
+                    // EAN-8, or UPC-E as zxing reports it (number system, six digits, check digit)
+                    formats.add(BarcodeFormat.EAN_8);
+                    formats.add(BarcodeFormat.UPC_E);
+                    break;
+                case 14:
+                    formats.add(BarcodeFormat.ITF);
+                    break;
+                default:
+                    formats.add(BarcodeFormat.CODE_128);
+                    break;
+            }
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,87 @@
+package com.javandroid.accounting_app.util;
+
+/**
+ * Assembles barcodes from the key stream of a keyboard-wedge scanner, using the
+ * time of each key rather than an EditText. A scanner types a whole code in a
+ * few milliseconds per key and normally ends it with Enter or Tab. When a
+ * scanner sends no terminator, a pause after a scanner-speed burst ends the
+ * code, which also splits two such codes that arrive back to back. Keys typed
+ * at human speed are kept until a terminator.
+ * Not thread-safe; feed it from one thread.
+ */
+public class WedgeScanAssembler {
+    // Scanners type faster than this per key; people do not
+    public static final long SCANNER_KEY_INTERVAL_MS = 40;
+    // Silence that ends a scanner-speed code without a terminator
+    public static final long END_OF_SCAN_GAP_MS = 120;
+    private static final int MIN_UNTERMINATED_LENGTH = 4;
+
+    private final StringBuilder buffer = new StringBuilder(32);
+    private long lastKeyAt;
+    private boolean scannerSpeed = true; // Every gap in the buffer so far was scanner speed
+    private boolean lastWasBurst;
+
+    /**
+     * @param eventTime when the key was pressed, in ms
+     * @return the code this key ended by coming after a pause, or null
+     */
+    public String onCharacter(char c, long eventTime) {
+        String completed = null;
+        if (buffer.length() > 0) {
+            long gap = eventTime - lastKeyAt;
+            if (gap >= END_OF_SCAN_GAP_MS && endsWithoutTerminator()) {
+                completed = take();
+            } else if (gap > SCANNER_KEY_INTERVAL_MS) {
+                scannerSpeed = false;
+            }
+        }
+        buffer.append(c);
+        lastKeyAt = eventTime;
+        return completed;
+    }
+
+    /**
+     * Enter or Tab
+     *
+     * @return the code it ends, or null when nothing was typed
+     */
+    public String onTerminator(long eventTime) {
+        lastKeyAt = eventTime;
+        return buffer.length() > 0 ? take() : null;
+    }
+
+    /**
+     * Call END_OF_SCAN_GAP_MS after the last key
+     *
+     * @return the scanner-speed code that ended without a terminator, or null
+     */
+    public String flushIfIdle(long now) {
+        if (buffer.length() > 0 && now - lastKeyAt >= END_OF_SCAN_GAP_MS && endsWithoutTerminator()) {
+            return take();
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the last completed code was typed at scanner speed throughout
+     */
+    public boolean lastWasBurst() {
+        return lastWasBurst;
+    }
+
+    public void reset() {
+        buffer.setLength(0);
+        scannerSpeed = true;
+    }
+
+    private boolean endsWithoutTerminator() {
+        return scannerSpeed && buffer.length() >= MIN_UNTERMINATED_LENGTH;
+    }
+
+    private String take() {
+        lastWasBurst = scannerSpeed && buffer.length() >= MIN_UNTERMINATED_LENGTH;
+        String code = buffer.toString().trim();
+        reset();
+        return code.isEmpty() ? null : code;
+    }
+}
@@ -0,0 +1,121 @@
+package com.javandroid.accounting_app.data.repository;
+
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the cart's indexing and totals, and compares the cost of one scan
+ * against the old copy / linear search / full recompute approach at
+ * 10, 100 and 1000 lines.
+ */
+public class CartBenchmarkTest {
+    private static final int SCANS = 20_000;
+
+    private static OrderItemEntity line(long itemId, long productId, double quantity) {
+        OrderItemEntity item = new OrderItemEntity(itemId, "BC" + productId);
+        item.setProductId(productId);
+        item.setProductName("Product " + productId);
+        item.setBuyPrice(1.0);
+        item.setSellPrice(1.5);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    @Test
+    public void keepsIndexAndTotalsAcrossChanges() {
+        Cart cart = new Cart();
+        cart.add(line(1, 10, 1));
+        cart.add(line(2, 20, 2));
+        cart.add(line(3, 30, 3));
+        List<OrderItemEntity> before = cart.snapshot();
+
+        assertEquals(true, cart.addToProduct(20, 1));
+        assertEquals(false, cart.addToProduct(99, 1));
+        assertEquals(2, before.get(1).getQuantity(), 0); // old snapshot untouched
+        assertEquals(3, cart.snapshot().get(1).getQuantity(), 0);
+
+        cart.remove(1);
+        assertEquals(true, cart.addToProduct(30, 1)); // index shifted after removal
+        assertEquals(4, cart.getByItemId(3).getQuantity(), 0);
+        assertEquals((3 + 4) * 1.5, cart.getTotal(), 1e-9);
+        assertEquals((3 + 4) * 0.5, cart.getMargin(), 1e-9);
+
+        cart.setSellPrice(2, 2.0);
+        assertEquals(3 * 2.0 + 4 * 1.5, cart.getTotal(), 1e-9);
+
+        List<OrderItemEntity> snapshot = cart.snapshot();
+        assertSame(snapshot, cart.snapshot());
+        cart.setQuantity(3, 1);
+        assertNotSame(snapshot, cart.snapshot());
+    }
+
+    @Test
+    public void benchmarkScanCost() {
+        for (int size : new int[]{10, 100, 1000}) {
+            List<OrderItemEntity> legacy = new ArrayList<>();
+            Cart cart = new Cart();
+            for (int i = 0; i < size; i++) {
+                legacy.add(line(i, i, 1));
+                cart.add(line(i, i, 1));
+            }
+
+            // Warm up both paths, then measure
+            legacyScans(legacy, size, SCANS);
+            cartScans(cart, size, SCANS);
+            long legacyNs = legacyScans(legacy, size, SCANS);
+            long cartNs = cartScans(cart, size, SCANS);
+
+            // Small carts are within timing noise of each other; large ones must not be slower
+            if (size == 1000) {
+                assertTrue("legacy " + legacyNs / SCANS + " ns/scan, indexed " + cartNs / SCANS + " ns/scan",
+                        cartNs <= legacyNs);
+            }
+        }
+    }
+
+    // Mirrors the former CurrentOrderViewModel.addProduct + OrderStateRepository.setCurrentOrderItems
+    private static long legacyScans(List<OrderItemEntity> items, int size, int scans) {
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < scans; s++) {
+            long productId = s % size;
+            List<OrderItemEntity> newItems = new ArrayList<>(items);
+            for (OrderItemEntity item : newItems) {
+                if (item.getProductId() != null && item.getProductId().equals(productId)) {
+                    item.setQuantity(item.getQuantity() + 1);
+                    break;
+                }
+            }
+            double total = 0.0;
+            for (OrderItemEntity item : newItems) {
+                total += item.getQuantity() * item.getSellPrice();
+            }
+            items = new ArrayList<>(newItems);
+            sink += total;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(true, sink > 0);
+        return elapsed;
+    }
+
+    private static long cartScans(Cart cart, int size, int scans) {
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < scans; s++) {
+            cart.addToProduct(s % size, 1);
+            sink += cart.getTotal() + cart.snapshot().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(true, sink > 0);
+        return elapsed;
+    }
+}
@@ -0,0 +1,103 @@
+package com.javandroid.accounting_app.print;
+
+import com.javandroid.accounting_app.data.model.OrderEntity;
+import com.javandroid.accounting_app.data.model.OrderItemEntity;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReceiptRendererTest {
+    private static final int WIDTH = 32;
+
+    private static OrderItemEntity item(String name, double quantity, double price) {
+        OrderItemEntity item = new OrderItemEntity(0, "000");
+        item.setProductName(name);
+        item.setQuantity(quantity);
+        item.setSellPrice(price);
+        return item;
+    }
+
+    private static OrderEntity order(List<OrderItemEntity> items) {
+        double total = 0;
+        for (OrderItemEntity item : items) total += item.getSellPrice() * item.getQuantity();
+        OrderEntity order = new OrderEntity("", total, 1, 1);
+        order.setOrderId(42);
+        return order;
+    }
+
+    // The text of the receipt, with the ESC sequences taken out
+    private static String[] lines(byte[] receipt) {
+        String text = new String(receipt, Charset.forName("windows-1252"))
+                .replaceAll("\u001B[@]", "")
+                .replaceAll("\u001B[tEJ].", "");
+        return text.split("\n");
+    }
+
+    private static String fixed(double value, int decimals) {
+        StringBuilder out = new StringBuilder();
+        ReceiptRenderer.appendFixed(out, value, decimals);
+        return out.toString();
+    }
+
+    @Test
+    public void appendFixed_roundsHalfUpWithoutLocale() {
+        assertEquals("12.50", fixed(12.5, 2));
+        assertEquals("0.05", fixed(0.049999, 2));
+        assertEquals("1.01", fixed(1.005000001, 2));
+        assertEquals("3", fixed(2.5, 0));
+        assertEquals("0.3", fixed(0.25, 1));
+        assertEquals("-7.10", fixed(-7.1, 2));
+        assertEquals("0.00", fixed(-0.001, 2));
+    }
+
+    @Test
+    public void render_linesFitThePaperAndShowTheOrder() {
+        List<OrderItemEntity> items = new ArrayList<>();
+        items.add(item("Milk", 2, 1.25));
+        items.add(item("Extra long product name", 0.5, 10));
+        items.add(item("Café", 12_345, 99_999.99));
+        Calendar date = Calendar.getInstance();
+        date.set(2024, Calendar.MARCH, 5, 9, 7);
+
+        String[] lines = lines(ReceiptRenderer.getInstance()
+                .render(order(items), items, "Ann", date.getTimeInMillis()));
+
+        for (String line : lines) {
+            assertTrue("'" + line + "' is wider than the paper", line.length() <= WIDTH);
+        }
+        assertEquals("RECEIPT", lines[0].trim());
+        assertEquals("03/05 09:07", lines[1].trim());
+        assertEquals("Cust: Ann", lines[2]);
+        assertEquals("Order :42", lines[3]);
+        assertTrue(lines[7].startsWith("Milk") && lines[7].endsWith("2 $1.25 $2.50"));
+        assertTrue(lines[8].startsWith("Extra long..") && lines[8].endsWith("0.5 $10.00 $5.00"));
+        // Too wide to share a line with the name
+        assertEquals("Café", lines[9]);
+        assertEquals("  12345 $99999.99 $1234499876.55", lines[10]);
+        assertEquals("TOTAL: $1234499884.05", lines[12].trim());
+        assertEquals(WIDTH, lines[12].length());
+        assertEquals("Thanks!", lines[lines.length - 1].trim());
+    }
+
+    @Test
+    public void render_reusesItsBufferForLargeReceipts() {
+        List<OrderItemEntity> items = new ArrayList<>();
+        for (int i = 0; i < 300; i++) items.add(item("Product " + i, i % 7 + 1, i + 0.99));
+        ReceiptRenderer renderer = new ReceiptRenderer(WIDTH);
+        OrderEntity order = order(items);
+
+        byte[] first = renderer.render(order, items, "Ann", 0);
+        for (int i = 0; i < 1_000; i++) renderer.render(order, items, "Ann", 0);
+
+        assertEquals(new String(first, Charset.forName("windows-1252")),
+                new String(renderer.render(order, items, "Ann", 0), Charset.forName("windows-1252")));
+        assertEquals(300 + 11, lines(first).length);
+    }
+}
@@ -0,0 +1,61 @@
+package com.javandroid.accounting_app.util;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CsvReaderTest {
+
+    private static List<List<String>> readAll(String csv) throws Exception {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                records.add(new ArrayList<>(record));
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void readsPlainRecords() throws Exception {
+        List<List<String>> records = readAll("a,b,c\n1,2,3\n");
+        assertEquals(Arrays.asList("a", "b", "c"), records.get(0));
+        assertEquals(Arrays.asList("1", "2", "3"), records.get(1));
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    public void readsQuotedCommasQuotesAndLineBreaks() throws Exception {
+        List<List<String>> records = readAll("1,\"Milk, 1L\",\"say \"\"hi\"\"\"\r\n2,\"two\nlines\",x");
+        assertEquals(Arrays.asList("1", "Milk, 1L", "say \"hi\""), records.get(0));
+        assertEquals(Arrays.asList("2", "two\nlines", "x"), records.get(1));
+    }
+
+    @Test
+    public void keepsEmptyFieldsAndSkipsBlankLines() throws Exception {
+        List<List<String>> records = readAll("\uFEFFa,,c\n\n,\n");
+        assertEquals(Arrays.asList("a", "", "c"), records.get(0));
+        assertEquals(Arrays.asList("", ""), records.get(1));
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    public void reportsStartingLineOfEachRecord() throws Exception {
+        try (CsvReader reader = new CsvReader(new StringReader("h\n\"a\nb\"\nc\n"))) {
+            reader.readRecord();
+            assertEquals(1, reader.getLineNumber());
+            reader.readRecord();
+            assertEquals(2, reader.getLineNumber());
+            reader.readRecord();
+            assertEquals(4, reader.getLineNumber());
+            assertNull(reader.readRecord());
+        }
+    }
+}
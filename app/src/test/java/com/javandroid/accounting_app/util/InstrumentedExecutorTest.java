@@ -0,0 +1,65 @@
+package com.javandroid.accounting_app.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedExecutorTest {
+
+    @Test
+    public void singleThreadExecutor_runsTasksInSubmissionOrder() throws Exception {
+        InstrumentedExecutor executor = new InstrumentedExecutor("test-write", 1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            executor.execute(() -> {
+                order.add(n);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void stats_recordQueueDepthAndWaitTime() throws Exception {
+        InstrumentedExecutor executor = new InstrumentedExecutor("test-read", 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            done.countDown();
+        });
+        executor.execute(done::countDown);
+        executor.execute(done::countDown);
+
+        // The first task blocks the only thread, so the other two are queued
+        Thread.sleep(50);
+        assertEquals(2, executor.getQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        Thread.sleep(20); // record() runs after the task body
+
+        InstrumentedExecutor.Stats stats = executor.getStats();
+        assertEquals(3, stats.completedTasks);
+        assertEquals(0, stats.queueDepth);
+        assertTrue(stats.maxWaitNanos >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+}
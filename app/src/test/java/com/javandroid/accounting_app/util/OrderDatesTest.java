@@ -0,0 +1,68 @@
+package com.javandroid.accounting_app.util;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrderDatesTest {
+
+    @Test
+    public void parse_roundTripsFormat() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2024, Calendar.MARCH, 5, 14, 30, 15);
+        cal.set(Calendar.MILLISECOND, 0);
+        long millis = cal.getTimeInMillis();
+
+        assertEquals(millis, OrderDates.parse(OrderDates.format(millis)));
+    }
+
+    @Test
+    public void parse_acceptsPersianAndArabicDigits() {
+        long expected = OrderDates.parse("2024-03-05 14:30:15");
+        assertTrue(expected > 0);
+        assertEquals(expected, OrderDates.parse("۲۰۲۴-۰۳-۰۵ ۱۴:۳۰:۱۵"));
+        assertEquals(expected, OrderDates.parse("٢٠٢٤-٠٣-٠٥ ١٤:٣٠:١٥"));
+    }
+
+    @Test
+    public void parse_returnsMinusOneForGarbage() {
+        assertEquals(-1, OrderDates.parse(null));
+        assertEquals(-1, OrderDates.parse("not a date"));
+    }
+
+    @Test
+    public void rangeStarts_areOrderedAndNotAfterNow() {
+        long now = System.currentTimeMillis();
+        long day = OrderDates.startOfDay(now);
+        long week = OrderDates.startOfWeek(now);
+        long month = OrderDates.startOfMonth(now);
+
+        assertTrue(day <= now);
+        assertTrue(week <= day);
+        assertTrue(month <= day);
+        assertTrue(now - week < 7L * 24 * 60 * 60 * 1000 + 60 * 60 * 1000); // allow a DST hour
+    }
+
+    @Test
+    public void prefixRange_coversTheTypedPeriod() {
+        long[] month = OrderDates.prefixRange("2024-03");
+        assertEquals(OrderDates.parse("2024-03-01 00:00:00"), month[0]);
+        assertEquals(OrderDates.parse("2024-04-01 00:00:00"), month[1]);
+
+        long[] day = OrderDates.prefixRange("۲۰۲۴-۰۳-۰۵");
+        assertEquals(OrderDates.parse("2024-03-05 00:00:00"), day[0]);
+        assertEquals(OrderDates.parse("2024-03-06 00:00:00"), day[1]);
+
+        long[] hour = OrderDates.prefixRange("2024-12-31 23");
+        assertEquals(OrderDates.parse("2024-12-31 23:00:00"), hour[0]);
+        assertEquals(OrderDates.parse("2025-01-01 00:00:00"), hour[1]);
+
+        assertNull(OrderDates.prefixRange("2024-13"));
+        assertNull(OrderDates.prefixRange("42"));
+        assertNull(OrderDates.prefixRange("Ali"));
+    }
+}
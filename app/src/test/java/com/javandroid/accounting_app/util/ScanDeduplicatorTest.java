@@ -0,0 +1,53 @@
+package com.javandroid.accounting_app.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.javandroid.accounting_app.data.model.BarcodeShape;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanDeduplicatorTest {
+
+    @Test
+    public void accept_dropsReadsWhileTheCodeStaysInView() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(1_000);
+
+        assertTrue(deduplicator.accept("123", 0));
+        // Read every 100 ms for three seconds: still the same item
+        for (long t = 100; t <= 3_000; t += 100) {
+            assertFalse(deduplicator.accept("123", t));
+        }
+        // Out of view for the whole window, then scanned again
+        assertTrue(deduplicator.accept("123", 4_000));
+    }
+
+    @Test
+    public void accept_tracksCodesSeparately() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(1_000);
+
+        assertTrue(deduplicator.accept("A", 0));
+        assertTrue(deduplicator.accept("B", 10));
+        assertFalse(deduplicator.accept("A", 20));
+        assertFalse(deduplicator.accept("B", 30));
+
+        deduplicator.reset();
+        assertTrue(deduplicator.accept("A", 40));
+    }
+
+    @Test
+    public void stockedFormats_followTheStockedBarcodes() {
+        assertEquals(EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.EAN_8, BarcodeFormat.UPC_E),
+                StockedBarcodeFormats.forShapes(Arrays.asList(
+                        new BarcodeShape(13, true), new BarcodeShape(8, true))));
+        assertEquals(EnumSet.of(BarcodeFormat.CODE_128, BarcodeFormat.CODE_39),
+                StockedBarcodeFormats.forShapes(Collections.singletonList(new BarcodeShape(6, false))));
+        assertEquals(StockedBarcodeFormats.RETAIL, StockedBarcodeFormats.forShapes(Collections.emptyList()));
+    }
+}
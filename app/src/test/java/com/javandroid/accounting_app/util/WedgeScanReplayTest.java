@@ -0,0 +1,221 @@
+package com.javandroid.accounting_app.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays recorded-like wedge scanner key streams through the assembler and the
+ * scan queue, with the flush timer run the way the Handler runs it.
+ */
+public class WedgeScanReplayTest {
+    private static final char ENTER = '\n';
+
+    // One key of the stream: a character, or ENTER, at eventTime
+    private static class Key {
+        final char c;
+        final long time;
+
+        Key(char c, long time) {
+            this.c = c;
+            this.time = time;
+        }
+    }
+
+    private static class Replay {
+        final List<Key> keys = new ArrayList<>();
+        final List<String> expected = new ArrayList<>();
+        long time = 1_000;
+
+        // A USB or Bluetooth scanner types a code at 2-8 ms per key
+        void scan(String code, boolean terminated, Random random) {
+            for (char c : code.toCharArray()) {
+                keys.add(new Key(c, time));
+                time += 2 + random.nextInt(7);
+            }
+            if (terminated) keys.add(new Key(ENTER, time));
+            expected.add(code);
+        }
+
+        void type(String code, long keyIntervalMs) {
+            for (char c : code.toCharArray()) {
+                keys.add(new Key(c, time));
+                time += keyIntervalMs;
+            }
+            keys.add(new Key(ENTER, time));
+            expected.add(code);
+        }
+
+        void pause(long ms) {
+            time += ms;
+        }
+    }
+
+    // Feeds the keys as WedgeScannerInput does, firing the flush when its time comes before the next key
+    private static List<String> assemble(List<Key> keys) {
+        WedgeScanAssembler assembler = new WedgeScanAssembler();
+        List<String> codes = new ArrayList<>();
+        long flushAt = Long.MAX_VALUE;
+        for (Key key : keys) {
+            if (flushAt <= key.time) {
+                addIfNotNull(codes, assembler.flushIfIdle(flushAt));
+                flushAt = Long.MAX_VALUE;
+            }
+            if (key.c == ENTER) {
+                addIfNotNull(codes, assembler.onTerminator(key.time));
+                flushAt = Long.MAX_VALUE;
+            } else {
+                addIfNotNull(codes, assembler.onCharacter(key.c, key.time));
+                flushAt = key.time + WedgeScanAssembler.END_OF_SCAN_GAP_MS;
+            }
+        }
+        if (flushAt != Long.MAX_VALUE) addIfNotNull(codes, assembler.flushIfIdle(flushAt));
+        return codes;
+    }
+
+    private static void addIfNotNull(List<String> codes, String code) {
+        if (code != null) codes.add(code);
+    }
+
+    private static String ean13(Random random) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 13; i++) code.append((char) ('0' + random.nextInt(10)));
+        return code.toString();
+    }
+
+    @Test
+    public void replay_burstAboveTenScansPerSecond_losesNoReads() throws Exception {
+        Random random = new Random(25);
+        Replay replay = new Replay();
+        long start = replay.time;
+        for (int i = 0; i < 300; i++) {
+            if (i % 50 == 49) {
+                // A scanner set up without a suffix, then a pause before the next item
+                replay.scan(ean13(random), false, random);
+                replay.pause(WedgeScanAssembler.END_OF_SCAN_GAP_MS + 10);
+            } else if (i % 10 == 9) {
+                // The next code starts right after the Enter of this one
+                replay.scan("SKU-" + i, true, random);
+                replay.pause(1);
+            } else {
+                replay.scan(i % 3 == 0 ? "4006381" + (100_000 + i) : ean13(random), true, random);
+                replay.pause(random.nextInt(10));
+            }
+        }
+        double scansPerSecond = replay.expected.size() * 1000.0 / (replay.time - start);
+        assertTrue("Replay rate " + scansPerSecond, scansPerSecond >= 12);
+
+        List<String> codes = assemble(replay.keys);
+        assertEquals(replay.expected, codes);
+
+        // Then through the queue to a consumer with a lookup cost, as in ProductScanViewModel
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<String> consumed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(codes.size());
+        ScanQueue<String> queue = new ScanQueue<>(256, executor, batch -> {
+            for (String code : batch) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                consumed.add(code);
+                done.countDown();
+            }
+        });
+        long queueStart = System.nanoTime();
+        for (String code : codes) {
+            assertTrue(queue.offer(code));
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        double consumedPerSecond = codes.size() * 1e9 / (System.nanoTime() - queueStart);
+        executor.shutdown();
+
+        assertEquals(replay.expected, consumed);
+        assertTrue("Consumed " + consumedPerSecond + " scans/s", consumedPerSecond >= 10);
+    }
+
+    @Test
+    public void replay_humanTyping_waitsForEnter() {
+        Replay replay = new Replay();
+        // Typed at 200 ms per key: never split by the pauses between keys
+        replay.type("4006381", 200);
+        replay.pause(500);
+        replay.scan("5901234123457", true, new Random(1));
+
+        assertEquals(replay.expected, assemble(replay.keys));
+    }
+
+    @Test
+    public void assembler_shortUnterminatedInputIsNotAScan() {
+        WedgeScanAssembler assembler = new WedgeScanAssembler();
+
+        assertNull(assembler.onCharacter('1', 0));
+        assertNull(assembler.onCharacter('2', 5));
+        assertNull(assembler.flushIfIdle(1_000));
+        // A lone Enter completes nothing
+        assertEquals("12", assembler.onTerminator(1_010));
+        assertNull(assembler.onTerminator(1_020));
+    }
+
+    @Test
+    public void assembler_tellsScannerBurstsFromTyping() {
+        WedgeScanAssembler assembler = new WedgeScanAssembler();
+        long time = 0;
+        for (char c : "5901234123457".toCharArray()) assembler.onCharacter(c, time += 4);
+        assertEquals("5901234123457", assembler.onTerminator(time += 4));
+        assertTrue(assembler.lastWasBurst());
+
+        for (char c : "abcd".toCharArray()) assembler.onCharacter(c, time += 150);
+        assertEquals("abcd", assembler.onTerminator(time += 150));
+        assertFalse(assembler.lastWasBurst());
+
+        // Too short to tell
+        assembler.onCharacter('1', time += 1_000);
+        assembler.onCharacter('2', time += 4);
+        assertEquals("12", assembler.onTerminator(time += 4));
+        assertFalse(assembler.lastWasBurst());
+    }
+
+    @Test
+    public void queue_slowConsumer_drainsInOrderedBatchesAndRefusesWhenFull() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> consumed = Collections.synchronizedList(new ArrayList<>());
+        ScanQueue<Integer> queue = new ScanQueue<>(4, executor, batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(batch.size());
+            consumed.addAll(batch);
+        });
+
+        // The first scan is taken by the drain, which then waits; four more fill the queue
+        assertTrue(queue.offer(0));
+        while (queue.size() > 0) Thread.sleep(1);
+        for (int i = 1; i <= 4; i++) assertTrue(queue.offer(i));
+        assertFalse(queue.offer(5));
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(0, 1, 2, 3, 4), consumed);
+        assertEquals(List.of(1, 4), batchSizes);
+    }
+}